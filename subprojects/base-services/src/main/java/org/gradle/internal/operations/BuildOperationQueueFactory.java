@@ -17,7 +17,8 @@
 package org.gradle.internal.operations;
 
 import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.work.WorkerLeaseService;
 
 public interface BuildOperationQueueFactory {
-    <T extends BuildOperation> BuildOperationQueue<T> create(StoppableExecutor executor, BuildOperationWorker<T> worker);
+    <T extends BuildOperation> BuildOperationQueue<T> create(StoppableExecutor executor, WorkerLeaseService workerLeaseService, BuildOperationWorker<T> worker);
 }
@@ -26,6 +26,7 @@ import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.exceptions.DefaultMultiCauseException;
+import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.util.CollectionUtils;
 
 import java.util.List;
@@ -34,16 +35,19 @@ public class DefaultBuildOperationProcessor implements BuildOperationProcessor,
     private static final String LINE_SEPARATOR = SystemProperties.getInstance().getLineSeparator();
 
     private final BuildOperationQueueFactory buildOperationQueueFactory;
-    private final StoppableExecutor fixedSizePool;
+    private final WorkerLeaseService workerLeaseService;
+    // The number of threads running operations is limited by the worker leases
+    private final StoppableExecutor executor;
 
-    public DefaultBuildOperationProcessor(BuildOperationQueueFactory buildOperationQueueFactory, ExecutorFactory executorFactory, int maxWorkerCount) {
+    public DefaultBuildOperationProcessor(BuildOperationQueueFactory buildOperationQueueFactory, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
         this.buildOperationQueueFactory = buildOperationQueueFactory;
-        this.fixedSizePool = executorFactory.create("build operations", maxWorkerCount);
+        this.workerLeaseService = workerLeaseService;
+        this.executor = executorFactory.create("build operations");
     }
 
     @Override
     public <T extends BuildOperation> void run(BuildOperationWorker<T> worker, Action<BuildOperationQueue<T>> generator) {
-        BuildOperationQueue<T> queue = buildOperationQueueFactory.create(fixedSizePool, worker);
+        BuildOperationQueue<T> queue = buildOperationQueueFactory.create(executor, workerLeaseService, worker);
 
         List<GradleException> failures = Lists.newArrayList();
         try {
@@ -83,7 +87,7 @@ public class DefaultBuildOperationProcessor implements BuildOperationProcessor,
     }
 
     public void stop() {
-        fixedSizePool.stop();
+        executor.stop();
     }
 
     private static String formatMultipleFailureMessage(List<GradleException> failures) {
@@ -17,84 +17,96 @@
 package org.gradle.internal.operations;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
-import com.google.common.util.concurrent.*;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.work.WorkerLeaseService;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicBoolean;
-
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs operations on additional threads while worker leases are available, and in the thread that waits for completion otherwise,
+ * so that the number of threads doing work never exceeds the number of worker leases.
+ */
 class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOperationQueue<T> {
-    private final ListeningExecutorService executor;
+    private final Executor executor;
+    private final WorkerLeaseService workerLeases;
     private final BuildOperationWorker<T> worker;
 
-    private final List<QueuedOperation> operations;
+    private final Lock lock = new ReentrantLock();
+    private final Condition workerFinished = lock.newCondition();
+    private final Deque<T> pendingOperations = new ArrayDeque<T>();
+    private final List<Throwable> failures = Lists.newArrayList();
+    // Workers that have been started and have not taken an operation yet
+    private int startingWorkers;
+    private int activeWorkers;
+    private boolean waitingForCompletion;
+    private boolean canceled;
 
     private String logLocation;
 
-    private final AtomicBoolean waitingForCompletion = new AtomicBoolean();
-    private final AtomicBoolean canceled = new AtomicBoolean();
-
-    DefaultBuildOperationQueue(ExecutorService executor, BuildOperationWorker<T> worker) {
-        this.executor = MoreExecutors.listeningDecorator(executor);
+    DefaultBuildOperationQueue(Executor executor, WorkerLeaseService workerLeases, BuildOperationWorker<T> worker) {
+        this.executor = executor;
+        this.workerLeases = workerLeases;
         this.worker = worker;
-        this.operations = Collections.synchronizedList(Lists.<QueuedOperation>newArrayList());
     }
 
     public void add(final T operation) {
-        if (waitingForCompletion.get()) {
-            throw new IllegalStateException("BuildOperationQueue cannot be reused once it has started completion.");
+        lock.lock();
+        try {
+            if (waitingForCompletion) {
+                throw new IllegalStateException("BuildOperationQueue cannot be reused once it has started completion.");
+            }
+            pendingOperations.add(operation);
+        } finally {
+            lock.unlock();
         }
-        OperationHolder operationHolder = new OperationHolder(operation);
-        ListenableFuture<?> future = executor.submit(operationHolder);
-        operations.add(new QueuedOperation(operationHolder, future));
+        startWorkerIfRequired();
     }
 
     @Override
     public void cancel() {
-        canceled.set(true);
-        for (QueuedOperation operation : operations) {
-            // Although we can cancel the future of a running operation, we have no way of knowing
-            // that the operation was canceled after it began executing (i.e. isCanceled always returns
-            // true) which is a problem because we need to know whether to wait on the result or not.
-            // So we have to maintain the running state ourselves and only cancel operations we know
-            // have not started executing.
-            if (!operation.operationHolder.isStarted()) {
-                operation.future.cancel(false);
-            }
+        lock.lock();
+        try {
+            // Operations that have started are allowed to complete
+            canceled = true;
+            pendingOperations.clear();
+        } finally {
+            lock.unlock();
         }
     }
 
     public void waitForCompletion() throws MultipleBuildOperationFailures {
-        waitingForCompletion.set(true);
-
-        CountDownLatch finished = new CountDownLatch(operations.size());
-        Queue<Throwable> failures = Queues.newConcurrentLinkedQueue();
-
-        for (QueuedOperation operation : operations) {
-            if (operation.future.isCancelled()) {
-                // If it's canceled, we'll never get a callback, so we just remove it from
-                // operations we're waiting for.
-                finished.countDown();
-            } else {
-                Futures.addCallback(operation.future, new CompletionCallback(finished, failures));
-            }
+        lock.lock();
+        try {
+            waitingForCompletion = true;
+        } finally {
+            lock.unlock();
         }
 
+        // Help with the remaining operations instead of just waiting for them
+        if (hasPendingOperations()) {
+            workerLeases.withWorkerLease(new Worker(false));
+        }
+
+        lock.lock();
         try {
-            finished.await();
+            while (activeWorkers > 0) {
+                workerFinished.await();
+            }
+            // all operations are complete, check for errors
+            if (!failures.isEmpty()) {
+                throw new MultipleBuildOperationFailures(getFailureMessage(failures), failures, logLocation);
+            }
         } catch (InterruptedException e) {
             throw UncheckedException.throwAsUncheckedException(e);
-        }
-
-        // all operations are complete, check for errors
-        if (!failures.isEmpty()) {
-            throw new MultipleBuildOperationFailures(getFailureMessage(failures), failures, logLocation);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -103,64 +115,108 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
         this.logLocation = logLocation;
     }
 
-    private static String getFailureMessage(Collection<? extends Throwable> failures) {
-        if (failures.size() == 1) {
-            return "A build operation failed.";
+    private boolean hasPendingOperations() {
+        lock.lock();
+        try {
+            return !pendingOperations.isEmpty();
+        } finally {
+            lock.unlock();
         }
-        return "Multiple build operations failed.";
     }
 
-    private static class CompletionCallback implements FutureCallback {
-        private final CountDownLatch finished;
-        private final Collection<Throwable> failures;
-
-        private CompletionCallback(CountDownLatch finished, Collection<Throwable> failures) {
-            this.finished = finished;
-            this.failures = failures;
-        }
-
-        public void onSuccess(Object result) {
-            finished.countDown();
+    /**
+     * Starts another worker thread when there are more pending operations than starting workers, and a worker lease is available.
+     */
+    private void startWorkerIfRequired() {
+        lock.lock();
+        try {
+            if (pendingOperations.size() <= startingWorkers) {
+                return;
+            }
+            startingWorkers++;
+            activeWorkers++;
+        } finally {
+            lock.unlock();
         }
 
-        public void onFailure(Throwable t) {
-            failures.add(t);
-            finished.countDown();
+        boolean started = false;
+        try {
+            started = workerLeases.tryRunWithWorkerLease(executor, new Worker(true));
+        } finally {
+            if (!started) {
+                lock.lock();
+                try {
+                    startingWorkers--;
+                    activeWorkers--;
+                    workerFinished.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
         }
     }
 
-    private class QueuedOperation {
-        final OperationHolder operationHolder;
-        final ListenableFuture future;
-
-        public QueuedOperation(OperationHolder operationHolder, ListenableFuture future) {
-            this.operationHolder = operationHolder;
-            this.future = future;
+    private static String getFailureMessage(Collection<? extends Throwable> failures) {
+        if (failures.size() == 1) {
+            return "A build operation failed.";
         }
+        return "Multiple build operations failed.";
     }
 
-    private class OperationHolder implements Runnable {
-        private final T operation;
-        private final AtomicBoolean started = new AtomicBoolean();
+    private class Worker implements Runnable {
+        private final boolean additionalThread;
+        private boolean starting;
 
-        OperationHolder(T operation) {
-            this.operation = operation;
+        Worker(boolean additionalThread) {
+            this.additionalThread = additionalThread;
+            this.starting = additionalThread;
         }
 
         public void run() {
-            // Don't execute if the queue has been canceled
-            started.set(!canceled.get());
-            if (started.get()) {
-                worker.execute(operation);
+            try {
+                T operation;
+                while ((operation = takeOperation()) != null) {
+                    // Let another thread pick up the remaining operations, when a worker lease has become available in the meantime
+                    startWorkerIfRequired();
+                    runOperation(operation);
+                }
+            } finally {
+                if (additionalThread) {
+                    lock.lock();
+                    try {
+                        activeWorkers--;
+                        workerFinished.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
             }
         }
 
-        public boolean isStarted() {
-            return started.get();
+        private T takeOperation() {
+            lock.lock();
+            try {
+                if (starting) {
+                    startingWorkers--;
+                    starting = false;
+                }
+                return canceled ? null : pendingOperations.poll();
+            } finally {
+                lock.unlock();
+            }
         }
 
-        public String toString() {
-            return "Worker ".concat(worker.getDisplayName()).concat(" for operation ").concat(operation.getDescription());
+        private void runOperation(T operation) {
+            try {
+                worker.execute(operation);
+            } catch (Throwable t) {
+                lock.lock();
+                try {
+                    failures.add(t);
+                } finally {
+                    lock.unlock();
+                }
+            }
         }
     }
 }
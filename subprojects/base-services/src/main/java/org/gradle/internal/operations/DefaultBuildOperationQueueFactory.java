@@ -17,10 +17,11 @@
 package org.gradle.internal.operations;
 
 import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.work.WorkerLeaseService;
 
 public class DefaultBuildOperationQueueFactory implements BuildOperationQueueFactory {
     @Override
-    public <T extends BuildOperation> BuildOperationQueue<T> create(StoppableExecutor executor, BuildOperationWorker<T> worker) {
-        return new DefaultBuildOperationQueue<T>(executor, worker);
+    public <T extends BuildOperation> BuildOperationQueue<T> create(StoppableExecutor executor, WorkerLeaseService workerLeaseService, BuildOperationWorker<T> worker) {
+        return new DefaultBuildOperationQueue<T>(executor, workerLeaseService, worker);
     }
 }
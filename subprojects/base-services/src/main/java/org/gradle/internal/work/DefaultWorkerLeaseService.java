@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.work;
+
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultWorkerLeaseService implements WorkerLeaseService {
+    private final int maxWorkerCount;
+    // Fair, so that threads waiting for a lease are not starved by threads that only take a lease when one is free
+    private final Semaphore leases;
+    private final ThreadLocal<Boolean> holdsLease = new ThreadLocal<Boolean>();
+
+    public DefaultWorkerLeaseService(int maxWorkerCount) {
+        if (maxWorkerCount < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkerCount);
+        }
+        this.maxWorkerCount = maxWorkerCount;
+        this.leases = new Semaphore(maxWorkerCount, true);
+    }
+
+    @Override
+    public int getMaxWorkerCount() {
+        return maxWorkerCount;
+    }
+
+    @Override
+    public void withWorkerLease(Runnable action) {
+        if (holdsLease.get() != null) {
+            action.run();
+            return;
+        }
+        try {
+            leases.acquire();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        runWithLease(action);
+    }
+
+    @Override
+    public boolean tryRunWithWorkerLease(Executor executor, final Runnable action) {
+        try {
+            if (!leases.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runWithLease(action);
+                }
+            });
+        } catch (RuntimeException e) {
+            leases.release();
+            throw e;
+        }
+        return true;
+    }
+
+    private void runWithLease(Runnable action) {
+        holdsLease.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            holdsLease.remove();
+            leases.release();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.work;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Limits the number of threads that do work for a build at the same time, such as executing tasks or build operations, to the maximum worker count.
+ * A thread must hold a worker lease while it does such work.
+ */
+public interface WorkerLeaseService {
+    int getMaxWorkerCount();
+
+    /**
+     * Runs the given action in the current thread while holding a worker lease, blocking until a lease is available.
+     * When the current thread already holds a lease, the action runs with that lease.
+     */
+    void withWorkerLease(Runnable action);
+
+    /**
+     * Runs the given action on the given executor while holding a worker lease, when a lease is available right now.
+     *
+     * @return true when the action was handed to the executor, false when no lease was available.
+     */
+    boolean tryRunWithWorkerLease(Executor executor, Runnable action);
+}
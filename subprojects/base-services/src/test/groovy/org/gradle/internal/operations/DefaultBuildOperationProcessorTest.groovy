@@ -20,15 +20,18 @@ import org.gradle.api.GradleException
 import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.exceptions.DefaultMultiCauseException
+import org.gradle.internal.work.DefaultWorkerLeaseService
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import spock.lang.Unroll
 
+import java.util.concurrent.atomic.AtomicInteger
+
 class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
 
     @Unroll
     def "all #operations operations run to completion when using #maxThreads threads"() {
         given:
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), maxThreads)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), new DefaultWorkerLeaseService(maxThreads))
         def operation = Mock(DefaultBuildOperationQueueTest.TestBuildOperation)
         def worker = new DefaultBuildOperationQueueTest.SimpleWorker()
 
@@ -58,7 +61,7 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
         given:
         def amountOfWork = 10
         def worker = new DefaultBuildOperationQueueTest.SimpleWorker()
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), maxThreads)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), new DefaultWorkerLeaseService(maxThreads))
         def numberOfQueues = 5
         def operations = [
             Mock(DefaultBuildOperationQueueTest.TestBuildOperation),
@@ -94,7 +97,7 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
         given:
         def amountOfWork = 10
         def maxThreads = 4
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), maxThreads)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), new DefaultWorkerLeaseService(maxThreads))
         def success = Stub(DefaultBuildOperationQueueTest.TestBuildOperation)
         def failure = Stub(DefaultBuildOperationQueueTest.TestBuildOperation) {
             run() >> { throw new Exception() }
@@ -138,7 +141,7 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
     def "multiple failures get reported"() {
         given:
         def threadCount = 4
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), threadCount)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), new DefaultWorkerLeaseService(threadCount))
         def worker = new DefaultBuildOperationQueueTest.SimpleWorker()
         def operation = Stub(DefaultBuildOperationQueueTest.TestBuildOperation) {
             run() >> {
@@ -160,9 +163,9 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
     def "operations are canceled when the generator fails"() {
         def buildQueue = Mock(BuildOperationQueue)
         def buildOperationQueueFactory = Mock(BuildOperationQueueFactory) {
-            create(_, _) >> { buildQueue }
+            create(_, _, _) >> { buildQueue }
         }
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(buildOperationQueueFactory, Stub(ExecutorFactory), 1)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(buildOperationQueueFactory, Stub(ExecutorFactory), new DefaultWorkerLeaseService(1))
         def worker = Stub(BuildOperationWorker)
         def operation = Mock(DefaultBuildOperationQueueTest.TestBuildOperation)
 
@@ -186,9 +189,9 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
             waitForCompletion() >> { throw new MultipleBuildOperationFailures("operations failed", operationFailures, null) }
         }
         def buildOperationQueueFactory = Mock(BuildOperationQueueFactory) {
-            create(_, _) >> { buildQueue }
+            create(_, _, _) >> { buildQueue }
         }
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(buildOperationQueueFactory, Stub(ExecutorFactory), 1)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(buildOperationQueueFactory, Stub(ExecutorFactory), new DefaultWorkerLeaseService(1))
         def worker = Stub(BuildOperationWorker)
         def operation = Mock(DefaultBuildOperationQueueTest.TestBuildOperation)
 
@@ -215,7 +218,7 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
 
     def "can provide only runnable build operations to the processor"() {
         given:
-        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), 2)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), new DefaultWorkerLeaseService(2))
         def operation = Mock(RunnableBuildOperation)
 
         when:
@@ -226,4 +229,38 @@ class DefaultBuildOperationProcessorTest extends ConcurrentSpec {
         then:
         5 * operation.run()
     }
+
+    def "does not run more operations at the same time than there are worker leases"() {
+        given:
+        def workerLeaseService = new DefaultWorkerLeaseService(2)
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), workerLeaseService)
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def operation = Stub(RunnableBuildOperation) {
+            run() >> {
+                def current = running.incrementAndGet()
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current))
+                }
+                Thread.sleep(10)
+                running.decrementAndGet()
+            }
+        }
+
+        when:
+        async {
+            3.times {
+                start {
+                    workerLeaseService.withWorkerLease {
+                        buildOperationProcessor.run({ queue ->
+                            5.times { queue.add(operation) }
+                        })
+                    }
+                }
+            }
+        }
+
+        then:
+        maxRunning.get() <= 2
+    }
 }
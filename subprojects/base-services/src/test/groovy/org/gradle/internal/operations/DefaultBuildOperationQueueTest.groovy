@@ -19,6 +19,7 @@ package org.gradle.internal.operations
 import com.google.common.util.concurrent.ListeningExecutorService
 import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.api.GradleException
+import org.gradle.internal.work.DefaultWorkerLeaseService
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -59,7 +60,7 @@ class DefaultBuildOperationQueueTest extends Specification {
 
     void setupQueue(int threads) {
         ListeningExecutorService sameThreadExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads))
-        operationQueue = new DefaultBuildOperationQueue(sameThreadExecutor, new SimpleWorker())
+        operationQueue = new DefaultBuildOperationQueue(sameThreadExecutor, new DefaultWorkerLeaseService(threads), new SimpleWorker())
     }
 
     @Unroll
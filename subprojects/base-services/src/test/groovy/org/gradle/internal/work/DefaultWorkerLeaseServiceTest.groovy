@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.work
+
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.Executor
+
+class DefaultWorkerLeaseServiceTest extends ConcurrentSpec {
+    def service = new DefaultWorkerLeaseService(1)
+
+    def "waits for worker lease when all leases are taken"() {
+        when:
+        async {
+            start {
+                service.withWorkerLease {
+                    instant.first
+                    thread.block()
+                    instant.firstCompleted
+                }
+            }
+            start {
+                thread.blockUntil.first
+                service.withWorkerLease {
+                    instant.second
+                }
+            }
+        }
+
+        then:
+        instant.second > instant.firstCompleted
+    }
+
+    def "uses the worker lease of the current thread for nested actions"() {
+        def action = Mock(Runnable)
+
+        when:
+        service.withWorkerLease {
+            service.withWorkerLease(action)
+        }
+
+        then:
+        1 * action.run()
+    }
+
+    def "does not run action on executor when all leases are taken"() {
+        def executor = Mock(Executor)
+
+        when:
+        def started = false
+        service.withWorkerLease {
+            started = service.tryRunWithWorkerLease(executor, Mock(Runnable))
+        }
+
+        then:
+        !started
+        0 * executor._
+    }
+
+    def "runs action on executor with worker lease when a lease is available"() {
+        def action = Mock(Runnable)
+        Runnable worker = null
+        def executor = Stub(Executor) {
+            execute(_) >> { Runnable r -> worker = r }
+        }
+
+        when:
+        def started = service.tryRunWithWorkerLease(executor, action)
+
+        then:
+        started
+        !service.tryRunWithWorkerLease(executor, Mock(Runnable))
+
+        when:
+        worker.run()
+
+        then:
+        1 * action.run()
+        service.tryRunWithWorkerLease(executor, Mock(Runnable))
+    }
+
+    def "releases worker lease when executor rejects action"() {
+        def executor = Stub(Executor) {
+            execute(_) >> { throw new IllegalStateException("stopped") }
+        }
+
+        when:
+        service.tryRunWithWorkerLease(executor, Mock(Runnable))
+
+        then:
+        thrown IllegalStateException
+
+        and:
+        service.tryRunWithWorkerLease(Mock(Executor), Mock(Runnable))
+    }
+}
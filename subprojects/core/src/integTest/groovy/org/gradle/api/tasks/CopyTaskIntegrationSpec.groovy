@@ -1064,5 +1064,50 @@ class CopyTaskIntegrationSpec extends AbstractIntegrationSpec {
         skippedTasks.empty
     }
 
+    def "copies only changed files when executed incrementally"() {
+        given:
+        file("src/a.txt").text = "a"
+        file("src/b.txt").text = "b"
+        buildScript '''
+            task (copy, type:Copy) {
+               from 'src'
+               into 'dest'
+            }
+        '''.stripIndent()
+        run 'copy'
+        file("dest/a.txt").lastModified = 1000
 
+        when:
+        file("src/b.txt").text = "changed"
+        run 'copy'
+
+        then:
+        file("dest/a.txt").lastModified() == 1000
+        file("dest/b.txt").text == "changed"
+    }
+
+    def "subclass can declare an incremental task action"() {
+        given:
+        file("src/a.txt").text = "a"
+        buildScript '''
+            class IncrementalCopy extends Copy {
+                @TaskAction
+                void report(IncrementalTaskInputs inputs) {
+                    println "incremental: ${inputs.incremental}"
+                }
+            }
+
+            task (copy, type:IncrementalCopy) {
+               from 'src'
+               into 'dest'
+            }
+        '''.stripIndent()
+
+        when:
+        run 'copy'
+
+        then:
+        file("dest/a.txt").text == "a"
+        output.contains("incremental: false")
+    }
 }
@@ -17,11 +17,11 @@
 package org.gradle.api.internal;
 
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.Striped;
 import groovy.lang.Closure;
 import groovy.lang.GroovyObject;
-import org.apache.commons.collections.map.AbstractReferenceMap;
-import org.apache.commons.collections.map.ReferenceMap;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.NonExtensible;
@@ -34,8 +34,9 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Generates a subclass of the target class to mix-in some DSL behaviour.
@@ -50,8 +51,9 @@ import java.util.concurrent.locks.ReentrantLock;
  * </ul>
  */
 public abstract class AbstractClassGenerator implements ClassGenerator {
-    private static final Map<Class<?>, Map<Class<?>, Class<?>>> GENERATED_CLASSES = new HashMap<Class<?>, Map<Class<?>, Class<?>>>();
-    private static final Lock CACHE_LOCK = new ReentrantLock();
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Class<?>>> GENERATED_CLASSES = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Class<?>>>();
+    // Serializes generation of a given type, while allowing different types to be generated concurrently
+    private static final Striped<Lock> GENERATION_LOCKS = Striped.lock(64);
     private static final Collection<String> SKIP_PROPERTIES = Arrays.asList("class", "metaClass", "conventionMapping", "convention", "asDynamicObject", "extensions");
 
     public <T> T newInstance(Class<T> type, Object... parameters) {
@@ -59,28 +61,41 @@ public abstract class AbstractClassGenerator implements ClassGenerator {
     }
 
     public <T> Class<? extends T> generate(Class<T> type) {
+        ConcurrentMap<Class<?>, Class<?>> cache = getCache();
+        Class<?> generatedClass = cache.get(type);
+        if (generatedClass != null) {
+            return generatedClass.asSubclass(type);
+        }
+
+        Lock lock = GENERATION_LOCKS.get(type);
+        lock.lock();
         try {
-            CACHE_LOCK.lock();
-            return generateUnderLock(type);
+            generatedClass = cache.get(type);
+            if (generatedClass != null) {
+                return generatedClass.asSubclass(type);
+            }
+            return generateUnderLock(type, cache);
         } finally {
-            CACHE_LOCK.unlock();
+            lock.unlock();
         }
     }
 
-    private <T> Class<? extends T> generateUnderLock(Class<T> type) {
-        Map<Class<?>, Class<?>> cache = GENERATED_CLASSES.get(getClass());
+    private ConcurrentMap<Class<?>, Class<?>> getCache() {
+        ConcurrentMap<Class<?>, Class<?>> cache = GENERATED_CLASSES.get(getClass());
         if (cache == null) {
             // WeakHashMap won't work here. It keeps a strong reference to the mapping value, which is the generated class in this case
             // However, the generated class has a strong reference to the source class (by extending it), so the keys will always be
             // strongly reachable while this Class is strongly reachable. Use weak references for both key and value of the mapping instead.
-            cache = new ReferenceMap(AbstractReferenceMap.WEAK, AbstractReferenceMap.WEAK);
-            GENERATED_CLASSES.put(getClass(), cache);
-        }
-        Class<?> generatedClass = cache.get(type);
-        if (generatedClass != null) {
-            return generatedClass.asSubclass(type);
+            cache = new MapMaker().weakKeys().weakValues().makeMap();
+            ConcurrentMap<Class<?>, Class<?>> existing = GENERATED_CLASSES.putIfAbsent(getClass(), cache);
+            if (existing != null) {
+                cache = existing;
+            }
         }
+        return cache;
+    }
 
+    private <T> Class<? extends T> generateUnderLock(Class<T> type, Map<Class<?>, Class<?>> cache) {
         if (Modifier.isPrivate(type.getModifiers())) {
             throw new GradleException(String.format("Cannot create a proxy class for private class '%s'.",
                     type.getSimpleName()));
@@ -17,7 +17,16 @@
 package org.gradle.api.internal;
 
 import org.gradle.api.tasks.TaskInputs;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.Factory;
 
 public interface TaskInputsInternal extends TaskInputs {
     void ensureConfigured();
+
+    /**
+     * Returns the changes to the input files since the previous execution of the task, or null when the task is not executing.
+     */
+    IncrementalTaskInputs getInputChanges();
+
+    void setInputChanges(Factory<IncrementalTaskInputs> inputChanges);
 }
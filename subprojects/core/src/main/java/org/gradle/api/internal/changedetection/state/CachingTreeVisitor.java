@@ -25,10 +25,12 @@ import org.gradle.api.file.FileVisitor;
 import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
 import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.file.collections.DirectoryWalker;
 import org.gradle.api.internal.file.collections.FileTreeAdapter;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 
 import java.io.File;
@@ -47,12 +49,27 @@ public class CachingTreeVisitor {
     private final static Logger LOG = Logging.getLogger(CachingTreeVisitor.class);
     public static final int VISITED_TREES_CACHE_MAX_SIZE = 500;
     private final Cache<String, VisitedTreeCacheEntry> cachedTrees;
-    private final AtomicLong nextId = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong nextId;
+    private final WatchingVisitedTreeCache retainedTrees;
+    private final Factory<DirectoryWalker> directoryWalkerFactory;
+    private final Object retainedTreesLock = new Object();
+    private Boolean retainedTreesUsable;
     private HashSet<String> cacheableFilePaths;
 
     public CachingTreeVisitor() {
+        this(null, null);
+    }
+
+    /**
+     * @param retainedTrees trees to reuse from and retain for later builds, or null when trees should only be cached within a build
+     * @param directoryWalkerFactory the walkers to visit directory trees with, or null to use the walkers of the trees
+     */
+    public CachingTreeVisitor(WatchingVisitedTreeCache retainedTrees, Factory<DirectoryWalker> directoryWalkerFactory) {
         HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
         cachedTrees = CacheBuilder.newBuilder().maximumSize(cacheSizer.scaleCacheSize(VISITED_TREES_CACHE_MAX_SIZE, 10)).build();
+        this.retainedTrees = retainedTrees;
+        this.directoryWalkerFactory = directoryWalkerFactory;
+        this.nextId = retainedTrees != null ? retainedTrees.getIdGenerator() : new AtomicLong(System.currentTimeMillis());
     }
 
     public VisitedTree visitTreeForSnapshotting(FileTreeInternal fileTree, boolean allowReuse) {
@@ -79,7 +96,7 @@ public class CachingTreeVisitor {
                         return cachedTree;
                     } else {
                         recordCacheMiss(directoryFileTree, allowReuse);
-                        cachedTree = doVisitTree(treePath, treePattern, fileTree, true);
+                        cachedTree = visitDirectoryTree(treePath, treePattern, fileTree, allowReuse, true);
                         cacheEntry.put(treePattern, cachedTree);
                         return cachedTree;
                     }
@@ -87,10 +104,46 @@ public class CachingTreeVisitor {
                     cacheEntry.unlock();
                 }
             }
+            return visitDirectoryTree(treePath, treePattern, fileTree, allowReuse, false);
         }
         return doVisitTree(treePath, treePattern, fileTree, false);
     }
 
+    private VisitedTree visitDirectoryTree(String treePath, PatternSet treePattern, FileTreeInternal fileTree, boolean allowReuse, boolean shareable) {
+        if (retainedTrees == null) {
+            return doVisitTree(treePath, treePattern, fileTree, shareable);
+        }
+        if (!allowReuse) {
+            // the tree is about to be changed by a task, don't keep it around for later builds
+            retainedTrees.discard(treePath);
+            return doVisitTree(treePath, treePattern, fileTree, shareable);
+        }
+        if (!canReuseRetainedTrees()) {
+            return doVisitTree(treePath, treePattern, fileTree, shareable);
+        }
+        VisitedTree retainedTree = retainedTrees.get(treePath, treePattern);
+        if (retainedTree != null) {
+            recordRetainedTreeHit(treePath);
+            return retainedTree;
+        }
+        long token = retainedTrees.startWatching(treePath, treePattern);
+        VisitedTree visitedTree = doVisitTree(treePath, treePattern, fileTree, shareable);
+        if (token >= 0) {
+            retainedTrees.retain(visitedTree, token);
+        }
+        return visitedTree;
+    }
+
+    private boolean canReuseRetainedTrees() {
+        synchronized (retainedTreesLock) {
+            if (retainedTreesUsable == null) {
+                // changes made before this build may not have been reported yet
+                retainedTreesUsable = retainedTrees.awaitPendingChanges();
+            }
+            return retainedTreesUsable;
+        }
+    }
+
     private VisitedTreeCacheEntry findOrCreateCacheEntry(String treePath) {
         VisitedTreeCacheEntry cacheEntry;
         try {
@@ -140,6 +193,10 @@ public class CachingTreeVisitor {
         }
     }
 
+    protected void recordRetainedTreeHit(String treePath) {
+        LOG.debug("Reusing tree retained from a previous build for {}", treePath);
+    }
+
     private boolean isCacheablePath(String absolutePath) {
         return cacheableFilePaths == null || cacheableFilePaths.contains(absolutePath);
     }
@@ -149,6 +206,10 @@ public class CachingTreeVisitor {
     }
 
     private VisitedTree doVisitTree(String absolutePath, PatternSet patternSet, FileTreeInternal fileTree, boolean shareable) {
+        if (directoryWalkerFactory != null && isDirectoryFileTree(fileTree)) {
+            DirectoryFileTree directoryFileTree = DirectoryFileTree.class.cast(((FileTreeAdapter) fileTree).getTree());
+            fileTree = new FileTreeAdapter(directoryFileTree.withDirectoryWalkerFactory(directoryWalkerFactory));
+        }
         final ImmutableList.Builder<FileTreeElement> fileTreeElements = ImmutableList.builder();
         fileTree.visitTreeOrBackingFile(new FileVisitor() {
             @Override
@@ -22,20 +22,38 @@ import com.google.common.collect.ImmutableSet;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.cache.CacheAccess;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class InMemoryTaskArtifactCache implements CacheDecorator {
+public class InMemoryTaskArtifactCache implements CacheDecorator, Stoppable {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
     private final static Object NULL = new Object();
     private static final Map<String, Integer> CACHE_CAPS = new CacheCapSizer().calculateCaps();
     private static final Set<String> WEAK_REFERENCE_CACHES = ImmutableSet.copyOf(new String[]{"fileSnapshots"});
+    // Caches holding their values weakly are not preloaded, as nothing would keep the preloaded values reachable
+    private static final Set<String> PRELOADED_CACHES = ImmutableSet.copyOf(new String[]{"taskArtifacts", "treeSnapshots", "fileHashes"});
+    private static final int KEY_SNAPSHOT_VERSION = 1;
+    static final int MAX_PRELOADED_KEYS = 10000;
+    static final int PRELOAD_BATCH_SIZE = 100;
 
     static class CacheCapSizer {
         private static final Map<String, Integer> DEFAULT_CAP_SIZES = new HashMap<String, Integer>();
@@ -48,6 +66,7 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
             DEFAULT_CAP_SIZES.put("fileHashes", 400000);
             DEFAULT_CAP_SIZES.put("compilationState", 1000);
+            DEFAULT_CAP_SIZES.put("testClassInfo", 1000);
         }
 
         final HeapProportionalCacheSizer sizer;
@@ -76,12 +95,22 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             .build();
 
     private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+    private final Map<String, String> cacheNames = new HashMap<String, String>();
+    private final Map<String, List<Object>> keysToPreload = new HashMap<String, List<Object>>();
+    private final StoppableExecutor preloadExecutor;
 
-    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
+    public InMemoryTaskArtifactCache(ExecutorFactory executorFactory) {
+        this.preloadExecutor = executorFactory.create("In-memory cache preload");
+    }
+
+    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original, final CacheAccess cacheAccess) {
         final Cache<Object, Object> data = loadData(cacheId, cacheName);
 
         return new MultiProcessSafePersistentIndexedCache<K, V>() {
+            private volatile boolean closed;
+
             public void close() {
+                closed = true;
                 original.close();
             }
 
@@ -120,6 +149,43 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
                     LOG.info("Invalidating in-memory cache of {}", cacheId);
                     data.invalidateAll();
                 }
+
+                final List<Object> keys;
+                synchronized (lock) {
+                    keys = keysToPreload.remove(cacheId);
+                }
+                if (keys != null) {
+                    preloadExecutor.execute(new Runnable() {
+                        public void run() {
+                            preload(keys);
+                        }
+                    });
+                }
+            }
+
+            /**
+             * Loads the entries in small batches, each in its own unit of work, so that the build is never kept waiting
+             * for the cache for longer than it takes to load one batch.
+             */
+            private void preload(List<Object> keys) {
+                LOG.info("Preloading {} entries into in-memory cache of {}", keys.size(), cacheId);
+                try {
+                    for (int i = 0; i < keys.size() && !closed; i += PRELOAD_BATCH_SIZE) {
+                        final List<Object> batch = keys.subList(i, Math.min(i + PRELOAD_BATCH_SIZE, keys.size()));
+                        cacheAccess.useCache("Preload in-memory cache of " + cacheId, new Runnable() {
+                            public void run() {
+                                for (Object key : batch) {
+                                    if (data.getIfPresent(key) == null) {
+                                        V value = original.get((K) key);
+                                        data.put(key, value == null ? NULL : value);
+                                    }
+                                }
+                            }
+                        });
+                    }
+                } catch (RuntimeException e) {
+                    LOG.info("Could not preload in-memory cache of {}", cacheId, e);
+                }
             }
 
             public void onEndWork(FileLock.State currentCacheState) {
@@ -149,11 +215,141 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
 
                 evictionListener.setCache(theData);
                 this.cache.put(cacheId, theData);
+                cacheNames.put(cacheId, cacheName);
             }
         }
         return theData;
     }
 
+    @Override
+    public void stop() {
+        preloadExecutor.stop();
+    }
+
+    /**
+     * Writes the keys currently held in memory, so that a later process can preload them using {@link #readKeySnapshot(File)}.
+     * Only the keys are written, the values are read again from the backing caches.
+     */
+    public void writeKeySnapshot(File snapshotFile) {
+        Map<String, List<Object>> keys = new HashMap<String, List<Object>>();
+        synchronized (lock) {
+            for (Map.Entry<String, Cache<Object, Object>> entry : cache.asMap().entrySet()) {
+                if (PRELOADED_CACHES.contains(cacheNames.get(entry.getKey()))) {
+                    List<Object> cacheKeys = new ArrayList<Object>();
+                    for (Object key : entry.getValue().asMap().keySet()) {
+                        if (cacheKeys.size() == MAX_PRELOADED_KEYS) {
+                            break;
+                        }
+                        cacheKeys.add(key);
+                    }
+                    keys.put(entry.getKey(), cacheKeys);
+                }
+            }
+        }
+
+        File tmpFile = null;
+        try {
+            // Other daemons of the same version write the same snapshot file, so each writes to its own temporary file and then renames it
+            tmpFile = File.createTempFile(snapshotFile.getName(), ".tmp", snapshotFile.getParentFile());
+            KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(tmpFile));
+            try {
+                encoder.writeSmallInt(KEY_SNAPSHOT_VERSION);
+                encoder.writeSmallInt(keys.size());
+                for (Map.Entry<String, List<Object>> entry : keys.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeSmallInt(entry.getValue().size());
+                    for (Object key : entry.getValue()) {
+                        writeKey(encoder, key);
+                    }
+                }
+            } finally {
+                encoder.close();
+            }
+            if (!tmpFile.renameTo(snapshotFile)) {
+                // Cannot replace an existing file on some platforms
+                snapshotFile.delete();
+                if (!tmpFile.renameTo(snapshotFile)) {
+                    tmpFile.delete();
+                }
+            }
+        } catch (Exception e) {
+            LOG.info("Could not write in-memory cache key snapshot to {}", snapshotFile, e);
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads keys written by {@link #writeKeySnapshot(File)}. The entries for these keys are loaded from the backing caches the next time each cache is opened.
+     * Does nothing when the snapshot is missing or was written in a different format.
+     */
+    public void readKeySnapshot(File snapshotFile) {
+        if (!snapshotFile.isFile()) {
+            return;
+        }
+        Map<String, List<Object>> keys = new HashMap<String, List<Object>>();
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(snapshotFile));
+            try {
+                if (decoder.readSmallInt() != KEY_SNAPSHOT_VERSION) {
+                    return;
+                }
+                int cacheCount = decoder.readSmallInt();
+                for (int i = 0; i < cacheCount; i++) {
+                    String cacheId = decoder.readString();
+                    int keyCount = decoder.readSmallInt();
+                    List<Object> cacheKeys = new ArrayList<Object>(keyCount);
+                    for (int j = 0; j < keyCount; j++) {
+                        cacheKeys.add(readKey(decoder));
+                    }
+                    keys.put(cacheId, cacheKeys);
+                }
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            LOG.info("Could not read in-memory cache key snapshot from {}", snapshotFile, e);
+            return;
+        }
+        synchronized (lock) {
+            for (Map.Entry<String, List<Object>> entry : keys.entrySet()) {
+                if (this.cache.getIfPresent(entry.getKey()) == null) {
+                    keysToPreload.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static void writeKey(Encoder encoder, Object key) throws IOException {
+        if (key instanceof String) {
+            encoder.writeByte((byte) 0);
+            encoder.writeString((String) key);
+        } else if (key instanceof Long) {
+            encoder.writeByte((byte) 1);
+            encoder.writeLong((Long) key);
+        } else if (key instanceof File) {
+            encoder.writeByte((byte) 2);
+            encoder.writeString(((File) key).getPath());
+        } else {
+            throw new IllegalArgumentException("Unsupported key type: " + key);
+        }
+    }
+
+    private static Object readKey(Decoder decoder) throws IOException {
+        byte type = decoder.readByte();
+        switch (type) {
+            case 0:
+                return decoder.readString();
+            case 1:
+                return decoder.readLong();
+            case 2:
+                return new File(decoder.readString());
+            default:
+                throw new IllegalArgumentException("Unsupported key type: " + type);
+        }
+    }
+
     private static class LoggingEvictionListener implements RemovalListener<Object, Object> {
         private static Logger logger = Logging.getLogger(LoggingEvictionListener.class);
         private static final String EVICTION_MITIGATION_MESSAGE = "\nPerformance may suffer from in-memory cache misses. Increase max heap size of Gradle build process to reduce cache misses.";
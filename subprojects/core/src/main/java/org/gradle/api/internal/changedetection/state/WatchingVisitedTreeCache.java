@@ -0,0 +1,427 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.Action;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.api.internal.file.pattern.PatternMatcherFactory;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retains directory trees visited for snapshotting across the builds of a long-lived process.
+ *
+ * <p>A tree is retained for its root and patterns. Only the directories that the include patterns can match are watched, and a retained tree
+ * is discarded as soon as anything that the patterns do not exclude is created, modified or deleted below those directories.</p>
+ *
+ * <p>File watchers report changes asynchronously. Before a build reuses any retained tree, {@link #awaitPendingChanges()} creates a file in a
+ * directory owned by this cache and waits for the change to be reported, so that every change made before that point has been applied.
+ * When the watcher does not report the change in time, as with polling watchers, trees are no longer retained.</p>
+ */
+public class WatchingVisitedTreeCache implements Stoppable {
+    public static final String WATCH_TREES_PROPERTY = "org.gradle.daemon.watchtrees";
+    static final long CHANGE_REPORT_TIMEOUT_MILLIS = 1000;
+    private final static Logger LOG = Logging.getLogger(WatchingVisitedTreeCache.class);
+    private final FileWatcherFactory fileWatcherFactory;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final Cache<RetainedTreeKey, VisitedTree> retainedTrees;
+    private final long maxWatchedTrees;
+    private final AtomicLong nextId = new AtomicLong(System.currentTimeMillis());
+    private final Object lock = new Object();
+    // all guarded by lock
+    private final Map<RetainedTreeKey, WatchedTree> watchedTrees = new HashMap<RetainedTreeKey, WatchedTree>();
+    private final Map<RetainedTreeKey, Long> invalidatedAt = new HashMap<RetainedTreeKey, Long>();
+    private long generation;
+    private FileWatcher fileWatcher;
+    private boolean failed;
+    private File markerDir;
+    private File pendingMarker;
+    private long markerCount;
+
+    public WatchingVisitedTreeCache(FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
+        HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
+        this.maxWatchedTrees = cacheSizer.scaleCacheSize(CachingTreeVisitor.VISITED_TREES_CACHE_MAX_SIZE, 10);
+        this.retainedTrees = CacheBuilder.newBuilder().maximumSize(maxWatchedTrees).build();
+    }
+
+    /**
+     * The id generator to use for all visited trees while this cache is in use, so that retained trees never clash with the ids of trees created by a later build.
+     */
+    public AtomicLong getIdGenerator() {
+        return nextId;
+    }
+
+    /**
+     * Waits until the file watcher has reported all changes made so far. Must be called by each build before it reuses any retained tree.
+     *
+     * @return true when retained trees can be reused, false when the changes were not reported in time and no trees are retained anymore.
+     */
+    public boolean awaitPendingChanges() {
+        File marker;
+        synchronized (lock) {
+            if (failed) {
+                return false;
+            }
+            if (fileWatcher == null) {
+                // nothing is watched, so nothing has been retained
+                return true;
+            }
+            marker = new File(markerDir, "change-" + (++markerCount));
+            pendingMarker = marker;
+        }
+        try {
+            if (!marker.createNewFile()) {
+                throw new IOException(String.format("Could not create '%s'.", marker));
+            }
+            synchronized (lock) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CHANGE_REPORT_TIMEOUT_MILLIS);
+                while (pendingMarker != null && !failed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        LOG.info("Stopped retaining directory trees between builds, as the file watcher did not report changes within {}ms.", CHANGE_REPORT_TIMEOUT_MILLIS);
+                        fail();
+                        break;
+                    }
+                    lock.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                }
+                return !failed;
+            }
+        } catch (IOException e) {
+            LOG.info("Stopped retaining directory trees between builds, as changes could not be made to the file system.", e);
+            synchronized (lock) {
+                fail();
+            }
+            return false;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            GFileUtils.deleteQuietly(marker);
+        }
+    }
+
+    /**
+     * Returns a copy of the tree retained for the given root and patterns, or null when there is no usable retained tree.
+     */
+    public VisitedTree get(String rootPath, PatternSet patternSet) {
+        VisitedTree retainedTree = retainedTrees.getIfPresent(new RetainedTreeKey(rootPath, patternSet));
+        if (retainedTree == null) {
+            return null;
+        }
+        // Use a fresh id, as the tree snapshot stored for the previous id may have been removed in the meantime
+        return new DefaultVisitedTree(rootPath, patternSet, ImmutableList.copyOf(retainedTree.getEntries()), retainedTree.isShareable(), nextId.incrementAndGet(), null);
+    }
+
+    /**
+     * Starts watching the directories that the given patterns can match below the given root. Must be called before the tree is visited.
+     *
+     * @return the token to pass to {@link #retain(VisitedTree, long)} once the tree has been visited, or -1 when the tree cannot be retained.
+     */
+    public long startWatching(String rootPath, PatternSet patternSet) {
+        if (patternSet != null && (patternSet.getClass() != PatternSet.class || !patternSet.getIncludeSpecs().isEmpty() || !patternSet.getExcludeSpecs().isEmpty())) {
+            // specs may give different results in a later build
+            return -1;
+        }
+        RetainedTreeKey key = new RetainedTreeKey(rootPath, patternSet);
+        WatchedTree watchedTree = new WatchedTree(new File(rootPath), patternSet);
+        for (File dir : watchedTree.dirs) {
+            if (!dir.isDirectory()) {
+                // a directory that does not exist yet cannot be watched for its creation
+                return -1;
+            }
+        }
+        FileWatcher watcher;
+        long token;
+        FileSystemSubset.Builder watchedDirs = FileSystemSubset.builder();
+        synchronized (lock) {
+            if (failed) {
+                return -1;
+            }
+            token = generation;
+            if (watchedTrees.containsKey(key)) {
+                return token;
+            }
+            if (watchedTrees.size() >= maxWatchedTrees) {
+                return -1;
+            }
+            if (fileWatcher == null) {
+                startWatcher();
+                watchedDirs.add(markerDir);
+            }
+            watcher = fileWatcher;
+            // register the tree before the watch is added, so that no event for it can be missed
+            watchedTrees.put(key, watchedTree);
+        }
+        // add the watches without holding the lock, as the watcher holds its own lock while it reports changes
+        try {
+            for (File dir : watchedTree.dirs) {
+                watchedDirs.add(dir);
+            }
+            watcher.watch(watchedDirs.build());
+            return token;
+        } catch (IOException e) {
+            LOG.debug("Could not watch {}, not retaining its tree.", rootPath, e);
+            synchronized (lock) {
+                watchedTrees.remove(key);
+            }
+            return -1;
+        }
+    }
+
+    private void startWatcher() {
+        markerDir = temporaryFileProvider.createTemporaryDirectory("gradle", "watch");
+        fileWatcher = fileWatcherFactory.watch(new Action<Throwable>() {
+            @Override
+            public void execute(Throwable throwable) {
+                onWatchFailure(throwable);
+            }
+        }, new FileWatcherListener() {
+            @Override
+            public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                onFileChange(event);
+            }
+        });
+    }
+
+    /**
+     * Retains the given tree, unless it has changed since {@link #startWatching(String, PatternSet)} returned the given token.
+     */
+    public void retain(VisitedTree visitedTree, long token) {
+        RetainedTreeKey key = new RetainedTreeKey(visitedTree.getAbsolutePath(), visitedTree.getPatternSet());
+        synchronized (lock) {
+            Long invalidated = invalidatedAt.get(key);
+            if (failed || !watchedTrees.containsKey(key) || (invalidated != null && invalidated > token)) {
+                return;
+            }
+            retainedTrees.put(key, visitedTree);
+        }
+    }
+
+    /**
+     * Discards the retained trees for the given root, for example because the tree is about to be changed by the build.
+     */
+    public void discard(String rootPath) {
+        for (RetainedTreeKey key : retainedTrees.asMap().keySet()) {
+            if (key.rootPath.equals(rootPath)) {
+                retainedTrees.invalidate(key);
+            }
+        }
+    }
+
+    private void onFileChange(FileWatcherEvent event) {
+        synchronized (lock) {
+            if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+                invalidate(new ArrayList<RetainedTreeKey>(watchedTrees.keySet()));
+                return;
+            }
+            File changedFile = event.getFile().getAbsoluteFile();
+            if (markerDir != null && markerDir.equals(changedFile.getParentFile())) {
+                if (changedFile.equals(pendingMarker)) {
+                    pendingMarker = null;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            List<RetainedTreeKey> affectedTrees = new ArrayList<RetainedTreeKey>();
+            for (Map.Entry<RetainedTreeKey, WatchedTree> entry : watchedTrees.entrySet()) {
+                if (entry.getValue().isAffectedBy(changedFile)) {
+                    affectedTrees.add(entry.getKey());
+                }
+            }
+            invalidate(affectedTrees);
+        }
+    }
+
+    private void invalidate(List<RetainedTreeKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        long invalidation = ++generation;
+        for (RetainedTreeKey key : keys) {
+            LOG.debug("Discarding retained tree for {} as it has changed.", key.rootPath);
+            retainedTrees.invalidate(key);
+            invalidatedAt.put(key, invalidation);
+            // the watch may have gone away with the directory, so it is registered again when the tree is next visited
+            watchedTrees.remove(key);
+        }
+    }
+
+    private void onWatchFailure(Throwable throwable) {
+        LOG.info("Stopped retaining directory trees between builds, as watching for file changes failed.", throwable);
+        synchronized (lock) {
+            fail();
+        }
+    }
+
+    private void fail() {
+        failed = true;
+        retainedTrees.invalidateAll();
+        lock.notifyAll();
+    }
+
+    @Override
+    public void stop() {
+        FileWatcher watcher;
+        synchronized (lock) {
+            fail();
+            watcher = fileWatcher;
+            fileWatcher = null;
+        }
+        CompositeStoppable.stoppable(watcher).stop();
+        if (markerDir != null) {
+            GFileUtils.deleteQuietly(markerDir);
+        }
+    }
+
+    private static class RetainedTreeKey {
+        private final String rootPath;
+        private final PatternSet patternSet;
+
+        RetainedTreeKey(String rootPath, PatternSet patternSet) {
+            this.rootPath = rootPath;
+            this.patternSet = patternSet == null || patternSet.isEmpty() ? null : new PatternSet().copyFrom(patternSet);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RetainedTreeKey that = (RetainedTreeKey) o;
+            return rootPath.equals(that.rootPath) && Objects.equal(patternSet, that.patternSet);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(rootPath, patternSet);
+        }
+    }
+
+    /**
+     * The directories watched for a retained tree, and the exclude patterns that tell which changes below them do not affect it.
+     */
+    private static class WatchedTree {
+        private final File root;
+        private final List<File> dirs = new ArrayList<File>();
+        private final List<Spec<RelativePath>> excludes = new ArrayList<Spec<RelativePath>>();
+
+        WatchedTree(File root, PatternSet patternSet) {
+            this.root = root;
+            if (patternSet == null || patternSet.getIncludes().isEmpty() || !patternSet.isCaseSensitive()) {
+                dirs.add(root);
+            } else {
+                for (String include : patternSet.getIncludes()) {
+                    dirs.add(literalParentDir(root, include));
+                }
+            }
+            if (patternSet != null) {
+                for (String exclude : patternSet.getExcludes()) {
+                    excludes.add(PatternMatcherFactory.getPatternMatcher(false, patternSet.isCaseSensitive(), exclude));
+                }
+            }
+        }
+
+        /**
+         * The deepest directory below the root that contains everything the given include pattern can match.
+         */
+        private static File literalParentDir(File root, String include) {
+            String[] segments = include.split("[/\\\\]");
+            File dir = root;
+            for (int i = 0; i < segments.length - 1; i++) {
+                String segment = segments[i];
+                if (segment.length() == 0 || segment.equals(".")) {
+                    continue;
+                }
+                if (segment.equals("..") || segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                    break;
+                }
+                dir = new File(dir, segment);
+            }
+            return dir;
+        }
+
+        boolean isAffectedBy(File changedFile) {
+            String changedPath = changedFile.getPath();
+            for (File dir : dirs) {
+                String dirPath = dir.getPath();
+                if (dirPath.equals(changedPath) || dirPath.startsWith(changedPath + File.separator)) {
+                    // a watched directory itself or one of its parents has changed
+                    return true;
+                }
+                if (changedPath.startsWith(dirPath + File.separator)) {
+                    return !isExcluded(changedPath.substring(root.getPath().length() + 1).split("[/\\\\]"));
+                }
+            }
+            return false;
+        }
+
+        private boolean isExcluded(String[] segments) {
+            if (excludes.isEmpty()) {
+                return false;
+            }
+            // nothing below an excluded directory is visited
+            for (int i = 1; i < segments.length; i++) {
+                String[] parentSegments = new String[i];
+                System.arraycopy(segments, 0, parentSegments, 0, i);
+                if (matchesExclude(new RelativePath(false, parentSegments))) {
+                    return true;
+                }
+            }
+            // the changed path may be a file or a directory
+            return matchesExclude(new RelativePath(true, segments)) && matchesExclude(new RelativePath(false, segments));
+        }
+
+        private boolean matchesExclude(RelativePath path) {
+            for (Spec<RelativePath> exclude : excludes) {
+                if (exclude.isSatisfiedBy(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.Zip64RequiredException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.internal.tasks.SimpleWorkResult;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.internal.IoActions;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.work.WorkerLeaseService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Creates a ZIP archive, compressing the entries of the archive on several threads.
+ *
+ * <p>The content of each entry is read in visiting order on the calling thread, and then deflated into a buffer of its own on another thread
+ * while a worker lease is available, or on the calling thread otherwise. The calling thread appends the compressed entries to the archive in
+ * visiting order, as they complete. Large entries are compressed and written directly by the calling thread.</p>
+ */
+public class ParallelZipCopyAction implements CopyAction {
+    public static final String PARALLEL_ZIP_PROPERTY = "org.gradle.zip.parallel";
+    static final int MAX_BUFFERED_ENTRY_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_PENDING_BYTES = 32 * 1024 * 1024;
+    private static final int MAX_PENDING_ENTRIES = 256;
+
+    private final File zipFile;
+    private final boolean allowZip64;
+    private final int entryCompressionMethod;
+    private final DocumentationRegistry documentationRegistry;
+    private final String encoding;
+    private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
+
+    public ParallelZipCopyAction(File zipFile, boolean allowZip64, int entryCompressionMethod, DocumentationRegistry documentationRegistry, String encoding, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        this.zipFile = zipFile;
+        this.allowZip64 = allowZip64;
+        this.entryCompressionMethod = entryCompressionMethod;
+        this.documentationRegistry = documentationRegistry;
+        this.encoding = encoding;
+        this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
+    }
+
+    public WorkResult execute(final CopyActionProcessingStream stream) {
+        final ZipArchiveOutputStream zipOutStr;
+
+        try {
+            zipOutStr = createArchiveOutputStream();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+
+        final StoppableExecutor executor = executorFactory.create("Zip entry compression");
+        try {
+            IoActions.withResource(zipOutStr, new Action<ZipArchiveOutputStream>() {
+                public void execute(ZipArchiveOutputStream outputStream) {
+                    StreamAction action = new StreamAction(outputStream, executor);
+                    try {
+                        stream.process(action);
+                        action.writeAll();
+                    } finally {
+                        action.cancel();
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof Zip64RequiredException) {
+                throw new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
+                        String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getCause().getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
+                );
+            }
+            throw e;
+        } finally {
+            executor.stop();
+        }
+
+        return new SimpleWorkResult(true);
+    }
+
+    private ZipArchiveOutputStream createArchiveOutputStream() throws Exception {
+        ZipArchiveOutputStream outStream = new ZipArchiveOutputStream(zipFile);
+        try {
+            outStream.setUseZip64(allowZip64 ? Zip64Mode.AsNeeded : Zip64Mode.Never);
+            outStream.setMethod(entryCompressionMethod);
+            if (encoding != null) {
+                outStream.setEncoding(encoding);
+            }
+            return outStream;
+        } catch (Exception e) {
+            IOUtils.closeQuietly(outStream);
+            throw e;
+        }
+    }
+
+    private class StreamAction implements CopyActionProcessingStreamAction {
+        private final ZipArchiveOutputStream zipOutStr;
+        private final StoppableExecutor executor;
+        private final LinkedList<PendingEntry> pending = new LinkedList<PendingEntry>();
+        private long pendingBytes;
+
+        public StreamAction(ZipArchiveOutputStream zipOutStr, StoppableExecutor executor) {
+            this.zipOutStr = zipOutStr;
+            this.executor = executor;
+        }
+
+        public void processFile(FileCopyDetailsInternal details) {
+            if (details.isDirectory()) {
+                pending.add(new PendingEntry(details, null));
+            } else if (details.getSize() > MAX_BUFFERED_ENTRY_SIZE) {
+                writeAll();
+                visitLargeFile(details);
+            } else {
+                EntryBuffer content = new EntryBuffer(details.getSize());
+                try {
+                    details.copyTo(content);
+                } catch (Exception e) {
+                    throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+                }
+                PendingEntry entry = new PendingEntry(details, new FutureTask<CompressedContent>(new Compress(content)));
+                pending.add(entry);
+                pendingBytes += content.size();
+                if (!workerLeaseService.tryRunWithWorkerLease(executor, entry.compression)) {
+                    // no other thread may work for the build right now, so compress the entry on this thread
+                    entry.compression.run();
+                }
+            }
+            writeCompleted();
+        }
+
+        /**
+         * Writes the entries at the head of the queue whose content has been compressed, and waits for the compression of the next
+         * entry while too much content is pending.
+         */
+        private void writeCompleted() {
+            while (!pending.isEmpty()) {
+                boolean overLimit = pendingBytes > MAX_PENDING_BYTES || pending.size() > MAX_PENDING_ENTRIES;
+                if (!overLimit && !pending.getFirst().isDone()) {
+                    return;
+                }
+                write(pending.removeFirst());
+            }
+        }
+
+        /**
+         * Writes all pending entries, so that the calling thread can use the archive afterwards.
+         */
+        void writeAll() {
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst());
+            }
+        }
+
+        void cancel() {
+            for (PendingEntry entry : pending) {
+                if (entry.compression != null) {
+                    entry.compression.cancel(false);
+                }
+            }
+            pending.clear();
+        }
+
+        private void write(PendingEntry entry) {
+            if (entry.compression == null) {
+                visitDir(entry.details);
+            } else {
+                CompressedContent content = entry.getCompressedContent();
+                pendingBytes -= content.size;
+                visitFile(entry.details, content);
+            }
+        }
+
+        private void visitFile(FileCopyDetails fileDetails, CompressedContent content) {
+            try {
+                ZipArchiveEntry archiveEntry = new ZipArchiveEntry(fileDetails.getRelativePath().getPathString());
+                archiveEntry.setTime(fileDetails.getLastModified());
+                archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+                archiveEntry.setMethod(entryCompressionMethod);
+                archiveEntry.setSize(content.size);
+                archiveEntry.setCompressedSize(content.compressed.size());
+                archiveEntry.setCrc(content.crc);
+                zipOutStr.addRawArchiveEntry(archiveEntry, new ByteArrayInputStream(content.compressed.getBuffer(), 0, content.compressed.size()));
+            } catch (Zip64RequiredException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", fileDetails, zipFile), e);
+            }
+        }
+
+        private void visitLargeFile(FileCopyDetails fileDetails) {
+            try {
+                ZipArchiveEntry archiveEntry = new ZipArchiveEntry(fileDetails.getRelativePath().getPathString());
+                archiveEntry.setTime(fileDetails.getLastModified());
+                archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+                zipOutStr.putArchiveEntry(archiveEntry);
+                fileDetails.copyTo(zipOutStr);
+                zipOutStr.closeArchiveEntry();
+            } catch (Zip64RequiredException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", fileDetails, zipFile), e);
+            }
+        }
+
+        private void visitDir(FileCopyDetails dirDetails) {
+            try {
+                // Trailing slash in name indicates that entry is a directory
+                ZipArchiveEntry archiveEntry = new ZipArchiveEntry(dirDetails.getRelativePath().getPathString() + '/');
+                archiveEntry.setTime(dirDetails.getLastModified());
+                archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getMode());
+                zipOutStr.putArchiveEntry(archiveEntry);
+                zipOutStr.closeArchiveEntry();
+            } catch (Zip64RequiredException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", dirDetails, zipFile), e);
+            }
+        }
+    }
+
+    /**
+     * Compresses the content of a single entry, using the compression method of the archive.
+     */
+    private class Compress implements Callable<CompressedContent> {
+        private final EntryBuffer content;
+
+        Compress(EntryBuffer content) {
+            this.content = content;
+        }
+
+        @Override
+        public CompressedContent call() {
+            CRC32 crc = new CRC32();
+            crc.update(content.getBuffer(), 0, content.size());
+            if (entryCompressionMethod == ZipArchiveOutputStream.STORED) {
+                return new CompressedContent(content.size(), crc.getValue(), content);
+            }
+            EntryBuffer compressed = new EntryBuffer(content.size() / 2);
+            // Raw deflate data, as the archive writes the headers of the entry
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(content.getBuffer(), 0, content.size());
+                deflater.finish();
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            } finally {
+                deflater.end();
+            }
+            return new CompressedContent(content.size(), crc.getValue(), compressed);
+        }
+    }
+
+    private static class CompressedContent {
+        final int size;
+        final long crc;
+        final EntryBuffer compressed;
+
+        CompressedContent(int size, long crc, EntryBuffer compressed) {
+            this.size = size;
+            this.crc = crc;
+            this.compressed = compressed;
+        }
+    }
+
+    private static class EntryBuffer extends ByteArrayOutputStream {
+        EntryBuffer(long expectedSize) {
+            super(expectedSize > 0 && expectedSize <= MAX_BUFFERED_ENTRY_SIZE ? (int) expectedSize : 32);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    private class PendingEntry {
+        final FileCopyDetails details;
+        final FutureTask<CompressedContent> compression;
+
+        PendingEntry(FileCopyDetails details, FutureTask<CompressedContent> compression) {
+            this.details = details;
+            this.compression = compression;
+        }
+
+        boolean isDone() {
+            return compression == null || compression.isDone();
+        }
+
+        CompressedContent getCompressedContent() {
+            try {
+                return compression.get();
+            } catch (ExecutionException e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e.getCause());
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+}
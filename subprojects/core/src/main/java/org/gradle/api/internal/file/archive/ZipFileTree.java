@@ -15,6 +15,9 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.tools.zip.ZipEntry;
 import org.apache.tools.zip.ZipFile;
 import org.gradle.api.GradleException;
@@ -27,12 +30,15 @@ import org.gradle.api.internal.file.AbstractFileTreeElement;
 import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.api.internal.file.collections.*;
 import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.nativeintegration.filesystem.Chmod;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.util.GFileUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Map;
@@ -49,8 +55,7 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         this.zipFile = zipFile;
         this.chmod = chmod;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
-        String expandDirName = zipFile.getName() + "_" + HashUtil.createCompactMD5(zipFile.getAbsolutePath());
-        this.tmpDir = new File(tmpDir, expandDirName);
+        this.tmpDir = tmpDir;
     }
 
     public String getDisplayName() {
@@ -58,7 +63,61 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
     }
 
     public DirectoryFileTree getMirror() {
-        return directoryFileTreeFactory.create(tmpDir);
+        if (!zipFile.isFile()) {
+            return directoryFileTreeFactory.create(getExpandDir(HashUtil.createCompactMD5(zipFile.getAbsolutePath())));
+        }
+        try {
+            ZipFile zip = new ZipFile(zipFile);
+            try {
+                return directoryFileTreeFactory.create(getExpandDir(getContentKey(getSortedEntries(zip))));
+            } finally {
+                zip.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not expand %s.", getDisplayName()), e);
+        }
+    }
+
+    /**
+     * Entries are only extracted when {@link FileVisitDetails#getFile()} is called. They are extracted into a directory named after the archive path
+     * and a hash of its central directory, so that entries extracted by earlier visits or builds are reused for as long as the archive does not change.
+     * The directories for earlier versions of the archive are left in place, as another build may still be using them, and are removed along with
+     * the rest of the temporary directory.
+     */
+    private File getExpandDir(String contentKey) {
+        return new File(tmpDir, getExpandDirPrefix() + contentKey);
+    }
+
+    private String getExpandDirPrefix() {
+        return zipFile.getName() + "_" + HashUtil.createCompactMD5(zipFile.getAbsolutePath()) + "_";
+    }
+
+    /**
+     * Identifies the content of the archive by the names, checksums, sizes, modes and times of its entries, as read from the central directory,
+     * so that the content does not need to be read.
+     */
+    private static String getContentKey(Collection<ZipEntry> entries) {
+        Hasher hasher = Hashing.md5().newHasher();
+        for (ZipEntry entry : entries) {
+            hasher.putString(entry.getName(), Charsets.UTF_8);
+            hasher.putLong(entry.getCrc());
+            hasher.putLong(entry.getSize());
+            hasher.putInt(entry.getUnixMode());
+            hasher.putLong(entry.getTime());
+        }
+        return new HashValue(hasher.hash().asBytes()).asCompactString();
+    }
+
+    private static Collection<ZipEntry> getSortedEntries(ZipFile zip) {
+        // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
+        // to us. So, collect the entries in a map and iterate over them in alphabetical order.
+        Map<String, ZipEntry> entriesByName = new TreeMap<String, ZipEntry>();
+        Enumeration entries = zip.getEntries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = (ZipEntry) entries.nextElement();
+            entriesByName.put(entry.getName(), entry);
+        }
+        return entriesByName.values();
     }
 
     public void visit(FileVisitor visitor) {
@@ -74,21 +133,15 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         try {
             ZipFile zip = new ZipFile(zipFile);
             try {
-                // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
-                // to us. So, collect the entries in a map and iterate over them in alphabetical order.
-                Map<String, ZipEntry> entriesByName = new TreeMap<String, ZipEntry>();
-                Enumeration entries = zip.getEntries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = (ZipEntry) entries.nextElement();
-                    entriesByName.put(entry.getName(), entry);
-                }
-                Iterator<ZipEntry> sortedEntries = entriesByName.values().iterator();
-                while (!stopFlag.get() && sortedEntries.hasNext()) {
-                    ZipEntry entry = sortedEntries.next();
+                Collection<ZipEntry> sortedEntries = getSortedEntries(zip);
+                ExpandDir expandDir = new ExpandDir(sortedEntries);
+                Iterator<ZipEntry> iterator = sortedEntries.iterator();
+                while (!stopFlag.get() && iterator.hasNext()) {
+                    ZipEntry entry = iterator.next();
                     if (entry.isDirectory()) {
-                        visitor.visitDir(new DetailsImpl(entry, zip, stopFlag, chmod));
+                        visitor.visitDir(new DetailsImpl(entry, zip, expandDir, stopFlag, chmod));
                     } else {
-                        visitor.visitFile(new DetailsImpl(entry, zip, stopFlag, chmod));
+                        visitor.visitFile(new DetailsImpl(entry, zip, expandDir, stopFlag, chmod));
                     }
                 }
             } finally {
@@ -103,16 +156,35 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         return zipFile;
     }
 
+    // Resolves the expand directory at most once per visit, and only if some entry is extracted
+    private class ExpandDir {
+        private final Collection<ZipEntry> entries;
+        private File dir;
+
+        ExpandDir(Collection<ZipEntry> entries) {
+            this.entries = entries;
+        }
+
+        File get() {
+            if (dir == null) {
+                dir = getExpandDir(getContentKey(entries));
+            }
+            return dir;
+        }
+    }
+
     private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
         private final ZipEntry entry;
         private final ZipFile zip;
+        private final ExpandDir expandDir;
         private final AtomicBoolean stopFlag;
         private File file;
 
-        public DetailsImpl(ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(ZipEntry entry, ZipFile zip, ExpandDir expandDir, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
             this.entry = entry;
             this.zip = zip;
+            this.expandDir = expandDir;
             this.stopFlag = stopFlag;
         }
 
@@ -126,12 +198,47 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public File getFile() {
             if (file == null) {
-                file = new File(tmpDir, entry.getName());
-                copyTo(file);
+                File target = new File(expandDir.get(), entry.getName());
+                if (!isExtracted(target)) {
+                    extract(target);
+                }
+                file = target;
             }
             return file;
         }
 
+        private boolean isExtracted(File target) {
+            if (entry.isDirectory()) {
+                return target.isDirectory();
+            }
+            // An extracted file gets the time of its entry, so a file changed after extraction is extracted again
+            return target.isFile() && target.length() == entry.getSize() && target.lastModified() == entry.getTime();
+        }
+
+        private void extract(File target) {
+            if (entry.isDirectory()) {
+                copyTo(target);
+                return;
+            }
+            // Extract to a temporary file first, so that a partially extracted entry is never reused
+            File tmpFile;
+            try {
+                GFileUtils.mkdirs(target.getParentFile());
+                tmpFile = File.createTempFile(target.getName(), ".part", target.getParentFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            copyTo(tmpFile);
+            tmpFile.setLastModified(entry.getTime());
+            if (!tmpFile.renameTo(target)) {
+                target.delete();
+                if (!tmpFile.renameTo(target)) {
+                    tmpFile.delete();
+                    throw new GradleException(String.format("Could not extract %s to '%s'.", getDisplayName(), target));
+                }
+            }
+        }
+
         public long getLastModified() {
             return entry.getTime();
         }
@@ -27,17 +27,30 @@ import java.nio.charset.Charset;
 
 public class DefaultDirectoryWalkerFactory implements Factory<DirectoryWalker> {
     private final JavaVersion javaVersion;
+    private final DirectoryWalker parallelWalker;
     private DirectoryWalker instance;
 
-    DefaultDirectoryWalkerFactory(JavaVersion javaVersion) {
+    DefaultDirectoryWalkerFactory(JavaVersion javaVersion, DirectoryWalker parallelWalker) {
         this.javaVersion = javaVersion;
+        this.parallelWalker = parallelWalker;
         reset();
     }
 
+    DefaultDirectoryWalkerFactory(JavaVersion javaVersion) {
+        this(javaVersion, null);
+    }
+
     DefaultDirectoryWalkerFactory() {
         this(JavaVersion.current());
     }
 
+    /**
+     * Creates a factory that uses the given walker, which lists directories concurrently, wherever the JDK 7 walker would be used.
+     */
+    public DefaultDirectoryWalkerFactory(DirectoryWalker parallelWalker) {
+        this(JavaVersion.current(), parallelWalker);
+    }
+
     public DirectoryWalker create() {
         return instance;
     }
@@ -49,7 +62,7 @@ public class DefaultDirectoryWalkerFactory implements Factory<DirectoryWalker> {
     private DirectoryWalker createInstance() {
         FileSystem fileSystem = FileSystems.getDefault();
         if (javaVersion.isJava8Compatible() || (javaVersion.isJava7Compatible() && defaultEncodingContainsPlatformEncoding())) {
-            return new Jdk7DirectoryWalker(fileSystem);
+            return parallelWalker != null ? parallelWalker : new Jdk7DirectoryWalker(fileSystem);
         } else {
             return new DefaultDirectoryWalker(fileSystem);
         }
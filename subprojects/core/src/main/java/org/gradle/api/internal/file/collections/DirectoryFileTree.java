@@ -97,6 +97,15 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
         return new DirectoryFileTree(dir, patternSet, directoryWalkerFactory);
     }
 
+    /**
+     * Returns a copy of this tree that walks the file system using the walkers created by the given factory.
+     */
+    public DirectoryFileTree withDirectoryWalkerFactory(Factory<DirectoryWalker> directoryWalkerFactory) {
+        DirectoryFileTree tree = new DirectoryFileTree(dir, patternSet, directoryWalkerFactory);
+        tree.postfix = postfix;
+        return tree;
+    }
+
     public boolean contains(File file) {
         return DirectoryTrees.contains(fileSystem, this, file) && file.isFile();
     }
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.collections.jdk7;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.api.internal.file.collections.DirectoryWalker;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.work.WorkerLeaseService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Walks a directory tree while other threads list the directories that the walk will reach next.
+ *
+ * <p>Entries are visited on the calling thread, in the same order as {@link Jdk7DirectoryWalker} visits them, and the include/exclude spec
+ * is only evaluated on the calling thread. The other threads only list directories and read file attributes. They run while they hold a
+ * worker lease, so a walk never uses more threads than the build may use, and the calling thread lists a directory itself when no other
+ * thread has done so yet. Other threads stay at most {@link #MAX_DIRECTORIES_AHEAD} listed directories ahead of the visitor, so the
+ * visitor starts as soon as the root directory has been listed and the tree is never held in memory as a whole.</p>
+ */
+public class ParallelJdk7DirectoryWalker implements DirectoryWalker, Stoppable {
+    static final int MAX_DIRECTORIES_AHEAD = 1000;
+
+    private final FileSystem fileSystem;
+    private final StoppableExecutor executor;
+    private final WorkerLeaseService workerLeaseService;
+
+    public ParallelJdk7DirectoryWalker(FileSystem fileSystem, StoppableExecutor executor, WorkerLeaseService workerLeaseService) {
+        this.fileSystem = fileSystem;
+        this.executor = executor;
+        this.workerLeaseService = workerLeaseService;
+    }
+
+    @Override
+    public void walkDir(File rootDir, RelativePath rootPath, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        Path root = rootDir.toPath();
+        Object rootKey;
+        try {
+            rootKey = fileKey(Files.readAttributes(root, BasicFileAttributes.class), root);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not list contents of directory '%s'.", rootDir), e);
+        }
+        Walk walk = new Walk();
+        try {
+            visitChildren(walk, new ScanDirectory(root, Collections.singleton(rootKey)), rootPath, visitor, spec, stopFlag, postfix);
+        } finally {
+            walk.finish();
+        }
+    }
+
+    private void visitChildren(Walk walk, ScanDirectory scan, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        List<Entry> entries = walk.await(scan);
+        for (Entry entry : entries) {
+            if (stopFlag.get()) {
+                return;
+            }
+            if (entry.failure != null) {
+                throw entry.failure;
+            }
+            if (entry.symlinkLoop) {
+                continue;
+            }
+            FileVisitDetails details = new DefaultFileVisitDetails(entry.file, path.append(!entry.directory, entry.file.getName()), stopFlag, fileSystem, fileSystem, entry.directory, entry.lastModified, entry.size);
+            if (!Jdk7DirectoryWalker.isAllowed(details, spec)) {
+                if (entry.scan != null) {
+                    walk.discard(entry.scan);
+                }
+                continue;
+            }
+            if (entry.brokenSymlink) {
+                throw new GradleException(String.format("Could not list contents of '%s'. Couldn't follow symbolic link.", entry.file));
+            }
+            if (entry.scan == null) {
+                visitor.visitFile(details);
+            } else {
+                if (!postfix) {
+                    visitor.visitDir(details);
+                }
+                visitChildren(walk, entry.scan, details.getRelativePath(), visitor, spec, stopFlag, postfix);
+                if (postfix && !stopFlag.get()) {
+                    visitor.visitDir(details);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+
+    private static Object fileKey(BasicFileAttributes attrs, Path path) {
+        Object key = attrs.fileKey();
+        return key != null ? key : path.toAbsolutePath().normalize();
+    }
+
+    private enum State {
+        PENDING, RUNNING, DONE, DISCARDED
+    }
+
+    private static class Entry {
+        File file;
+        boolean directory;
+        long lastModified;
+        long size;
+        boolean brokenSymlink;
+        boolean symlinkLoop;
+        RuntimeException failure;
+        ScanDirectory scan;
+    }
+
+    /**
+     * Lists a single directory.
+     */
+    private static class ScanDirectory {
+        private final Path dir;
+        private final Set<Object> ancestors;
+        // Protected by the lock of the walk
+        private State state = State.PENDING;
+        private List<Entry> entries;
+        private RuntimeException failure;
+
+        ScanDirectory(Path dir, Set<Object> ancestors) {
+            this.dir = dir;
+            this.ancestors = ancestors;
+        }
+
+        List<Entry> scan() {
+            List<Entry> entries = new ArrayList<Entry>();
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                try {
+                    for (Path child : stream) {
+                        Entry entry = readEntry(child);
+                        if (entry != null) {
+                            entries.add(entry);
+                        }
+                    }
+                } finally {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not read directory path '%s'.", dir), e);
+            }
+            return entries;
+        }
+
+        /**
+         * Returns the entry for the given file, following symbolic links, or null when the file should be ignored.
+         */
+        private Entry readEntry(Path child) {
+            Entry entry = new Entry();
+            entry.file = child.toFile();
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(child, BasicFileAttributes.class);
+            } catch (IOException e) {
+                try {
+                    attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException noLinkFailure) {
+                    // Removed while we're visiting
+                    return null;
+                }
+                if (!attrs.isSymbolicLink()) {
+                    entry.failure = new GradleException(String.format("Could not read path '%s'.", child), e);
+                    return entry;
+                }
+                entry.brokenSymlink = true;
+            }
+            entry.directory = attrs.isDirectory();
+            entry.lastModified = attrs.lastModifiedTime().toMillis();
+            entry.size = attrs.size();
+            if (entry.directory) {
+                Object key = fileKey(attrs, child);
+                if (ancestors.contains(key)) {
+                    // A symbolic link back to one of the enclosing directories, don't follow it
+                    entry.symlinkLoop = true;
+                    return entry;
+                }
+                Set<Object> childAncestors = new HashSet<Object>(ancestors);
+                childAncestors.add(key);
+                entry.scan = new ScanDirectory(child, childAncestors);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * The state of a single walk, shared between the visiting thread and the threads that list directories ahead of it.
+     */
+    private class Walk {
+        private final Object lock = new Object();
+        // Protected by lock
+        private final Deque<ScanDirectory> pending = new ArrayDeque<ScanDirectory>();
+        private int directoriesAhead;
+        private int helpers;
+        private boolean finished;
+
+        /**
+         * Returns the entries of the given directory, listing it on the calling thread when no other thread has started to do so.
+         */
+        List<Entry> await(ScanDirectory scan) {
+            if (tryStart(scan)) {
+                run(scan);
+            }
+            synchronized (lock) {
+                while (scan.state == State.RUNNING) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+                directoriesAhead--;
+                scan.state = State.DISCARDED;
+            }
+            startHelpers();
+            if (scan.failure != null) {
+                throw scan.failure;
+            }
+            return scan.entries;
+        }
+
+        /**
+         * Stops listing the given directory and the directories below it, as the visitor will not visit them.
+         */
+        void discard(ScanDirectory scan) {
+            synchronized (lock) {
+                doDiscard(scan);
+            }
+        }
+
+        private void doDiscard(ScanDirectory scan) {
+            if (scan.state == State.DONE) {
+                directoriesAhead--;
+                if (scan.entries != null) {
+                    for (Entry entry : scan.entries) {
+                        if (entry.scan != null) {
+                            doDiscard(entry.scan);
+                        }
+                    }
+                }
+            }
+            scan.state = State.DISCARDED;
+        }
+
+        void finish() {
+            synchronized (lock) {
+                finished = true;
+                pending.clear();
+            }
+        }
+
+        private boolean tryStart(ScanDirectory scan) {
+            synchronized (lock) {
+                if (scan.state != State.PENDING) {
+                    return false;
+                }
+                scan.state = State.RUNNING;
+                return true;
+            }
+        }
+
+        private void run(ScanDirectory scan) {
+            List<Entry> entries = null;
+            RuntimeException failure = null;
+            try {
+                entries = scan.scan();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (lock) {
+                if (scan.state == State.RUNNING) {
+                    scan.entries = entries;
+                    scan.failure = failure;
+                    scan.state = State.DONE;
+                    directoriesAhead++;
+                    if (entries != null && !finished) {
+                        // Depth first, in the order the visitor will reach them
+                        for (int i = entries.size() - 1; i >= 0; i--) {
+                            ScanDirectory childScan = entries.get(i).scan;
+                            if (childScan != null) {
+                                pending.addFirst(childScan);
+                            }
+                        }
+                    }
+                }
+                lock.notifyAll();
+            }
+        }
+
+        private ScanDirectory nextScan() {
+            synchronized (lock) {
+                while (!finished && directoriesAhead < MAX_DIRECTORIES_AHEAD && !pending.isEmpty()) {
+                    ScanDirectory scan = pending.removeFirst();
+                    if (scan.state == State.PENDING) {
+                        scan.state = State.RUNNING;
+                        return scan;
+                    }
+                }
+                helpers--;
+                return null;
+            }
+        }
+
+        /**
+         * Starts threads to list pending directories, one for each pending directory, as long as worker leases are available.
+         */
+        private void startHelpers() {
+            while (true) {
+                synchronized (lock) {
+                    if (finished || directoriesAhead >= MAX_DIRECTORIES_AHEAD || helpers >= pending.size()) {
+                        return;
+                    }
+                    helpers++;
+                }
+                boolean started = workerLeaseService.tryRunWithWorkerLease(executor, new Runnable() {
+                    @Override
+                    public void run() {
+                        ScanDirectory scan;
+                        while ((scan = nextScan()) != null) {
+                            Walk.this.run(scan);
+                        }
+                    }
+                });
+                if (!started) {
+                    synchronized (lock) {
+                        helpers--;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
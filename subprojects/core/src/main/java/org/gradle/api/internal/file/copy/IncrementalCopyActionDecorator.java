@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.copy;
+
+import org.gradle.api.Action;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+import org.gradle.internal.file.PathToFileResolver;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Only passes on the files which may differ from what a previous execution has left in the destination directory.
+ *
+ * Files that are copied unchanged from a source file which has not changed since the previous execution are skipped, as long as their destination file still exists.
+ * Everything else, including directories, filtered files and entries of archives, is passed on. All files are still visited, so that decorators such as
+ * {@link SyncCopyActionDecorator} see the complete set of files.
+ *
+ * When a source file has been removed since the previous execution, nothing is skipped. The removed file may have replaced another file with the same
+ * destination path, which now has to be copied again.
+ */
+public class IncrementalCopyActionDecorator implements CopyAction {
+    private final Set<File> changedFiles = new HashSet<File>();
+    private boolean inputsRemoved;
+    private final PathToFileResolver fileResolver;
+    private final CopyAction delegate;
+
+    /**
+     * @param inputs the changes to the inputs of the task, which must be incremental.
+     */
+    public IncrementalCopyActionDecorator(IncrementalTaskInputs inputs, PathToFileResolver fileResolver, CopyAction delegate) {
+        this.fileResolver = fileResolver;
+        this.delegate = delegate;
+        inputs.outOfDate(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                changedFiles.add(details.getFile().getAbsoluteFile());
+            }
+        });
+        inputs.removed(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                inputsRemoved = true;
+            }
+        });
+    }
+
+    public WorkResult execute(final CopyActionProcessingStream stream) {
+        final Set<RelativePath> visited = new HashSet<RelativePath>();
+
+        return delegate.execute(new CopyActionProcessingStream() {
+            public void process(final CopyActionProcessingStreamAction action) {
+                stream.process(new CopyActionProcessingStreamAction() {
+                    public void processFile(FileCopyDetailsInternal details) {
+                        // a later file with the same path wins, so it has to be copied again even when it has not changed
+                        boolean duplicate = !visited.add(details.getRelativePath());
+                        if (duplicate || !isUpToDate(details)) {
+                            action.processFile(details);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private boolean isUpToDate(FileCopyDetailsInternal details) {
+        if (inputsRemoved || details.isDirectory() || !(details instanceof DefaultFileCopyDetails) || !((DefaultFileCopyDetails) details).isCopiedFromFile()) {
+            return false;
+        }
+        if (changedFiles.contains(details.getFile().getAbsoluteFile())) {
+            return false;
+        }
+        return fileResolver.resolve(details.getRelativePath().getPathString()).isFile();
+    }
+}
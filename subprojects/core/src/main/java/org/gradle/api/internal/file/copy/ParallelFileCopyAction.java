@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.copy;
+
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.internal.tasks.SimpleWorkResult;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.file.PathToFileResolver;
+import org.gradle.internal.work.WorkerLeaseService;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Copies files into a destination directory like {@link FileCopyAction}, but copies the files that are taken unchanged from the file system on other threads,
+ * as long as worker leases are available. When no lease is available, the file is copied on the calling thread.
+ *
+ * All other files, such as filtered files or entries of archives, are copied while they are visited, like {@link FileCopyAction} does.
+ */
+public class ParallelFileCopyAction implements CopyAction {
+    public static final String PARALLEL_COPY_PROPERTY = "org.gradle.copy.parallel";
+    private static final int MAX_PENDING_COPIES_PER_THREAD = 16;
+
+    private final PathToFileResolver fileResolver;
+    private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
+
+    public ParallelFileCopyAction(PathToFileResolver fileResolver, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        this.fileResolver = fileResolver;
+        this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
+    }
+
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        StoppableExecutor executor = executorFactory.create("File copy");
+        try {
+            FileCopyDetailsInternalAction action = new FileCopyDetailsInternalAction(executor);
+            stream.process(action);
+            action.waitForPendingCopies(0);
+            return new SimpleWorkResult(action.didWork);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    private class FileCopyDetailsInternalAction implements CopyActionProcessingStreamAction {
+        private final StoppableExecutor executor;
+        private final Map<File, Future<Boolean>> pendingCopies = new LinkedHashMap<File, Future<Boolean>>();
+        private boolean didWork;
+
+        public FileCopyDetailsInternalAction(StoppableExecutor executor) {
+            this.executor = executor;
+        }
+
+        public void processFile(final FileCopyDetailsInternal details) {
+            final File target = fileResolver.resolve(details.getRelativePath().getPathString());
+            // a later file with the same path replaces the earlier one, so the copies must not overlap
+            Future<Boolean> previousCopy = pendingCopies.remove(target);
+            if (previousCopy != null) {
+                recordResult(previousCopy);
+            }
+            if (details.isDirectory() || !(details instanceof DefaultFileCopyDetails) || !((DefaultFileCopyDetails) details).isCopiedFromFile()) {
+                recordResult(details.copyTo(target));
+                return;
+            }
+            waitForPendingCopies(workerLeaseService.getMaxWorkerCount() * MAX_PENDING_COPIES_PER_THREAD - 1);
+            FutureTask<Boolean> copy = new FutureTask<Boolean>(new Callable<Boolean>() {
+                public Boolean call() {
+                    return details.copyTo(target);
+                }
+            });
+            if (!workerLeaseService.tryRunWithWorkerLease(executor, copy)) {
+                copy.run();
+                recordResult(copy);
+                return;
+            }
+            pendingCopies.put(target, copy);
+        }
+
+        void waitForPendingCopies(int maxPending) {
+            Iterator<Future<Boolean>> iterator = pendingCopies.values().iterator();
+            while (pendingCopies.size() > maxPending) {
+                Future<Boolean> copy = iterator.next();
+                iterator.remove();
+                recordResult(copy);
+            }
+        }
+
+        private void recordResult(Future<Boolean> copy) {
+            try {
+                recordResult(copy.get());
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            }
+        }
+
+        private void recordResult(boolean copied) {
+            if (copied) {
+                didWork = true;
+            }
+        }
+    }
+}
@@ -97,7 +97,8 @@ public class DefaultClassLoaderScope implements ClassLoaderScope {
         return new MultiParentClassLoader(parents);
     }
 
-    private void buildEffectiveLoaders() {
+    // Children of this scope may be used by several threads when projects are configured in parallel
+    private synchronized void buildEffectiveLoaders() {
         if (effectiveLocalClassLoader == null) {
             boolean hasExports = !export.isEmpty() || exportLoaders != null;
             boolean hasLocals = !local.isEmpty();
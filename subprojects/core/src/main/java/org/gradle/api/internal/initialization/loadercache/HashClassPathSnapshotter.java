@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.initialization.loadercache;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -33,8 +35,11 @@ import java.util.List;
 import java.util.Set;
 
 public class HashClassPathSnapshotter implements ClassPathSnapshotter {
+    private static final int MAX_CACHED_FINGERPRINTS = 20000;
 
     private final Hasher hasher;
+    // Fingerprints of the files seen so far, keyed by the canonical file, so that a link which now points at another file is not mistaken for the old target
+    private final Cache<File, FileFingerprint> fingerprints = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_FINGERPRINTS).build();
 
     public HashClassPathSnapshotter(Hasher hasher) {
         this.hasher = hasher;
@@ -57,6 +62,12 @@ public class HashClassPathSnapshotter implements ClassPathSnapshotter {
     private void hash(MessageDigest combinedHash, List<String> visitedFilePaths, Set<File> visitedDirs, Iterator<File> toHash) {
         while (toHash.hasNext()) {
             File file = FileUtils.canonicalize(toHash.next());
+            FileFingerprint fingerprint = fingerprints.getIfPresent(file);
+            if (fingerprint != null && fingerprint.isUpToDate()) {
+                visitedFilePaths.add(fingerprint.path);
+                combinedHash.update(fingerprint.hash);
+                continue;
+            }
             if (file.isDirectory()) {
                 if (visitedDirs.add(file)) {
                     //in theory, awkward symbolic links can lead to recursion problems.
@@ -64,13 +75,38 @@ public class HashClassPathSnapshotter implements ClassPathSnapshotter {
                     hash(combinedHash, visitedFilePaths, visitedDirs, Iterators.forArray(file.listFiles()));
                 }
             } else if (file.isFile()) {
-                visitedFilePaths.add(file.getAbsolutePath());
-                combinedHash.update(hasher.hash(file).asByteArray());
+                // take the file's identity before hashing it, so that a change while hashing is detected next time
+                long length = file.length();
+                long lastModified = file.lastModified();
+                fingerprint = new FileFingerprint(file, length, lastModified, hasher.hash(file).asByteArray());
+                fingerprints.put(file, fingerprint);
+                visitedFilePaths.add(fingerprint.path);
+                combinedHash.update(fingerprint.hash);
             }
             //else an empty folder - a legit situation
         }
     }
 
+    private static class FileFingerprint {
+        private final File file;
+        private final String path;
+        private final long length;
+        private final long lastModified;
+        private final byte[] hash;
+
+        private FileFingerprint(File file, long length, long lastModified, byte[] hash) {
+            this.file = file;
+            this.path = file.getAbsolutePath();
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        boolean isUpToDate() {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
     public static class HashClassPathSnapshot implements ClassPathSnapshot {
         private final List<String> files;
         private final byte[] hash;
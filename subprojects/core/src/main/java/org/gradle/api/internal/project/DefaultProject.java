@@ -71,6 +71,7 @@ import org.gradle.api.tasks.WorkResult;
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.configuration.project.ProjectConfigurationActionContainer;
 import org.gradle.configuration.project.ProjectEvaluator;
+import org.gradle.configuration.project.ProjectModelLock;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Factories;
@@ -141,6 +142,8 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     private ProjectEvaluator projectEvaluator;
 
+    private ProjectModelLock projectModelLock;
+
     private ScriptSource buildScriptSource;
 
     private final File projectDir;
@@ -316,13 +319,22 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     public ProjectInternal getRootProject() {
+        getProjectModelLock().accessSharedModel();
         return rootProject;
     }
 
     public GradleInternal getGradle() {
+        getProjectModelLock().accessSharedModel();
         return gradle;
     }
 
+    private ProjectModelLock getProjectModelLock() {
+        if (projectModelLock == null) {
+            projectModelLock = services.get(ProjectModelLock.class);
+        }
+        return projectModelLock;
+    }
+
     public ProjectEvaluator getProjectEvaluator() {
         if (projectEvaluator == null) {
             projectEvaluator = services.get(ProjectEvaluator.class);
@@ -358,6 +370,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     public ProjectInternal getParent() {
+        getProjectModelLock().accessSharedModel();
         return parent;
     }
 
@@ -391,7 +404,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         } else if (this == rootProject) {
             return "";
         }
-        group = rootProject.getName() + (getParent() == rootProject ? "" : "." + getParent().getPath().substring(1).replace(':', '.'));
+        group = rootProject.getName() + (parent == rootProject ? "" : "." + parent.getPath().substring(1).replace(':', '.'));
         return group;
     }
 
@@ -416,6 +429,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     public Map<String, Project> getChildProjects() {
+        getProjectModelLock().accessSharedModel();
         return childProjects;
     }
 
@@ -525,14 +539,17 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         if (!isTrue(path)) {
             throw new InvalidUserDataException("A path must be specified!");
         }
+        getProjectModelLock().accessSharedModel();
         return getProjectRegistry().getProject(absoluteProjectPath(path));
     }
 
     public Set<Project> getAllprojects() {
+        getProjectModelLock().accessSharedModel();
         return new TreeSet<Project>(getProjectRegistry().getAllProjects(getPath()));
     }
 
     public Set<Project> getSubprojects() {
+        getProjectModelLock().accessSharedModel();
         return new TreeSet<Project>(getProjectRegistry().getSubProjects(getPath()));
     }
 
@@ -1059,7 +1076,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     public void model(Closure<?> modelRules) {
         ModelRegistry modelRegistry = getModelRegistry();
         if (TransformedModelDslBacking.isTransformedBlock(modelRules)) {
-            ClosureBackedAction.execute(new TransformedModelDslBacking(modelRegistry, this.getRootProject().getFileResolver()), modelRules);
+            ClosureBackedAction.execute(new TransformedModelDslBacking(modelRegistry, rootProject.getFileResolver()), modelRules);
         } else {
             new NonTransformedModelDslBacking(modelRegistry).configure(modelRules);
         }
@@ -26,6 +26,8 @@ import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.UnionFileCollection;
 import org.gradle.api.internal.file.collections.DefaultConfigurableFileCollection;
 import org.gradle.api.tasks.TaskInputs;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.Factory;
 import org.gradle.util.ConfigureUtil;
 
 import java.util.HashMap;
@@ -42,6 +44,7 @@ public class DefaultTaskInputs implements TaskInputsInternal {
     private final TaskMutator taskMutator;
     private final Map<String, Object> properties = new HashMap<String, Object>();
     private Queue<Action<? super TaskInputs>> configureActions;
+    private Factory<IncrementalTaskInputs> inputChanges;
 
     public DefaultTaskInputs(FileResolver resolver, TaskInternal task, TaskMutator taskMutator) {
         this.resolver = resolver;
@@ -50,6 +53,14 @@ public class DefaultTaskInputs implements TaskInputsInternal {
         sourceFiles = new DefaultConfigurableFileCollection(task + " source files", resolver, null);
     }
 
+    public IncrementalTaskInputs getInputChanges() {
+        return inputChanges == null ? null : inputChanges.create();
+    }
+
+    public void setInputChanges(Factory<IncrementalTaskInputs> inputChanges) {
+        this.inputChanges = inputChanges;
+    }
+
     public boolean getHasInputs() {
         return !inputFiles.getFrom().isEmpty() || !properties.isEmpty() || !sourceFiles.getFrom().isEmpty();
     }
@@ -22,6 +22,8 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.TaskExecutionContext;
 import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.Factory;
 import org.gradle.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +48,7 @@ public class SkipUpToDateTaskExecuter implements TaskExecuter {
     public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
         LOGGER.debug("Determining if {} is up-to-date", task);
         Clock clock = new Clock();
-        TaskArtifactState taskArtifactState = repository.getStateFor(task);
+        final TaskArtifactState taskArtifactState = repository.getStateFor(task);
         boolean wasUpToDate = false;
         try {
             List<String> messages = LOGGER.isInfoEnabled() ? new ArrayList<String>() : null;
@@ -59,6 +61,11 @@ public class SkipUpToDateTaskExecuter implements TaskExecuter {
             logOutOfDateMessages(messages, task, clock.getTime());
 
             task.getOutputs().setHistory(taskArtifactState.getExecutionHistory());
+            task.getInputs().setInputChanges(new Factory<IncrementalTaskInputs>() {
+                public IncrementalTaskInputs create() {
+                    return taskArtifactState.getInputChanges();
+                }
+            });
             context.setTaskArtifactState(taskArtifactState);
 
             taskArtifactState.beforeTask();
@@ -69,6 +76,7 @@ public class SkipUpToDateTaskExecuter implements TaskExecuter {
                 }
             } finally {
                 task.getOutputs().setHistory(null);
+                task.getInputs().setInputChanges(null);
                 context.setTaskArtifactState(null);
             }
         } finally {
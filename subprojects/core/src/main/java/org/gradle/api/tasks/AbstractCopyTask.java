@@ -30,9 +30,16 @@ import org.gradle.api.internal.file.copy.CopyActionExecuter;
 import org.gradle.api.internal.file.copy.CopySpecInternal;
 import org.gradle.api.internal.file.copy.CopySpecSource;
 import org.gradle.api.internal.file.copy.DefaultCopySpec;
+import org.gradle.api.internal.file.copy.FileCopyAction;
+import org.gradle.api.internal.file.copy.IncrementalCopyActionDecorator;
+import org.gradle.api.internal.file.copy.ParallelFileCopyAction;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.file.PathToFileResolver;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.reflect.Instantiator;
+import org.gradle.internal.work.WorkerLeaseService;
 
 import javax.inject.Inject;
 import java.io.FilterReader;
@@ -61,6 +68,24 @@ public abstract class AbstractCopyTask extends ConventionTask implements CopySpe
 
     protected abstract CopyAction createCopyAction();
 
+    /**
+     * Creates the action which copies the files into the destination directory. When the task executes incrementally, files copied unchanged from source files
+     * which have not changed since the previous execution are skipped.
+     */
+    CopyAction createFileCopyAction(PathToFileResolver fileResolver) {
+        CopyAction copyAction;
+        if (Boolean.getBoolean(ParallelFileCopyAction.PARALLEL_COPY_PROPERTY)) {
+            copyAction = new ParallelFileCopyAction(fileResolver, getServices().get(ExecutorFactory.class), getServices().get(WorkerLeaseService.class));
+        } else {
+            copyAction = new FileCopyAction(fileResolver);
+        }
+        IncrementalTaskInputs inputChanges = getInputs().getInputChanges();
+        if (inputChanges != null && inputChanges.isIncremental()) {
+            copyAction = new IncrementalCopyActionDecorator(inputChanges, fileResolver, copyAction);
+        }
+        return copyAction;
+    }
+
     @Inject
     protected Instantiator getInstantiator() {
         throw new UnsupportedOperationException();
@@ -19,6 +19,7 @@ package org.gradle.api.tasks;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.copy.*;
+import org.gradle.internal.file.PathToFileResolver;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.io.File;
@@ -34,7 +35,9 @@ public class Sync extends AbstractCopyTask {
         if (destinationDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
-        return new SyncCopyActionDecorator(destinationDir, new FileCopyAction(getFileLookup().getFileResolver(destinationDir)));
+        PathToFileResolver fileResolver = getFileLookup().getFileResolver(destinationDir);
+        CopyAction copyAction = createFileCopyAction(fileResolver);
+        return new SyncCopyActionDecorator(destinationDir, copyAction);
     }
 
     @Override
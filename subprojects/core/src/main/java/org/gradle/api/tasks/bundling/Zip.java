@@ -19,6 +19,7 @@ import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.Incubating;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.archive.ParallelZipCopyAction;
 import org.gradle.api.internal.file.archive.ZipCopyAction;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.DefaultZipCompressor;
@@ -26,6 +27,8 @@ import org.gradle.api.internal.file.copy.ZipCompressor;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.work.WorkerLeaseService;
 
 import java.nio.charset.Charset;
 
@@ -60,6 +63,12 @@ public class Zip extends AbstractArchiveTask {
     @Override
     protected CopyAction createCopyAction() {
         DocumentationRegistry documentationRegistry = getServices().get(DocumentationRegistry.class);
+        if (Boolean.getBoolean(ParallelZipCopyAction.PARALLEL_ZIP_PROPERTY)) {
+            ExecutorFactory executorFactory = getServices().get(ExecutorFactory.class);
+            WorkerLeaseService workerLeaseService = getServices().get(WorkerLeaseService.class);
+            int entryCompressionMethod = entryCompression == ZipEntryCompression.STORED ? ZipOutputStream.STORED : ZipOutputStream.DEFLATED;
+            return new ParallelZipCopyAction(getArchivePath(), allowZip64, entryCompressionMethod, documentationRegistry, metadataCharset, executorFactory, workerLeaseService);
+        }
         return new ZipCopyAction(getArchivePath(), getCompressor(), documentationRegistry, metadataCharset);
     }
 
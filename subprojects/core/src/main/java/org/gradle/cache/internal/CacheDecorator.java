@@ -16,10 +16,13 @@
 
 package org.gradle.cache.internal;
 
+import org.gradle.cache.CacheAccess;
+
 public interface CacheDecorator {
     /**
      * @param cacheId Unique id for this cache instance.
      * @param cacheName Name for the type of contents stored in this cache instance.
+     * @param cacheAccess The access to the persistent cache that contains the cache instance, for use from threads that do not already own it.
      */
-    <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache<K, V> original);
+    <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache<K, V> original, CacheAccess cacheAccess);
 }
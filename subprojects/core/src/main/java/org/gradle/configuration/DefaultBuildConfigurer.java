@@ -18,6 +18,7 @@ package org.gradle.configuration;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.execution.ProjectConfigurer;
+import org.gradle.execution.TaskPathProjectEvaluator;
 import org.gradle.util.SingleMessageLogger;
 
 public class DefaultBuildConfigurer implements BuildConfigurer {
@@ -44,5 +45,8 @@ public class DefaultBuildConfigurer implements BuildConfigurer {
         } else if (startParameter.isConfigureOnDemand()) {
             SingleMessageLogger.incubatingFeatureUsed("Configuration on demand");
         }
+        if (!startParameter.isConfigureOnDemand() && Boolean.getBoolean(TaskPathProjectEvaluator.PARALLEL_CONFIGURATION_PROPERTY)) {
+            SingleMessageLogger.incubatingFeatureUsed("Parallel project configuration");
+        }
     }
 }
\ No newline at end of file
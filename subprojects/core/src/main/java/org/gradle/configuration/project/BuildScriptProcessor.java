@@ -25,9 +25,15 @@ import org.slf4j.LoggerFactory;
 public class BuildScriptProcessor implements ProjectConfigureAction {
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptProcessor.class);
     private final ScriptPluginFactory configurerFactory;
+    private final ProjectScriptPrecompiler scriptPrecompiler;
 
     public BuildScriptProcessor(ScriptPluginFactory configurerFactory) {
+        this(configurerFactory, null);
+    }
+
+    public BuildScriptProcessor(ScriptPluginFactory configurerFactory, ProjectScriptPrecompiler scriptPrecompiler) {
         this.configurerFactory = configurerFactory;
+        this.scriptPrecompiler = scriptPrecompiler;
     }
 
     public void execute(ProjectInternal project) {
@@ -36,6 +42,9 @@ public class BuildScriptProcessor implements ProjectConfigureAction {
         try {
             ScriptPlugin configurer = configurerFactory.create(project.getBuildScriptSource(), project.getBuildscript(), project.getClassLoaderScope(), project.getBaseClassLoaderScope(), true);
             configurer.apply(project);
+            if (scriptPrecompiler != null) {
+                scriptPrecompiler.precompileChildren(project);
+            }
         } finally {
             LOGGER.debug("Timing: Running the build script took {}", clock.getTime());
         }
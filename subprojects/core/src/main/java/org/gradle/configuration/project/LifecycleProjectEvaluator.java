@@ -22,35 +22,70 @@ import org.gradle.api.internal.project.ProjectStateInternal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * Manages lifecycle concerns while delegating actual evaluation to another evaluator
+ * Manages lifecycle concerns while delegating actual evaluation to another evaluator.
+ *
+ * <p>Projects may be evaluated by several threads at the same time. A project is evaluated by one thread at a time, and a thread that
+ * asks for a project that is being evaluated by another thread waits for that evaluation to complete. The listeners are notified while
+ * holding the shared model lock, see {@link ProjectModelLock}.</p>
  *
- * @see org.gradle.internal.service.scopes.BuildScopeServices#createProjectEvaluator()
+ * @see org.gradle.internal.service.scopes.BuildScopeServices#createProjectEvaluator(ProjectModelLock)
  */
 public class LifecycleProjectEvaluator implements ProjectEvaluator {
     private static final Logger LOGGER = LoggerFactory.getLogger(LifecycleProjectEvaluator.class);
 
     private final ProjectEvaluator delegate;
+    private final ProjectModelLock lock;
+    // Guarded by the shared model lock
+    private final Map<ProjectInternal, Evaluation> evaluations = new HashMap<ProjectInternal, Evaluation>();
 
-    public LifecycleProjectEvaluator(ProjectEvaluator delegate) {
+    public LifecycleProjectEvaluator(ProjectEvaluator delegate, ProjectModelLock lock) {
         this.delegate = delegate;
+        this.lock = lock;
     }
 
     public void evaluate(ProjectInternal project, ProjectStateInternal state) {
-        //TODO this is one of the places to look into thread safety when we implement parallel configuration
-        if (state.getExecuted() || state.getExecuting()) {
-            return;
+        if (lock.isEvaluating()) {
+            // Evaluating another project from a build script or a listener reaches into the shared model
+            lock.accessSharedModel();
+        }
+        lock.evaluationStarted();
+        try {
+            doEvaluate(project, state);
+        } finally {
+            lock.evaluationFinished();
         }
+    }
 
+    private void doEvaluate(ProjectInternal project, ProjectStateInternal state) {
         ProjectEvaluationListener listener = project.getProjectEvaluationBroadcaster();
+        Evaluation evaluation;
+        lock.lockSharedModel();
         try {
-            listener.beforeEvaluate(project);
-        } catch (Exception e) {
-            addConfigurationFailure(project, state, e);
-            return;
+            if (!startEvaluation(project, state)) {
+                return;
+            }
+            evaluation = new Evaluation(listener, project, state);
+            evaluations.put(project, evaluation);
+
+            try {
+                listener.beforeEvaluate(project);
+            } catch (Exception e) {
+                addConfigurationFailure(project, state, e);
+                evaluations.remove(project);
+                lock.signalSharedModelChanged();
+                return;
+            }
+
+            state.setExecuting(true);
+            lock.startScript();
+        } finally {
+            lock.unlockSharedModel();
         }
 
-        state.setExecuting(true);
         try {
             delegate.evaluate(project, state);
         } catch (Exception e) {
@@ -58,7 +93,44 @@ public class LifecycleProjectEvaluator implements ProjectEvaluator {
         } finally {
             state.setExecuting(false);
             state.executed();
-            notifyAfterEvaluate(listener, project, state);
+            evaluation.afterEvaluatePending = true;
+            lock.finishScript();
+        }
+
+        lock.lockSharedModel();
+        try {
+            evaluation.notifyAfterEvaluate();
+            evaluations.remove(project);
+            lock.signalSharedModelChanged();
+        } finally {
+            lock.unlockSharedModel();
+        }
+    }
+
+    /**
+     * Returns true when the current thread should evaluate the given project, or false when the project has been evaluated.
+     * Waits for the evaluation of the project by another thread to complete.
+     */
+    private boolean startEvaluation(ProjectInternal project, ProjectStateInternal state) {
+        while (true) {
+            Evaluation current = evaluations.get(project);
+            if (current == null) {
+                return !(state.getExecuted() || state.getExecuting());
+            }
+            if (current.thread == Thread.currentThread()) {
+                // A cycle in the evaluation of the projects, the project will be complete once the current thread returns to it
+                return false;
+            }
+            if (current.afterEvaluatePending) {
+                // The owner needs the shared model lock to finish, which this thread may hold exclusively, so finish on its behalf
+                current.notifyAfterEvaluate();
+                return false;
+            }
+            if (lock.isExclusive()) {
+                // The owner waits for this thread to release the shared model, so treat the project as a cycle
+                return false;
+            }
+            lock.awaitSharedModelChanged();
         }
     }
 
@@ -79,4 +151,25 @@ public class LifecycleProjectEvaluator implements ProjectEvaluator {
         ProjectConfigurationException failure = new ProjectConfigurationException(String.format("A problem occurred configuring %s.", project), e);
         state.executed(failure);
     }
+
+    private class Evaluation {
+        final Thread thread = Thread.currentThread();
+        final ProjectEvaluationListener listener;
+        final ProjectInternal project;
+        final ProjectStateInternal state;
+        volatile boolean afterEvaluatePending;
+
+        Evaluation(ProjectEvaluationListener listener, ProjectInternal project, ProjectStateInternal state) {
+            this.listener = listener;
+            this.project = project;
+            this.state = state;
+        }
+
+        void notifyAfterEvaluate() {
+            if (afterEvaluatePending) {
+                afterEvaluatePending = false;
+                LifecycleProjectEvaluator.this.notifyAfterEvaluate(listener, project, state);
+            }
+        }
+    }
 }
\ No newline at end of file
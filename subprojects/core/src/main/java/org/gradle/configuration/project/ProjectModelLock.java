@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration.project;
+
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coordinates the threads that evaluate the projects of a build, so that projects can be evaluated concurrently.
+ *
+ * <p>The build script of a project runs in isolation: the build scripts of several projects may run at the same time, as long as each of them
+ * only changes its own project. Everything else is the shared model, and changes to it are serialised:</p>
+ *
+ * <ul>
+ *     <li>The project evaluation listeners are notified while holding the shared model lock.</li>
+ *     <li>When a build script reaches into the shared model, for example by looking up another project or the {@link org.gradle.api.invocation.Gradle}
+ *     instance, {@link #accessSharedModel()} gives the evaluation exclusive access. It waits for the build scripts that are running on other threads
+ *     to complete, and keeps the exclusive access until the evaluation completes. No other evaluation starts in the meantime.</li>
+ * </ul>
+ *
+ * <p>A thread never waits for the shared model lock while its build script holds the isolated lock, and the exclusive lock is only taken while
+ * holding the shared model lock, so these locks cannot deadlock.</p>
+ */
+public class ProjectModelLock {
+    private final ReentrantLock sharedModelLock = new ReentrantLock();
+    private final Condition sharedModelChanged = sharedModelLock.newCondition();
+    private final ReentrantReadWriteLock scriptLock = new ReentrantReadWriteLock();
+    private final ThreadLocal<EvaluationState> evaluationState = new ThreadLocal<EvaluationState>() {
+        @Override
+        protected EvaluationState initialValue() {
+            return new EvaluationState();
+        }
+    };
+
+    /**
+     * Called before the current thread accesses the shared model. Gives the evaluation on this thread exclusive access to the model,
+     * when it does not have it yet. Does nothing when this thread is not evaluating a project.
+     */
+    public void accessSharedModel() {
+        EvaluationState state = evaluationState.get();
+        if (state.depth == 0 || state.exclusive) {
+            return;
+        }
+        int scriptHolds = scriptLock.getReadHoldCount();
+        for (int i = 0; i < scriptHolds; i++) {
+            scriptLock.readLock().unlock();
+        }
+        sharedModelLock.lock();
+        scriptLock.writeLock().lock();
+        for (int i = 0; i < scriptHolds; i++) {
+            scriptLock.readLock().lock();
+        }
+        state.exclusive = true;
+    }
+
+    boolean isEvaluating() {
+        return evaluationState.get().depth > 0;
+    }
+
+    boolean isExclusive() {
+        return evaluationState.get().exclusive;
+    }
+
+    void evaluationStarted() {
+        evaluationState.get().depth++;
+    }
+
+    void evaluationFinished() {
+        EvaluationState state = evaluationState.get();
+        state.depth--;
+        if (state.depth == 0 && state.exclusive) {
+            state.exclusive = false;
+            scriptLock.writeLock().unlock();
+            sharedModelLock.unlock();
+        }
+    }
+
+    void lockSharedModel() {
+        sharedModelLock.lock();
+    }
+
+    void unlockSharedModel() {
+        sharedModelLock.unlock();
+    }
+
+    /**
+     * Waits until another thread calls {@link #signalSharedModelChanged()}. Must be called while holding the shared model lock, which is released while waiting.
+     */
+    void awaitSharedModelChanged() {
+        try {
+            sharedModelChanged.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    void signalSharedModelChanged() {
+        sharedModelChanged.signalAll();
+    }
+
+    /**
+     * Called while holding the shared model lock, before running a build script.
+     */
+    void startScript() {
+        scriptLock.readLock().lock();
+    }
+
+    void finishScript() {
+        scriptLock.readLock().unlock();
+    }
+
+    private static class EvaluationState {
+        int depth;
+        boolean exclusive;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration.project;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.initialization.ClassLoaderScope;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.configuration.CompileOperationFactory;
+import org.gradle.configuration.ProjectScriptTarget;
+import org.gradle.groovy.scripts.CachingScriptSource;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
+import org.gradle.internal.Actions;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.model.dsl.internal.transform.ClosureCreationInterceptingVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the build scripts of the child projects of a project as build operations, as soon as the project has been evaluated.
+ *
+ * <p>Both passes of a child's build script are compiled against the class loader of its parent project, which is the class loader they use unless the child
+ * adds to its own classpath with a {@code buildscript} or {@code plugins} block. Evaluating the child then finds the compiled script in the script cache.</p>
+ */
+public class ProjectScriptPrecompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProjectScriptPrecompiler.class);
+    public static final String PRECOMPILE_SCRIPTS_PROPERTY = "org.gradle.configure.precompile";
+
+    private final FileCacheBackedScriptClassCompiler scriptClassCompiler;
+    private final CompileOperationFactory compileOperationFactory;
+    private final boolean enabled;
+
+    public ProjectScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, CompileOperationFactory compileOperationFactory) {
+        this(scriptClassCompiler, compileOperationFactory, Boolean.getBoolean(PRECOMPILE_SCRIPTS_PROPERTY));
+    }
+
+    ProjectScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, CompileOperationFactory compileOperationFactory, boolean enabled) {
+        this.scriptClassCompiler = scriptClassCompiler;
+        this.compileOperationFactory = compileOperationFactory;
+        this.enabled = enabled;
+    }
+
+    public void precompileChildren(ProjectInternal project) {
+        if (!enabled) {
+            return;
+        }
+        final List<PrecompileBuildScript> operations = new ArrayList<PrecompileBuildScript>();
+        // Looks up the children through the registry, as the build script of the project is still running
+        for (ProjectInternal childProject : project.getProjectRegistry().getSubProjects(project.getPath())) {
+            if (childProject.getParentIdentifier() != project) {
+                continue;
+            }
+            ClassLoaderScope baseScope = childProject.getBaseClassLoaderScope();
+            if (baseScope.isLocked()) {
+                operations.add(new PrecompileBuildScript(childProject, baseScope.getExportClassLoader()));
+            }
+        }
+        if (operations.isEmpty()) {
+            return;
+        }
+        BuildOperationProcessor buildOperationProcessor = project.getServices().get(BuildOperationProcessor.class);
+        buildOperationProcessor.run(new Action<BuildOperationQueue<PrecompileBuildScript>>() {
+            public void execute(BuildOperationQueue<PrecompileBuildScript> queue) {
+                for (PrecompileBuildScript operation : operations) {
+                    queue.add(operation);
+                }
+            }
+        });
+    }
+
+    private class PrecompileBuildScript implements RunnableBuildOperation {
+        private final ProjectInternal project;
+        private final ClassLoader classLoader;
+
+        PrecompileBuildScript(ProjectInternal project, ClassLoader classLoader) {
+            this.project = project;
+            this.classLoader = classLoader;
+        }
+
+        public void run() {
+            try {
+                precompile();
+            } catch (Exception e) {
+                // The script is compiled again when the project is evaluated, which reports any failure
+                LOGGER.debug("Could not precompile build script of {}.", project, e);
+            }
+        }
+
+        private void precompile() {
+            ScriptSource scriptSource = CachingScriptSource.of(project.getBuildScriptSource());
+            if (!scriptSource.getResource().getExists()) {
+                return;
+            }
+            ProjectScriptTarget scriptTarget = new ProjectScriptTarget(project);
+            scriptClassCompiler.precompile(scriptSource, classLoader, compileOperationFactory.getPluginRequestsCompileOperation(scriptSource, scriptTarget),
+                scriptTarget.getScriptClass(), Actions.doNothing());
+            scriptClassCompiler.precompile(scriptSource, classLoader, compileOperationFactory.getScriptCompileOperation(scriptSource, scriptTarget),
+                scriptTarget.getScriptClass(), ClosureCreationInterceptingVerifier.INSTANCE);
+        }
+
+        public String getDescription() {
+            return "Precompile build script of " + project;
+        }
+    }
+}
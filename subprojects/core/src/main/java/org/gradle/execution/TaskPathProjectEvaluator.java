@@ -20,12 +20,33 @@ import org.gradle.api.BuildCancelledException;
 import org.gradle.api.Project;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class TaskPathProjectEvaluator implements ProjectConfigurer {
+    /**
+     * Enables the incubating parallel configuration of subprojects, when set to {@code true}.
+     */
+    public static final String PARALLEL_CONFIGURATION_PROPERTY = "org.gradle.configure.parallel";
+
     private final BuildCancellationToken cancellationToken;
+    private final ExecutorFactory executorFactory;
+    private final int parallelThreads;
 
     public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken) {
+        this(cancellationToken, null, 0);
+    }
+
+    public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken, ExecutorFactory executorFactory, int parallelThreads) {
         this.cancellationToken = cancellationToken;
+        this.executorFactory = executorFactory;
+        this.parallelThreads = parallelThreads;
     }
 
     public void configure(ProjectInternal project) {
@@ -40,6 +61,10 @@ public class TaskPathProjectEvaluator implements ProjectConfigurer {
             throw new BuildCancelledException();
         }
         project.evaluate();
+        if (parallelThreads > 1) {
+            configureInParallel(project.getSubprojects());
+            return;
+        }
         for (Project sub : project.getSubprojects()) {
             if (cancellationToken.isCancellationRequested()) {
                 throw new BuildCancelledException();
@@ -47,4 +72,48 @@ public class TaskPathProjectEvaluator implements ProjectConfigurer {
             ((ProjectInternal) sub).evaluate();
         }
     }
-}
\ No newline at end of file
+
+    private void configureInParallel(Iterable<Project> projects) {
+        StoppableExecutor executor = executorFactory.create("project configuration", parallelThreads);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        try {
+            for (final Project sub : projects) {
+                results.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        configureWithParents((ProjectInternal) sub);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw UncheckedException.throwAsUncheckedException(e.getCause());
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        } finally {
+            for (Future<?> result : results) {
+                result.cancel(false);
+            }
+            executor.stop();
+        }
+    }
+
+    /**
+     * A project is configured by its parent, so the parent is always evaluated first.
+     * The evaluator takes care of waiting for a project that is being evaluated by another thread.
+     */
+    private void configureWithParents(ProjectInternal project) {
+        if (cancellationToken.isCancellationRequested()) {
+            throw new BuildCancelledException();
+        }
+        ProjectInternal parent = project.getParent();
+        if (parent != null) {
+            configureWithParents(parent);
+        }
+        project.evaluate();
+    }
+}
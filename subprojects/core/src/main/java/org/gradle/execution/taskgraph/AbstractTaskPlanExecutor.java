@@ -20,23 +20,31 @@ import org.gradle.api.Action;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.work.WorkerLeaseService;
 
 import static org.gradle.util.Clock.prettyTime;
 
 abstract class AbstractTaskPlanExecutor implements TaskPlanExecutor {
     private static final Logger LOGGER = Logging.getLogger(AbstractTaskPlanExecutor.class);
+    private final WorkerLeaseService workerLeaseService;
+
+    protected AbstractTaskPlanExecutor(WorkerLeaseService workerLeaseService) {
+        this.workerLeaseService = workerLeaseService;
+    }
 
     protected Runnable taskWorker(TaskExecutionPlan taskExecutionPlan, Action<? super TaskInternal> taskWorker) {
-        return new TaskExecutorWorker(taskExecutionPlan, taskWorker);
+        return new TaskExecutorWorker(taskExecutionPlan, taskWorker, workerLeaseService);
     }
 
     private static class TaskExecutorWorker implements Runnable {
         private final TaskExecutionPlan taskExecutionPlan;
         private final Action<? super TaskInternal> taskWorker;
+        private final WorkerLeaseService workerLeaseService;
 
-        private TaskExecutorWorker(TaskExecutionPlan taskExecutionPlan, Action<? super TaskInternal> taskWorker) {
+        private TaskExecutorWorker(TaskExecutionPlan taskExecutionPlan, Action<? super TaskInternal> taskWorker, WorkerLeaseService workerLeaseService) {
             this.taskExecutionPlan = taskExecutionPlan;
             this.taskWorker = taskWorker;
+            this.workerLeaseService = workerLeaseService;
         }
 
         public void run() {
@@ -61,9 +69,15 @@ abstract class AbstractTaskPlanExecutor implements TaskPlanExecutor {
             }
         }
 
-        protected void processTask(TaskInfo taskInfo) {
+        protected void processTask(final TaskInfo taskInfo) {
             try {
-                taskWorker.execute(taskInfo.getTask());
+                // Only hold a worker lease while executing a task, so that build operations can use it while this worker waits for a task
+                workerLeaseService.withWorkerLease(new Runnable() {
+                    @Override
+                    public void run() {
+                        taskWorker.execute(taskInfo.getTask());
+                    }
+                });
             } catch (Throwable e) {
                 taskInfo.setExecutionFailure(e);
             } finally {
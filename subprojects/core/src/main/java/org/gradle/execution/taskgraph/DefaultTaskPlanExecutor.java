@@ -18,8 +18,13 @@ package org.gradle.execution.taskgraph;
 
 import org.gradle.api.Action;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.internal.work.WorkerLeaseService;
 
 class DefaultTaskPlanExecutor extends AbstractTaskPlanExecutor {
+    public DefaultTaskPlanExecutor(WorkerLeaseService workerLeaseService) {
+        super(workerLeaseService);
+    }
+
     @Override
     public void process(TaskExecutionPlan taskExecutionPlan, Action<? super TaskInternal> taskWorker) {
         taskWorker(taskExecutionPlan, taskWorker).run();
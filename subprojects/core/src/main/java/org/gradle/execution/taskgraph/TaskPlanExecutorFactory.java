@@ -18,21 +18,24 @@ package org.gradle.execution.taskgraph;
 
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.work.WorkerLeaseService;
 
 public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
     private final int parallelThreads;
     private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
 
-    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory) {
+    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
         this.parallelThreads = parallelThreads;
         this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
     }
 
     public TaskPlanExecutor create() {
         if (executeProjectsInParallel()) {
-            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), executorFactory);
+            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), executorFactory, workerLeaseService);
         }
-        return new DefaultTaskPlanExecutor();
+        return new DefaultTaskPlanExecutor(workerLeaseService);
     }
 
     private boolean executeProjectsInParallel() {
@@ -27,15 +27,18 @@ import org.gradle.api.internal.changedetection.state.FileSnapshotter;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderId;
 import org.gradle.api.internal.initialization.loadercache.DefaultClassLoaderCache;
+import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.CacheValidator;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.ClassLoaderVisitor;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.gradle.util.GFileUtils;
 import org.gradle.model.dsl.internal.transform.RuleVisitor;
 import org.gradle.util.GradleVersion;
 import org.objectweb.asm.AnnotationVisitor;
@@ -47,28 +50,38 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileCacheBackedScriptClassCompiler.class);
     private final ScriptCompilationHandler scriptCompilationHandler;
     private final ProgressLoggerFactory progressLoggerFactory;
     private final CacheRepository cacheRepository;
+    private final CacheScopeMapping cacheScopeMapping;
     private final CacheValidator validator;
     private final FileSnapshotter snapshotter;
     private final ClassLoaderCache classLoaderCache;
     private final ClassLoaderRegistry classLoaderRegistry;
+    // Precompilations in progress, keyed by the cross build cache they compile into
+    private final ConcurrentMap<String, CountDownLatch> precompilations = new ConcurrentHashMap<String, CountDownLatch>();
 
-    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, CacheValidator validator, ScriptCompilationHandler scriptCompilationHandler,
+    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, CacheValidator validator, ScriptCompilationHandler scriptCompilationHandler,
                                               ProgressLoggerFactory progressLoggerFactory, FileSnapshotter snapshotter, ClassLoaderCache classLoaderCache,
                                               ClassLoaderRegistry classLoaderRegistry) {
         this.cacheRepository = cacheRepository;
+        this.cacheScopeMapping = cacheScopeMapping;
         this.validator = validator;
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.progressLoggerFactory = progressLoggerFactory;
@@ -93,6 +106,7 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
         final String dslId = operation.getId();
         final String classpathHash = dslId + getClassLoaderHash(classLoader);
         final RemappingScriptSource remapped = new RemappingScriptSource(source);
+        awaitPrecompilation(genericCacheKey(sourceHash, dslId, classpathHash));
 
         // Caching involves 2 distinct caches, so that 2 scripts with the same (hash, classpath) do not get compiled twice
         // 1. First, we look for a cache script which (path, hash) matches. This cache is invalidated when the compile classpath of the script changes
@@ -115,6 +129,72 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
         return scriptCompilationHandler.loadFromDir(source, classLoader, remappedClassesDir, remappedMetadataDir, operation, scriptBaseClass, classLoaderId);
     }
 
+    /**
+     * Compiles the given script into the cross build script cache, unless it is already there, so that a later {@link #compile} of the script against the same class loader
+     * only has to remap the compiled classes. The script is compiled without holding any cache lock, so that several scripts can be compiled at the same time.
+     * A {@link #compile} of the script which starts while it is being precompiled waits for the precompilation to finish.
+     */
+    public <T extends Script, M> void precompile(ScriptSource source, ClassLoader classLoader, CompileOperation<M> operation, Class<T> scriptBaseClass, Action<? super ClassNode> verifier) {
+        assert source.getResource().isContentCached();
+        if (source.getResource().getHasEmptyContent()) {
+            return;
+        }
+
+        String sourceHash = hashFor(source);
+        String dslId = operation.getId();
+        String classpathHash = dslId + getClassLoaderHash(classLoader);
+        String cacheKey = genericCacheKey(sourceHash, dslId, classpathHash);
+        File cacheDir = cacheScopeMapping.getBaseDirectory(null, cacheKey, CacheBuilder.VersionStrategy.CachePerVersion);
+        if (new File(cacheDir, "cache.properties").isFile()) {
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        if (precompilations.putIfAbsent(cacheKey, done) != null) {
+            return;
+        }
+        File precompiledDir = null;
+        try {
+            // Compile next to the cache entry, so that installing the classes only has to move them
+            File parentDir = cacheDir.getParentFile();
+            GFileUtils.mkdirs(parentDir);
+            precompiledDir = File.createTempFile("precompile", "", parentDir);
+            GFileUtils.forceDelete(precompiledDir);
+            RemappingScriptSource remapped = new RemappingScriptSource(source);
+            scriptCompilationHandler.compileToDir(remapped, classLoader, new File(precompiledDir, "classes"), new File(precompiledDir, "metadata"), operation, scriptBaseClass, verifier);
+            PersistentCache cache = cacheRepository.cache(cacheKey)
+                .withValidator(validator)
+                .withDisplayName(dslId + " generic class cache for " + source.getDisplayName())
+                .withInitializer(new InstallPrecompiledScriptAction(precompiledDir))
+                .open();
+            cache.close();
+        } catch (Exception e) {
+            // Leave it to the evaluation of the script to compile it again and report the failure
+            LOGGER.debug("Could not precompile {}.", source.getDisplayName(), e);
+        } finally {
+            if (precompiledDir != null) {
+                GFileUtils.deleteQuietly(precompiledDir);
+            }
+            precompilations.remove(cacheKey);
+            done.countDown();
+        }
+    }
+
+    private void awaitPrecompilation(String cacheKey) {
+        CountDownLatch precompilation = precompilations.get(cacheKey);
+        if (precompilation == null) {
+            return;
+        }
+        try {
+            precompilation.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static String genericCacheKey(String sourceHash, String dslId, String classpathHash) {
+        return "scripts/" + sourceHash + "/" + dslId + "/" + classpathHash;
+    }
+
     private HashCode getClassLoaderHash(ClassLoader cl) {
         ClassloaderHasher hasher = new ClassloaderHasher(classLoaderRegistry);
         hasher.visit(cl);
@@ -239,6 +319,19 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
         }
     }
 
+    private class InstallPrecompiledScriptAction implements Action<PersistentCache> {
+        private final File precompiledDir;
+
+        public InstallPrecompiledScriptAction(File precompiledDir) {
+            this.precompiledDir = precompiledDir;
+        }
+
+        public void execute(PersistentCache cache) {
+            GFileUtils.moveDirectory(new File(precompiledDir, "classes"), classesDir(cache));
+            GFileUtils.moveDirectory(new File(precompiledDir, "metadata"), metadataDir(cache));
+        }
+    }
+
     static class ProgressReportingInitializer implements Action<PersistentCache> {
         private ProgressLoggerFactory progressLoggerFactory;
         private Action<? super PersistentCache> delegate;
@@ -431,7 +524,7 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
         }
 
         public void execute(final PersistentCache remappedClassesCache) {
-            final PersistentCache cache = cacheRepository.cache("scripts/" + sourceHash + "/" + dslId + "/" + classpathHash)
+            final PersistentCache cache = cacheRepository.cache(genericCacheKey(sourceHash, dslId, classpathHash))
                 .withValidator(validator)
                 .withDisplayName(dslId + " generic class cache for " + source.getDisplayName())
                 .withInitializer(new ProgressReportingInitializer(
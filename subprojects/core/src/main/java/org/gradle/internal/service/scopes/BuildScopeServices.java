@@ -65,7 +65,9 @@ import org.gradle.api.logging.configuration.LoggingConfiguration;
 import org.gradle.api.logging.configuration.ShowStacktrace;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.CacheValidator;
+import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.configuration.BuildConfigurer;
+import org.gradle.configuration.CompileOperationFactory;
 import org.gradle.configuration.DefaultBuildConfigurer;
 import org.gradle.configuration.DefaultInitScriptProcessor;
 import org.gradle.configuration.DefaultScriptPluginFactory;
@@ -78,6 +80,8 @@ import org.gradle.configuration.project.DelayedConfigurationActions;
 import org.gradle.configuration.project.LifecycleProjectEvaluator;
 import org.gradle.configuration.project.PluginsProjectConfigureActions;
 import org.gradle.configuration.project.ProjectEvaluator;
+import org.gradle.configuration.project.ProjectModelLock;
+import org.gradle.configuration.project.ProjectScriptPrecompiler;
 import org.gradle.execution.ProjectConfigurer;
 import org.gradle.execution.TaskPathProjectEvaluator;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
@@ -226,13 +230,25 @@ public class BuildScopeServices extends DefaultServiceRegistry {
             new InstantiatingBuildLoader(get(IProjectFactory.class)));
     }
 
-    protected ProjectEvaluator createProjectEvaluator() {
+    protected ProjectModelLock createProjectModelLock() {
+        return new ProjectModelLock();
+    }
+
+    protected ProjectEvaluator createProjectEvaluator(ProjectModelLock projectModelLock) {
         ConfigureActionsProjectEvaluator withActionsEvaluator = new ConfigureActionsProjectEvaluator(
             new PluginsProjectConfigureActions(get(CachingServiceLocator.class)),
-            new BuildScriptProcessor(get(ScriptPluginFactory.class)),
+            new BuildScriptProcessor(get(ScriptPluginFactory.class), get(ProjectScriptPrecompiler.class)),
             new DelayedConfigurationActions()
         );
-        return new LifecycleProjectEvaluator(withActionsEvaluator);
+        return new LifecycleProjectEvaluator(withActionsEvaluator, projectModelLock);
+    }
+
+    protected CompileOperationFactory createCompileOperationFactory(DocumentationRegistry documentationRegistry) {
+        return new CompileOperationFactory(documentationRegistry);
+    }
+
+    protected ProjectScriptPrecompiler createProjectScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, CompileOperationFactory compileOperationFactory) {
+        return new ProjectScriptPrecompiler(scriptClassCompiler, compileOperationFactory);
     }
 
     protected TaskClassInfoStore createTaskClassInfoStore() {
@@ -262,7 +278,7 @@ public class BuildScopeServices extends DefaultServiceRegistry {
     }
 
     protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCompiler(
-        CacheRepository cacheRepository, final StartParameter startParameter,
+        CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, final StartParameter startParameter,
         ProgressLoggerFactory progressLoggerFactory, ClassLoaderCache classLoaderCache, ImportsReader importsReader,
         CacheAccessingFileSnapshotter snapshotter, ClassLoaderRegistry registry) {
         CacheValidator scriptCacheInvalidator = new CacheValidator() {
@@ -272,6 +288,7 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         };
         return new FileCacheBackedScriptClassCompiler(
             cacheRepository,
+            cacheScopeMapping,
             scriptCacheInvalidator,
             new DefaultScriptCompilationHandler(classLoaderCache, importsReader),
             progressLoggerFactory,
@@ -293,7 +310,7 @@ public class BuildScopeServices extends DefaultServiceRegistry {
             get(PluginRequestApplicator.class),
             get(FileLookup.class),
             get(DirectoryFileTreeFactory.class),
-            get(DocumentationRegistry.class),
+            get(CompileOperationFactory.class),
             get(ModelRuleSourceDetector.class),
             get(PluginRepositoryRegistry.class),
             get(PluginRepositoryFactory.class));
@@ -359,8 +376,9 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         );
     }
 
-    protected ProjectConfigurer createProjectConfigurer(BuildCancellationToken cancellationToken) {
-        return new TaskPathProjectEvaluator(cancellationToken);
+    protected ProjectConfigurer createProjectConfigurer(BuildCancellationToken cancellationToken, StartParameter startParameter) {
+        int parallelThreads = Boolean.getBoolean(TaskPathProjectEvaluator.PARALLEL_CONFIGURATION_PROPERTY) ? startParameter.getMaxWorkerCount() : 0;
+        return new TaskPathProjectEvaluator(cancellationToken, get(ExecutorFactory.class), parallelThreads);
     }
 
     protected BuildConfigurer createBuildConfigurer(ProjectConfigurer projectConfigurer) {
@@ -31,6 +31,7 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CacheAccessingFileSnapshotter;
 import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.WatchingVisitedTreeCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -247,8 +248,8 @@ public class GlobalScopeServices {
             fileLockContentionHandler);
     }
 
-    InMemoryTaskArtifactCache createInMemoryTaskArtifactCache() {
-        return new InMemoryTaskArtifactCache();
+    InMemoryTaskArtifactCache createInMemoryTaskArtifactCache(ExecutorFactory executorFactory) {
+        return new InMemoryTaskArtifactCache(executorFactory);
     }
 
     DefaultFileLockContentionHandler createFileLockContentionHandler(ExecutorFactory executorFactory, MessagingServices messagingServices) {
@@ -333,6 +334,10 @@ public class GlobalScopeServices {
         return new DefaultFileWatcherFactory(executorFactory);
     }
 
+    WatchingVisitedTreeCache createWatchingVisitedTreeCache(FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider) {
+        return new WatchingVisitedTreeCache(fileWatcherFactory, temporaryFileProvider);
+    }
+
     StringInterner createStringInterner() {
         return new StringInterner();
     }
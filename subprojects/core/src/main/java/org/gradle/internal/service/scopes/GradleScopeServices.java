@@ -16,6 +16,8 @@
 package org.gradle.internal.service.scopes;
 
 import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.UnknownProjectException;
 import org.gradle.api.internal.DependencyInjectingInstantiator;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
@@ -40,6 +42,7 @@ import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.util.GUtil;
 
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -93,14 +96,24 @@ public class GradleScopeServices extends DefaultServiceRegistry {
     }
 
     ProjectFinder createProjectFinder(final GradleInternal gradle) {
+        // Looks up projects through the registry, so that referring to another project, for example from a project dependency,
+        // does not take exclusive access to the shared project model while the projects are being configured
         return new ProjectFinder() {
             public ProjectInternal getProject(String path) {
-                return gradle.getRootProject().project(path);
+                ProjectInternal project = findProject(path);
+                if (project == null) {
+                    throw new UnknownProjectException(String.format("Project with path '%s' could not be found in %s.", path, gradle.getRootProject()));
+                }
+                return project;
             }
 
             @Override
             public ProjectInternal findProject(String path) {
-                return gradle.getRootProject().findProject(path);
+                if (!GUtil.isTrue(path)) {
+                    throw new InvalidUserDataException("A path must be specified!");
+                }
+                ProjectInternal rootProject = gradle.getRootProject();
+                return rootProject.getProjectRegistry().getProject(rootProject.absoluteProjectPath(path));
             }
         };
     }
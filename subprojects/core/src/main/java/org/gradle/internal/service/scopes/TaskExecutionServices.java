@@ -39,8 +39,11 @@ import org.gradle.api.internal.changedetection.state.OutputFilesCollectionSnapsh
 import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.TreeSnapshotRepository;
+import org.gradle.api.internal.changedetection.state.WatchingVisitedTreeCache;
 import org.gradle.api.internal.file.FileCollectionFactory;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.collections.DefaultDirectoryWalkerFactory;
+import org.gradle.api.internal.file.collections.jdk7.ParallelJdk7DirectoryWalker;
 import org.gradle.api.internal.hash.DefaultHasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.ExecuteActionsTaskExecuter;
@@ -68,6 +71,8 @@ import org.gradle.internal.operations.DefaultBuildOperationQueueFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.SerializerRegistry;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.internal.work.WorkerLeaseService;
 
 public class TaskExecutionServices {
 
@@ -116,8 +121,16 @@ public class TaskExecutionServices {
         return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess, stringInterner);
     }
 
-    CachingTreeVisitor createTreeVisitor() {
-        return new CachingTreeVisitor();
+    ParallelJdk7DirectoryWalker createParallelDirectoryWalker(FileSystem fileSystem, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        return new ParallelJdk7DirectoryWalker(fileSystem, executorFactory.create("Directory listing"), workerLeaseService);
+    }
+
+    CachingTreeVisitor createTreeVisitor(GradleBuildEnvironment environment, WatchingVisitedTreeCache watchingVisitedTreeCache, ParallelJdk7DirectoryWalker parallelDirectoryWalker) {
+        WatchingVisitedTreeCache retainedTrees = null;
+        if (environment.isLongLivingProcess() && Boolean.getBoolean(WatchingVisitedTreeCache.WATCH_TREES_PROPERTY)) {
+            retainedTrees = watchingVisitedTreeCache;
+        }
+        return new CachingTreeVisitor(retainedTrees, new DefaultDirectoryWalkerFactory(parallelDirectoryWalker));
     }
 
     CachingTreeVisitorCleaner createTreeVisitorCleaner(CachingTreeVisitor cachingTreeVisitor, Gradle gradle) {
@@ -162,12 +175,16 @@ public class TaskExecutionServices {
         );
     }
 
-    TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
+    WorkerLeaseService createWorkerLeaseService(StartParameter startParameter) {
+        return new DefaultWorkerLeaseService(startParameter.getMaxWorkerCount());
+    }
+
+    TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
         int parallelThreads = startParameter.isParallelProjectExecutionEnabled() ? startParameter.getMaxWorkerCount() : 0;
-        return new TaskPlanExecutorFactory(parallelThreads, executorFactory).create();
+        return new TaskPlanExecutorFactory(parallelThreads, executorFactory, workerLeaseService).create();
     }
 
-    BuildOperationProcessor createBuildOperationProcessor(StartParameter startParameter, ExecutorFactory executorFactory) {
-        return new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), executorFactory, startParameter.getMaxWorkerCount());
+    BuildOperationProcessor createBuildOperationProcessor(ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        return new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), executorFactory, workerLeaseService);
     }
 }
@@ -108,6 +108,31 @@ public class AsmBackedClassGeneratorTest {
         assertSame(generator.generate(Bean.class), generator.generate(Bean.class));
     }
 
+    @Test
+    public void generatesSingleSubclassWhenCalledConcurrently() throws Exception {
+        final List<Class<?>> generatedClasses = Collections.synchronizedList(new ArrayList<Class<?>>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    generatedClasses.add(generator.generate(ConcurrentlyGeneratedBean.class));
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(generatedClasses.size(), equalTo(8));
+        for (Class<?> generatedClass : generatedClasses) {
+            assertSame(generatedClasses.get(0), generatedClass);
+        }
+    }
+
     @Test
     public void doesNotDecorateAlreadyDecoratedClass() {
         Class<? extends Bean> generatedClass = generator.generate(Bean.class);
@@ -811,6 +836,9 @@ public class AsmBackedClassGeneratorTest {
         assertThat(annotation.annotations()[0].value(), equalTo("nested array"));
     }
 
+    public static class ConcurrentlyGeneratedBean {
+    }
+
     public static class Bean {
         private String prop;
 
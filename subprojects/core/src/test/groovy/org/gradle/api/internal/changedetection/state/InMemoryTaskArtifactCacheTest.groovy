@@ -16,16 +16,31 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.cache.CacheAccess
+import org.gradle.cache.internal.FileLock
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
 class InMemoryTaskArtifactCacheTest extends Specification {
-    def cacheFactory = new InMemoryTaskArtifactCache()
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def executor = Stub(StoppableExecutor) {
+        execute(_) >> { Runnable action -> action.run() }
+    }
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def cacheFactory = new InMemoryTaskArtifactCache(executorFactory)
     def target = Mock(MultiProcessSafePersistentIndexedCache)
+    def cacheAccess = Mock(CacheAccess)
 
     def "caches result from backing cache"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, cacheAccess)
 
         when:
         def result = cache.get("key")
@@ -49,7 +64,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
     def "caches null result from backing cache"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, cacheAccess)
 
         when:
         def result = cache.get("key")
@@ -73,7 +88,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
     def "caches result of putting item"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, cacheAccess)
 
         when:
         def result = cache.get("key")
@@ -104,7 +119,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
     def "caches result of removing item"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, cacheAccess)
 
         when:
         def result = cache.get("key")
@@ -133,4 +148,113 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "preloads entries whose keys were written to a snapshot"() {
+        given:
+        def snapshotFile = tmpDir.file("keys.bin")
+        def cache = cacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", target, cacheAccess)
+        cache.get(":a")
+        cache.get(":b")
+        cacheFactory.writeKeySnapshot(snapshotFile)
+
+        def newCacheFactory = new InMemoryTaskArtifactCache(executorFactory)
+        def newTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        newCacheFactory.readKeySnapshot(snapshotFile)
+        def newCache = newCacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", newTarget, cacheAccess)
+
+        when:
+        newCache.onStartWork("build", Stub(FileLock.State))
+
+        then:
+        1 * cacheAccess.useCache(_, _ as Runnable) >> { String operation, Runnable action -> action.run() }
+        1 * newTarget.get(":a") >> "a"
+        1 * newTarget.get(":b") >> null
+        0 * newTarget._
+
+        when:
+        def a = newCache.get(":a")
+        def b = newCache.get(":b")
+
+        then:
+        a == "a"
+        b == null
+        0 * newTarget._
+    }
+
+    def "replaces existing snapshot and leaves no temporary files behind"() {
+        given:
+        def snapshotFile = tmpDir.file("keys.bin")
+        snapshotFile.text = "previous"
+        def cache = cacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", target, cacheAccess)
+        cache.get(":a")
+
+        when:
+        cacheFactory.writeKeySnapshot(snapshotFile)
+
+        then:
+        snapshotFile.text != "previous"
+        snapshotFile.parentFile.list() as List == ["keys.bin"]
+    }
+
+    def "ignores missing snapshot"() {
+        given:
+        cacheFactory.readKeySnapshot(tmpDir.file("missing.bin"))
+        def cache = cacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", target, cacheAccess)
+
+        when:
+        cache.onStartWork("build", Stub(FileLock.State))
+
+        then:
+        0 * target._
+    }
+
+    def "preloads entries in batches in the background"() {
+        given:
+        def snapshotFile = tmpDir.file("keys.bin")
+        def cache = cacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", target, cacheAccess)
+        def keys = (1..(InMemoryTaskArtifactCache.PRELOAD_BATCH_SIZE + 1)).collect { ":task$it" as String }
+        keys.each { cache.get(it) }
+        cacheFactory.writeKeySnapshot(snapshotFile)
+
+        def backgroundExecutor = Mock(StoppableExecutor)
+        def newCacheFactory = new InMemoryTaskArtifactCache(Stub(ExecutorFactory) { create(_) >> backgroundExecutor })
+        def newTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        newCacheFactory.readKeySnapshot(snapshotFile)
+        def newCache = newCacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", newTarget, cacheAccess)
+        Runnable preload = null
+
+        when:
+        newCache.onStartWork("build", Stub(FileLock.State))
+
+        then:
+        1 * backgroundExecutor.execute(_) >> { Runnable action -> preload = action }
+        0 * newTarget._
+        0 * cacheAccess._
+
+        when:
+        preload.run()
+
+        then:
+        2 * cacheAccess.useCache(_, _ as Runnable) >> { String operation, Runnable action -> action.run() }
+        keys.size() * newTarget.get(_)
+    }
+
+    def "does not preload caches that hold their values weakly"() {
+        given:
+        def snapshotFile = tmpDir.file("keys.bin")
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, cacheAccess)
+        cache.get("key")
+        cacheFactory.writeKeySnapshot(snapshotFile)
+
+        def newCacheFactory = new InMemoryTaskArtifactCache(executorFactory)
+        def newTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        newCacheFactory.readKeySnapshot(snapshotFile)
+        def newCache = newCacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", newTarget, cacheAccess)
+
+        when:
+        newCache.onStartWork("build", Stub(FileLock.State))
+
+        then:
+        0 * newTarget._
+        0 * cacheAccess._
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.file.FileTreeInternal
+import org.gradle.api.internal.file.TemporaryFileProvider
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+class WatchingVisitedTreeCacheTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider testDir = new TestNameTestDirectoryProvider();
+    def fileWatcher = Mock(FileWatcher)
+    def fileWatcherFactory = Mock(FileWatcherFactory)
+    def temporaryFileProvider = Stub(TemporaryFileProvider)
+    TestFile root
+    TestFile markerDir
+    volatile FileWatcherListener listener
+    volatile boolean reportChanges = true
+    volatile boolean stopped
+    def cache = new WatchingVisitedTreeCache(fileWatcherFactory, temporaryFileProvider)
+
+    def setup() {
+        root = testDir.createDir("root")
+        markerDir = testDir.createDir("marker")
+        temporaryFileProvider.createTemporaryDirectory(*_) >> markerDir
+        _ * fileWatcherFactory.watch(_, _) >> { onError, FileWatcherListener l ->
+            listener = l
+            fileWatcher
+        }
+        // stands in for the watcher thread, which reports changes to the markers asynchronously
+        Thread.start {
+            while (!stopped) {
+                if (reportChanges && listener != null) {
+                    markerDir.listFiles().each { listener.onChange(fileWatcher, FileWatcherEvent.create(it)) }
+                }
+                sleep(10)
+            }
+        }
+    }
+
+    def cleanup() {
+        stopped = true
+    }
+
+    def "reuses tree visited by a previous build without scanning the file system"() {
+        given:
+        createSampleFiles()
+
+        when:
+        def firstBuild = new CachingTreeVisitor(cache, null)
+        def tree = firstBuild.visitTreeForSnapshotting(fileTree(), true)
+
+        then:
+        tree.entries.size() == 4
+        1 * fileWatcher.watch({ it.contains(root) && it.contains(markerDir) })
+
+        when:
+        def secondBuild = Spy(CachingTreeVisitor, constructorArgs: [cache, null])
+        def reused = secondBuild.visitTreeForSnapshotting(fileTree(), true)
+
+        then:
+        1 * secondBuild.recordRetainedTreeHit(rootPath())
+        0 * fileWatcher.watch(_)
+        reused.entries*.file == tree.entries*.file
+    }
+
+    def "retains trees separately for each set of patterns"() {
+        given:
+        createSampleFiles()
+        def txtFiles = new PatternSet().include("**/*.txt")
+        def filtered = new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(txtFiles), true)
+
+        expect:
+        filtered.entries.findAll { !it.directory }*.name as Set == ["file1.txt", "file2.txt"] as Set
+        cache.get(rootPath(), new PatternSet().include("**/*.txt")).entries*.file == filtered.entries*.file
+        cache.get(rootPath(), new PatternSet().include("**/*.md")) == null
+        cache.get(rootPath(), null) == null
+    }
+
+    def "watches only the directories that the include patterns can match"() {
+        given:
+        createSampleFiles()
+        root.createFile("b/file4.txt")
+
+        when:
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(new PatternSet().include("a/**", "b/file4.txt")), true)
+
+        then:
+        1 * fileWatcher.watch({ it.roots as Set == [root.file("a"), root.file("b"), markerDir] as Set })
+    }
+
+    def "does not retain tree when a directory matched by the include patterns does not exist"() {
+        given:
+        createSampleFiles()
+        def patterns = new PatternSet().include("missing/**")
+
+        when:
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(patterns), true)
+
+        then:
+        0 * fileWatcher.watch(_)
+        cache.get(rootPath(), patterns) == null
+    }
+
+    def "discards retained tree when a file below its root changes"() {
+        given:
+        def files = createSampleFiles()
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(), true)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(files[1]))
+
+        then:
+        cache.get(rootPath(), null) == null
+
+        when:
+        def secondBuild = Spy(CachingTreeVisitor, constructorArgs: [cache, null])
+        secondBuild.visitTreeForSnapshotting(fileTree(), true)
+
+        then:
+        0 * secondBuild.recordRetainedTreeHit(_)
+        1 * fileWatcher.watch(_)
+        cache.get(rootPath(), null) != null
+    }
+
+    def "keeps retained tree when an excluded file changes"() {
+        given:
+        def files = createSampleFiles()
+        def patterns = new PatternSet().exclude("**/*.md", "build")
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(patterns), true)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(files[2]))
+        listener.onChange(fileWatcher, FileWatcherEvent.create(root.file("build/classes/Foo.class")))
+
+        then:
+        cache.get(rootPath(), patterns) != null
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(files[0]))
+
+        then:
+        cache.get(rootPath(), patterns) == null
+    }
+
+    def "does not retain tree that changed while it was visited"() {
+        given:
+        def files = createSampleFiles()
+        def token = cache.startWatching(rootPath(), null)
+        def tree = new CachingTreeVisitor().visitTreeForSnapshotting(fileTree(), true)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.delete(files[0]))
+        cache.retain(tree, token)
+
+        then:
+        cache.get(rootPath(), null) == null
+    }
+
+    def "waits for changes made before the build to be reported before reusing retained trees"() {
+        given:
+        def files = createSampleFiles()
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(), true)
+        reportChanges = false
+
+        when:
+        files[0].text = "changed"
+        Thread.start {
+            sleep(100)
+            listener.onChange(fileWatcher, FileWatcherEvent.modify(files[0]))
+            reportChanges = true
+        }
+        def secondBuild = Spy(CachingTreeVisitor, constructorArgs: [cache, null])
+        secondBuild.visitTreeForSnapshotting(fileTree(), true)
+
+        then:
+        0 * secondBuild.recordRetainedTreeHit(_)
+    }
+
+    def "stops retaining trees when changes are not reported in time"() {
+        given:
+        createSampleFiles()
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(), true)
+        reportChanges = false
+
+        when:
+        def secondBuild = Spy(CachingTreeVisitor, constructorArgs: [cache, null])
+        secondBuild.visitTreeForSnapshotting(fileTree(), true)
+
+        then:
+        0 * secondBuild.recordRetainedTreeHit(_)
+        cache.get(rootPath(), null) == null
+        !cache.awaitPendingChanges()
+        markerDir.listFiles().length == 0
+    }
+
+    def "does not retain trees of outputs"() {
+        given:
+        createSampleFiles()
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(), true)
+
+        when:
+        new CachingTreeVisitor(cache, null).visitTreeForSnapshotting(fileTree(), false)
+
+        then:
+        cache.get(rootPath(), null) == null
+    }
+
+    private def createSampleFiles() {
+        [root.createFile("a/file1.txt"),
+         root.createFile("a/file2.txt"),
+         root.createFile("a/file3.md")]
+    }
+
+    private String rootPath() {
+        root.absolutePath
+    }
+
+    private FileTreeInternal fileTree(PatternSet patterns = new PatternSet()) {
+        new FileTreeAdapter(new DirectoryFileTree(root, patterns))
+    }
+}
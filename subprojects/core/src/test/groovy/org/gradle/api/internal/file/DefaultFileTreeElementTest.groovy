@@ -36,4 +36,48 @@ class DefaultFileTreeElementTest extends Specification {
         expect:
         e.mode == 0644
     }
+
+    def "copies file to target"() {
+        def chmod = Mock(Chmod)
+        def f = tmpDir.createFile("f")
+        f.text = "content"
+        def target = tmpDir.file("dir/target")
+        FileTreeElement e = new DefaultFileTreeElement(f, null, chmod, Stub(Stat))
+
+        when:
+        e.copyTo(target)
+
+        then:
+        target.text == "content"
+        1 * chmod.chmod(target, _)
+    }
+
+    def "replaces content of existing target"() {
+        def f = tmpDir.createFile("f")
+        f.text = "new content"
+        def target = tmpDir.createFile("target")
+        target.text = "old content"
+        FileTreeElement e = new DefaultFileTreeElement(f, null, Stub(Chmod), Stub(Stat))
+
+        when:
+        e.copyTo(target)
+
+        then:
+        target.text == "new content"
+    }
+
+    def "replaces content of existing target with the same length"() {
+        def f = tmpDir.createFile("f")
+        f.text = "content 2"
+        def target = tmpDir.createFile("target")
+        target.text = "content 1"
+        FileTreeElement e = new DefaultFileTreeElement(f, null, Stub(Chmod), Stub(Stat))
+
+        when:
+        def copied = e.copyTo(target)
+
+        then:
+        copied
+        target.text == "content 2"
+    }
 }
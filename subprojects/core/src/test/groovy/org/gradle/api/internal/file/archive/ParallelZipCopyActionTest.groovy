@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.tools.zip.ZipOutputStream
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream
+import org.gradle.api.internal.file.copy.DefaultZipCompressor
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.work.DefaultWorkerLeaseService
+import org.gradle.internal.work.WorkerLeaseService
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+import static org.gradle.api.file.FileVisitorUtil.assertVisitsPermissions
+import static org.gradle.api.internal.file.TestFiles.directoryFileTreeFactory
+import static org.gradle.api.internal.file.TestFiles.fileSystem
+import static org.hamcrest.Matchers.equalTo
+
+class ParallelZipCopyActionTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def executorFactory = new DefaultExecutorFactory()
+    TestFile zipFile
+
+    def setup() {
+        zipFile = tmpDir.getTestDirectory().file("test.zip")
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "creates zip file"() {
+        given:
+        zip(action(method), dir("dir"), file("dir/file1"), file("file2"))
+
+        when:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+
+        then:
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+
+        where:
+        method << [ZipOutputStream.DEFLATED, ZipOutputStream.STORED]
+    }
+
+    def "zip file contains expected permissions"() {
+        given:
+        zip(action(), dir("dir"), file("file"))
+
+        expect:
+        assertVisitsPermissions(new ZipFileTree(zipFile, null, fileSystem(), directoryFileTreeFactory()), [dir: 2, file: 1])
+    }
+
+    def "creates an archive with the same entries as the serial copy action"() {
+        given:
+        def entries = [dir("dir")] + (0..200).collect { file("dir/file$it", "contents of dir/file$it\n" * it) }
+
+        when:
+        new ZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry(), 'UTF-8').execute(stream(entries))
+        def serial = entries().values().collect { [it.name, it.method, it.size, it.crc, it.time] }
+        zip(action(ZipOutputStream.DEFLATED, workers), *entries)
+
+        then:
+        entries().values().collect { [it.name, it.method, it.size, it.crc, it.time] } == serial
+
+        where:
+        workers << [1, 4]
+    }
+
+    def "writes entries on the calling thread when no worker lease is available"() {
+        given:
+        def workerLeaseService = Mock(WorkerLeaseService)
+        def action = new ParallelZipCopyAction(zipFile, false, ZipOutputStream.DEFLATED, new DocumentationRegistry(), 'UTF-8', executorFactory, workerLeaseService)
+
+        when:
+        zip(action, dir("dir"), file("dir/file1"), file("file2"))
+
+        then:
+        2 * workerLeaseService.tryRunWithWorkerLease(_, _) >> false
+
+        and:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+    }
+
+    def "compresses entries using a worker lease when available"() {
+        given:
+        def workerLeaseService = Mock(WorkerLeaseService)
+        def action = new ParallelZipCopyAction(zipFile, false, ZipOutputStream.DEFLATED, new DocumentationRegistry(), 'UTF-8', executorFactory, workerLeaseService)
+
+        when:
+        zip(action, dir("dir"), file("dir/file1"), file("file2"))
+
+        then:
+        2 * workerLeaseService.tryRunWithWorkerLease(_, _) >> { Executor executor, Runnable compression ->
+            executor.execute(compression)
+            true
+        }
+
+        and:
+        entries().values()*.method == [ZipEntry.DEFLATED, ZipEntry.DEFLATED, ZipEntry.DEFLATED]
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+    }
+
+    def "compresses every entry using the compression method of the archive"() {
+        given:
+        def nestedJar = tmpDir.getTestDirectory().file("nested.jar")
+        zip(action(), file("nested/file", "nested file\n" * 100))
+        zipFile.copyTo(nestedJar)
+
+        when:
+        zip(action(), file("lib/nested.jar", nestedJar.bytes), file("text.txt", "text\n" * 100))
+
+        then:
+        def entries = entries()
+        entries["lib/nested.jar"].method == ZipEntry.DEFLATED
+        entries["text.txt"].method == ZipEntry.DEFLATED
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+        expandDir.file("lib/nested.jar").bytes == nestedJar.bytes
+    }
+
+    def "streams large entries into the archive"() {
+        given:
+        def largeText = ("large entry\n" * (ParallelZipCopyAction.MAX_BUFFERED_ENTRY_SIZE / 10)).bytes
+
+        when:
+        zip(action(), file("small", "small entry"), file("large", largeText), file("after", "after large entry"))
+
+        then:
+        def entries = entries()
+        entries["large"].method == ZipEntry.DEFLATED
+        entries["large"].size == largeText.length
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+        expandDir.file("large").bytes == largeText
+        expandDir.file("after").assertContents(equalTo("after large entry"))
+    }
+
+    def "wraps failure to open output file"() {
+        given:
+        zipFile = tmpDir.createDir("test.zip")
+
+        when:
+        zip(action())
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not create ZIP '%s'.", zipFile)
+    }
+
+    def "fails when archive requires zip64 extension and it is not enabled"() {
+        given:
+        def entries = [dir("dir")] * 65536
+
+        when:
+        zip(action(), *entries)
+
+        then:
+        thrown(org.gradle.api.tasks.bundling.internal.Zip64RequiredException)
+    }
+
+    def "wraps failure to add element"() {
+        given:
+        Throwable failure = new RuntimeException("broken")
+        def brokenFile = brokenFile("dir/file1", failure)
+
+        when:
+        zip(action(), brokenFile)
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not add $brokenFile to ZIP '%s'.", zipFile)
+        e.cause.is(failure)
+    }
+
+    private ParallelZipCopyAction action(int method = ZipOutputStream.DEFLATED, int workers = 4) {
+        new ParallelZipCopyAction(zipFile, false, method, new DocumentationRegistry(), 'UTF-8', executorFactory, new DefaultWorkerLeaseService(workers))
+    }
+
+    private Map<String, ZipEntry> entries() {
+        def zip = new ZipFile(zipFile)
+        try {
+            return zip.entries().toList().collectEntries { [it.name, it] }
+        } finally {
+            zip.close()
+        }
+    }
+
+    private void zip(ParallelZipCopyAction action, final FileCopyDetailsInternal... files) {
+        action.execute(stream(files as List))
+    }
+
+    private static CopyActionProcessingStream stream(final List<FileCopyDetailsInternal> files) {
+        new CopyActionProcessingStream() {
+            public void process(CopyActionProcessingStreamAction streamAction) {
+                for (FileCopyDetailsInternal f : files) {
+                    streamAction.processFile(f);
+                }
+            }
+        }
+    }
+
+    private FileCopyDetailsInternal file(final String path, Object content = "contents of $path") {
+        byte[] bytes = content instanceof byte[] ? content : content.toString().bytes
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(true, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.getSize() >> bytes.length
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out.write(bytes)
+        }
+        mock
+    }
+
+    private FileCopyDetailsInternal brokenFile(final String path, final Throwable failure) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(true, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            failure.fillInStackTrace()
+            throw failure
+        }
+        mock
+    }
+
+    private FileCopyDetailsInternal dir(final String path) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> true
+        mock.getMode() >> 2
+        mock
+    }
+}
@@ -17,13 +17,21 @@ package org.gradle.api.internal.file.archive;
 
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.Resources;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.gradle.api.file.FileVisitorUtil.*;
@@ -122,4 +130,75 @@ public class ZipFileTreeTest {
 
         assertVisitsPermissions(tree, expected);
     }
+
+    @Test
+    public void extractsOnlyTheEntriesWhoseFileIsRequested() {
+        rootDir.file("subdir/file1.txt").write("content1");
+        rootDir.file("subdir/file2.txt").write("content2");
+        rootDir.zipTo(zipFile);
+
+        final List<File> files = new ArrayList<File>();
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                if (fileDetails.getName().equals("file1.txt")) {
+                    files.add(fileDetails.getFile());
+                }
+            }
+        });
+
+        assertThat(files.size(), equalTo(1));
+        assertThat(new TestFile(files.get(0)).getText(), equalTo("content1"));
+        assertThat(new TestFile(files.get(0)).getParentFile().list(), equalTo(new String[]{"file1.txt"}));
+    }
+
+    @Test
+    public void reusesExtractedEntriesUntilTheArchiveChanges() throws IOException {
+        rootDir.file("file.txt").write("content");
+        rootDir.zipTo(zipFile);
+
+        TestFile extracted = new TestFile(extract("file.txt"));
+        Object fileKey = fileKey(extracted);
+        assertThat(extract("file.txt"), equalTo((File) extracted));
+        assertThat(fileKey(extracted), equalTo(fileKey));
+
+        rootDir.file("file.txt").write("changed content");
+        zipFile.delete();
+        rootDir.zipTo(zipFile);
+
+        File changed = extract("file.txt");
+        assertThat(changed.equals(extracted), equalTo(false));
+        assertThat(new TestFile(changed).getText(), equalTo("changed content"));
+        assertThat(extracted.getText(), equalTo("content"));
+    }
+
+    @Test
+    public void extractsEntryAgainWhenTheExtractedFileHasChanged() {
+        rootDir.file("file.txt").write("content");
+        rootDir.zipTo(zipFile);
+
+        TestFile extracted = new TestFile(extract("file.txt"));
+        extracted.write("CONTENT");
+        extracted.setLastModified(extracted.lastModified() + 2000);
+
+        assertThat(extract("file.txt"), equalTo((File) extracted));
+        assertThat(extracted.getText(), equalTo("content"));
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private File extract(final String name) {
+        final List<File> files = new ArrayList<File>();
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                if (fileDetails.getName().equals(name)) {
+                    files.add(fileDetails.getFile());
+                }
+            }
+        });
+        return files.get(0);
+    }
 }
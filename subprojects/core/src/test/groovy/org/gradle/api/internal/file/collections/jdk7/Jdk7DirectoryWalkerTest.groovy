@@ -21,10 +21,13 @@ import org.gradle.api.GradleException
 import org.gradle.api.JavaVersion
 import org.gradle.api.file.FileVisitDetails
 import org.gradle.api.file.FileVisitor
+import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.DefaultDirectoryWalker
 import org.gradle.api.internal.file.collections.DirectoryFileTree
 import org.gradle.api.tasks.util.PatternSet
 import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.work.DefaultWorkerLeaseService
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.Requires
@@ -105,7 +108,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         !visited.contains(doesNotExist.absolutePath)
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), parallelWalker()]
     }
 
     def "both DirectoryWalker implementations return same set of files and attributes"() {
@@ -123,6 +126,51 @@ class Jdk7DirectoryWalkerTest extends Specification {
         checkFileVisitDetailsEqual(visitedWithDefaultWalker, visitedWithJdk7Walker)
     }
 
+    def "parallel walker returns same files and attributes in the same order as the sequential walker"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateFilesAndSubDirectories(rootDir, 10, 5, 3, 1, new AtomicInteger(0))
+
+        when:
+        def visitedWithParallelWalker = walkFiles(rootDir, parallelWalker())
+        def visitedWithJdk7Walker = walkFiles(rootDir, new Jdk7DirectoryWalker())
+
+        then:
+        visitedWithParallelWalker.size() == 340
+        checkFileVisitDetailsEqual(visitedWithJdk7Walker, visitedWithParallelWalker)
+        visitedWithParallelWalker.collect { it.relativePath.pathString } == visitedWithJdk7Walker.collect { it.relativePath.pathString }
+    }
+
+    def "parallel walker evaluates the spec and notifies the visitor on the calling thread"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateFilesAndSubDirectories(rootDir, 10, 5, 3, 1, new AtomicInteger(0))
+        def threads = [] as Set
+        def patternSet = new PatternSet()
+        patternSet.include { threads << Thread.currentThread(); true }
+        def fileTree = new DirectoryFileTree(rootDir, patternSet, { parallelWalker() } as Factory)
+
+        when:
+        fileTree.visit(new FileVisitor() {
+            @Override
+            void visitDir(FileVisitDetails dirDetails) {
+                threads << Thread.currentThread()
+            }
+
+            @Override
+            void visitFile(FileVisitDetails fileDetails) {
+                threads << Thread.currentThread()
+            }
+        })
+
+        then:
+        threads == [Thread.currentThread()] as Set
+    }
+
+    private static ParallelJdk7DirectoryWalker parallelWalker() {
+        new ParallelJdk7DirectoryWalker(TestFiles.fileSystem(), new DefaultExecutorFactory().create("Directory listing"), new DefaultWorkerLeaseService(4))
+    }
+
     private void checkFileVisitDetailsEqual(List<FileVisitDetails> visitedWithDefaultWalker, List<FileVisitDetails> visitedWithJdk7Walker) {
         visitedWithDefaultWalker.each { FileVisitDetails details ->
             def detailsFromJdk7Walker = visitedWithJdk7Walker.find { it.file.absolutePath == details.file.absolutePath }
@@ -187,7 +235,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), parallelWalker()]
     }
 
     @Requires(TestPrecondition.SYMLINKS)
@@ -218,7 +266,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), parallelWalker()]
     }
 
     @Requires(TestPrecondition.SYMLINKS)
@@ -247,7 +295,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), parallelWalker()]
     }
 
     @Issue("GRADLE-3400")
@@ -281,7 +329,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), parallelWalker()]
     }
 
     def "file walker sees a snapshot of file metadata even if files are deleted after walking has started"() {
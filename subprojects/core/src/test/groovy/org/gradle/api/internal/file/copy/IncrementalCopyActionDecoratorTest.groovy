@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.copy
+
+import org.gradle.api.Action
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
+import org.gradle.internal.reflect.DirectInstantiator
+import org.gradle.test.fixtures.file.WorkspaceTest
+
+class IncrementalCopyActionDecoratorTest extends WorkspaceTest {
+
+    def setup() {
+        file("src/changed.txt").text = "new"
+        file("src/unchanged.txt").text = "new"
+        file("src/missing.txt").text = "new"
+        file("dest/changed.txt").text = "old"
+        file("dest/unchanged.txt").text = "old"
+    }
+
+    def "copies only changed files and files missing from the destination"() {
+        when:
+        def result = copy(changes(file("src/changed.txt"))) {
+            from "src"
+        }
+
+        then:
+        result.didWork
+        file("dest/changed.txt").text == "new"
+        file("dest/unchanged.txt").text == "old"
+        file("dest/missing.txt").text == "new"
+    }
+
+    def "copies unchanged files which are filtered"() {
+        when:
+        copy(changes()) {
+            from "src"
+            filter { String line -> line.toUpperCase() }
+        }
+
+        then:
+        file("dest/changed.txt").text == "NEW"
+        file("dest/unchanged.txt").text == "NEW"
+    }
+
+    def "copies unchanged file replacing another file with the same path"() {
+        given:
+        file("other/unchanged.txt").text = "other"
+
+        when:
+        copy(changes(file("other/unchanged.txt"))) {
+            from "other"
+            from "src"
+        }
+
+        then:
+        file("dest/unchanged.txt").text == "new"
+    }
+
+    def "copies all files when a source file has been removed"() {
+        given:
+        file("other/unchanged.txt").text = "other"
+        copy(changes()) {
+            from "src"
+            from "other"
+        }
+        assert file("dest/unchanged.txt").text == "other"
+        file("other/unchanged.txt").delete()
+
+        when:
+        copy(changes([], [file("other/unchanged.txt")])) {
+            from "src"
+            from "other"
+        }
+
+        then:
+        file("dest/unchanged.txt").text == "new"
+    }
+
+    def "sync still deletes files which are no longer copied"() {
+        given:
+        file("dest/removed.txt").text = "old"
+
+        when:
+        def executer = new CopyActionExecuter(DirectInstantiator.INSTANCE, TestFiles.fileSystem())
+        def resolver = TestFiles.resolver(file("dest"))
+        executer.execute(spec { from "src" }, new SyncCopyActionDecorator(file("dest"), new IncrementalCopyActionDecorator(changes(), resolver, new FileCopyAction(resolver))))
+
+        then:
+        file("dest").assertHasDescendants("changed.txt", "unchanged.txt", "missing.txt")
+        file("dest/unchanged.txt").text == "old"
+    }
+
+    private def copy(IncrementalTaskInputs inputs, Closure configure) {
+        def executer = new CopyActionExecuter(DirectInstantiator.INSTANCE, TestFiles.fileSystem())
+        def resolver = TestFiles.resolver(file("dest"))
+        executer.execute(spec(configure), new IncrementalCopyActionDecorator(inputs, resolver, new FileCopyAction(resolver)))
+    }
+
+    private CopySpecInternal spec(Closure configure) {
+        def resolver = TestFiles.resolver(testDirectory)
+        def copySpec = new DestinationRootCopySpec(resolver, new DefaultCopySpec(resolver, DirectInstantiator.INSTANCE))
+        copySpec.into "dest"
+        copySpec.with(configure)
+        copySpec
+    }
+
+    private IncrementalTaskInputs changes(File... changed) {
+        changes(changed as List, [])
+    }
+
+    private IncrementalTaskInputs changes(List<File> changed, List<File> removed) {
+        def inputs = Stub(IncrementalTaskInputs)
+        inputs.isIncremental() >> true
+        inputs.outOfDate(_) >> { Action<InputFileDetails> action ->
+            changed.each { f ->
+                action.execute(Stub(InputFileDetails) {
+                    getFile() >> f
+                    isModified() >> true
+                })
+            }
+        }
+        inputs.removed(_) >> { Action<InputFileDetails> action ->
+            removed.each { f ->
+                action.execute(Stub(InputFileDetails) {
+                    getFile() >> f
+                    isRemoved() >> true
+                })
+            }
+        }
+        inputs
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.copy
+
+import org.gradle.api.GradleException
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.reflect.DirectInstantiator
+import org.gradle.internal.work.DefaultWorkerLeaseService
+import org.gradle.internal.work.WorkerLeaseService
+import org.gradle.test.fixtures.file.WorkspaceTest
+
+class ParallelFileCopyActionTest extends WorkspaceTest {
+    def executorFactory = new DefaultExecutorFactory()
+    WorkerLeaseService workerLeaseService = new DefaultWorkerLeaseService(4)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "copies files and directories into destination"() {
+        given:
+        (0..100).each { file("src/dir${it % 10}/file$it").text = "content $it" }
+        file("src/empty").createDir()
+
+        when:
+        def result = copy { from "src" }
+
+        then:
+        result.didWork
+        (0..100).each { assert file("out/dir${it % 10}/file$it").text == "content $it" }
+        file("out/empty").directory
+    }
+
+    def "copies files on the calling thread when no worker lease is available"() {
+        given:
+        workerLeaseService = Mock(WorkerLeaseService)
+        (0..10).each { file("src/file$it").text = "content $it" }
+
+        when:
+        def result = copy { from "src" }
+
+        then:
+        result.didWork
+        (0..10).each { assert file("out/file$it").text == "content $it" }
+        _ * workerLeaseService.getMaxWorkerCount() >> 1
+        11 * workerLeaseService.tryRunWithWorkerLease(_, _) >> false
+    }
+
+    def "copies filtered files while they are visited"() {
+        given:
+        file("src/file").text = "content"
+
+        when:
+        copy {
+            from "src"
+            filter { String line -> line.toUpperCase() }
+        }
+
+        then:
+        file("out/file").text == "CONTENT"
+    }
+
+    def "later file with the same path replaces earlier one"() {
+        given:
+        file("a/file").text = "first"
+        file("b/file").text = "second"
+
+        when:
+        copy {
+            from "a"
+            from "b"
+        }
+
+        then:
+        file("out/file").text == "second"
+    }
+
+    def "propagates failure to copy file"() {
+        given:
+        file("src/file").text = "content"
+        file("out/file").createDir().createFile("nested")
+
+        when:
+        copy { from "src" }
+
+        then:
+        def e = thrown(GradleException)
+        e.message.startsWith("Could not copy file '${file("src/file")}'")
+    }
+
+    private def copy(Closure spec) {
+        def resolver = TestFiles.resolver(testDirectory)
+        def copySpec = new DestinationRootCopySpec(resolver, new DefaultCopySpec(resolver, DirectInstantiator.INSTANCE))
+        copySpec.into "out"
+        copySpec.with(spec)
+        def executer = new CopyActionExecuter(DirectInstantiator.INSTANCE, TestFiles.fileSystem())
+        executer.execute(copySpec, new ParallelFileCopyAction(TestFiles.resolver(file("out")), executorFactory, workerLeaseService))
+    }
+}
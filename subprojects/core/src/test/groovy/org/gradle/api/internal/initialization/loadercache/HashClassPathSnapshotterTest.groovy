@@ -17,8 +17,12 @@
 package org.gradle.api.internal.initialization.loadercache
 
 import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.api.internal.hash.Hasher
 import org.gradle.internal.classpath.DefaultClassPath
+import org.gradle.internal.hash.HashValue
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 import org.junit.Rule
 import spock.lang.Specification
 
@@ -138,4 +142,51 @@ class HashClassPathSnapshotterTest extends Specification {
         then:
         s1 == s2
     }
+
+    def "reuses file hashes until the file changes"() {
+        def hasher = Mock(Hasher)
+        def mockHasherSnapshotter = new HashClassPathSnapshotter(hasher)
+        def jar = temp.file("lib/a.jar") << "a"
+        temp.file("dir/b.txt") << "b"
+        def classPath = new DefaultClassPath(jar, temp.file("dir"))
+
+        when:
+        def a = mockHasherSnapshotter.snapshot(classPath)
+        def b = mockHasherSnapshotter.snapshot(classPath)
+
+        then:
+        1 * hasher.hash(jar) >> HashValue.parse("abc")
+        1 * hasher.hash(temp.file("dir/b.txt")) >> HashValue.parse("def")
+        0 * hasher._
+        a == b
+
+        when:
+        jar << "more"
+        def c = mockHasherSnapshotter.snapshot(classPath)
+
+        then:
+        1 * hasher.hash(jar) >> HashValue.parse("123")
+        0 * hasher._
+        c != a
+    }
+
+    @Requires(TestPrecondition.SYMLINKS)
+    def "hashes the current target of a link on the classpath"() {
+        def a = temp.file("lib/a.jar") << "a"
+        def b = temp.file("lib/b.jar") << "b"
+        def link = temp.file("link.jar")
+        link.createLink(a)
+        def classPath = new DefaultClassPath(link)
+
+        when:
+        def first = snapshotter.snapshot(classPath)
+        link.delete()
+        link.createLink(b)
+        def second = snapshotter.snapshot(classPath)
+
+        then:
+        first != second
+        first.strongHash == snapshotter.snapshot(new DefaultClassPath(a)).strongHash
+        second.strongHash == snapshotter.snapshot(new DefaultClassPath(b)).strongHash
+    }
 }
@@ -19,6 +19,7 @@ package org.gradle.api.internal.tasks.execution
 import org.gradle.api.Action
 import org.gradle.api.Task
 import org.gradle.api.internal.TaskExecutionHistory
+import org.gradle.api.internal.TaskInputsInternal
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
 import org.gradle.api.internal.changedetection.TaskArtifactState
@@ -26,10 +27,12 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository
 import org.gradle.api.internal.tasks.TaskExecuter
 import org.gradle.api.internal.tasks.TaskExecutionContext
 import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
 import spock.lang.Specification
 
 public class SkipUpToDateTaskExecuterTest extends Specification {
     def delegate = Mock(TaskExecuter)
+    def inputs = Mock(TaskInputsInternal)
     def outputs = Mock(TaskOutputsInternal)
     def task = Mock(TaskInternal)
     def taskState = Mock(TaskStateInternal)
@@ -66,6 +69,8 @@ public class SkipUpToDateTaskExecuterTest extends Specification {
         1 * taskArtifactState.getExecutionHistory() >> executionHistory
         1 * task.outputs >> outputs
         1 * outputs.setHistory(executionHistory)
+        1 * task.inputs >> inputs
+        1 * inputs.setInputChanges(!null)
         1 * taskContext.setTaskArtifactState(taskArtifactState)
 
         then:
@@ -76,11 +81,34 @@ public class SkipUpToDateTaskExecuterTest extends Specification {
         1 * taskArtifactState.afterTask()
         1 * task.outputs >> outputs
         1 * outputs.setHistory(null)
+        1 * task.inputs >> inputs
+        1 * inputs.setInputChanges(null)
         1 * taskContext.setTaskArtifactState(null)
         1 * taskArtifactState.finished(false)
         0 * _
     }
 
+    def providesChangesToInputsWhileTaskExecutes() {
+        def inputChanges = Mock(IncrementalTaskInputs)
+        def inputChangesFactory
+
+        when:
+        executer.execute(task, taskState, taskContext);
+
+        then:
+        1 * repository.getStateFor(task) >> taskArtifactState
+        1 * taskArtifactState.isUpToDate(_) >> false
+        _ * task.outputs >> outputs
+        _ * task.inputs >> inputs
+        1 * inputs.setInputChanges(!null) >> { inputChangesFactory = it[0] }
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext) >> {
+            assert inputChangesFactory.create() == inputChanges
+        }
+        1 * taskArtifactState.getInputChanges() >> inputChanges
+    }
+
     def doesNotUpdateStateWhenTaskFails() {
         when:
         executer.execute(task, taskState, taskContext)
@@ -94,6 +122,8 @@ public class SkipUpToDateTaskExecuterTest extends Specification {
         1 * taskArtifactState.getExecutionHistory() >> executionHistory
         1 * task.outputs >> outputs
         1 * outputs.setHistory(executionHistory)
+        1 * task.inputs >> inputs
+        1 * inputs.setInputChanges(!null)
         1 * taskContext.setTaskArtifactState(taskArtifactState)
 
         then:
@@ -103,6 +133,8 @@ public class SkipUpToDateTaskExecuterTest extends Specification {
         then:
         1 * task.outputs >> outputs
         1 * outputs.setHistory(null)
+        1 * task.inputs >> inputs
+        1 * inputs.setInputChanges(null)
         1 * taskContext.setTaskArtifactState(null)
         1 * taskArtifactState.finished(false)
         0 * _
@@ -69,7 +69,7 @@ public class DefaultScriptPluginFactoryTest extends Specification {
     def pluginRepositoryFactory = Mock(PluginRepositoryFactory)
 
     def factory = new DefaultScriptPluginFactory(scriptCompilerFactory, loggingManagerFactory, instantiator, scriptHandlerFactory, pluginRequestApplicator, fileLookup,
-        directoryFileTreeFactory, documentationRegistry, new ModelRuleSourceDetector(), pluginRepositoryRegistry, pluginRepositoryFactory)
+        directoryFileTreeFactory, new CompileOperationFactory(documentationRegistry), new ModelRuleSourceDetector(), pluginRepositoryRegistry, pluginRepositoryFactory)
 
     def setup() {
         def configurations = Mock(ConfigurationContainer)
@@ -49,4 +49,19 @@ public class BuildScriptProcessorTest extends Specification {
         1 * configurerFactory.create(scriptSource, scriptHandler, targetScope, baseScope, true) >> scriptPlugin
         1 * scriptPlugin.apply(project)
     }
-}
\ No newline at end of file
+
+    def precompilesScriptsOfChildProjectsAfterConfiguringProject() {
+        def precompiler = Mock(ProjectScriptPrecompiler)
+        def processor = new BuildScriptProcessor(configurerFactory, precompiler)
+
+        when:
+        processor.execute(project)
+
+        then:
+        1 * configurerFactory.create(scriptSource, scriptHandler, targetScope, baseScope, true) >> scriptPlugin
+        1 * scriptPlugin.apply(project)
+
+        then:
+        1 * precompiler.precompileChildren(project)
+    }
+}
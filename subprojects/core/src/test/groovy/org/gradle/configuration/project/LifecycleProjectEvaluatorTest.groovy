@@ -20,18 +20,23 @@ import org.gradle.api.ProjectConfigurationException
 import org.gradle.api.ProjectEvaluationListener
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.project.ProjectStateInternal
-import spock.lang.Specification
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
-public class LifecycleProjectEvaluatorTest extends Specification {
+public class LifecycleProjectEvaluatorTest extends ConcurrentSpec {
     private project = Mock(ProjectInternal)
     private listener = Mock(ProjectEvaluationListener)
     private delegate = Mock(ProjectEvaluator)
-    private evaluator = new LifecycleProjectEvaluator(delegate)
+    private lock = new ProjectModelLock()
+    private evaluator = new LifecycleProjectEvaluator(delegate, lock)
     private state = Mock(ProjectStateInternal)
+    private project2 = Mock(ProjectInternal)
+    private state2 = Mock(ProjectStateInternal)
 
     void setup() {
         project.getProjectEvaluationBroadcaster() >> listener
         project.toString() >> "project1"
+        project2.getProjectEvaluationBroadcaster() >> listener
+        project2.toString() >> "project2"
     }
 
     void "nothing happens if project was already configured"() {
@@ -156,4 +161,124 @@ public class LifecycleProjectEvaluatorTest extends Specification {
         0 * state.executed(_)
     }
 
+    void "evaluates projects that do not access the shared model concurrently"() {
+        when:
+        async {
+            start {
+                evaluator.evaluate(project, state)
+            }
+            start {
+                evaluator.evaluate(project2, state2)
+            }
+        }
+
+        then:
+        1 * delegate.evaluate(project, state) >> {
+            instant.evaluating1
+            thread.blockUntil.evaluating2
+        }
+        1 * delegate.evaluate(project2, state2) >> {
+            instant.evaluating2
+            thread.blockUntil.evaluating1
+        }
+    }
+
+    void "evaluation that accesses the shared model waits for evaluations running on other threads"() {
+        when:
+        async {
+            start {
+                evaluator.evaluate(project, state)
+            }
+            start {
+                evaluator.evaluate(project2, state2)
+            }
+        }
+
+        then:
+        1 * delegate.evaluate(project, state) >> {
+            thread.blockUntil.evaluating2
+            lock.accessSharedModel()
+            instant.exclusive
+        }
+        1 * delegate.evaluate(project2, state2) >> {
+            instant.evaluating2
+            thread.block()
+            instant.evaluated2
+        }
+
+        and:
+        instant.exclusive > instant.evaluated2
+    }
+
+    void "evaluation does not start while another evaluation has exclusive access to the shared model"() {
+        when:
+        async {
+            start {
+                evaluator.evaluate(project, state)
+            }
+            start {
+                thread.blockUntil.exclusive
+                evaluator.evaluate(project2, state2)
+            }
+        }
+
+        then:
+        1 * delegate.evaluate(project, state) >> {
+            lock.accessSharedModel()
+            instant.exclusive
+            thread.block()
+            instant.evaluated1
+        }
+        1 * delegate.evaluate(project2, state2) >> {
+            instant.evaluating2
+        }
+
+        and:
+        instant.evaluating2 > instant.evaluated1
+    }
+
+    void "waits for project that is being evaluated by another thread"() {
+        def executed = false
+        state.executed >> { executed }
+        state.executed() >> { executed = true }
+
+        when:
+        async {
+            start {
+                evaluator.evaluate(project, state)
+            }
+            start {
+                thread.blockUntil.evaluating
+                evaluator.evaluate(project, state)
+                instant.secondReturned
+            }
+        }
+
+        then:
+        1 * delegate.evaluate(project, state) >> {
+            instant.evaluating
+            thread.block()
+            instant.evaluated
+        }
+
+        and:
+        instant.secondReturned > instant.evaluated
+    }
+
+    void "nested evaluation of another project gives the evaluation exclusive access to the shared model"() {
+        when:
+        evaluator.evaluate(project, state)
+
+        then:
+        1 * delegate.evaluate(project, state) >> {
+            assert !lock.exclusive
+            evaluator.evaluate(project2, state2)
+            assert lock.exclusive
+        }
+        1 * delegate.evaluate(project2, state2)
+
+        and:
+        !lock.exclusive
+        !lock.evaluating
+    }
 }
@@ -19,6 +19,7 @@ package org.gradle.execution
 import org.gradle.api.BuildCancelledException
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.initialization.BuildCancellationToken
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import spock.lang.Specification
 
 class TaskPathProjectEvaluatorTest extends Specification {
@@ -60,4 +61,45 @@ class TaskPathProjectEvaluatorTest extends Specification {
         1 * child1.evaluate()
         0 * child2._
     }
+
+    def "configures subprojects and their parents in parallel"() {
+        def parallelEvaluator = new TaskPathProjectEvaluator(cancellationToken, new DefaultExecutorFactory(), 4)
+        def child1 = Mock(ProjectInternal)
+        def child2 = Mock(ProjectInternal)
+        def grandChild = Mock(ProjectInternal)
+
+        given:
+        project.subprojects >> ([child1, child2, grandChild] as Set)
+        child1.parent >> project
+        child2.parent >> project
+        grandChild.parent >> child1
+        cancellationToken.cancellationRequested >> false
+
+        when:
+        parallelEvaluator.configureHierarchy(project)
+
+        then:
+        (1.._) * project.evaluate()
+        (1.._) * child1.evaluate()
+        (1.._) * child2.evaluate()
+        1 * grandChild.evaluate()
+    }
+
+    def "parallel project hierarchy configuration propagates failure"() {
+        def parallelEvaluator = new TaskPathProjectEvaluator(cancellationToken, new DefaultExecutorFactory(), 4)
+        def child = Mock(ProjectInternal)
+        def failure = new RuntimeException("broken")
+
+        given:
+        project.subprojects >> ([child] as Set)
+        child.parent >> project
+        child.evaluate() >> { throw failure }
+
+        when:
+        parallelEvaluator.configureHierarchy(project)
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+    }
 }
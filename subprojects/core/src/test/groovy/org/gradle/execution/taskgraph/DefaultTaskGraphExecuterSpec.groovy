@@ -33,6 +33,7 @@ import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.internal.progress.BuildOperationExecutor
 import org.gradle.internal.progress.OperationResult
 import org.gradle.internal.progress.OperationStartEvent
+import org.gradle.internal.work.DefaultWorkerLeaseService
 import org.gradle.testfixtures.ProjectBuilder
 import spock.lang.Specification
 
@@ -41,7 +42,7 @@ class DefaultTaskGraphExecuterSpec extends Specification {
     def project = ProjectBuilder.builder().build()
     def listenerManager = new DefaultListenerManager()
     def executer = Mock(TaskExecuter)
-    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), cancellationToken, Stub(TimeProvider), Stub(BuildOperationExecutor))
+    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(new DefaultWorkerLeaseService(1)), Factories.constant(executer), cancellationToken, Stub(TimeProvider), Stub(BuildOperationExecutor))
 
     def "notifies task listener as tasks are executed"() {
         def listener = Mock(TaskExecutionListener)
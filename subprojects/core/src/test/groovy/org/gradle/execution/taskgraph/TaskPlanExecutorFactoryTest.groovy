@@ -18,15 +18,17 @@ package org.gradle.execution.taskgraph
 
 import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess
 import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.work.WorkerLeaseService
 import spock.lang.Specification
 
 public class TaskPlanExecutorFactoryTest extends Specification {
     final TaskArtifactStateCacheAccess cache = Mock()
     final ExecutorFactory executorFactory = Mock()
+    final WorkerLeaseService workerLeaseService = Mock()
 
     def "creates a default executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(0, executorFactory)
+        def factory = new TaskPlanExecutorFactory(0, executorFactory, workerLeaseService)
 
         then:
         factory.create().class == DefaultTaskPlanExecutor
@@ -34,7 +36,7 @@ public class TaskPlanExecutorFactoryTest extends Specification {
 
     def "creates a parallel executor"() {
         when:
-        def factory = new TaskPlanExecutorFactory(parallelExecuterCount, executorFactory)
+        def factory = new TaskPlanExecutorFactory(parallelExecuterCount, executorFactory, workerLeaseService)
 
         then:
         factory.create().class == ParallelTaskPlanExecutor
@@ -26,6 +26,7 @@ import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.CacheValidator
 import org.gradle.cache.PersistentCache
+import org.gradle.cache.internal.CacheScopeMapping
 import org.gradle.groovy.scripts.Script
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.Transformer
@@ -34,11 +35,16 @@ import org.gradle.internal.hash.HashValue
 import org.gradle.internal.logging.progress.ProgressLogger
 import org.gradle.internal.logging.progress.ProgressLoggerFactory
 import org.gradle.internal.resource.TextResource
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
 class FileCacheBackedScriptClassCompilerTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     final ScriptCompilationHandler scriptCompilationHandler = Mock()
     final CacheRepository cacheRepository = Mock()
+    final CacheScopeMapping cacheScopeMapping = Mock()
     final CacheBuilder localCacheBuilder = Mock()
     final CacheBuilder globalCacheBuilder = Mock()
     final CacheValidator validator = Mock()
@@ -56,7 +62,7 @@ class FileCacheBackedScriptClassCompilerTest extends Specification {
     final File globalDir = new File("global-dir")
     final File classesDir = new File(globalDir, "classes")
     final File metadataDir = new File(globalDir, "metadata")
-    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, Stub(ProgressLoggerFactory), snapshotter, classLoaderCache, classLoaderRegistry)
+    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, cacheScopeMapping, validator, scriptCompilationHandler, Stub(ProgressLoggerFactory), snapshotter, classLoaderCache, classLoaderRegistry)
     final Action verifier = Stub()
     final CompiledScript compiledScript = Stub() {
         loadClass() >> Script
@@ -167,6 +173,71 @@ class FileCacheBackedScriptClassCompilerTest extends Specification {
         0 * scriptCompilationHandler._
     }
 
+    def "precompiles script into cross build cache"() {
+        def scriptsDir = tmpDir.createDir("scripts")
+        def cacheDir = tmpDir.createDir("scripts/generic")
+        def installer
+
+        when:
+        compiler.precompile(source, classLoader, operation, Script, verifier)
+
+        then:
+        1 * snapshotter.snapshot(resource) >> Stub(FileSnapshot) { getHash() >> new HashValue("123") }
+        1 * cacheScopeMapping.getBaseDirectory(null, { it =~ "scripts/\\p{XDigit}+/TransformerId/TransformerId\\p{XDigit}+" }, CacheBuilder.VersionStrategy.CachePerVersion) >> cacheDir
+
+        then:
+        1 * scriptCompilationHandler.compileToDir({ it instanceof RemappingScriptSource }, classLoader, _, _, operation, Script, verifier) >> { source, loader, File classes, File metadata, op, type, v ->
+            assert !classes.path.startsWith(cacheDir.path)
+            classes.mkdirs()
+            metadata.mkdirs()
+            new File(classes, "Script.class").text = "class"
+            new File(metadata, "metadata.bin").text = "metadata"
+        }
+
+        then:
+        1 * cacheRepository.cache({ it =~ "scripts/\\p{XDigit}+/TransformerId/TransformerId\\p{XDigit}+" }) >> globalCacheBuilder
+        1 * globalCacheBuilder.withDisplayName(!null) >> globalCacheBuilder
+        1 * globalCacheBuilder.withInitializer(!null) >> { args ->
+            installer = args[0]
+            globalCacheBuilder
+        }
+        1 * globalCacheBuilder.withValidator(validator) >> globalCacheBuilder
+        1 * globalCacheBuilder.open() >> {
+            installer.execute(Stub(PersistentCache) { getBaseDir() >> cacheDir })
+            globalCache
+        }
+        0 * scriptCompilationHandler._
+
+        and:
+        cacheDir.file("classes/Script.class").text == "class"
+        cacheDir.file("metadata/metadata.bin").text == "metadata"
+        scriptsDir.listFiles()*.name == ["generic"]
+    }
+
+    def "does not precompile script which is already in cross build cache"() {
+        def cacheKey
+
+        given:
+        snapshotter.snapshot(resource) >> Stub(FileSnapshot) { getHash() >> new HashValue("123") }
+        cacheScopeMapping.getBaseDirectory(null, _, _) >> { scope, String key, versionStrategy -> tmpDir.file(key) }
+        cacheRepository.cache(_) >> { String key ->
+            cacheKey = key
+            globalCacheBuilder
+        }
+        globalCacheBuilder.withDisplayName(_) >> globalCacheBuilder
+        globalCacheBuilder.withInitializer(_) >> globalCacheBuilder
+        globalCacheBuilder.withValidator(_) >> globalCacheBuilder
+        globalCacheBuilder.open() >> globalCache
+        compiler.precompile(source, classLoader, operation, Script, verifier)
+        tmpDir.file(cacheKey, "cache.properties").createFile()
+
+        when:
+        compiler.precompile(source, classLoader, operation, Script, verifier)
+
+        then:
+        0 * scriptCompilationHandler._
+    }
+
     def "reports compilation progress even in case of a failure"() {
         def factory = Mock(ProgressLoggerFactory)
         def delegate = Mock(Action)
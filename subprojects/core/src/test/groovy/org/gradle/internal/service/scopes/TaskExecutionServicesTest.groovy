@@ -50,12 +50,14 @@ class TaskExecutionServicesTest extends Specification {
         _ * parent.get(Gradle) >> gradle
         gradle.getTaskGraph() >> Mock(TaskGraphExecuter)
         _ * parent.get(ListenerManager) >> Mock(ListenerManager)
-        _ * parent.get(StartParameter) >> Mock(StartParameter)
+        _ * parent.get(StartParameter) >> Stub(StartParameter) {
+            getMaxWorkerCount() >> 1
+        }
+        _ * parent.get(ExecutorFactory) >> Mock(ExecutorFactory)
         _ * parent.get(GradleBuildEnvironment) >> Stub(GradleBuildEnvironment)
         _ * parent.get(CacheRepository) >> cacheRepository
         _ * parent.get(Instantiator) >> Mock(Instantiator)
         _ * parent.get(InMemoryTaskArtifactCache) >> Mock(InMemoryTaskArtifactCache)
-        _ * parent.get(StartParameter) >> Mock(StartParameter)
         _ * parent.get(FileResolver) >> Mock(FileResolver)
         _ * parent.get(FileSystem) >> Mock(FileSystem)
         _ * parent.get(FileCollectionFactory) >> Mock(FileCollectionFactory)
@@ -72,7 +74,9 @@ class TaskExecutionServicesTest extends Specification {
 
     def "makes a BuildOperationProcessor available"() {
         given:
-        _ * parent.get(StartParameter) >> Mock(StartParameter)
+        _ * parent.get(StartParameter) >> Stub(StartParameter) {
+            getMaxWorkerCount() >> 1
+        }
         _ * parent.get(ExecutorFactory) >> Mock(ExecutorFactory)
 
         expect:
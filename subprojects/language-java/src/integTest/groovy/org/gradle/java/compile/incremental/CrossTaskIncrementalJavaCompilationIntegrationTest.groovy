@@ -199,7 +199,7 @@ public class CrossTaskIncrementalJavaCompilationIntegrationTest extends Abstract
         impl.recompiledClasses('ImplB')
     }
 
-    def "private constant in upstream project does not trigger full rebuild"() {
+    def "private constant in upstream project does not trigger recompilation"() {
         java api: ["class A {}", "class B { private final static int x = 1; }"], impl: ["class ImplA extends A {}", "class ImplB extends B {}"]
         impl.snapshot { run "compileJava" }
 
@@ -208,7 +208,43 @@ public class CrossTaskIncrementalJavaCompilationIntegrationTest extends Abstract
         run "impl:compileJava"
 
         then:
-        impl.recompiledClasses('ImplB')
+        impl.noneRecompiled()
+    }
+
+    def "change to private member in upstream project does not trigger recompilation"() {
+        java api: ["class A { private String field; private void method() {} }"], impl: ["class ImplA extends A {}", "class SomeImpl {}"]
+        impl.snapshot { run "compileJava" }
+
+        when:
+        java api: ["class A { private int otherField; private String otherMethod(int x) { return null; } }"]
+        run "impl:compileJava"
+
+        then:
+        impl.noneRecompiled()
+    }
+
+    def "change to method body in upstream project does not trigger recompilation"() {
+        java api: ["class A { public int method() { return 1; } }"], impl: ["class ImplA extends A {}", "class SomeImpl {}"]
+        impl.snapshot { run "compileJava" }
+
+        when:
+        java api: ["class A { public int method() { return 2 + new Object().hashCode(); } }"]
+        run "impl:compileJava"
+
+        then:
+        impl.noneRecompiled()
+    }
+
+    def "change to public method signature in upstream project recompiles dependents"() {
+        java api: ["class A { public int method() { return 1; } }"], impl: ["class ImplA extends A {}", "class SomeImpl {}"]
+        impl.snapshot { run "compileJava" }
+
+        when:
+        java api: ["class A { public long method(int x) { return x; } }"]
+        run "impl:compileJava"
+
+        then:
+        impl.recompiledClasses("ImplA")
     }
 
     def "detects changed classes when upstream project was built in isolation"() {
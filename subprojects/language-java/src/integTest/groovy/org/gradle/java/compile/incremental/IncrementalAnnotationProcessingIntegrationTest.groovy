@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.java.compile.incremental
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.CompilationOutputsFixture
+
+class IncrementalAnnotationProcessingIntegrationTest extends AbstractIntegrationSpec {
+
+    CompilationOutputsFixture outputs
+
+    def setup() {
+        outputs = new CompilationOutputsFixture(file("build/classes"))
+
+        settingsFile << "include 'processor'"
+        buildFile << """
+            apply plugin: 'java'
+            compileJava.options.incremental = true
+            dependencies {
+                compile project(':processor')
+            }
+        """
+        file("processor/build.gradle") << "apply plugin: 'java'"
+        file("processor/src/main/java/Helper.java") << """import java.lang.annotation.*;
+            @Retention(RetentionPolicy.SOURCE) public @interface Helper {}
+        """
+        file("processor/src/main/java/HelperProcessor.java") << """import java.io.*;
+            import java.util.*;
+            import javax.annotation.processing.*;
+            import javax.lang.model.SourceVersion;
+            import javax.lang.model.element.*;
+            import javax.tools.JavaFileObject;
+
+            @SupportedAnnotationTypes("Helper")
+            public class HelperProcessor extends AbstractProcessor {
+                @Override
+                public SourceVersion getSupportedSourceVersion() {
+                    return SourceVersion.latestSupported();
+                }
+
+                @Override
+                public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+                    for (TypeElement annotation : annotations) {
+                        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                            String name = element.getSimpleName() + "Helper";
+                            try {
+                                JavaFileObject file = processingEnv.getFiler().createSourceFile(name, element);
+                                Writer writer = file.openWriter();
+                                try {
+                                    writer.write("class " + name + " {}");
+                                } finally {
+                                    writer.close();
+                                }
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    }
+                    return true;
+                }
+            }
+        """
+        file("processor/src/main/resources/META-INF/services/javax.annotation.processing.Processor") << "HelperProcessor\n"
+
+        java "@Helper class A {}", "@Helper class B {}", "class C {}"
+    }
+
+    private void java(String ... classBodies) {
+        for (String body : classBodies) {
+            def className = (body =~ /(?s).*?class (\w+) .*/)[0][1]
+            file("src/main/java/${className}.java").text = body
+        }
+    }
+
+    private void declareProcessorType(String type) {
+        file("processor/src/main/resources/META-INF/gradle/incremental.annotation.processors") << "HelperProcessor,$type\n"
+    }
+
+    def "recompiles only the changed class and what an isolating processor generates from it"() {
+        given:
+        declareProcessorType("ISOLATING")
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        java "@Helper class A { /* change */ }"
+        run "compileJava"
+
+        then:
+        outputs.recompiledClasses 'A', 'AHelper'
+    }
+
+    def "does not rerun an isolating processor for a changed class that is not annotated"() {
+        given:
+        declareProcessorType("ISOLATING")
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        java "class C { /* change */ }"
+        run "compileJava"
+
+        then:
+        outputs.recompiledClasses 'C'
+    }
+
+    def "processor that is not declared incremental forces full recompilation"() {
+        given:
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        java "@Helper class A { /* change */ }"
+        run "compileJava"
+
+        then:
+        output.contains("Full recompilation is required because annotation processor 'HelperProcessor' is not incremental.")
+        outputs.recompiledClasses 'A', 'AHelper', 'B', 'BHelper', 'C'
+    }
+
+    def "processor with an unknown type forces full recompilation"() {
+        given:
+        declareProcessorType("DYNAMIC")
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        java "class C { /* change */ }"
+        run "compileJava"
+
+        then:
+        output.contains("Full recompilation is required because annotation processor 'HelperProcessor' is not incremental.")
+        outputs.recompiledClasses 'A', 'AHelper', 'B', 'BHelper', 'C'
+    }
+}
@@ -16,9 +16,11 @@
 
 package org.gradle.api.internal.tasks.compile;
 
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
 import org.gradle.api.tasks.compile.CompileOptions;
 
 import java.io.File;
+import java.util.List;
 
 public interface JavaCompileSpec extends JvmLanguageCompileSpec {
     CompileOptions getCompileOptions();
@@ -29,4 +31,18 @@ public interface JavaCompileSpec extends JvmLanguageCompileSpec {
 
     @Override
     File getDestinationDir();
+
+    /**
+     * The annotation processors that run as part of this compilation, or null when they are not known.
+     */
+    List<AnnotationProcessorDeclaration> getEffectiveAnnotationProcessors();
+
+    void setEffectiveAnnotationProcessors(List<AnnotationProcessorDeclaration> annotationProcessors);
+
+    /**
+     * The file that the compiler writes the output of incremental annotation processors to, or null when this output is not tracked.
+     */
+    File getAnnotationProcessingResultFile();
+
+    void setAnnotationProcessingResultFile(File annotationProcessingResultFile);
 }
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.tasks.compile;
 
 import org.gradle.api.internal.tasks.SimpleWorkResult;
+import org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessing;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.compile.CompileOptions;
 import org.gradle.internal.Factory;
@@ -24,8 +25,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
+import java.io.IOException;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.util.List;
@@ -33,17 +36,35 @@ import java.util.List;
 public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    // Not available in a compiler daemon, where every compilation uses its own file manager
+    private final transient PlatformFileManagerCache platformFileManagers;
 
-    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, PlatformFileManagerCache platformFileManagers) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.platformFileManagers = platformFileManagers;
     }
 
     @Override
     public WorkResult execute(JavaCompileSpec spec) {
         LOGGER.info("Compiling with JDK Java compiler API.");
 
-        JavaCompiler.CompilationTask task = createCompileTask(spec);
-        boolean success = task.call();
+        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
+        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
+        CompileOptions compileOptions = spec.getCompileOptions();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null);
+        StandardJavaFileManager platformFileManager = platformFileManagers == null ? null : platformFileManagers.acquire(compiler, options);
+        boolean success;
+        try {
+            JavaFileManager taskFileManager = platformFileManager == null ? fileManager : new PlatformCachingFileManager(fileManager, platformFileManager);
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(spec.getSource());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, taskFileManager, null, options, null, compilationUnits);
+            success = call(task, spec, compiler);
+        } finally {
+            if (platformFileManager != null) {
+                platformFileManagers.release(platformFileManager);
+            }
+            close(fileManager);
+        }
         if (!success) {
             throw new CompilationFailedException();
         }
@@ -51,12 +72,28 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
         return new SimpleWorkResult(true);
     }
 
-    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec) {
-        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
-        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
-        CompileOptions compileOptions = spec.getCompileOptions();
-        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null);
-        Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(spec.getSource());
-        return compiler.getTask(null, null, null, options, null, compilationUnits);
+    private static boolean call(JavaCompiler.CompilationTask task, JavaCompileSpec spec, JavaCompiler compiler) {
+        if (!IncrementalAnnotationProcessing.isTracked(spec)) {
+            return task.call();
+        }
+        IncrementalAnnotationProcessing processing = new IncrementalAnnotationProcessing(spec, compiler.getClass().getClassLoader());
+        try {
+            task.setProcessors(processing.getProcessors());
+            boolean success = task.call();
+            if (success) {
+                processing.storeResult();
+            }
+            return success;
+        } finally {
+            processing.stop();
+        }
+    }
+
+    private static void close(JavaFileManager fileManager) {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close file manager.", e);
+        }
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A file manager that reads the platform classes with a file manager that is shared between compilations, and everything else,
+ * including the sources, the class path and the output, with a file manager for a single compilation.
+ * Closing this file manager closes the file manager for the compilation only.
+ */
+class PlatformCachingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> implements StandardJavaFileManager {
+    private final StandardJavaFileManager platformFileManager;
+
+    PlatformCachingFileManager(StandardJavaFileManager fileManager, StandardJavaFileManager platformFileManager) {
+        super(fileManager);
+        this.platformFileManager = platformFileManager;
+    }
+
+    private StandardJavaFileManager fileManagerFor(Location location) {
+        return location == StandardLocation.PLATFORM_CLASS_PATH ? platformFileManager : fileManager;
+    }
+
+    @Override
+    public boolean hasLocation(Location location) {
+        return fileManagerFor(location).hasLocation(location);
+    }
+
+    @Override
+    public ClassLoader getClassLoader(Location location) {
+        return fileManagerFor(location).getClassLoader(location);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+        return fileManagerFor(location).list(location, packageName, kinds, recurse);
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        return fileManagerFor(location).inferBinaryName(location, file);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForInput(Location location, String className, JavaFileObject.Kind kind) throws IOException {
+        return fileManagerFor(location).getJavaFileForInput(location, className, kind);
+    }
+
+    @Override
+    public FileObject getFileForInput(Location location, String packageName, String relativeName) throws IOException {
+        return fileManagerFor(location).getFileForInput(location, packageName, relativeName);
+    }
+
+    @Override
+    public Iterable<? extends JavaFileObject> getJavaFileObjectsFromFiles(Iterable<? extends File> files) {
+        return fileManager.getJavaFileObjectsFromFiles(files);
+    }
+
+    @Override
+    public Iterable<? extends JavaFileObject> getJavaFileObjects(File... files) {
+        return fileManager.getJavaFileObjects(files);
+    }
+
+    @Override
+    public Iterable<? extends JavaFileObject> getJavaFileObjectsFromStrings(Iterable<String> names) {
+        return fileManager.getJavaFileObjectsFromStrings(names);
+    }
+
+    @Override
+    public Iterable<? extends JavaFileObject> getJavaFileObjects(String... names) {
+        return fileManager.getJavaFileObjects(names);
+    }
+
+    @Override
+    public void setLocation(Location location, Iterable<? extends File> path) throws IOException {
+        if (location == StandardLocation.PLATFORM_CLASS_PATH) {
+            throw new UnsupportedOperationException("Cannot change the platform class path of a shared file manager.");
+        }
+        fileManager.setLocation(location, path);
+    }
+
+    @Override
+    public Iterable<? extends File> getLocation(Location location) {
+        return fileManagerFor(location).getLocation(location);
+    }
+}
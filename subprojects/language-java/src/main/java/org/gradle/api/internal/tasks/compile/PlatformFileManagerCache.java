@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.jvm.Jvm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps file managers that read the platform classes of the current JDK open between in-process compilations, so that javac
+ * indexes {@code rt.jar} and {@code ct.sym} only once rather than for every compilation. Each file manager is used by one compilation
+ * at a time, and is discarded when the files of the platform class path have changed. At most a few idle file managers are kept,
+ * the least recently used ones are closed first.
+ */
+public class PlatformFileManagerCache implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlatformFileManagerCache.class);
+    private static final String[] PLATFORM_OPTIONS = {"-bootclasspath", "-Xbootclasspath", "-extdirs", "-endorseddirs", "-Djava.ext.dirs", "-Djava.endorsed.dirs", "-XD", "--"};
+    private static final int DEFAULT_MAX_IDLE_FILE_MANAGERS = 4;
+
+    private final boolean enabled;
+    private final int maxIdleFileManagers;
+    private final JavaVersion javaVersion;
+    private final LinkedList<CachedFileManager> idle = new LinkedList<CachedFileManager>();
+    private final Map<StandardJavaFileManager, CachedFileManager> inUse = new IdentityHashMap<StandardJavaFileManager, CachedFileManager>();
+    private boolean stopped;
+
+    public PlatformFileManagerCache() {
+        this(Jvm.current().getJavaVersion(), DEFAULT_MAX_IDLE_FILE_MANAGERS);
+    }
+
+    PlatformFileManagerCache(JavaVersion javaVersion, int maxIdleFileManagers) {
+        this.enabled = !javaVersion.isJava9Compatible();
+        this.javaVersion = javaVersion;
+        this.maxIdleFileManagers = maxIdleFileManagers;
+    }
+
+    /**
+     * Returns a file manager for the platform classes of the given compiler, or null when the given compiler options change the platform class path
+     * or need javac's own file manager. The file manager must be given back with {@link #release(StandardJavaFileManager)} once the compilation has finished.
+     */
+    public StandardJavaFileManager acquire(JavaCompiler compiler, List<String> options) {
+        if (!enabled || changesPlatformClassPath(options) || warnsAboutBootClassPath(options)) {
+            return null;
+        }
+        List<CachedFileManager> stale = new ArrayList<CachedFileManager>();
+        CachedFileManager result = null;
+        synchronized (this) {
+            Iterator<CachedFileManager> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                CachedFileManager candidate = iterator.next();
+                if (candidate.compilerType != compiler.getClass()) {
+                    continue;
+                }
+                iterator.remove();
+                if (candidate.platformFiles.equals(platformFiles(candidate.fileManager))) {
+                    result = candidate;
+                    break;
+                }
+                stale.add(candidate);
+            }
+        }
+        for (CachedFileManager cachedFileManager : stale) {
+            LOGGER.debug("Platform class path has changed. Discarding cached file manager.");
+            close(cachedFileManager.fileManager);
+        }
+        if (result == null) {
+            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+            result = new CachedFileManager(compiler.getClass(), fileManager, platformFiles(fileManager));
+        }
+        synchronized (this) {
+            inUse.put(result.fileManager, result);
+        }
+        return result.fileManager;
+    }
+
+    /**
+     * Keeps the given file manager, which was returned by {@link #acquire(JavaCompiler, List)}, for later compilations.
+     */
+    public void release(StandardJavaFileManager fileManager) {
+        List<CachedFileManager> expired = new ArrayList<CachedFileManager>();
+        synchronized (this) {
+            CachedFileManager cachedFileManager = inUse.remove(fileManager);
+            if (cachedFileManager == null) {
+                throw new IllegalArgumentException("File manager was not acquired from this cache.");
+            }
+            idle.addFirst(cachedFileManager);
+            while (idle.size() > (stopped ? 0 : maxIdleFileManagers)) {
+                expired.add(idle.removeLast());
+            }
+        }
+        for (CachedFileManager cachedFileManager : expired) {
+            close(cachedFileManager.fileManager);
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<CachedFileManager> expired;
+        synchronized (this) {
+            stopped = true;
+            expired = new ArrayList<CachedFileManager>(idle);
+            idle.clear();
+        }
+        for (CachedFileManager cachedFileManager : expired) {
+            close(cachedFileManager.fileManager);
+        }
+    }
+
+    private static boolean changesPlatformClassPath(List<String> options) {
+        for (String option : options) {
+            if (option.equals(JavaCompilerArgumentsBuilder.USE_UNSHARED_COMPILER_TABLE_OPTION)) {
+                continue;
+            }
+            for (String platformOption : PLATFORM_OPTIONS) {
+                if (option.startsWith(platformOption)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * javac warns when -source is older than the JDK and no bootstrap class path is set, but only when it uses its own file manager.
+     */
+    private boolean warnsAboutBootClassPath(List<String> options) {
+        if (options.contains("-Xlint:-options")) {
+            return false;
+        }
+        int index = options.indexOf("-source");
+        if (index < 0 || index == options.size() - 1) {
+            return false;
+        }
+        try {
+            return JavaVersion.toVersion(options.get(index + 1)).compareTo(javaVersion) < 0;
+        } catch (IllegalArgumentException e) {
+            // Let javac report the invalid value
+            return true;
+        }
+    }
+
+    private static List<String> platformFiles(StandardJavaFileManager fileManager) {
+        List<String> result = new ArrayList<String>();
+        Iterable<? extends File> platformClassPath = fileManager.getLocation(StandardLocation.PLATFORM_CLASS_PATH);
+        if (platformClassPath != null) {
+            for (File file : platformClassPath) {
+                result.add(stamp(file));
+            }
+        }
+        result.add(stamp(new File(Jvm.current().getJavaHome(), "lib/ct.sym")));
+        return result;
+    }
+
+    private static String stamp(File file) {
+        return file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+    }
+
+    private static void close(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close file manager.", e);
+        }
+    }
+
+    private static class CachedFileManager {
+        private final Class<?> compilerType;
+        private final StandardJavaFileManager fileManager;
+        private final List<String> platformFiles;
+
+        CachedFileManager(Class<?> compilerType, StandardJavaFileManager fileManager, List<String> platformFiles) {
+            this.compilerType = compilerType;
+            this.fileManager = fileManager;
+            this.platformFiles = platformFiles;
+        }
+    }
+}
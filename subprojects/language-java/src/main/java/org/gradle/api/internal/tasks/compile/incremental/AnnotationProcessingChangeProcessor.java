@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation;
+import org.gradle.api.internal.tasks.compile.incremental.recomp.RecompilationSpec;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingResult;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the classes that need to be recompiled so that annotation processors regenerate what they generated from the classes being recompiled.
+ *
+ * <ul>
+ *     <li>A type generated by an isolating processor is stale when its originating type is recompiled, and is regenerated by recompiling its originating type.</li>
+ *     <li>When anything is recompiled, the output of aggregating processors is stale, and is regenerated by recompiling all aggregated types.</li>
+ *     <li>The classes that depend on a stale generated type are recompiled, as the generated type may change.</li>
+ * </ul>
+ */
+class AnnotationProcessingChangeProcessor {
+    private final PreviousCompilation previousCompilation;
+
+    public AnnotationProcessingChangeProcessor(PreviousCompilation previousCompilation) {
+        this.previousCompilation = previousCompilation;
+    }
+
+    public void processChanges(RecompilationSpec spec) {
+        if (spec.getClassNames().isEmpty()) {
+            return;
+        }
+        AnnotationProcessingResult processing = previousCompilation.getAnnotationProcessingResult();
+        Map<String, Set<String>> generatedTypesByOrigin = new HashMap<String, Set<String>>();
+        for (Map.Entry<String, String> entry : processing.getOriginsOfGeneratedTypes().entrySet()) {
+            Set<String> generatedTypes = generatedTypesByOrigin.get(entry.getValue());
+            if (generatedTypes == null) {
+                generatedTypes = new HashSet<String>();
+                generatedTypesByOrigin.put(entry.getValue(), generatedTypes);
+            }
+            generatedTypes.add(entry.getKey());
+        }
+
+        Deque<String> queue = new ArrayDeque<String>(spec.getClassNames());
+        if (processing.isAggregating()) {
+            for (String type : processing.getAggregatedTypes()) {
+                markStale(type, spec, queue);
+            }
+            for (String type : processing.getGeneratedTypesDependingOnAllOthers()) {
+                markStale(type, spec, queue);
+            }
+        }
+        while (!queue.isEmpty()) {
+            String type = queue.poll();
+            String origin = processing.getOriginsOfGeneratedTypes().get(type);
+            if (origin != null) {
+                markStale(origin, spec, queue);
+            }
+            Set<String> generatedTypes = generatedTypesByOrigin.get(type);
+            if (generatedTypes != null) {
+                for (String generatedType : generatedTypes) {
+                    markStale(generatedType, spec, queue);
+                }
+            }
+            if (origin != null || processing.getGeneratedTypesDependingOnAllOthers().contains(type)) {
+                DependentsSet dependents = previousCompilation.getDependents(type);
+                if (dependents.isDependencyToAll()) {
+                    spec.setFullRebuildCause(dependents.getDescription() != null ? dependents.getDescription() : "generated type '" + type + "' is a dependency to all", null);
+                    return;
+                }
+                for (String dependent : dependents.getDependentClasses()) {
+                    markStale(dependent, spec, queue);
+                }
+            }
+        }
+    }
+
+    private static void markStale(String type, RecompilationSpec spec, Deque<String> queue) {
+        if (spec.getClassNames().add(type)) {
+            queue.add(type);
+        }
+    }
+}
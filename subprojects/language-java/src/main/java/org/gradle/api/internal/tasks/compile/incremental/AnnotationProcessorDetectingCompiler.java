@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDetector;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.language.base.internal.compile.Compiler;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+
+/**
+ * Finds the annotation processors of a compilation before it is performed, so that incremental compilation can take them into account.
+ */
+class AnnotationProcessorDetectingCompiler implements Compiler<JavaCompileSpec> {
+    static final String ANNOTATION_PROCESSING_RESULT_FILE = "annotation-processing-result.bin";
+
+    private final Compiler<JavaCompileSpec> delegate;
+    private final AnnotationProcessorDetector detector;
+
+    public AnnotationProcessorDetectingCompiler(Compiler<JavaCompileSpec> delegate, AnnotationProcessorDetector detector) {
+        this.delegate = delegate;
+        this.detector = detector;
+    }
+
+    @Override
+    public WorkResult execute(JavaCompileSpec spec) {
+        spec.setEffectiveAnnotationProcessors(detector.detectProcessors(spec));
+        File resultFile = new File(spec.getTempDir(), ANNOTATION_PROCESSING_RESULT_FILE);
+        GFileUtils.deleteQuietly(resultFile);
+        spec.setAnnotationProcessingResultFile(resultFile);
+        return delegate.execute(spec);
+    }
+}
@@ -23,10 +23,17 @@ import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingResult;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
+import org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessing;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.util.Clock;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 public class ClassSetAnalysisUpdater {
 
     private final static Logger LOG = Logging.getLogger(ClassSetAnalysisUpdater.class);
@@ -41,13 +48,66 @@ public class ClassSetAnalysisUpdater {
         this.analyzer = analyzer;
     }
 
-    public void updateAnalysis(JavaCompileSpec spec) {
+    /**
+     * Analyzes the classes produced by the given compilation, and combines the output of incremental annotation processors with the
+     * given output of the previous compilation, if any.
+     */
+    public void updateAnalysis(JavaCompileSpec spec, AnnotationProcessingResult previousProcessingResult) {
         Clock clock = new Clock();
         FileTree tree = fileOperations.fileTree(spec.getDestinationDir());
         ClassFilesAnalyzer analyzer = new ClassFilesAnalyzer(this.analyzer);
         tree.visit(analyzer);
         ClassSetAnalysisData data = analyzer.getAnalysis();
-        stash.put(data);
+        stash.put(data.withAnnotationProcessingResult(getAnnotationProcessingResult(spec, data, previousProcessingResult)));
         LOG.info("Class dependency analysis for incremental compilation took {}.", clock.getTime());
     }
+
+    private AnnotationProcessingResult getAnnotationProcessingResult(JavaCompileSpec spec, ClassSetAnalysisData data, AnnotationProcessingResult previous) {
+        AnnotationProcessingResult result = new AnnotationProcessingResult();
+        List<AnnotationProcessorDeclaration> processors = spec.getEffectiveAnnotationProcessors();
+        if (processors == null || processors.isEmpty()) {
+            return result;
+        }
+        String processorsFullRebuildCause = IncrementalAnnotationProcessing.getFullRebuildCause(processors);
+        if (processorsFullRebuildCause != null) {
+            result.setFullRebuildCause(processorsFullRebuildCause);
+            return result;
+        }
+        AnnotationProcessingResult current = spec.getAnnotationProcessingResultFile() == null ? null : AnnotationProcessingResult.readFrom(spec.getAnnotationProcessingResultFile());
+        if (current == null) {
+            result.setFullRebuildCause("the output of annotation processors was not tracked by the compiler");
+            return result;
+        }
+
+        // Types that were not compiled this time keep what was generated from them before
+        if (previous != null) {
+            for (Map.Entry<String, String> entry : previous.getOriginsOfGeneratedTypes().entrySet()) {
+                if (!current.getProcessedTypes().contains(entry.getValue())) {
+                    result.getOriginsOfGeneratedTypes().put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        result.getOriginsOfGeneratedTypes().putAll(current.getOriginsOfGeneratedTypes());
+        Iterator<Map.Entry<String, String>> entries = result.getOriginsOfGeneratedTypes().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, String> entry = entries.next();
+            if (!data.contains(entry.getKey()) || !data.contains(entry.getValue())) {
+                entries.remove();
+            }
+        }
+        // Aggregating processors saw all aggregated types in this compilation, so their output replaces the previous one
+        for (String type : current.getAggregatedTypes()) {
+            if (data.contains(type)) {
+                result.getAggregatedTypes().add(type);
+            }
+        }
+        for (String type : current.getGeneratedTypesDependingOnAllOthers()) {
+            if (data.contains(type)) {
+                result.getGeneratedTypesDependingOnAllOthers().add(type);
+            }
+        }
+        result.getGeneratedResourcesDependingOnAllOthers().addAll(current.getGeneratedResourcesDependingOnAllOthers());
+        result.setFullRebuildCause(current.getFullRebuildCause());
+        return result;
+    }
 }
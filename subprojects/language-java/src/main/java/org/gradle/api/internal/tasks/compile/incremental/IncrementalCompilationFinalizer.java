@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.compile.incremental;
 
 import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshotWriter;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingResult;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.language.base.internal.compile.Compiler;
 
@@ -26,12 +27,14 @@ class IncrementalCompilationFinalizer implements Compiler<JavaCompileSpec> {
     private final Compiler<JavaCompileSpec> delegate;
     private final JarClasspathSnapshotWriter writer;
     private final ClassSetAnalysisUpdater updater;
+    private final AnnotationProcessingResult previousProcessingResult;
 
     public IncrementalCompilationFinalizer(Compiler<JavaCompileSpec> delegate, JarClasspathSnapshotWriter writer,
-                                           ClassSetAnalysisUpdater updater) {
+                                           ClassSetAnalysisUpdater updater, AnnotationProcessingResult previousProcessingResult) {
         this.delegate = delegate;
         this.writer = writer;
         this.updater = updater;
+        this.previousProcessingResult = previousProcessingResult;
     }
 
     @Override
@@ -41,7 +44,7 @@ class IncrementalCompilationFinalizer implements Compiler<JavaCompileSpec> {
         if (!(out instanceof RecompilationNotNecessary)) {
             //if recompilation was skipped
             //there's no point in updating because we have exactly the same output classes)
-            updater.updateAnalysis(spec);
+            updater.updateAnalysis(spec, previousProcessingResult);
         }
 
         writer.storeJarSnapshots(spec.getClasspath());
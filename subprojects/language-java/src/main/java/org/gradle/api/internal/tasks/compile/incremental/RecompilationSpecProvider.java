@@ -17,7 +17,6 @@
 package org.gradle.api.internal.tasks.compile.incremental;
 
 import org.gradle.api.Action;
-import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarChangeProcessor;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshot;
 import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation;
@@ -30,11 +29,9 @@ import static org.gradle.internal.FileUtils.hasExtension;
 public class RecompilationSpecProvider {
 
     private final SourceToNameConverter sourceToNameConverter;
-    private final FileOperations fileOperations;
 
-    public RecompilationSpecProvider(SourceToNameConverter sourceToNameConverter, FileOperations fileOperations) {
+    public RecompilationSpecProvider(SourceToNameConverter sourceToNameConverter) {
         this.sourceToNameConverter = sourceToNameConverter;
-        this.fileOperations = fileOperations;
     }
 
     public RecompilationSpec provideRecompilationSpec(IncrementalTaskInputs inputs, PreviousCompilation previousCompilation, JarClasspathSnapshot jarClasspathSnapshot) {
@@ -42,7 +39,7 @@ public class RecompilationSpecProvider {
         RecompilationSpec spec = new RecompilationSpec();
         JavaChangeProcessor javaChangeProcessor = new JavaChangeProcessor(previousCompilation, sourceToNameConverter);
         ClassChangeProcessor classChangeProcessor = new ClassChangeProcessor(previousCompilation);
-        JarChangeProcessor jarChangeProcessor = new JarChangeProcessor(fileOperations, jarClasspathSnapshot, previousCompilation);
+        JarChangeProcessor jarChangeProcessor = new JarChangeProcessor(jarClasspathSnapshot, previousCompilation);
         InputChangeAction action = new InputChangeAction(spec, javaChangeProcessor, classChangeProcessor, jarChangeProcessor);
 
         //go!
@@ -52,6 +49,9 @@ public class RecompilationSpecProvider {
             return action.spec;
         }
         inputs.removed(action);
+        if (action.spec.getFullRebuildCause() == null) {
+            new AnnotationProcessingChangeProcessor(previousCompilation).processChanges(action.spec);
+        }
         return action.spec;
     }
 
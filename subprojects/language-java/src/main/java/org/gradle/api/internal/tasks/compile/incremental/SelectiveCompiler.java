@@ -22,12 +22,16 @@ import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapsho
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshotProvider;
 import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation;
 import org.gradle.api.internal.tasks.compile.incremental.recomp.RecompilationSpec;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
+import org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessing;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.util.Clock;
 
+import java.util.List;
+
 class SelectiveCompiler implements org.gradle.language.base.internal.compile.Compiler<JavaCompileSpec> {
     private static final Logger LOG = Logging.getLogger(SelectiveCompiler.class);
     private final IncrementalTaskInputs inputs;
@@ -50,6 +54,11 @@ class SelectiveCompiler implements org.gradle.language.base.internal.compile.Com
     @Override
     public WorkResult execute(JavaCompileSpec spec) {
         Clock clock = new Clock();
+        String annotationProcessingCause = getAnnotationProcessingFullRebuildCause(spec);
+        if (annotationProcessingCause != null) {
+            LOG.lifecycle("Full recompilation is required because {}. Analysis took {}.", annotationProcessingCause, clock.getTime());
+            return cleaningCompiler.execute(spec);
+        }
         JarClasspathSnapshot jarClasspathSnapshot = jarClasspathSnapshotProvider.getJarClasspathSnapshot(spec.getClasspath());
         RecompilationSpec recompilationSpec = recompilationSpecProvider.provideRecompilationSpec(inputs, previousCompilation, jarClasspathSnapshot);
 
@@ -71,4 +80,15 @@ class SelectiveCompiler implements org.gradle.language.base.internal.compile.Com
             LOG.lifecycle("Incremental compilation of {} classes completed in {}.", recompilationSpec.getClassNames().size(), clock.getTime());
         }
     }
+
+    private String getAnnotationProcessingFullRebuildCause(JavaCompileSpec spec) {
+        List<AnnotationProcessorDeclaration> processors = spec.getEffectiveAnnotationProcessors();
+        if (processors != null) {
+            String processorsFullRebuildCause = IncrementalAnnotationProcessing.getFullRebuildCause(processors);
+            if (processorsFullRebuildCause != null) {
+                return processorsFullRebuildCause;
+            }
+        }
+        return previousCompilation.getAnnotationProcessingResult().getFullRebuildCause();
+    }
 }
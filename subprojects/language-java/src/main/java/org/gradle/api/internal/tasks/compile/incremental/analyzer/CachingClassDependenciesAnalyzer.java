@@ -18,8 +18,10 @@ package org.gradle.api.internal.tasks.compile.incremental.analyzer;
 
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashUtil;
 import org.gradle.internal.hash.HashValue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 
 public class CachingClassDependenciesAnalyzer implements ClassDependenciesAnalyzer {
@@ -42,4 +44,15 @@ public class CachingClassDependenciesAnalyzer implements ClassDependenciesAnalyz
             }
         });
     }
+
+    @Override
+    public ClassAnalysis getClassAnalysis(final String className, final byte[] classFile) {
+        // Same hash as the one of the class file on disk, so both variants share cache entries
+        HashValue hash = HashUtil.createHash(new ByteArrayInputStream(classFile), "MD5");
+        return cache.get(hash, new Factory<ClassAnalysis>() {
+            public ClassAnalysis create() {
+                return analyzer.getClassAnalysis(className, classFile);
+            }
+        });
+    }
 }
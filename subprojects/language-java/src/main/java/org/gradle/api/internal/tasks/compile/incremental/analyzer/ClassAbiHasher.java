@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.analyzer;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.hash.Hasher;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.util.GFileUtils;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.gradle.internal.FileUtils.hasExtension;
+
+/**
+ * Hashes the application binary interface of class files, that is everything about a class that other classes are compiled against.
+ * Method bodies, private and synthetic members do not contribute to the hash, so implementation changes leave it unchanged.
+ * Files other than class files are hashed by content.
+ */
+public class ClassAbiHasher implements Hasher {
+    private final Hasher contentHasher;
+
+    public ClassAbiHasher(Hasher contentHasher) {
+        this.contentHasher = contentHasher;
+    }
+
+    @Override
+    public HashValue hash(File file) {
+        if (!hasExtension(file, ".class")) {
+            return contentHasher.hash(file);
+        }
+        FileInputStream input = GFileUtils.openInputStream(file);
+        try {
+            return hash(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not hash the API of class file " + file, e);
+        } finally {
+            GFileUtils.closeInputStream(input);
+        }
+    }
+
+    public HashValue hash(InputStream input) throws IOException {
+        return hash(new ClassReader(input));
+    }
+
+    public HashValue hash(byte[] classFile) {
+        return hash(new ClassReader(classFile));
+    }
+
+    private HashValue hash(ClassReader reader) {
+        ClassAbiVisitor visitor = new ClassAbiVisitor();
+        reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return HashUtil.createHash(visitor.getAbi(), "MD5");
+    }
+}
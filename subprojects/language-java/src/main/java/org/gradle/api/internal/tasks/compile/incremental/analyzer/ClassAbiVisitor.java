@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.analyzer;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects a textual description of the members of a class that other classes can be compiled against.
+ * The description does not depend on the order of the members in the class file.
+ */
+class ClassAbiVisitor extends ClassVisitor {
+
+    private final static int API = Opcodes.ASM5;
+    private final List<String> entries = new ArrayList<String>();
+
+    public ClassAbiVisitor() {
+        super(API);
+    }
+
+    public String getAbi() {
+        Collections.sort(entries);
+        StringBuilder abi = new StringBuilder();
+        for (String entry : entries) {
+            abi.append(entry).append('\n');
+        }
+        return abi.toString();
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        entries.add("class " + access + " " + name + " " + signature + " " + superName + " " + Arrays.toString(interfaces));
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+        return new AnnotationRecorder("class", desc, visible);
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        if (innerName != null && isApi(access)) {
+            entries.add("inner " + access + " " + name + " " + outerName + " " + innerName);
+        }
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        if (!isApi(access)) {
+            return null;
+        }
+        // Constant values are inlined into the classes that use them
+        final String field = "field " + access + " " + name + " " + desc + " " + signature + " " + valueToString(value);
+        entries.add(field);
+        return new FieldVisitor(API) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return new AnnotationRecorder(field, desc, visible);
+            }
+        };
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        if (!isApi(access)) {
+            return null;
+        }
+        String[] sortedExceptions = exceptions == null ? new String[0] : exceptions.clone();
+        Arrays.sort(sortedExceptions);
+        final String method = "method " + access + " " + name + " " + desc + " " + signature + " " + Arrays.toString(sortedExceptions);
+        entries.add(method);
+        return new MethodVisitor(API) {
+            @Override
+            public AnnotationVisitor visitAnnotationDefault() {
+                return new AnnotationRecorder(method + " default", "", true);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return new AnnotationRecorder(method, desc, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                return new AnnotationRecorder(method + " parameter " + parameter, desc, visible);
+            }
+        };
+    }
+
+    private static boolean isApi(int access) {
+        return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) == 0;
+    }
+
+    private static String valueToString(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Type) {
+            return ((Type) value).getDescriptor();
+        }
+        if (value.getClass().isArray()) {
+            StringBuilder builder = new StringBuilder("{");
+            for (int i = 0; i < Array.getLength(value); i++) {
+                builder.append(valueToString(Array.get(value, i))).append(',');
+            }
+            return builder.append('}').toString();
+        }
+        return value.getClass().getSimpleName() + ":" + value;
+    }
+
+    /**
+     * Records an annotation, including all of its values, as a single entry.
+     */
+    private class AnnotationRecorder extends AnnotationVisitor {
+        private final StringBuilder builder;
+        private final boolean topLevel;
+
+        AnnotationRecorder(String owner, String desc, boolean visible) {
+            this(new StringBuilder(owner).append(" annotation ").append(visible).append(' ').append(desc).append('('), true);
+        }
+
+        private AnnotationRecorder(StringBuilder builder, boolean topLevel) {
+            super(API);
+            this.builder = builder;
+            this.topLevel = topLevel;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            builder.append(name).append('=').append(valueToString(value)).append(',');
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            builder.append(name).append('=').append(desc).append('.').append(value).append(',');
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            builder.append(name).append("=@").append(desc).append('(');
+            return new AnnotationRecorder(builder, false);
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            builder.append(name).append("=[");
+            return new AnnotationRecorder(builder, false) {
+                @Override
+                public void visitEnd() {
+                    builder.append("],");
+                }
+            };
+        }
+
+        @Override
+        public void visitEnd() {
+            builder.append(')');
+            if (topLevel) {
+                entries.add(builder.toString());
+            } else {
+                builder.append(',');
+            }
+        }
+    }
+}
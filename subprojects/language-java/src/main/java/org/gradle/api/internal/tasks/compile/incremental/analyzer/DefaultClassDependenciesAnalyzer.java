@@ -30,8 +30,11 @@ import java.util.Set;
 public class DefaultClassDependenciesAnalyzer implements ClassDependenciesAnalyzer {
 
     public ClassAnalysis getClassAnalysis(String className, InputStream input) throws IOException {
+        return getClassAnalysis(className, new ClassReader(input));
+    }
+
+    private ClassAnalysis getClassAnalysis(String className, ClassReader reader) {
         ClassRelevancyFilter filter = new ClassRelevancyFilter(className);
-        ClassReader reader = new ClassReader(input);
         ClassDependenciesVisitor visitor = new ClassDependenciesVisitor();
         reader.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
 
@@ -75,4 +78,9 @@ public class DefaultClassDependenciesAnalyzer implements ClassDependenciesAnalyz
             GFileUtils.closeInputStream(input);
         }
     }
+
+    @Override
+    public ClassAnalysis getClassAnalysis(String className, byte[] classFile) {
+        return getClassAnalysis(className, new ClassReader(classFile));
+    }
 }
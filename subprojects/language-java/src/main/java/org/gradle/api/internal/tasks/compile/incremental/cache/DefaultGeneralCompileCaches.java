@@ -18,15 +18,18 @@ package org.gradle.api.internal.tasks.compile.incremental.cache;
 
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisCache;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotCache;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclarationsCache;
 
 public class DefaultGeneralCompileCaches implements GeneralCompileCaches {
 
     private final ClassAnalysisCache classAnalysisCache;
     private final JarSnapshotCache jarSnapshotCache;
+    private final AnnotationProcessorDeclarationsCache annotationProcessorDeclarationsCache;
 
-    public DefaultGeneralCompileCaches(ClassAnalysisCache classAnalysisCache, JarSnapshotCache jarSnapshotCache) {
+    public DefaultGeneralCompileCaches(ClassAnalysisCache classAnalysisCache, JarSnapshotCache jarSnapshotCache, AnnotationProcessorDeclarationsCache annotationProcessorDeclarationsCache) {
         this.classAnalysisCache = classAnalysisCache;
         this.jarSnapshotCache = jarSnapshotCache;
+        this.annotationProcessorDeclarationsCache = annotationProcessorDeclarationsCache;
     }
 
     @Override
@@ -38,4 +41,9 @@ public class DefaultGeneralCompileCaches implements GeneralCompileCaches {
     public JarSnapshotCache getJarSnapshotCache() {
         return jarSnapshotCache;
     }
+
+    @Override
+    public AnnotationProcessorDeclarationsCache getAnnotationProcessorDeclarationsCache() {
+        return annotationProcessorDeclarationsCache;
+    }
 }
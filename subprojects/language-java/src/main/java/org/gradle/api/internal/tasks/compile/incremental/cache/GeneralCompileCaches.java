@@ -18,8 +18,10 @@ package org.gradle.api.internal.tasks.compile.incremental.cache;
 
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisCache;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotCache;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclarationsCache;
 
 public interface GeneralCompileCaches {
     ClassAnalysisCache getClassAnalysisCache();
     JarSnapshotCache getJarSnapshotCache();
+    AnnotationProcessorDeclarationsCache getAnnotationProcessorDeclarationsCache();
 }
@@ -16,64 +16,92 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
 public class ClassSetAnalysis {
 
+    private static final int NOT_REACHED = -1;
+    private static final int REACHED_FROM_SEVERAL = -2;
+
     private final ClassSetAnalysisData data;
 
     public ClassSetAnalysis(ClassSetAnalysisData data) {
         this.data = data;
     }
 
+    /**
+     * Returns the classes that depend on any of the given classes, directly or transitively. A given class is only included when it depends on
+     * one of the other given classes. The dependents of all given classes are found with a single walk over the dependency graph.
+     */
     public DependentsSet getRelevantDependents(Iterable<String> classes) {
-        List<String> result = new LinkedList<String>();
+        Set<Integer> roots = new HashSet<Integer>();
         for (String cls : classes) {
-            DependentsSet d = getRelevantDependents(cls);
-            if (d.isDependencyToAll()) {
-                return d;
+            int index = data.indexOf(cls);
+            if (index < 0) {
+                continue;
+            }
+            if (data.dependencyToAll.get(index)) {
+                return new DependencyToAll();
             }
-            result.addAll(d.getDependentClasses());
+            roots.add(index);
         }
-        return new DefaultDependentsSet(result);
-    }
-
-    public DependentsSet getRelevantDependents(String className) {
-        DependentsSet deps = data.getDependents(className);
-        if (deps == null) {
+        if (roots.isEmpty()) {
             return new DefaultDependentsSet();
         }
-        if (deps.isDependencyToAll()) {
-            return new DependencyToAll();
+
+        // For each class, the root it was reached from, or whether it was reached from several roots
+        int[] reachedFrom = new int[data.classNames.length];
+        Arrays.fill(reachedFrom, NOT_REACHED);
+        // A class is queued again at most once, when it turns out to be reached from several roots
+        int[] queue = new int[2 * data.classNames.length];
+        int queued = 0;
+        for (int root : roots) {
+            queued = reachDependents(root, root, reachedFrom, queue, queued);
+        }
+        while (queued > 0) {
+            int current = queue[--queued];
+            queued = reachDependents(current, reachedFrom[current], reachedFrom, queue, queued);
         }
+
         Set<String> result = new HashSet<String>();
-        recurseDependents(new HashSet<String>(), result, deps.getDependentClasses());
-        result.remove(className);
+        for (int i = 0; i < reachedFrom.length; i++) {
+            if (reachedFrom[i] == NOT_REACHED || reachedFrom[i] == i) {
+                continue;
+            }
+            String className = data.classNames[i];
+            if (!className.contains("$")) { //filter out the inner classes
+                result.add(className);
+            }
+        }
         return new DefaultDependentsSet(result);
     }
 
-    public boolean isDependencyToAll(String className) {
-        DependentsSet deps = data.getDependents(className);
-        return deps != null && deps.isDependencyToAll();
-    }
-
-    private void recurseDependents(Set<String> visited, Set<String> result, Set<String> dependentClasses) {
-        for (String d : dependentClasses) {
-            if (!visited.add(d)) {
+    private int reachDependents(int cls, int root, int[] reachedFrom, int[] queue, int queued) {
+        for (int i = data.dependentsStart[cls]; i < data.dependentsStart[cls + 1]; i++) {
+            int dependent = data.dependents[i];
+            int previous = reachedFrom[dependent];
+            if (previous == root || previous == REACHED_FROM_SEVERAL) {
                 continue;
             }
-            if (!d.contains("$")) { //filter out the inner classes
-                result.add(d);
-            }
-            DependentsSet currentDependents = data.getDependents(d);
-            recurseDependents(visited, result, currentDependents.getDependentClasses());
+            reachedFrom[dependent] = previous == NOT_REACHED ? root : REACHED_FROM_SEVERAL;
+            queue[queued++] = dependent;
         }
+        return queued;
+    }
+
+    public DependentsSet getRelevantDependents(String className) {
+        return getRelevantDependents(Collections.singleton(className));
+    }
+
+    public boolean isDependencyToAll(String className) {
+        int index = data.indexOf(className);
+        return index >= 0 && data.dependencyToAll.get(index);
     }
 
     public ClassSetAnalysisData getData() {
         return data;
     }
-}
\ No newline at end of file
+}
@@ -16,73 +16,227 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps;
 
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingResult;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
-import org.gradle.internal.serialize.MapSerializer;
-import org.gradle.internal.serialize.SetSerializer;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
-
+/**
+ * The dependents of each class of a class set, kept as a compact graph. Each class is identified by an index, and the dependents of
+ * class {@code i} are the classes {@code dependents[dependentsStart[i]]} up to, but excluding, {@code dependents[dependentsStart[i + 1]]}.
+ * The classes that have been analyzed come first. The remaining classes are only known as dependents of other classes.
+ * The analysis also keeps what annotation processors generated from the classes.
+ */
 public class ClassSetAnalysisData {
 
-    final Map<String, DependentsSet> dependents;
+    final String[] classNames;
+    final int analyzedClasses;
+    final int[] dependentsStart;
+    final int[] dependents;
+    final BitSet dependencyToAll;
+    // Classes that are a dependency to all and whose dependents were not recorded
+    final BitSet dependentsUnknown;
+    private final Map<String, Integer> classIndexes;
+    private final AnnotationProcessingResult annotationProcessingResult;
 
     public ClassSetAnalysisData(Map<String, DependentsSet> dependents) {
-        this.dependents = dependents;
+        this(dependents, new AnnotationProcessingResult());
     }
 
-    public DependentsSet getDependents(String className) {
-        return dependents.get(className);
+    public ClassSetAnalysisData(Map<String, DependentsSet> dependents, AnnotationProcessingResult annotationProcessingResult) {
+        List<String> names = new ArrayList<String>(dependents.keySet());
+        Map<String, Integer> indexes = indexes(names);
+        this.analyzedClasses = names.size();
+        this.dependencyToAll = new BitSet(analyzedClasses);
+        this.dependentsUnknown = new BitSet(analyzedClasses);
+        List<int[]> edges = new ArrayList<int[]>(analyzedClasses);
+        int edgeCount = 0;
+        for (int i = 0; i < analyzedClasses; i++) {
+            DependentsSet set = dependents.get(names.get(i));
+            dependencyToAll.set(i, set.isDependencyToAll());
+            if (set instanceof DependencyToAll) {
+                dependentsUnknown.set(i);
+                edges.add(new int[0]);
+                continue;
+            }
+            Set<String> dependentClasses = set.getDependentClasses();
+            int[] dependentIndexes = new int[dependentClasses.size()];
+            int j = 0;
+            for (String dependent : dependentClasses) {
+                Integer index = indexes.get(dependent);
+                if (index == null) {
+                    index = names.size();
+                    names.add(dependent);
+                    indexes.put(dependent, index);
+                }
+                dependentIndexes[j++] = index;
+            }
+            edges.add(dependentIndexes);
+            edgeCount += dependentIndexes.length;
+        }
+        this.classNames = names.toArray(new String[0]);
+        this.classIndexes = indexes;
+        this.dependentsStart = new int[classNames.length + 1];
+        this.dependents = new int[edgeCount];
+        int next = 0;
+        for (int i = 0; i < classNames.length; i++) {
+            dependentsStart[i] = next;
+            if (i < analyzedClasses) {
+                int[] dependentIndexes = edges.get(i);
+                System.arraycopy(dependentIndexes, 0, this.dependents, next, dependentIndexes.length);
+                next += dependentIndexes.length;
+            }
+        }
+        dependentsStart[classNames.length] = next;
+        this.annotationProcessingResult = annotationProcessingResult;
     }
 
-    public static class Serializer implements org.gradle.internal.serialize.Serializer<ClassSetAnalysisData> {
+    ClassSetAnalysisData(String[] classNames, int analyzedClasses, int[] dependentsStart, int[] dependents, BitSet dependencyToAll, BitSet dependentsUnknown,
+                         AnnotationProcessingResult annotationProcessingResult) {
+        this(classNames, analyzedClasses, dependentsStart, dependents, dependencyToAll, dependentsUnknown, indexes(classNames), annotationProcessingResult);
+    }
 
-        private final MapSerializer<String, DependentsSet> serializer = new MapSerializer<String, DependentsSet>(
-                STRING_SERIALIZER, new DependentsSetSerializer());
+    private ClassSetAnalysisData(String[] classNames, int analyzedClasses, int[] dependentsStart, int[] dependents, BitSet dependencyToAll, BitSet dependentsUnknown,
+                                 Map<String, Integer> classIndexes, AnnotationProcessingResult annotationProcessingResult) {
+        this.classNames = classNames;
+        this.analyzedClasses = analyzedClasses;
+        this.dependentsStart = dependentsStart;
+        this.dependents = dependents;
+        this.dependencyToAll = dependencyToAll;
+        this.dependentsUnknown = dependentsUnknown;
+        this.classIndexes = classIndexes;
+        this.annotationProcessingResult = annotationProcessingResult;
+    }
 
-        @Override
-        public ClassSetAnalysisData read(Decoder decoder) throws Exception {
-            //we only support one kind of data
-            return new ClassSetAnalysisData(serializer.read(decoder));
+    /**
+     * Returns a copy of this analysis with the given output of annotation processors.
+     */
+    public ClassSetAnalysisData withAnnotationProcessingResult(AnnotationProcessingResult annotationProcessingResult) {
+        return new ClassSetAnalysisData(classNames, analyzedClasses, dependentsStart, dependents, dependencyToAll, dependentsUnknown, classIndexes, annotationProcessingResult);
+    }
+
+    private static Map<String, Integer> indexes(Iterable<String> classNames) {
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (String className : classNames) {
+            indexes.put(className, indexes.size());
         }
+        return indexes;
+    }
 
-        @Override
-        public void write(Encoder encoder, ClassSetAnalysisData value) throws Exception {
-            //we only support one kind of data
-            serializer.write(encoder, value.dependents);
+    private static Map<String, Integer> indexes(String[] classNames) {
+        Map<String, Integer> indexes = new HashMap<String, Integer>(classNames.length * 2);
+        for (int i = 0; i < classNames.length; i++) {
+            indexes.put(classNames[i], i);
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the index of the given class, or -1 when the class has not been analyzed.
+     */
+    int indexOf(String className) {
+        Integer index = classIndexes.get(className);
+        return index == null || index >= analyzedClasses ? -1 : index;
+    }
+
+    /**
+     * Returns whether the given class has been analyzed, that is whether it was part of the class set.
+     */
+    public boolean contains(String className) {
+        return indexOf(className) >= 0;
+    }
+
+    public AnnotationProcessingResult getAnnotationProcessingResult() {
+        return annotationProcessingResult;
+    }
+
+    public DependentsSet getDependents(String className) {
+        int index = indexOf(className);
+        if (index < 0) {
+            return null;
+        }
+        if (dependentsUnknown.get(index)) {
+            return new DependencyToAll();
         }
+        List<String> result = new ArrayList<String>(dependentsStart[index + 1] - dependentsStart[index]);
+        for (int i = dependentsStart[index]; i < dependentsStart[index + 1]; i++) {
+            result.add(classNames[dependents[i]]);
+        }
+        return new DefaultDependentsSet(dependencyToAll.get(index), result);
+    }
 
-        private static class DependentsSetSerializer implements org.gradle.internal.serialize.Serializer<DependentsSet> {
+    public static class Serializer implements org.gradle.internal.serialize.Serializer<ClassSetAnalysisData> {
 
-            private SetSerializer<String> setSerializer = new SetSerializer<String>(STRING_SERIALIZER, false);
+        private static final int DEPENDENTS_UNKNOWN = 0;
+        private static final int DEPENDENCY_TO_ALL = 1;
+        private static final int DEPENDENTS = 2;
 
-            @Override
-            public DependentsSet read(Decoder decoder) throws Exception {
+        private final AnnotationProcessingResult.Serializer annotationProcessingResultSerializer = new AnnotationProcessingResult.Serializer();
+
+        @Override
+        public ClassSetAnalysisData read(Decoder decoder) throws Exception {
+            String[] classNames = new String[decoder.readSmallInt()];
+            int analyzedClasses = decoder.readSmallInt();
+            for (int i = 0; i < classNames.length; i++) {
+                classNames[i] = decoder.readString();
+            }
+            int[] dependentsStart = new int[classNames.length + 1];
+            int[] dependents = new int[decoder.readSmallInt()];
+            BitSet dependencyToAll = new BitSet(analyzedClasses);
+            BitSet dependentsUnknown = new BitSet(analyzedClasses);
+            int next = 0;
+            for (int i = 0; i < analyzedClasses; i++) {
+                dependentsStart[i] = next;
                 int control = decoder.readSmallInt();
-                if (control == 0) {
-                    return new DependencyToAll();
+                if (control == DEPENDENTS_UNKNOWN) {
+                    dependencyToAll.set(i);
+                    dependentsUnknown.set(i);
+                    continue;
                 }
-                if (control != 1 && control != 2) {
+                if (control != DEPENDENCY_TO_ALL && control != DEPENDENTS) {
                     throw new IllegalArgumentException("Unable to read the data. Unexpected control value: " + control);
                 }
-                Set<String> classes = setSerializer.read(decoder);
-                return new DefaultDependentsSet(control == 1, classes);
+                dependencyToAll.set(i, control == DEPENDENCY_TO_ALL);
+                int count = decoder.readSmallInt();
+                for (int j = 0; j < count; j++) {
+                    dependents[next++] = decoder.readSmallInt();
+                }
+            }
+            for (int i = analyzedClasses; i <= classNames.length; i++) {
+                dependentsStart[i] = next;
             }
+            AnnotationProcessingResult annotationProcessingResult = annotationProcessingResultSerializer.read(decoder);
+            return new ClassSetAnalysisData(classNames, analyzedClasses, dependentsStart, dependents, dependencyToAll, dependentsUnknown, annotationProcessingResult);
+        }
 
-            @Override
-            public void write(Encoder encoder, DependentsSet value) throws Exception {
-                if (value instanceof DependencyToAll) {
-                    encoder.writeSmallInt(0);
-                } else if (value instanceof DefaultDependentsSet) {
-                    encoder.writeSmallInt(value.isDependencyToAll() ? 1 : 2);
-                    setSerializer.write(encoder, value.getDependentClasses());
-                } else {
-                    throw new IllegalArgumentException("Don't know how to serialize value of type: " + value.getClass() + ", value: " + value);
+        @Override
+        public void write(Encoder encoder, ClassSetAnalysisData value) throws Exception {
+            encoder.writeSmallInt(value.classNames.length);
+            encoder.writeSmallInt(value.analyzedClasses);
+            for (String className : value.classNames) {
+                encoder.writeString(className);
+            }
+            encoder.writeSmallInt(value.dependents.length);
+            for (int i = 0; i < value.analyzedClasses; i++) {
+                if (value.dependentsUnknown.get(i)) {
+                    encoder.writeSmallInt(DEPENDENTS_UNKNOWN);
+                    continue;
+                }
+                encoder.writeSmallInt(value.dependencyToAll.get(i) ? DEPENDENCY_TO_ALL : DEPENDENTS);
+                int start = value.dependentsStart[i];
+                int end = value.dependentsStart[i + 1];
+                encoder.writeSmallInt(end - start);
+                for (int j = start; j < end; j++) {
+                    encoder.writeSmallInt(value.dependents[j]);
                 }
             }
+            annotationProcessingResultSerializer.write(encoder, value.annotationProcessingResult);
         }
     }
 }
@@ -19,6 +19,7 @@ package org.gradle.api.internal.tasks.compile.incremental.jar;
 import org.gradle.api.internal.changedetection.state.FileSnapshot;
 import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
 import org.gradle.api.internal.hash.Hasher;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAbiHasher;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.internal.Factory;
 import org.gradle.internal.hash.HashValue;
@@ -32,7 +33,8 @@ public class CachingJarSnapshotter implements JarSnapshotter {
 
     public CachingJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer, JarSnapshotCache cache, FilesSnapshotSet inputFilesSnapshot) {
         this.inputFilesSnapshot = inputFilesSnapshot;
-        this.snapshotter = new DefaultJarSnapshotter(hasher, analyzer);
+        // Classes are compared by their API only, so that implementation changes in a jar do not cause any recompilation
+        this.snapshotter = new DefaultJarSnapshotter(new ClassAbiHasher(hasher), analyzer);
         this.hasher = hasher;
         this.cache = cache;
     }
@@ -15,45 +15,72 @@
  */
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
-import org.gradle.api.file.FileTree;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
-import org.gradle.api.internal.hash.Hasher;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAbiHasher;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassDependentsAccumulator;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
 import org.gradle.internal.hash.HashValue;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+/**
+ * Creates the snapshot of a jar by reading its class files straight out of the archive, using the central directory of the jar.
+ * Each class file is read into memory once and is then hashed and analysed from there, so nothing is extracted to disk.
+ */
 class DefaultJarSnapshotter {
 
-    private final Hasher hasher;
+    private final ClassAbiHasher hasher;
     private final ClassDependenciesAnalyzer analyzer;
 
-    public DefaultJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer) {
+    public DefaultJarSnapshotter(ClassAbiHasher hasher, ClassDependenciesAnalyzer analyzer) {
         this.hasher = hasher;
         this.analyzer = analyzer;
     }
 
     public JarSnapshot createSnapshot(HashValue hash, JarArchive jarArchive) {
-        return createSnapshot(hash, jarArchive.contents, new ClassFilesAnalyzer(analyzer));
-    }
-
-    JarSnapshot createSnapshot(HashValue hash, FileTree classes, final ClassFilesAnalyzer analyzer) {
-        final Map<String, HashValue> hashes = new HashMap<String, HashValue>();
-        classes.visit(new FileVisitor() {
-            public void visitDir(FileVisitDetails dirDetails) {
+        Map<String, HashValue> hashes = new HashMap<String, HashValue>();
+        ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator("");
+        try {
+            ZipFile zipFile = new ZipFile(jarArchive.file);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String path = entry.getName();
+                    if (entry.isDirectory() || !path.endsWith(".class")) {
+                        continue;
+                    }
+                    String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+                    byte[] classFile = readEntry(zipFile, entry);
+                    hashes.put(className, hasher.hash(classFile));
+                    ClassAnalysis analysis = analyzer.getClassAnalysis(className, classFile);
+                    accumulator.addClass(className, analysis.isDependencyToAll(), analysis.getClassDependencies());
+                }
+            } finally {
+                zipFile.close();
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create snapshot of jar " + jarArchive.file, e);
+        }
 
-            public void visitFile(FileVisitDetails fileDetails) {
-                analyzer.visitFile(fileDetails);
-                String className = fileDetails.getPath().replaceAll("/", ".").replaceAll("\\.class$", "");
-                HashValue classHash = hasher.hash(fileDetails.getFile());
-                hashes.put(className, classHash);
-            }
-        });
+        return new JarSnapshot(new JarSnapshotData(hash, hashes, new ClassSetAnalysisData(accumulator.getDependentsMap())));
+    }
 
-        return new JarSnapshot(new JarSnapshotData(hash, hashes, analyzer.getAnalysis()));
+    private static byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        InputStream input = zipFile.getInputStream(entry);
+        try {
+            return ByteStreams.toByteArray(input);
+        } finally {
+            input.close();
+        }
     }
-}
\ No newline at end of file
+}
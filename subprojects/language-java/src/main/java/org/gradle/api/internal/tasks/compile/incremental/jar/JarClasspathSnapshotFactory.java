@@ -16,20 +16,33 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.work.WorkerLeaseService;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class JarClasspathSnapshotFactory {
 
     private final JarSnapshotter jarSnapshotter;
+    private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
 
-    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter) {
+    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
         this.jarSnapshotter = jarSnapshotter;
+        this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
     }
 
     JarClasspathSnapshot createSnapshot(Iterable<JarArchive> jarArchives) {
@@ -38,8 +51,9 @@ public class JarClasspathSnapshotFactory {
         Set<String> allClasses = new HashSet<String>();
         Set<String> duplicateClasses = new HashSet<String>();
 
-        for (JarArchive jar : jarArchives) {
-            JarSnapshot snapshot = jarSnapshotter.createSnapshot(jar);
+        for (Map.Entry<JarArchive, JarSnapshot> entry : snapshotJars(jarArchives).entrySet()) {
+            JarArchive jar = entry.getKey();
+            JarSnapshot snapshot = entry.getValue();
             jarSnapshots.put(jar.file, snapshot);
             jarHashes.put(jar.file, snapshot.getHash());
             for (String c : snapshot.getClasses()) {
@@ -51,4 +65,38 @@ public class JarClasspathSnapshotFactory {
         JarClasspathSnapshotData jarClasspathSnapshotData = new JarClasspathSnapshotData(jarHashes, duplicateClasses);
         return new JarClasspathSnapshot(jarSnapshots, jarClasspathSnapshotData);
     }
+
+    /**
+     * Snapshots the given jars on other threads, as long as worker leases are available. When no lease is available, the jar is
+     * snapshotted on the calling thread. The result is in classpath order.
+     */
+    private Map<JarArchive, JarSnapshot> snapshotJars(Iterable<JarArchive> jarArchives) {
+        Map<JarArchive, Future<JarSnapshot>> results = new LinkedHashMap<JarArchive, Future<JarSnapshot>>();
+        StoppableExecutor executor = executorFactory.create("Snapshot classpath jars");
+        try {
+            for (final JarArchive jar : jarArchives) {
+                FutureTask<JarSnapshot> snapshot = new FutureTask<JarSnapshot>(new Callable<JarSnapshot>() {
+                    @Override
+                    public JarSnapshot call() {
+                        return jarSnapshotter.createSnapshot(jar);
+                    }
+                });
+                if (!workerLeaseService.tryRunWithWorkerLease(executor, snapshot)) {
+                    snapshot.run();
+                }
+                results.put(jar, snapshot);
+            }
+            Map<JarArchive, JarSnapshot> snapshots = new LinkedHashMap<JarArchive, JarSnapshot>();
+            for (Map.Entry<JarArchive, Future<JarSnapshot>> entry : results.entrySet()) {
+                snapshots.put(entry.getKey(), entry.getValue().get());
+            }
+            return snapshots;
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            executor.stop();
+        }
+    }
 }
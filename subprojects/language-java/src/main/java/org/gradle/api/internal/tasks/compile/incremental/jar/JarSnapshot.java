@@ -58,13 +58,13 @@ public class JarSnapshot {
             if (thisClsBytes == null || !thisClsBytes.equals(otherClassBytes)) {
                 //removed since or changed since
                 affected.add(otherClassName);
-                DependentsSet dependents = other.getAnalysis().getRelevantDependents(otherClassName);
-                if (dependents.isDependencyToAll()) {
-                    return dependents;
-                }
-                affected.addAll(dependents.getDependentClasses());
             }
         }
+        DependentsSet dependents = other.getAnalysis().getRelevantDependents(affected);
+        if (dependents.isDependencyToAll()) {
+            return dependents;
+        }
+        affected.addAll(dependents.getDependentClasses());
         return new DefaultDependentsSet(affected);
     }
 
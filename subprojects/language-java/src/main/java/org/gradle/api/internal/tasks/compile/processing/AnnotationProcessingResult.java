@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import org.gradle.api.GradleException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.InputStreamBackedDecoder;
+import org.gradle.internal.serialize.MapSerializer;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+import org.gradle.internal.serialize.SetSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * What incremental annotation processors generated, and from which types.
+ *
+ * <ul>
+ *     <li>Each type generated by an isolating processor has exactly one originating type. It needs to be regenerated when the originating type is recompiled.</li>
+ *     <li>The types and resources generated by aggregating processors depend on all aggregated types, that is all types annotated with one of the
+ *     annotations the processors support. They need to be regenerated whenever anything is recompiled.</li>
+ * </ul>
+ *
+ * When the output of the processors cannot be tracked, the result has a cause for recompiling everything next time.
+ */
+public class AnnotationProcessingResult {
+    private final Map<String, String> originsOfGeneratedTypes;
+    private final Set<String> aggregatedTypes;
+    private final Set<String> generatedTypesDependingOnAllOthers;
+    private final Set<String> generatedResourcesDependingOnAllOthers;
+    private final Set<String> processedTypes;
+    private String fullRebuildCause;
+
+    public AnnotationProcessingResult() {
+        this(new HashMap<String, String>(), new HashSet<String>(), new HashSet<String>(), new HashSet<String>(), new HashSet<String>(), null);
+    }
+
+    public AnnotationProcessingResult(Map<String, String> originsOfGeneratedTypes, Set<String> aggregatedTypes, Set<String> generatedTypesDependingOnAllOthers,
+                                      Set<String> generatedResourcesDependingOnAllOthers, Set<String> processedTypes, String fullRebuildCause) {
+        this.originsOfGeneratedTypes = originsOfGeneratedTypes;
+        this.aggregatedTypes = aggregatedTypes;
+        this.generatedTypesDependingOnAllOthers = generatedTypesDependingOnAllOthers;
+        this.generatedResourcesDependingOnAllOthers = generatedResourcesDependingOnAllOthers;
+        this.processedTypes = processedTypes;
+        this.fullRebuildCause = fullRebuildCause;
+    }
+
+    /**
+     * The originating type of each type generated by an isolating processor.
+     */
+    public Map<String, String> getOriginsOfGeneratedTypes() {
+        return originsOfGeneratedTypes;
+    }
+
+    public Set<String> getAggregatedTypes() {
+        return aggregatedTypes;
+    }
+
+    public Set<String> getGeneratedTypesDependingOnAllOthers() {
+        return generatedTypesDependingOnAllOthers;
+    }
+
+    public Set<String> getGeneratedResourcesDependingOnAllOthers() {
+        return generatedResourcesDependingOnAllOthers;
+    }
+
+    /**
+     * The types the processors saw in the compilation that produced this result, which are the types that compilation compiled.
+     * This is only known for the result of a single compilation.
+     */
+    public Set<String> getProcessedTypes() {
+        return processedTypes;
+    }
+
+    /**
+     * Whether aggregating processors need to see all aggregated types again when anything is recompiled.
+     */
+    public boolean isAggregating() {
+        return !aggregatedTypes.isEmpty() || !generatedTypesDependingOnAllOthers.isEmpty() || !generatedResourcesDependingOnAllOthers.isEmpty();
+    }
+
+    public String getFullRebuildCause() {
+        return fullRebuildCause;
+    }
+
+    public void setFullRebuildCause(String fullRebuildCause) {
+        if (this.fullRebuildCause == null) {
+            this.fullRebuildCause = fullRebuildCause;
+        }
+    }
+
+    /**
+     * Writes this result to the given file, so that it can be read by the build after a compilation in a compiler daemon.
+     */
+    public void writeTo(File file) {
+        try {
+            OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                new Serializer().write(encoder, this);
+            } finally {
+                encoder.close();
+            }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write annotation processing result to '%s'.", file), e);
+        }
+    }
+
+    /**
+     * Reads the result written to the given file, or returns null when there is no such file.
+     */
+    public static AnnotationProcessingResult readFrom(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            InputStreamBackedDecoder decoder = new InputStreamBackedDecoder(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                return new Serializer().read(decoder);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not read annotation processing result from '%s'.", file), e);
+        }
+    }
+
+    public static class Serializer implements org.gradle.internal.serialize.Serializer<AnnotationProcessingResult> {
+        private final MapSerializer<String, String> mapSerializer = new MapSerializer<String, String>(STRING_SERIALIZER, STRING_SERIALIZER);
+        private final SetSerializer<String> setSerializer = new SetSerializer<String>(STRING_SERIALIZER, false);
+
+        @Override
+        public AnnotationProcessingResult read(Decoder decoder) throws Exception {
+            Map<String, String> originsOfGeneratedTypes = mapSerializer.read(decoder);
+            Set<String> aggregatedTypes = setSerializer.read(decoder);
+            Set<String> generatedTypes = setSerializer.read(decoder);
+            Set<String> generatedResources = setSerializer.read(decoder);
+            Set<String> processedTypes = setSerializer.read(decoder);
+            String fullRebuildCause = decoder.readBoolean() ? decoder.readString() : null;
+            return new AnnotationProcessingResult(originsOfGeneratedTypes, aggregatedTypes, generatedTypes, generatedResources, processedTypes, fullRebuildCause);
+        }
+
+        @Override
+        public void write(Encoder encoder, AnnotationProcessingResult value) throws Exception {
+            mapSerializer.write(encoder, value.originsOfGeneratedTypes);
+            setSerializer.write(encoder, value.aggregatedTypes);
+            setSerializer.write(encoder, value.generatedTypesDependingOnAllOthers);
+            setSerializer.write(encoder, value.generatedResourcesDependingOnAllOthers);
+            setSerializer.write(encoder, value.processedTypes);
+            encoder.writeBoolean(value.fullRebuildCause != null);
+            if (value.fullRebuildCause != null) {
+                encoder.writeString(value.fullRebuildCause);
+            }
+        }
+    }
+}
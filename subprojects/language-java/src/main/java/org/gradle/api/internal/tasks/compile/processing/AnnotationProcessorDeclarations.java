@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The annotation processors registered by one entry of the processor path, and the incremental behaviour declared for them.
+ */
+public class AnnotationProcessorDeclarations {
+    private final List<String> processorNames;
+    private final Map<String, IncrementalAnnotationProcessorType> types;
+
+    public AnnotationProcessorDeclarations(List<String> processorNames, Map<String, IncrementalAnnotationProcessorType> types) {
+        this.processorNames = processorNames;
+        this.types = types;
+    }
+
+    /**
+     * The processors registered as services, in the order of their registration.
+     */
+    public List<String> getProcessorNames() {
+        return processorNames;
+    }
+
+    /**
+     * The declared incremental behaviour, by processor class name.
+     */
+    public Map<String, IncrementalAnnotationProcessorType> getTypes() {
+        return types;
+    }
+
+    public static class Serializer implements org.gradle.internal.serialize.Serializer<AnnotationProcessorDeclarations> {
+        @Override
+        public AnnotationProcessorDeclarations read(Decoder decoder) throws Exception {
+            int processorCount = decoder.readSmallInt();
+            List<String> processorNames = new ArrayList<String>(processorCount);
+            for (int i = 0; i < processorCount; i++) {
+                processorNames.add(decoder.readString());
+            }
+            int typeCount = decoder.readSmallInt();
+            Map<String, IncrementalAnnotationProcessorType> types = new LinkedHashMap<String, IncrementalAnnotationProcessorType>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                types.put(decoder.readString(), IncrementalAnnotationProcessorType.valueOf(decoder.readString()));
+            }
+            return new AnnotationProcessorDeclarations(processorNames, types);
+        }
+
+        @Override
+        public void write(Encoder encoder, AnnotationProcessorDeclarations value) throws Exception {
+            encoder.writeSmallInt(value.processorNames.size());
+            for (String processorName : value.processorNames) {
+                encoder.writeString(processorName);
+            }
+            encoder.writeSmallInt(value.types.size());
+            for (Map.Entry<String, IncrementalAnnotationProcessorType> entry : value.types.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeString(entry.getValue().name());
+            }
+        }
+    }
+}
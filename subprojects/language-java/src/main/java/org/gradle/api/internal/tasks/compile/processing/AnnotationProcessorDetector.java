@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds the annotation processors that javac will run for a compilation, the same way javac does: the processors named with {@code -processor},
+ * or otherwise those registered as services on the processor path. The processor path is given by {@code -processorpath}, or is the class path.
+ *
+ * <p>Processors declare their incremental behaviour in {@code META-INF/gradle/incremental.annotation.processors}, with one
+ * {@code <processor class name>,<ISOLATING|AGGREGATING>} entry per line.</p>
+ */
+public class AnnotationProcessorDetector {
+    public static final String PROCESSOR_SERVICES = "META-INF/services/javax.annotation.processing.Processor";
+    public static final String INCREMENTAL_PROCESSORS = "META-INF/gradle/incremental.annotation.processors";
+
+    public List<AnnotationProcessorDeclaration> detectProcessors(JavaCompileSpec spec) {
+        List<String> compilerArgs = compilerArgs(spec);
+        if (compilerArgs.contains("-proc:none")) {
+            return Collections.emptyList();
+        }
+        Set<String> processorNames = new LinkedHashSet<String>();
+        Map<String, IncrementalAnnotationProcessorType> types = new HashMap<String, IncrementalAnnotationProcessorType>();
+        for (File file : getProcessorPath(spec)) {
+            AnnotationProcessorDeclarations declarations = readDeclarations(file);
+            processorNames.addAll(declarations.getProcessorNames());
+            for (Map.Entry<String, IncrementalAnnotationProcessorType> entry : declarations.getTypes().entrySet()) {
+                if (!types.containsKey(entry.getKey())) {
+                    types.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        String explicitProcessors = argumentOf(compilerArgs, "-processor");
+        if (explicitProcessors != null) {
+            processorNames.clear();
+            processorNames.addAll(Lists.newArrayList(Splitter.on(',').omitEmptyStrings().trimResults().split(explicitProcessors)));
+        }
+
+        List<AnnotationProcessorDeclaration> result = new ArrayList<AnnotationProcessorDeclaration>(processorNames.size());
+        for (String processorName : processorNames) {
+            IncrementalAnnotationProcessorType type = types.get(processorName);
+            result.add(new AnnotationProcessorDeclaration(processorName, type == null ? IncrementalAnnotationProcessorType.UNKNOWN : type));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the path javac loads annotation processors from for the given compilation.
+     */
+    public static List<File> getProcessorPath(JavaCompileSpec spec) {
+        String processorPath = argumentOf(compilerArgs(spec), "-processorpath");
+        List<File> result = new ArrayList<File>();
+        if (processorPath != null) {
+            for (String path : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(processorPath)) {
+                result.add(new File(path));
+            }
+        } else if (spec.getClasspath() != null) {
+            for (File file : spec.getClasspath()) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> compilerArgs(JavaCompileSpec spec) {
+        List<String> compilerArgs = spec.getCompileOptions().getCompilerArgs();
+        return compilerArgs == null ? Collections.<String>emptyList() : compilerArgs;
+    }
+
+    private static String argumentOf(List<String> compilerArgs, String option) {
+        int index = compilerArgs.lastIndexOf(option);
+        return index >= 0 && index + 1 < compilerArgs.size() ? compilerArgs.get(index + 1) : null;
+    }
+
+    private AnnotationProcessorDeclarations readDeclarations(File file) {
+        try {
+            if (file.isDirectory()) {
+                return declarations(readLines(new File(file, PROCESSOR_SERVICES)), readLines(new File(file, INCREMENTAL_PROCESSORS)));
+            }
+            if (file.isFile()) {
+                return readJar(file);
+            }
+            return declarations(Collections.<String>emptyList(), Collections.<String>emptyList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read annotation processor declarations from " + file, e);
+        }
+    }
+
+    /**
+     * Reads the annotation processor declarations of the given jar.
+     */
+    protected AnnotationProcessorDeclarations readJar(File jar) throws IOException {
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            return declarations(readLines(zipFile, PROCESSOR_SERVICES), readLines(zipFile, INCREMENTAL_PROCESSORS));
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static AnnotationProcessorDeclarations declarations(List<String> processorServices, List<String> incrementalProcessors) {
+        List<String> processorNames = new ArrayList<String>();
+        readProcessorNames(processorServices, processorNames);
+        Map<String, IncrementalAnnotationProcessorType> types = new LinkedHashMap<String, IncrementalAnnotationProcessorType>();
+        readTypes(incrementalProcessors, types);
+        return new AnnotationProcessorDeclarations(processorNames, types);
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        return file.isFile() ? Files.readLines(file, Charsets.UTF_8) : Collections.<String>emptyList();
+    }
+
+    private static List<String> readLines(ZipFile zipFile, String name) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        InputStreamReader reader = new InputStreamReader(zipFile.getInputStream(entry), Charsets.UTF_8);
+        try {
+            return CharStreams.readLines(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readProcessorNames(List<String> lines, List<String> processorNames) {
+        for (String line : lines) {
+            String processorName = withoutComment(line);
+            if (!processorName.isEmpty() && !processorNames.contains(processorName)) {
+                processorNames.add(processorName);
+            }
+        }
+    }
+
+    private static void readTypes(List<String> lines, Map<String, IncrementalAnnotationProcessorType> types) {
+        for (String line : lines) {
+            List<String> parts = Lists.newArrayList(Splitter.on(',').trimResults().split(withoutComment(line)));
+            if (parts.size() != 2 || types.containsKey(parts.get(0))) {
+                continue;
+            }
+            try {
+                types.put(parts.get(0), IncrementalAnnotationProcessorType.valueOf(parts.get(1).toUpperCase(Locale.US)));
+            } catch (IllegalArgumentException e) {
+                // Not a type we know about, so the processor is treated as not incremental
+            }
+        }
+    }
+
+    private static String withoutComment(String line) {
+        int comment = line.indexOf('#');
+        return (comment >= 0 ? line.substring(0, comment) : line).trim();
+    }
+}
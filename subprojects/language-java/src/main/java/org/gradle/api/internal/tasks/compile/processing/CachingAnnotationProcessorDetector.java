@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.changedetection.state.FileSnapshot;
+import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
+import org.gradle.api.internal.hash.Hasher;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashValue;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Detects annotation processors like {@link AnnotationProcessorDetector}, but reads the declarations of each jar only once and then takes them
+ * from a cache keyed by the hash of the jar.
+ */
+public class CachingAnnotationProcessorDetector extends AnnotationProcessorDetector {
+    private final AnnotationProcessorDeclarationsCache cache;
+    private final Hasher hasher;
+    private final FilesSnapshotSet inputFilesSnapshot;
+
+    public CachingAnnotationProcessorDetector(AnnotationProcessorDeclarationsCache cache, Hasher hasher, FilesSnapshotSet inputFilesSnapshot) {
+        this.cache = cache;
+        this.hasher = hasher;
+        this.inputFilesSnapshot = inputFilesSnapshot;
+    }
+
+    @Override
+    protected AnnotationProcessorDeclarations readJar(final File jar) {
+        return cache.get(getHash(jar), new Factory<AnnotationProcessorDeclarations>() {
+            public AnnotationProcessorDeclarations create() {
+                try {
+                    return CachingAnnotationProcessorDetector.super.readJar(jar);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read annotation processor declarations from " + jar, e);
+                }
+            }
+        });
+    }
+
+    private HashValue getHash(File jar) {
+        FileSnapshot s = inputFilesSnapshot.findSnapshot(jar);
+        if (s != null) {
+            return s.getHash();
+        }
+        return hasher.hash(jar);
+    }
+}
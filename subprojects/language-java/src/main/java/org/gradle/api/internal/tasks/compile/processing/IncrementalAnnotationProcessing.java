@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.reflect.DirectInstantiator;
+
+import javax.annotation.processing.Processor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the incremental annotation processors of a compilation, and tracks what they generate. The compiler runs these processors instead of
+ * looking up the processors itself.
+ */
+public class IncrementalAnnotationProcessing implements Stoppable {
+    private final JavaCompileSpec spec;
+    private final VisitableURLClassLoader processorClassLoader;
+    private final AnnotationProcessingResult result = new AnnotationProcessingResult();
+    private final List<Processor> processors = new ArrayList<Processor>();
+
+    /**
+     * Returns whether what the processors of the given compilation generate can be tracked. This is the case when all of them are incremental.
+     */
+    public static boolean isTracked(JavaCompileSpec spec) {
+        List<AnnotationProcessorDeclaration> declarations = spec.getEffectiveAnnotationProcessors();
+        return spec.getAnnotationProcessingResultFile() != null && declarations != null && !declarations.isEmpty() && getFullRebuildCause(declarations) == null;
+    }
+
+    /**
+     * Returns why the given processors require a full recompilation, or null when all of them are incremental.
+     */
+    public static String getFullRebuildCause(List<AnnotationProcessorDeclaration> declarations) {
+        for (AnnotationProcessorDeclaration declaration : declarations) {
+            if (declaration.getType() == IncrementalAnnotationProcessorType.UNKNOWN) {
+                return String.format("annotation processor '%s' is not incremental", declaration.getClassName());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the processors of the given compilation, whose processors must be tracked, with a class loader that has the given parent.
+     * The parent should be the class loader of the compiler, so that processors can use the compiler classes like they do when the compiler loads them.
+     */
+    public IncrementalAnnotationProcessing(JavaCompileSpec spec, ClassLoader parent) {
+        this.spec = spec;
+        this.processorClassLoader = new VisitableURLClassLoader(parent, new DefaultClassPath(AnnotationProcessorDetector.getProcessorPath(spec)));
+        for (AnnotationProcessorDeclaration declaration : spec.getEffectiveAnnotationProcessors()) {
+            processors.add(new IncrementalProcessor(loadProcessor(declaration.getClassName()), declaration, result));
+        }
+    }
+
+    private Processor loadProcessor(String className) {
+        try {
+            return DirectInstantiator.instantiate(processorClassLoader.loadClass(className).asSubclass(Processor.class));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(String.format("Annotation processor '%s' not found.", className), e);
+        }
+    }
+
+    public List<Processor> getProcessors() {
+        return processors;
+    }
+
+    /**
+     * Writes what the processors generated to the annotation processing result file of the compilation.
+     */
+    public void storeResult() {
+        result.writeTo(spec.getAnnotationProcessingResultFile());
+    }
+
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable(processorClassLoader).stop();
+    }
+}
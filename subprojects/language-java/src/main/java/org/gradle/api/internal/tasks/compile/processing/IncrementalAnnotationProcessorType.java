@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+/**
+ * How the output of an annotation processor relates to its input, as declared by the processor.
+ */
+public enum IncrementalAnnotationProcessorType {
+    /**
+     * Each generated type is generated from exactly one type, which is passed as its originating element.
+     */
+    ISOLATING,
+    /**
+     * The generated types and resources may depend on all types annotated with one of the supported annotations.
+     */
+    AGGREGATING,
+    /**
+     * The processor has not declared its behaviour, so its output cannot be updated incrementally.
+     */
+    UNKNOWN
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Records the types and resources an incremental processor generates. A type generated by an isolating processor is recorded against its
+ * originating type. When an isolating processor does not name exactly one originating type, or generates a resource, its output cannot be
+ * tracked and everything is recompiled next time.
+ */
+class IncrementalFiler implements Filer {
+    private final Filer delegate;
+    private final AnnotationProcessorDeclaration declaration;
+    private final AnnotationProcessingResult result;
+
+    IncrementalFiler(Filer delegate, AnnotationProcessorDeclaration declaration, AnnotationProcessingResult result) {
+        this.delegate = delegate;
+        this.declaration = declaration;
+        this.result = result;
+    }
+
+    @Override
+    public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) throws IOException {
+        recordGeneratedType(name, originatingElements);
+        return delegate.createSourceFile(name, originatingElements);
+    }
+
+    @Override
+    public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+        recordGeneratedType(name, originatingElements);
+        return delegate.createClassFile(name, originatingElements);
+    }
+
+    @Override
+    public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) throws IOException {
+        String resource = pkg.length() == 0 ? relativeName.toString() : pkg.toString().replace('.', '/') + "/" + relativeName;
+        if (declaration.getType() == IncrementalAnnotationProcessorType.AGGREGATING) {
+            result.getGeneratedResourcesDependingOnAllOthers().add(resource);
+        } else {
+            result.setFullRebuildCause(String.format("isolating annotation processor '%s' generated resource '%s'", declaration.getClassName(), resource));
+        }
+        return delegate.createResource(location, pkg, relativeName, originatingElements);
+    }
+
+    @Override
+    public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) throws IOException {
+        return delegate.getResource(location, pkg, relativeName);
+    }
+
+    private void recordGeneratedType(CharSequence name, Element[] originatingElements) {
+        String type = name.toString();
+        if (declaration.getType() == IncrementalAnnotationProcessorType.AGGREGATING) {
+            result.getGeneratedTypesDependingOnAllOthers().add(type);
+            return;
+        }
+        Set<String> originatingTypes = new LinkedHashSet<String>();
+        for (Element element : originatingElements) {
+            String originatingType = IncrementalProcessor.getTopLevelTypeName(element);
+            if (originatingType != null) {
+                originatingTypes.add(originatingType);
+            }
+        }
+        if (originatingTypes.size() != 1) {
+            result.setFullRebuildCause(String.format("isolating annotation processor '%s' generated type '%s' from %d originating types instead of one",
+                declaration.getClassName(), type, originatingTypes.size()));
+            return;
+        }
+        result.getOriginsOfGeneratedTypes().put(type, originatingTypes.iterator().next());
+    }
+}
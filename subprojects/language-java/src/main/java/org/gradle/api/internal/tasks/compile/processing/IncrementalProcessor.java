@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import java.util.Set;
+
+/**
+ * Runs an annotation processor and records what it generates, and for aggregating processors, which types it processes.
+ */
+class IncrementalProcessor implements Processor {
+    private final Processor delegate;
+    private final AnnotationProcessorDeclaration declaration;
+    private final AnnotationProcessingResult result;
+
+    IncrementalProcessor(Processor delegate, AnnotationProcessorDeclaration declaration, AnnotationProcessingResult result) {
+        this.delegate = delegate;
+        this.declaration = declaration;
+        this.result = result;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+        delegate.init(new IncrementalProcessingEnvironment(processingEnv, new IncrementalFiler(processingEnv.getFiler(), declaration, result)));
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            String type = getTopLevelTypeName(element);
+            if (type != null) {
+                result.getProcessedTypes().add(type);
+            }
+        }
+        if (declaration.getType() == IncrementalAnnotationProcessorType.AGGREGATING) {
+            recordAggregatedTypes(annotations, roundEnv);
+        }
+        return delegate.process(annotations, roundEnv);
+    }
+
+    private void recordAggregatedTypes(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (getSupportedAnnotationTypes().contains("*")) {
+            for (Element element : roundEnv.getRootElements()) {
+                addAggregatedType(element);
+            }
+            return;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                addAggregatedType(element);
+            }
+        }
+    }
+
+    private void addAggregatedType(Element element) {
+        String type = getTopLevelTypeName(element);
+        if (type != null) {
+            result.getAggregatedTypes().add(type);
+        }
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+        return delegate.getCompletions(element, annotation, member, userText);
+    }
+
+    /**
+     * Returns the name of the top level type that contains the given element, which is the type whose source file contains the element.
+     */
+    static String getTopLevelTypeName(Element element) {
+        Element current = element;
+        while (!(current instanceof PackageElement) && current.getEnclosingElement() != null && !(current.getEnclosingElement() instanceof PackageElement)) {
+            current = current.getEnclosingElement();
+        }
+        if (current instanceof PackageElement) {
+            String packageName = ((PackageElement) current).getQualifiedName().toString();
+            return packageName.isEmpty() ? "package-info" : packageName + ".package-info";
+        }
+        if (current instanceof TypeElement) {
+            return ((TypeElement) current).getQualifiedName().toString();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.api.JavaVersion
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.tools.JavaCompiler
+import javax.tools.StandardJavaFileManager
+import javax.tools.StandardLocation
+
+class PlatformFileManagerCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+    def compiler = Mock(JavaCompiler)
+    def rtJar = temp.createFile("jre/lib/rt.jar")
+    def cache = new PlatformFileManagerCache(JavaVersion.VERSION_1_8, 2)
+
+    def "reuses file manager for later compilations"() {
+        def fileManager = fileManager()
+
+        when:
+        def first = cache.acquire(compiler, ["-source", "1.8", JavaCompilerArgumentsBuilder.USE_UNSHARED_COMPILER_TABLE_OPTION])
+        cache.release(first)
+        def second = cache.acquire(compiler, ["-classpath", "lib.jar"])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        first.is(fileManager)
+        second.is(fileManager)
+    }
+
+    def "uses separate file managers for concurrent compilations"() {
+        def fileManager1 = fileManager()
+        def fileManager2 = fileManager()
+
+        when:
+        def first = cache.acquire(compiler, [])
+        def second = cache.acquire(compiler, [])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >>> [fileManager1, fileManager2]
+        first.is(fileManager1)
+        second.is(fileManager2)
+    }
+
+    def "discards file manager when platform class path has changed"() {
+        def fileManager1 = fileManager()
+        def fileManager2 = fileManager()
+
+        when:
+        cache.release(cache.acquire(compiler, []))
+        rtJar << "changed"
+        def result = cache.acquire(compiler, [])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >>> [fileManager1, fileManager2]
+        1 * fileManager1.close()
+        result.is(fileManager2)
+    }
+
+    def "does not share file manager when options change platform class path"() {
+        expect:
+        cache.acquire(compiler, ["-source", "1.8", option]) == null
+
+        where:
+        option << ["-bootclasspath", "-Xbootclasspath/p:foo.jar", "-extdirs", "-endorseddirs", "-XDignore.symbol.file", "--release"]
+    }
+
+    def "does not share file manager when javac warns about the bootstrap class path"() {
+        expect:
+        cache.acquire(compiler, ["-source", "1.6"]) == null
+    }
+
+    def "shares file manager for older source when the bootstrap class path warning is disabled"() {
+        def fileManager = fileManager()
+
+        when:
+        def result = cache.acquire(compiler, ["-Xlint:-options", "-source", "1.6"])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        result.is(fileManager)
+    }
+
+    def "does not share file manager on Java 9"() {
+        expect:
+        new PlatformFileManagerCache(JavaVersion.VERSION_1_9, 2).acquire(compiler, []) == null
+    }
+
+    def "closes least recently used file managers when there are too many idle file managers"() {
+        def fileManagers = (1..3).collect { fileManager() }
+
+        when:
+        def acquired = (1..3).collect { cache.acquire(compiler, []) }
+        acquired.each { cache.release(it) }
+
+        then:
+        3 * compiler.getStandardFileManager(null, null, null) >>> fileManagers
+        1 * fileManagers[0].close()
+        0 * fileManagers[1].close()
+        0 * fileManagers[2].close()
+    }
+
+    def "closes idle file managers when stopped and in-use file managers when released"() {
+        def fileManager1 = fileManager()
+        def fileManager2 = fileManager()
+        compiler.getStandardFileManager(null, null, null) >>> [fileManager1, fileManager2]
+        def idle = cache.acquire(compiler, [])
+        def inUse = cache.acquire(compiler, [])
+        cache.release(idle)
+
+        when:
+        cache.stop()
+
+        then:
+        1 * fileManager1.close()
+        0 * fileManager2.close()
+
+        when:
+        cache.release(inUse)
+
+        then:
+        1 * fileManager2.close()
+    }
+
+    def "does not accept file managers from elsewhere"() {
+        when:
+        cache.release(fileManager())
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    private StandardJavaFileManager fileManager() {
+        Mock(StandardJavaFileManager) {
+            getLocation(StandardLocation.PLATFORM_CLASS_PATH) >> [rtJar]
+        }
+    }
+}
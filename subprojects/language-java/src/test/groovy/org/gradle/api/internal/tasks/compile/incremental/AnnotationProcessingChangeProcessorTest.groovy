@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental
+
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependencyToAll
+import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation
+import org.gradle.api.internal.tasks.compile.incremental.recomp.RecompilationSpec
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingResult
+import spock.lang.Specification
+
+import static org.gradle.api.internal.tasks.compile.incremental.deps.DefaultDependentsSet.dependents
+
+class AnnotationProcessingChangeProcessorTest extends Specification {
+    def previousCompilation = Mock(PreviousCompilation)
+    def processor = new AnnotationProcessingChangeProcessor(previousCompilation)
+    def spec = new RecompilationSpec()
+
+    def "recompiles origin and dependents of types generated from recompiled types"() {
+        given:
+        previousCompilation.annotationProcessingResult >> result(["A_Gen": "A", "B_Gen": "B"])
+        previousCompilation.getDependents("A_Gen") >> dependents("C")
+        previousCompilation.getDependents("B_Gen") >> dependents()
+        spec.classNames << "A"
+
+        when:
+        processor.processChanges(spec)
+
+        then:
+        spec.classNames == ["A", "A_Gen", "C"] as Set
+    }
+
+    def "recompiles origin of changed generated type"() {
+        given:
+        previousCompilation.annotationProcessingResult >> result(["A_Gen": "A"])
+        previousCompilation.getDependents("A_Gen") >> dependents()
+        spec.classNames << "A_Gen"
+
+        when:
+        processor.processChanges(spec)
+
+        then:
+        spec.classNames == ["A", "A_Gen"] as Set
+    }
+
+    def "recompiles all aggregated types when anything is recompiled"() {
+        given:
+        previousCompilation.annotationProcessingResult >> new AnnotationProcessingResult([:], ["A", "B"] as Set, ["Registry"] as Set, [] as Set, [] as Set, null)
+        previousCompilation.getDependents("Registry") >> dependents("Main")
+        spec.classNames << "C"
+
+        when:
+        processor.processChanges(spec)
+
+        then:
+        spec.classNames == ["A", "B", "C", "Registry", "Main"] as Set
+    }
+
+    def "does nothing when nothing is recompiled"() {
+        when:
+        processor.processChanges(spec)
+
+        then:
+        0 * previousCompilation._
+        spec.classNames.empty
+    }
+
+    def "requires full rebuild when generated type is dependency to all"() {
+        given:
+        previousCompilation.annotationProcessingResult >> result(["A_Gen": "A"])
+        previousCompilation.getDependents("A_Gen") >> new DependencyToAll("A_Gen has constants")
+        spec.classNames << "A"
+
+        when:
+        processor.processChanges(spec)
+
+        then:
+        spec.fullRebuildCause == "A_Gen has constants"
+    }
+
+    private static AnnotationProcessingResult result(Map<String, String> originsOfGeneratedTypes) {
+        new AnnotationProcessingResult(originsOfGeneratedTypes, [] as Set, [] as Set, [] as Set, [] as Set, null)
+    }
+}
@@ -33,7 +33,7 @@ class ClassSetAnalysisUpdaterTest extends Specification {
     @Subject updater = new ClassSetAnalysisUpdater(stash, operations, analyzer)
 
     def "updates"() {
-        when: updater.updateAnalysis(Stub(JavaCompileSpec))
+        when: updater.updateAnalysis(Stub(JavaCompileSpec), null)
 
         then:
         1 * operations.fileTree(_) >> Mock(ConfigurableFileTree)
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.analyzer
+
+import org.gradle.api.internal.hash.Hasher
+import org.gradle.internal.hash.HashValue
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import spock.lang.Specification
+import spock.lang.Subject
+
+import static org.objectweb.asm.Opcodes.*
+
+class ClassAbiHasherTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+    def contentHasher = Mock(Hasher)
+
+    @Subject hasher = new ClassAbiHasher(contentHasher)
+
+    def "ignores method bodies and private members"() {
+        expect:
+        hash(classWith { publicMethod(it, 1) }) == hash(classWith { publicMethod(it, 2) })
+        hash(classWith { publicMethod(it, 1) }) == hash(classWith {
+            publicMethod(it, 1)
+            it.visitField(ACC_PRIVATE, "field", "I", null, null).visitEnd()
+            it.visitMethod(ACC_PRIVATE, "helper", "()V", null, null).visitEnd()
+            it.visitMethod(ACC_STATIC | ACC_SYNTHETIC, "access\$000", "()V", null, null).visitEnd()
+        })
+    }
+
+    def "ignores the order of members"() {
+        expect:
+        hash(classWith {
+            it.visitField(ACC_PUBLIC, "a", "I", null, null).visitEnd()
+            it.visitField(ACC_PUBLIC, "b", "I", null, null).visitEnd()
+        }) == hash(classWith {
+            it.visitField(ACC_PUBLIC, "b", "I", null, null).visitEnd()
+            it.visitField(ACC_PUBLIC, "a", "I", null, null).visitEnd()
+        })
+    }
+
+    def "detects changes to the API"() {
+        expect:
+        hash(classWith { publicMethod(it, 1) }) != hash(classWith {
+            publicMethod(it, 1)
+            it.visitMethod(ACC_PUBLIC, "other", "()V", null, null).visitEnd()
+        })
+        hash(classWith { publicMethod(it, 1) }) != hash(classWith {
+            publicMethod(it, 1)
+            it.visitField(0, "field", "I", null, null).visitEnd()
+        })
+        hash(classWith { publicMethod(it, 1) }) != hash(classWith {
+            publicMethod(it, 1)
+            it.visitMethod(ACC_PUBLIC, "method", "()V", null, ["java/io/IOException"] as String[]).visitEnd()
+        })
+    }
+
+    def "detects changes to constant values and annotations"() {
+        expect:
+        hash(classWith { it.visitField(ACC_PUBLIC | ACC_STATIC | ACC_FINAL, "C", "I", null, 1).visitEnd() }) !=
+            hash(classWith { it.visitField(ACC_PUBLIC | ACC_STATIC | ACC_FINAL, "C", "I", null, 2).visitEnd() })
+        hash(classWith { annotated(it, "a") }) != hash(classWith { annotated(it, "b") })
+    }
+
+    def "hashes other files by content"() {
+        def file = temp.createFile("resource.properties")
+        def hash = new HashValue("1234")
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        1 * contentHasher.hash(file) >> hash
+        result == hash
+    }
+
+    private HashValue hash(byte[] bytes) {
+        def file = temp.file("classes/${UUID.randomUUID()}/Foo.class")
+        file.parentFile.mkdirs()
+        file.bytes = bytes
+        hasher.hash(file)
+    }
+
+    private static byte[] classWith(Closure members) {
+        def writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        writer.visit(V1_6, ACC_PUBLIC, "Foo", null, "java/lang/Object", null)
+        members(writer)
+        writer.visitEnd()
+        writer.toByteArray()
+    }
+
+    private static void publicMethod(ClassWriter writer, int returnValue) {
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "method", "()I", null, null)
+        method.visitCode()
+        method.visitLdcInsn(returnValue)
+        method.visitInsn(IRETURN)
+        method.visitMaxs(0, 0)
+        method.visitEnd()
+    }
+
+    private static void annotated(ClassWriter writer, String value) {
+        def annotation = writer.visitAnnotation("LSomeAnnotation;", true)
+        annotation.visit("value", value)
+        def array = annotation.visitArray("values")
+        array.visit(null, value)
+        array.visitEnd()
+        annotation.visitEnd()
+    }
+}
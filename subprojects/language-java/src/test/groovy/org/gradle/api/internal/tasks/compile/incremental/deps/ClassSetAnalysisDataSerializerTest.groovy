@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps
 
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingResult
 import org.gradle.internal.serialize.InputStreamBackedDecoder
 import org.gradle.internal.serialize.OutputStreamBackedEncoder
 import spock.lang.Specification
@@ -38,13 +39,50 @@ class ClassSetAnalysisDataSerializerTest extends Specification {
         ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
 
         then:
-        read.dependents.keySet() == data.dependents.keySet()
+        read.classNames as Set == data.classNames as Set
+        read.getDependents("E") == null
 
         ["A", "B", "C"].each {
-            assert read.dependents[it].dependentClasses == data.dependents[it].dependentClasses
-            assert read.dependents[it].dependencyToAll == data.dependents[it].dependencyToAll
+            assert read.getDependents(it).dependentClasses == data.getDependents(it).dependentClasses
+            assert read.getDependents(it).dependencyToAll == data.getDependents(it).dependencyToAll
         }
 
-        read.dependents["D"] instanceof DependencyToAll
+        read.getDependents("D") instanceof DependencyToAll
+    }
+
+    def "serializes classes that are only known as dependents"() {
+        def data = new ClassSetAnalysisData(["A": dependents("B", 'A$Inner')])
+        def os = new ByteArrayOutputStream()
+        def e = new OutputStreamBackedEncoder(os)
+
+        when:
+        serializer.write(e, data)
+        ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
+
+        then:
+        read.getDependents("A").dependentClasses == ["B", 'A$Inner'] as Set
+        read.getDependents("B") == null
+        new ClassSetAnalysis(read).getRelevantDependents("A").dependentClasses == ["B"] as Set
+    }
+
+    def "serializes annotation processing result"() {
+        def result = new AnnotationProcessingResult(["A_Gen": "A"], ["B"] as Set, ["Registry"] as Set, ["META-INF/registry"] as Set, ["A", "B"] as Set, null)
+        def data = new ClassSetAnalysisData(["A": dependents(), "A_Gen": dependents()], result)
+        def os = new ByteArrayOutputStream()
+        def e = new OutputStreamBackedEncoder(os)
+
+        when:
+        serializer.write(e, data)
+        ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
+
+        then:
+        with(read.annotationProcessingResult) {
+            originsOfGeneratedTypes == ["A_Gen": "A"]
+            aggregatedTypes == ["B"] as Set
+            generatedTypesDependingOnAllOthers == ["Registry"] as Set
+            generatedResourcesDependingOnAllOthers == ["META-INF/registry"] as Set
+            processedTypes == ["A", "B"] as Set
+            fullRebuildCause == null
+        }
     }
 }
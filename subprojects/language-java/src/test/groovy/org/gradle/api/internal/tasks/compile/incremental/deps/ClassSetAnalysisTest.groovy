@@ -176,4 +176,35 @@ class ClassSetAnalysisTest extends Specification {
         a.isDependencyToAll("C")
         !a.isDependencyToAll("Unknown")
     }
+
+    def "includes input classes that depend on other input classes"() {
+        def a = analysis([
+                "A": dependents("B"), "B": dependents("C"), "C": dependents(),
+                "D": dependents("E"), "E": dependents("D"),
+        ])
+        def deps = a.getRelevantDependents(["A", "B", "D"])
+
+        expect:
+        deps.dependentClasses == ["B", "C", "E"] as Set
+    }
+
+    def "includes input class that is reached from another input class through a cycle"() {
+        def a = analysis([
+                "A": dependents("B"), "B": dependents("A", "C"), "C": dependents("A"),
+        ])
+
+        expect:
+        a.getRelevantDependents(["A", "C"]).dependentClasses == ["A", "B", "C"] as Set
+        a.getRelevantDependents(["A"]).dependentClasses == ["B", "C"] as Set
+    }
+
+    def "handles long dependency chains"() {
+        def classes = (0..100000).collect { "C$it" as String }
+        def graph = [:]
+        classes.eachWithIndex { c, i -> graph[c] = i < classes.size() - 1 ? dependents(classes[i + 1]) : dependents() }
+        def a = analysis(graph)
+
+        expect:
+        a.getRelevantDependents("C0").dependentClasses.size() == 100000
+    }
 }
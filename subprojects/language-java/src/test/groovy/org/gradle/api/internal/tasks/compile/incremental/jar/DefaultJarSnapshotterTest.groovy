@@ -14,56 +14,99 @@
  * limitations under the License.
  */
 
-
-
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
-import org.gradle.api.internal.file.TestFiles
-import org.gradle.api.internal.file.collections.DirectoryFileTree
-import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.UncheckedIOException
 import org.gradle.api.internal.hash.Hasher
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAbiHasher
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer
-import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
 import org.gradle.internal.hash.HashUtil
+import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
-import org.gradle.util.UsesNativeServices
 import org.junit.Rule
+import org.objectweb.asm.ClassWriter
 import spock.lang.Specification
 import spock.lang.Subject
 
-@UsesNativeServices
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC
+import static org.objectweb.asm.Opcodes.V1_6
+
 class DefaultJarSnapshotterTest extends Specification {
 
     @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
-    def hasher = Mock(Hasher)
+    def contentHasher = Mock(Hasher)
+    def analyzer = Mock(ClassDependenciesAnalyzer)
 
-    @Subject snapshotter = new DefaultJarSnapshotter(hasher, Mock(ClassDependenciesAnalyzer))
+    @Subject snapshotter = new DefaultJarSnapshotter(new ClassAbiHasher(contentHasher), analyzer)
 
     def "creates snapshot for an empty jar"() {
+        def jar = jar("a.jar", [:])
+
         expect:
-        def snapshot = snapshotter.createSnapshot(HashUtil.createHash("foo", "md5"), new JarArchive(new File("a.jar"), new FileTreeAdapter(new DirectoryFileTree(new File("missing"))), TestFiles.resolver().getPatternSetFactory()))
+        def snapshot = snapshotter.createSnapshot(HashUtil.createHash("foo", "md5"), jar)
         snapshot.hashes.isEmpty()
         snapshot.analysis
     }
 
-    def "creates snapshot of a jar with classes"() {
-        def f1 = temp.createFile("foo/Foo.class")
-        def f2 = temp.createFile("foo/com/Foo2.class")
-        def analyzer = Mock(ClassFilesAnalyzer)
+    def "creates snapshot of a jar with classes without extracting it"() {
+        def jar = jar("a.jar", [
+            "Foo.class": classFile("Foo"),
+            "com/": null,
+            "com/Foo2.class": classFile("com/Foo2"),
+            "META-INF/MANIFEST.MF": "Manifest-Version: 1.0".bytes
+        ])
 
         when:
-        def snapshot = snapshotter.createSnapshot(HashUtil.createHash("foo", "md5"), new FileTreeAdapter(new DirectoryFileTree(temp.file("foo"))), analyzer)
+        def snapshot = snapshotter.createSnapshot(HashUtil.createHash("foo", "md5"), jar)
 
         then:
-        2 * analyzer.visitFile(_)
-        1 * hasher.hash(f1)
-        1 * hasher.hash(f2)
-        1 * analyzer.getAnalysis() >> Stub(ClassSetAnalysisData)
+        1 * analyzer.getClassAnalysis("Foo", classFile("Foo")) >> new ClassAnalysis(["com.Foo2"] as Set, false)
+        1 * analyzer.getClassAnalysis("com.Foo2", classFile("com/Foo2")) >> new ClassAnalysis([] as Set, false)
         0 * _._
 
         and:
         snapshot.hashes.keySet() == ["Foo", "com.Foo2"] as Set
+        snapshot.hashes["Foo"] == new ClassAbiHasher(contentHasher).hash(classFile("Foo"))
         snapshot.analysis
+        snapshot.analysis.getRelevantDependents("com.Foo2").dependentClasses == ["Foo"] as Set
+    }
+
+    def "reports jar that cannot be read"() {
+        def jar = new JarArchive(temp.file("missing.jar"))
+
+        when:
+        snapshotter.createSnapshot(HashUtil.createHash("foo", "md5"), jar)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message.contains("missing.jar")
+    }
+
+    private JarArchive jar(String name, Map<String, byte[]> entries) {
+        TestFile file = temp.file(name)
+        def output = new ZipOutputStream(new FileOutputStream(file))
+        try {
+            entries.each { path, content ->
+                output.putNextEntry(new ZipEntry(path))
+                if (content != null) {
+                    output.write(content)
+                }
+                output.closeEntry()
+            }
+        } finally {
+            output.close()
+        }
+        new JarArchive(file)
+    }
+
+    private static byte[] classFile(String name) {
+        def writer = new ClassWriter(0)
+        writer.visit(V1_6, ACC_PUBLIC, name, null, "java/lang/Object", null)
+        writer.visitEnd()
+        writer.toByteArray()
     }
 }
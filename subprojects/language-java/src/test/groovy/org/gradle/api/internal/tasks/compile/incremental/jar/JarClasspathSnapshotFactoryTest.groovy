@@ -16,16 +16,23 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
-import org.gradle.api.file.FileTree
-import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.hash.HashValue
+import org.gradle.internal.work.DefaultWorkerLeaseService
+import org.gradle.internal.work.WorkerLeaseService
 import spock.lang.Specification
 import spock.lang.Subject
 
 class JarClasspathSnapshotFactoryTest extends Specification {
 
     def snapshotter = Mock(JarSnapshotter)
-    @Subject factory = new JarClasspathSnapshotFactory(snapshotter)
+    def executorFactory = new DefaultExecutorFactory()
+    def workerLeaseService = new DefaultWorkerLeaseService(4)
+    @Subject factory = new JarClasspathSnapshotFactory(snapshotter, executorFactory, workerLeaseService)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
 
     def "creates classpath snapshot with correct duplicate classes"() {
         def jar1 = Stub(JarArchive); def jar2 = Stub(JarArchive); def jar3 = Stub(JarArchive)
@@ -47,8 +54,8 @@ class JarClasspathSnapshotFactoryTest extends Specification {
     }
 
     def "creates classpath snapshot with correct hashes"() {
-        def jar1 = new JarArchive(new File("f1"), Stub(FileTree), TestFiles.resolver().getPatternSetFactory())
-        def jar2 = new JarArchive(new File("f2"), Stub(FileTree), TestFiles.resolver().getPatternSetFactory())
+        def jar1 = new JarArchive(new File("f1"))
+        def jar2 = new JarArchive(new File("f2"))
 
         def sn1 = Stub(JarSnapshot) { getHash() >> new HashValue("123") }
         def sn2 = Stub(JarSnapshot) { getHash() >> new HashValue("234") }
@@ -64,4 +71,60 @@ class JarClasspathSnapshotFactoryTest extends Specification {
         s.data.jarHashes[new File("f1")] == new HashValue("123")
         s.data.jarHashes[new File("f2")] == new HashValue("234")
     }
+
+    def "snapshots jars in parallel"() {
+        def jars = (1..4).collect { new JarArchive(new File("f$it")) }
+        def snapshots = jars.collectEntries { jar -> [jar, Stub(JarSnapshot) { getHash() >> new HashValue(jar.file.name.substring(1)) }] }
+        def snapshottingThreads = Collections.synchronizedSet(new HashSet())
+
+        when:
+        def s = factory.createSnapshot(jars)
+
+        then:
+        4 * snapshotter.createSnapshot(_) >> { JarArchive jar ->
+            snapshottingThreads << Thread.currentThread()
+            Thread.sleep(100)
+            snapshots[jar]
+        }
+
+        s.data.jarHashes.size() == 4
+        s.data.jarHashes[new File("f3")] == new HashValue("3")
+        snapshottingThreads.size() > 1
+        !snapshottingThreads.contains(Thread.currentThread())
+    }
+
+    def "snapshots jars on the calling thread when no worker lease is available"() {
+        def jars = (1..3).collect { new JarArchive(new File("f$it")) }
+        def workerLeaseService = Mock(WorkerLeaseService)
+        def factory = new JarClasspathSnapshotFactory(snapshotter, executorFactory, workerLeaseService)
+        def testThread = Thread.currentThread()
+
+        when:
+        def s = factory.createSnapshot(jars)
+
+        then:
+        3 * workerLeaseService.tryRunWithWorkerLease(_, _) >> false
+        3 * snapshotter.createSnapshot(_) >> { JarArchive jar ->
+            assert Thread.currentThread() == testThread
+            Stub(JarSnapshot) { getHash() >> new HashValue(jar.file.name.substring(1)) }
+        }
+
+        s.data.jarHashes.size() == 3
+        s.data.jarHashes[new File("f2")] == new HashValue("2")
+    }
+
+    def "reports failure to snapshot a jar"() {
+        def jar1 = new JarArchive(new File("f1"))
+        def jar2 = new JarArchive(new File("f2"))
+        def failure = new RuntimeException("broken")
+
+        when:
+        factory.createSnapshot([jar1, jar2])
+
+        then:
+        1 * snapshotter.createSnapshot(jar1) >> Stub(JarSnapshot)
+        1 * snapshotter.createSnapshot(jar2) >> { throw failure }
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
 }
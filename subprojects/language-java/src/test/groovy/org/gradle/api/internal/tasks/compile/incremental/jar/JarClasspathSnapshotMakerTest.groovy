@@ -18,8 +18,6 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
-import org.gradle.api.file.FileTree
-import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis
 import spock.lang.Specification
 import spock.lang.Subject
@@ -34,8 +32,8 @@ class JarClasspathSnapshotMakerTest extends Specification {
     @Subject maker = new JarClasspathSnapshotMaker(store, factory, finder)
 
     def "stores jar snapshots"() {
-        def jar1 = new JarArchive(new File("jar1.jar"), Mock(FileTree), TestFiles.resolver().getPatternSetFactory());
-        def jar2 = new JarArchive(new File("jar2.jar"), Mock(FileTree), TestFiles.resolver().getPatternSetFactory())
+        def jar1 = new JarArchive(new File("jar1.jar"));
+        def jar2 = new JarArchive(new File("jar2.jar"))
 
         def snapshotData = Stub(JarClasspathSnapshotData)
         def classpathSnapshot = Stub(JarClasspathSnapshot) { getData() >> snapshotData }
@@ -56,7 +54,7 @@ class JarClasspathSnapshotMakerTest extends Specification {
     }
 
     def "gets classpath snapshot"() {
-        def jar1 = new JarArchive(new File("jar1.jar"), Mock(FileTree), TestFiles.resolver().getPatternSetFactory());
+        def jar1 = new JarArchive(new File("jar1.jar"));
 
         def classpathSnapshot = Stub(JarClasspathSnapshot)
         def filesDummy = [new File("f")]
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing
+
+import org.gradle.api.internal.tasks.compile.DefaultJavaCompileSpec
+import org.gradle.api.tasks.compile.CompileOptions
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType.AGGREGATING
+import static org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType.ISOLATING
+import static org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType.UNKNOWN
+
+class AnnotationProcessorDetectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+    def detector = new AnnotationProcessorDetector()
+    def spec = new DefaultJavaCompileSpec()
+
+    def setup() {
+        spec.compileOptions = new CompileOptions()
+    }
+
+    def "detects processors registered in directories and jars on the class path"() {
+        given:
+        def dir = temp.createDir("classes")
+        dir.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "# processors\nIsolating\nAggregating # the second one\n"
+        dir.file(AnnotationProcessorDetector.INCREMENTAL_PROCESSORS) << "Isolating,ISOLATING\nAggregating,aggregating\n"
+        def jarContent = temp.createDir("jar")
+        jarContent.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Other\n"
+        def jar = temp.file("processor.jar")
+        jarContent.zipTo(jar)
+        spec.classpath = [dir, jar, temp.file("missing.jar")]
+
+        expect:
+        detect() == ["Isolating": ISOLATING, "Aggregating": AGGREGATING, "Other": UNKNOWN]
+    }
+
+    def "reads processors from processor path instead of class path"() {
+        given:
+        def classes = temp.createDir("classes")
+        classes.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Ignored\n"
+        def processorPath = temp.createDir("processors")
+        processorPath.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Processor\n"
+        processorPath.file(AnnotationProcessorDetector.INCREMENTAL_PROCESSORS) << "Processor,ISOLATING\n"
+        spec.classpath = [classes]
+        spec.compileOptions.compilerArgs = ["-processorpath", processorPath.path]
+
+        expect:
+        detect() == ["Processor": ISOLATING]
+    }
+
+    def "uses processors given on command line"() {
+        given:
+        def dir = temp.createDir("classes")
+        dir.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Registered\n"
+        dir.file(AnnotationProcessorDetector.INCREMENTAL_PROCESSORS) << "Explicit,AGGREGATING\nRegistered,ISOLATING\n"
+        spec.classpath = [dir]
+        spec.compileOptions.compilerArgs = ["-processor", "Explicit,Unregistered"]
+
+        expect:
+        detect() == ["Explicit": AGGREGATING, "Unregistered": UNKNOWN]
+    }
+
+    def "treats processors with unknown type as not incremental"() {
+        given:
+        def dir = temp.createDir("classes")
+        dir.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Processor\n"
+        dir.file(AnnotationProcessorDetector.INCREMENTAL_PROCESSORS) << "Processor,DYNAMIC\n"
+        spec.classpath = [dir]
+
+        expect:
+        detect() == ["Processor": UNKNOWN]
+    }
+
+    def "detects no processors when annotation processing is disabled"() {
+        given:
+        def dir = temp.createDir("classes")
+        dir.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Processor\n"
+        spec.classpath = [dir]
+        spec.compileOptions.compilerArgs = ["-proc:none"]
+
+        expect:
+        detect().isEmpty()
+    }
+
+    private Map<String, IncrementalAnnotationProcessorType> detect() {
+        def result = [:]
+        detector.detectProcessors(spec).each { result[it.className] = it.type }
+        result
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing
+
+import org.gradle.api.internal.changedetection.state.FileSnapshot
+import org.gradle.api.internal.changedetection.state.FilesSnapshotSet
+import org.gradle.api.internal.hash.Hasher
+import org.gradle.api.internal.tasks.compile.DefaultJavaCompileSpec
+import org.gradle.api.tasks.compile.CompileOptions
+import org.gradle.internal.hash.HashValue
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType.ISOLATING
+
+class CachingAnnotationProcessorDetectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+    def cache = Mock(AnnotationProcessorDeclarationsCache)
+    def hasher = Mock(Hasher)
+    def inputFilesSnapshot = Mock(FilesSnapshotSet)
+    def detector = new CachingAnnotationProcessorDetector(cache, hasher, inputFilesSnapshot)
+    def spec = new DefaultJavaCompileSpec()
+    def jar = temp.file("processor.jar")
+    def hash = new HashValue("123")
+
+    def setup() {
+        spec.compileOptions = new CompileOptions()
+        spec.classpath = [jar]
+        def jarContent = temp.createDir("jar")
+        jarContent.file(AnnotationProcessorDetector.PROCESSOR_SERVICES) << "Processor\n"
+        jarContent.file(AnnotationProcessorDetector.INCREMENTAL_PROCESSORS) << "Processor,ISOLATING\n"
+        jarContent.zipTo(jar)
+    }
+
+    def "reads jar and caches its declarations by the hash from the input snapshot"() {
+        when:
+        def processors = detector.detectProcessors(spec)
+
+        then:
+        1 * inputFilesSnapshot.findSnapshot(jar) >> Stub(FileSnapshot) { getHash() >> hash }
+        1 * cache.get(hash, _) >> { HashValue key, factory -> factory.create() }
+        0 * hasher._
+        processors*.className == ["Processor"]
+        processors*.type == [ISOLATING]
+    }
+
+    def "takes declarations of jar from cache"() {
+        when:
+        def processors = detector.detectProcessors(spec)
+
+        then:
+        1 * inputFilesSnapshot.findSnapshot(jar) >> null
+        1 * hasher.hash(jar) >> hash
+        1 * cache.get(hash, _) >> new AnnotationProcessorDeclarations(["Cached"], ["Cached": ISOLATING])
+        processors*.className == ["Cached"]
+        processors*.type == [ISOLATING]
+    }
+}
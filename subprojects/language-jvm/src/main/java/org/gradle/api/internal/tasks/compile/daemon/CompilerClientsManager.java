@@ -17,28 +17,62 @@ package org.gradle.api.internal.tasks.compile.daemon;
 
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.TrueTimeProvider;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
-public class CompilerClientsManager {
+/**
+ * Keeps the compiler daemons of a build session, so that later compilations in the session can reuse them. Daemons that failed are stopped.
+ * So are idle daemons that have not been used for a while, and the least recently used idle daemons when there are too many of them or
+ * when together they may use too much memory.
+ *
+ * <p>The daemons are started by the worker process factory of the session and are stopped when the session ends, so they are not reused by
+ * the builds of later sessions. Only the builds of a continuous build share a session.</p>
+ */
+public class CompilerClientsManager implements Stoppable {
 
     private static final Logger LOGGER = Logging.getLogger(CompilerDaemonManager.class);
+    private static final int DEFAULT_MAX_IDLE_CLIENTS = 4;
+    private static final int DEFAULT_MAX_IDLE_HEAP_SIZE_MB = 2048;
+    private static final long DEFAULT_MAX_IDLE_TIME_MILLIS = 10 * 60 * 1000L;
+    // The default maximum heap size of a daemon JVM is not known here
+    private static final int UNSPECIFIED_HEAP_SIZE_MB = 512;
 
     private final Object lock = new Object();
     private final List<CompilerDaemonClient> allClients = new ArrayList<CompilerDaemonClient>();
-    private final List<CompilerDaemonClient> idleClients = new ArrayList<CompilerDaemonClient>();
+    // Most recently used first
+    private final LinkedList<CompilerDaemonClient> idleClients = new LinkedList<CompilerDaemonClient>();
+    private final Map<CompilerDaemonClient, Long> idleSince = new HashMap<CompilerDaemonClient, Long>();
 
-    private CompilerDaemonStarter compilerDaemonStarter;
+    private final CompilerDaemonStarter compilerDaemonStarter;
+    private final int maxIdleClients;
+    private final int maxIdleHeapSizeMb;
+    private final long maxIdleTimeMillis;
+    private final TimeProvider timeProvider;
 
     public CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter) {
+        this(compilerDaemonStarter, DEFAULT_MAX_IDLE_CLIENTS, DEFAULT_MAX_IDLE_HEAP_SIZE_MB, DEFAULT_MAX_IDLE_TIME_MILLIS, new TrueTimeProvider());
+    }
+
+    CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter, int maxIdleClients, int maxIdleHeapSizeMb, long maxIdleTimeMillis, TimeProvider timeProvider) {
         this.compilerDaemonStarter = compilerDaemonStarter;
+        this.maxIdleClients = maxIdleClients;
+        this.maxIdleHeapSizeMb = maxIdleHeapSizeMb;
+        this.maxIdleTimeMillis = maxIdleTimeMillis;
+        this.timeProvider = timeProvider;
     }
 
     public CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
+        stopExpired(expireIdleClients());
         return reserveIdleClient(forkOptions, idleClients);
     }
 
@@ -49,6 +83,7 @@ public class CompilerClientsManager {
                 CompilerDaemonClient candidate = it.next();
                 if(candidate.isCompatibleWith(forkOptions)) {
                     it.remove();
+                    idleSince.remove(candidate);
                     return candidate;
                 }
             }
@@ -66,8 +101,59 @@ public class CompilerClientsManager {
     }
 
     public void release(CompilerDaemonClient client) {
+        List<CompilerDaemonClient> expired;
+        synchronized (lock) {
+            if (client.isHealthy()) {
+                idleClients.addFirst(client);
+                idleSince.put(client, timeProvider.getCurrentTime());
+                expired = expireIdleClients();
+            } else {
+                allClients.remove(client);
+                expired = new ArrayList<CompilerDaemonClient>();
+                expired.add(client);
+            }
+        }
+        stopExpired(expired);
+    }
+
+    private List<CompilerDaemonClient> expireIdleClients() {
+        List<CompilerDaemonClient> expired = new ArrayList<CompilerDaemonClient>();
         synchronized (lock) {
-            idleClients.add(client);
+            long now = timeProvider.getCurrentTime();
+            int idleHeapSizeMb = 0;
+            Iterator<CompilerDaemonClient> it = idleClients.iterator();
+            while (it.hasNext()) {
+                CompilerDaemonClient client = it.next();
+                int heapSizeMb = client.getMaxHeapSizeMb();
+                if (heapSizeMb == -1) {
+                    heapSizeMb = UNSPECIFIED_HEAP_SIZE_MB;
+                }
+                if (now - idleSince.get(client) > maxIdleTimeMillis || idleHeapSizeMb + heapSizeMb > maxIdleHeapSizeMb) {
+                    it.remove();
+                    expired.add(client);
+                } else {
+                    idleHeapSizeMb += heapSizeMb;
+                }
+            }
+            while (idleClients.size() > maxIdleClients) {
+                expired.add(idleClients.removeLast());
+            }
+            for (CompilerDaemonClient client : expired) {
+                idleSince.remove(client);
+            }
+            allClients.removeAll(expired);
+        }
+        return expired;
+    }
+
+    private void stopExpired(List<CompilerDaemonClient> expired) {
+        for (CompilerDaemonClient expiredClient : expired) {
+            try {
+                expiredClient.stop();
+            } catch (Exception e) {
+                // The daemon may have crashed already
+                LOGGER.debug("Could not stop expired compiler daemon.", e);
+            }
         }
     }
 
@@ -77,6 +163,8 @@ public class CompilerClientsManager {
             CompositeStoppable.stoppable(allClients).stop();
             LOGGER.info("Stopped {} compiler daemon(s).", allClients.size());
             allClients.clear();
+            idleClients.clear();
+            idleSince.clear();
         }
     }
-}
\ No newline at end of file
+}
@@ -22,6 +22,7 @@ import org.gradle.language.base.internal.compile.Compiler;
 class CompilerDaemonClient implements CompilerDaemon, Stoppable {
     private final DaemonForkOptions forkOptions;
     private final CompilerDaemonWorker workerProcess;
+    private volatile boolean failed;
 
     public CompilerDaemonClient(DaemonForkOptions forkOptions, CompilerDaemonWorker workerProcess) {
         this.forkOptions = forkOptions;
@@ -32,13 +33,33 @@ class CompilerDaemonClient implements CompilerDaemon, Stoppable {
     public <T extends CompileSpec> CompileResult execute(Compiler<T> compiler, T spec) {
         // currently we just allow a single compilation thread at a time (per compiler daemon)
         // one problem to solve when allowing multiple threads is how to deal with memory requirements specified by compile tasks
-        return workerProcess.execute(compiler, spec);
+        try {
+            return workerProcess.execute(compiler, spec);
+        } catch (RuntimeException e) {
+            // Compile failures are reported in the result, so the daemon itself is broken
+            failed = true;
+            throw e;
+        }
     }
 
     public boolean isCompatibleWith(DaemonForkOptions required) {
         return forkOptions.isCompatibleWith(required);
     }
 
+    /**
+     * Returns the maximum heap size of this daemon in megabytes, or -1 when it was not specified.
+     */
+    public int getMaxHeapSizeMb() {
+        return forkOptions.getMaxHeapSizeMb();
+    }
+
+    /**
+     * Returns false once communication with the daemon has failed, after which it should not be used again.
+     */
+    public boolean isHealthy() {
+        return !failed;
+    }
+
     @Override
     public void stop() {
         workerProcess.stop();
@@ -32,6 +32,8 @@ public class ProcessResources extends Copy {
         StaleClassCleaner cleaner = new SimpleStaleClassCleaner(getOutputs());
         cleaner.setDestinationDir(getDestinationDir());
         cleaner.execute();
+        // the previous outputs are gone, so every file has to be copied again
+        getInputs().setInputChanges(null);
         super.copy();
     }
 }
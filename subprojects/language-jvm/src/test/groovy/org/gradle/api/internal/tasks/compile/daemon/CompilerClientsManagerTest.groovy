@@ -13,9 +13,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.gradle.api.internal.tasks.compile.daemon
 
+import org.gradle.internal.TimeProvider
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
@@ -25,8 +25,14 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
 
     def options = Stub(DaemonForkOptions)
     def starter = Stub(CompilerDaemonStarter)
+    def timeProvider = Stub(TimeProvider)
+    def currentTime = 0L
+
+    @Subject manager = new CompilerClientsManager(starter, 2, 1024, 1000L, timeProvider)
 
-    @Subject manager = new CompilerClientsManager(starter)
+    def setup() {
+        timeProvider.getCurrentTime() >> { currentTime }
+    }
 
     def "does not reserve idle client when no clients"() {
         expect:
@@ -79,7 +85,7 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
     }
 
     def "clients can be released for further use"() {
-        def client = Mock(CompilerDaemonClient) { isCompatibleWith(_) >> true }
+        def client = idleClient(256)
         starter.startDaemon(workingDir, options) >> client
 
         when:
@@ -94,4 +100,112 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
         then:
         manager.reserveIdleClient(options) == client
     }
+
+    def "stops client that failed instead of keeping it"() {
+        def client = Mock(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isHealthy() >> false
+        }
+        starter.startDaemon(workingDir, options) >> client
+
+        when:
+        manager.reserveNewClient(workingDir, options)
+        manager.release(client)
+
+        then:
+        1 * client.stop()
+
+        and:
+        manager.reserveIdleClient(options) == null
+
+        when:
+        manager.stop()
+
+        then:
+        0 * client.stop()
+    }
+
+    def "stops least recently used clients when there are too many idle clients"() {
+        def clients = (1..3).collect { idleClient(256) }
+        starter.startDaemon(workingDir, options) >>> clients
+
+        when:
+        clients.each { manager.reserveNewClient(workingDir, options) }
+        manager.release(clients[0])
+        manager.release(clients[1])
+
+        then:
+        0 * _.stop()
+
+        when:
+        manager.release(clients[2])
+
+        then:
+        1 * clients[0].stop()
+        0 * _.stop()
+
+        and:
+        manager.reserveIdleClient(options) == clients[2]
+    }
+
+    def "stops least recently used clients when idle clients may use too much memory"() {
+        def clients = [idleClient(512), idleClient(-1), idleClient(768)]
+        starter.startDaemon(workingDir, options) >>> clients
+
+        when:
+        clients.each { manager.reserveNewClient(workingDir, options) }
+        manager.release(clients[0])
+
+        then:
+        0 * _.stop()
+
+        when:
+        manager.release(clients[1])
+
+        then:
+        0 * _.stop()
+
+        when:
+        manager.release(clients[2])
+
+        then:
+        1 * clients[0].stop()
+        1 * clients[1].stop()
+        0 * _.stop()
+    }
+
+    def "stops clients that have been idle for too long"() {
+        def client1 = idleClient(256)
+        def client2 = idleClient(256)
+        starter.startDaemon(workingDir, options) >>> [client1, client2]
+
+        when:
+        manager.reserveNewClient(workingDir, options)
+        manager.reserveNewClient(workingDir, options)
+        manager.release(client1)
+        currentTime = 800L
+        manager.release(client2)
+
+        then:
+        0 * _.stop()
+
+        when:
+        currentTime = 1500L
+        def reserved = manager.reserveIdleClient(options)
+
+        then:
+        1 * client1.stop()
+        0 * _.stop()
+
+        and:
+        reserved == client2
+    }
+
+    private CompilerDaemonClient idleClient(int maxHeapSizeMb) {
+        Mock(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isHealthy() >> true
+            getMaxHeapSizeMb() >> maxHeapSizeMb
+        }
+    }
 }
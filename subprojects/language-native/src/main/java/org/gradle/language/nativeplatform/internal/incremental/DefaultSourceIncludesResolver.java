@@ -16,7 +16,6 @@
 package org.gradle.language.nativeplatform.internal.incremental;
 
 import com.google.common.collect.Sets;
-import org.gradle.internal.FileUtils;
 import org.gradle.language.nativeplatform.internal.Include;
 import org.gradle.language.nativeplatform.internal.IncludeDirectives;
 
@@ -27,9 +26,15 @@ import java.util.Set;
 
 public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
     private final List<File> includePaths;
+    private final IncludeResolutionCache resolutionCache;
 
     public DefaultSourceIncludesResolver(List<File> includePaths) {
+        this(includePaths, new IncludeResolutionCache());
+    }
+
+    public DefaultSourceIncludesResolver(List<File> includePaths, IncludeResolutionCache resolutionCache) {
         this.includePaths = includePaths;
+        this.resolutionCache = resolutionCache;
     }
 
     @Override
@@ -58,20 +63,12 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
     }
 
     private void searchForDependency(List<File> searchPath, String include, BuildableResolvedSourceIncludes dependencies) {
-        for (File searchDir : searchPath) {
-            File candidate = new File(searchDir, include);
-            // TODO: SLG This isn't correct, we need to consider directories too
-            // If a source file is #include <type_trait>
-            // and includePath = [ A, B ]
-            // and /B/type_trait is the header we want.
-            // We need /A/type_trait to be recorded as a directory in case it becomes a file later.
-            if (!candidate.isDirectory()) {
-                dependencies.searched(candidate);
-            }
-            if (candidate.isFile()) {
-                dependencies.resolved(include, candidate);
-                return;
-            }
+        IncludeResolutionCache.SearchResult result = resolutionCache.search(searchPath, include);
+        for (File candidate : result.getSearched()) {
+            dependencies.searched(candidate);
+        }
+        if (result.getResolved() != null) {
+            dependencies.resolved(include, result.getResolved());
         }
     }
 
@@ -84,8 +81,7 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
         }
 
         void resolved(String rawInclude, File resolved) {
-            File dependencyFile = resolved == null ? null : FileUtils.canonicalize(resolved);
-            dependencies.add(new ResolvedInclude(rawInclude, dependencyFile));
+            dependencies.add(new ResolvedInclude(rawInclude, resolved));
         }
 
         @Override
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.internal.changedetection.state.FileSnapshotter;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.work.WorkerLeaseService;
+import org.gradle.language.nativeplatform.internal.IncludeDirectives;
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CSourceParser;
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.DirectiveScanningCSourceParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps the include directives parsed from source and header files, keyed by the hash of the file content, so that a file is only parsed
+ * once however many components, tasks and builds include it.
+ */
+public class IncludeDirectivesCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncludeDirectivesCache.class);
+    private static final int MAX_CACHED_FILES = 100000;
+
+    private final Cache<HashValue, IncludeDirectives> directives = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_FILES).build();
+    private final CSourceParser sourceParser;
+    private final ExecutorFactory executorFactory;
+
+    public IncludeDirectivesCache(ExecutorFactory executorFactory) {
+        this(new DirectiveScanningCSourceParser(), executorFactory);
+    }
+
+    IncludeDirectivesCache(CSourceParser sourceParser, ExecutorFactory executorFactory) {
+        this.sourceParser = sourceParser;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Returns the include directives of the given file, which has the given content hash.
+     */
+    public IncludeDirectives parse(File file, HashValue hash) {
+        IncludeDirectives result = directives.getIfPresent(hash);
+        if (result == null) {
+            result = sourceParser.parseSource(file);
+            directives.put(hash, result);
+        }
+        return result;
+    }
+
+    /**
+     * Parses those of the given files that have not been parsed before. Each file is parsed on another thread while a worker lease is available,
+     * and on the calling thread otherwise.
+     * Failures are ignored here and are reported when the file is parsed again with {@link #parse(File, HashValue)}.
+     */
+    public void parseAll(Map<File, HashValue> files, WorkerLeaseService workerLeaseService) {
+        List<Future<?>> pending = new ArrayList<Future<?>>();
+        StoppableExecutor executor = executorFactory.create("Parse source files");
+        try {
+            for (final Map.Entry<File, HashValue> entry : files.entrySet()) {
+                if (directives.getIfPresent(entry.getValue()) != null) {
+                    continue;
+                }
+                FutureTask<Void> parse = new FutureTask<Void>(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        parse(entry.getKey(), entry.getValue());
+                        return null;
+                    }
+                });
+                if (!workerLeaseService.tryRunWithWorkerLease(executor, parse)) {
+                    parse.run();
+                }
+                pending.add(parse);
+            }
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOGGER.debug("Could not parse source file ahead of time.", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            executor.stop();
+        }
+    }
+
+    /**
+     * Returns a parser that looks up the content hash of each file with the given snapshotter and then uses this cache.
+     */
+    public CSourceParser createParser(final FileSnapshotter fileSnapshotter) {
+        return new CSourceParser() {
+            @Override
+            public IncludeDirectives parseSource(File sourceFile) {
+                return parse(sourceFile, fileSnapshotter.snapshot(sourceFile).getHash());
+            }
+        };
+    }
+}
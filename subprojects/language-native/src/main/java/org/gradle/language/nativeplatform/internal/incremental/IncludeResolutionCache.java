@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.tasks.TaskState;
+import org.gradle.internal.FileUtils;
+import org.gradle.language.nativeplatform.tasks.AbstractNativeCompileTask;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers where include files were found on an include search path, so that the search path is only checked once per build
+ * for each include, rather than once per source file and compile task.
+ *
+ * Everything is discarded as soon as a task other than a native compile task has done some work, as that task may have created or removed header files.
+ */
+public class IncludeResolutionCache implements TaskExecutionListener {
+    private final ConcurrentMap<File, FileKind> fileKinds = new ConcurrentHashMap<File, FileKind>();
+    private final ConcurrentMap<SearchKey, SearchResult> searchResults = new ConcurrentHashMap<SearchKey, SearchResult>();
+
+    /**
+     * Searches the given path for the given include, returning the locations that were checked and the canonical file the include resolved to, if any.
+     */
+    public SearchResult search(List<File> searchPath, String include) {
+        SearchResult result = searchResults.get(new SearchKey(searchPath, include));
+        if (result == null) {
+            result = doSearch(searchPath, include);
+            searchResults.putIfAbsent(new SearchKey(ImmutableList.copyOf(searchPath), include), result);
+        }
+        return result;
+    }
+
+    private SearchResult doSearch(List<File> searchPath, String include) {
+        List<File> searched = new ArrayList<File>();
+        for (File searchDir : searchPath) {
+            File candidate = new File(searchDir, include);
+            FileKind kind = getKind(candidate);
+            // TODO: SLG This isn't correct, we need to consider directories too
+            // If a source file is #include <type_trait>
+            // and includePath = [ A, B ]
+            // and /B/type_trait is the header we want.
+            // We need /A/type_trait to be recorded as a directory in case it becomes a file later.
+            if (kind != FileKind.DIRECTORY) {
+                searched.add(candidate);
+            }
+            if (kind == FileKind.FILE) {
+                return new SearchResult(searched, FileUtils.canonicalize(candidate));
+            }
+        }
+        return new SearchResult(searched, null);
+    }
+
+    private FileKind getKind(File candidate) {
+        FileKind kind = fileKinds.get(candidate);
+        if (kind == null) {
+            kind = candidate.isFile() ? FileKind.FILE : candidate.isDirectory() ? FileKind.DIRECTORY : FileKind.MISSING;
+            fileKinds.put(candidate, kind);
+        }
+        return kind;
+    }
+
+    public void clear() {
+        searchResults.clear();
+        fileKinds.clear();
+    }
+
+    @Override
+    public void beforeExecute(Task task) {
+    }
+
+    @Override
+    public void afterExecute(Task task, TaskState state) {
+        if (state.getDidWork() && !(task instanceof AbstractNativeCompileTask)) {
+            clear();
+        }
+    }
+
+    private enum FileKind {
+        FILE, DIRECTORY, MISSING
+    }
+
+    public static class SearchResult {
+        private final List<File> searched;
+        private final File resolved;
+
+        SearchResult(List<File> searched, File resolved) {
+            this.searched = searched;
+            this.resolved = resolved;
+        }
+
+        /**
+         * The candidate locations that were checked, in search order.
+         */
+        public List<File> getSearched() {
+            return searched;
+        }
+
+        /**
+         * The canonical include file, or null when the include could not be found.
+         */
+        public File getResolved() {
+            return resolved;
+        }
+    }
+
+    private static class SearchKey {
+        private final List<File> searchPath;
+        private final String include;
+
+        SearchKey(List<File> searchPath, String include) {
+            this.searchPath = searchPath;
+            this.include = include;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SearchKey other = (SearchKey) o;
+            return include.equals(other.include) && searchPath.equals(other.searchPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * include.hashCode() + searchPath.hashCode();
+        }
+    }
+}
@@ -18,6 +18,8 @@ package org.gradle.language.nativeplatform.internal.incremental;
 import com.google.common.collect.Sets;
 import org.gradle.api.internal.changedetection.state.FileSnapshotter;
 import org.gradle.cache.PersistentStateCache;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.language.nativeplatform.internal.IncludeDirectives;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,19 +34,36 @@ public class IncrementalCompileProcessor {
     private final SourceIncludesParser sourceIncludesParser;
     private final SourceIncludesResolver sourceIncludesResolver;
     private final FileSnapshotter snapshotter;
+    private final IncludeDirectivesCache includeDirectivesCache;
+    private final WorkerLeaseService workerLeaseService;
 
     public IncrementalCompileProcessor(PersistentStateCache<CompilationState> previousCompileStateCache, SourceIncludesResolver sourceIncludesResolver, SourceIncludesParser sourceIncludesParser,
                                        FileSnapshotter snapshotter) {
+        this(previousCompileStateCache, sourceIncludesResolver, sourceIncludesParser, snapshotter, null, null);
+    }
+
+    /**
+     * @param includeDirectivesCache when not null, the changed files are parsed in parallel into this cache before they are processed, using the worker
+     * leases of the given service. The given parser is expected to use the same cache.
+     */
+    public IncrementalCompileProcessor(PersistentStateCache<CompilationState> previousCompileStateCache, SourceIncludesResolver sourceIncludesResolver, SourceIncludesParser sourceIncludesParser,
+                                       FileSnapshotter snapshotter, IncludeDirectivesCache includeDirectivesCache, WorkerLeaseService workerLeaseService) {
         this.previousCompileStateCache = previousCompileStateCache;
         this.sourceIncludesResolver = sourceIncludesResolver;
         this.sourceIncludesParser = sourceIncludesParser;
         this.snapshotter = snapshotter;
+        this.includeDirectivesCache = includeDirectivesCache;
+        this.workerLeaseService = workerLeaseService;
     }
 
     public IncrementalCompilation processSourceFiles(Collection<File> sourceFiles) {
         CompilationState previousCompileState = previousCompileStateCache.get();
         final IncrementalCompileFiles result = new IncrementalCompileFiles(previousCompileState);
 
+        if (includeDirectivesCache != null) {
+            result.parseChangedFiles(sourceFiles);
+        }
+
         for (File sourceFile : sourceFiles) {
             result.processSource(sourceFile);
         }
@@ -60,6 +79,8 @@ public class IncrementalCompileProcessor {
         private final Map<File, Boolean> processed = new HashMap<File, Boolean>();
         private final List<File> toRecompile = new ArrayList<File>();
         private final Set<File> discoveredInputs = Sets.newHashSet();
+        // The state of each file visited by parseChangedFiles(), so that processSource() does not hash, parse and resolve the file again
+        private final Map<File, VisitedFile> visitedFiles = new HashMap<File, VisitedFile>();
 
         public IncrementalCompileFiles(CompilationState previousCompileState) {
             this.previous = previousCompileState == null ? new CompilationState() : previousCompileState;
@@ -72,6 +93,51 @@ public class IncrementalCompileProcessor {
             }
         }
 
+        /**
+         * Walks the include graph one level at a time, parsing the changed files of each level in parallel. The state of each visited file
+         * is kept, and {@link #checkChangedAndUpdateState(File)} uses it rather than walking the graph again.
+         */
+        public void parseChangedFiles(Collection<File> sourceFiles) {
+            List<File> level = new ArrayList<File>(sourceFiles);
+            while (!level.isEmpty()) {
+                List<File> visited = new ArrayList<File>();
+                Map<File, HashValue> changed = new LinkedHashMap<File, HashValue>();
+                for (File file : level) {
+                    if (visitedFiles.containsKey(file) || visited.contains(file) || !file.isFile()) {
+                        continue;
+                    }
+                    visited.add(file);
+                    CompilationFileState previousState = previous.getState(file);
+                    HashValue hash = snapshotter.snapshot(file).getHash();
+                    if (previousState == null || !hash.equals(previousState.getHash())) {
+                        changed.put(file, hash);
+                    }
+                }
+                includeDirectivesCache.parseAll(changed, workerLeaseService);
+
+                List<File> nextLevel = new ArrayList<File>();
+                for (File file : visited) {
+                    HashValue hash = changed.get(file);
+                    IncludeDirectives includeDirectives;
+                    if (hash != null) {
+                        includeDirectives = sourceIncludesParser.parseIncludes(file);
+                    } else {
+                        CompilationFileState previousState = previous.getState(file);
+                        hash = previousState.getHash();
+                        includeDirectives = previousState.getIncludeDirectives();
+                    }
+                    SourceIncludesResolver.ResolvedSourceIncludes resolutionResult = resolveIncludes(file, includeDirectives);
+                    visitedFiles.put(file, new VisitedFile(hash, includeDirectives, resolutionResult));
+                    for (ResolvedInclude include : resolutionResult.getResolvedIncludes()) {
+                        if (!include.isUnknown()) {
+                            nextLevel.add(include.getFile());
+                        }
+                    }
+                }
+                level = nextLevel;
+            }
+        }
+
         public boolean checkChangedAndUpdateState(File file) {
             boolean changed = false;
 
@@ -87,16 +153,17 @@ public class IncrementalCompileProcessor {
             processed.put(file, false);
 
             CompilationFileState previousState = previous.getState(file);
-            CompilationFileState newState = new CompilationFileState(snapshotter.snapshot(file).getHash());
+            VisitedFile visitedFile = visitedFiles.get(file);
+            CompilationFileState newState = new CompilationFileState(visitedFile != null ? visitedFile.hash : snapshotter.snapshot(file).getHash());
 
             if (!sameHash(previousState, newState)) {
                 changed = true;
-                newState.setIncludeDirectives(sourceIncludesParser.parseIncludes(file));
+                newState.setIncludeDirectives(visitedFile != null ? visitedFile.includeDirectives : sourceIncludesParser.parseIncludes(file));
             } else {
                 newState.setIncludeDirectives(previousState.getIncludeDirectives());
             }
 
-            SourceIncludesResolver.ResolvedSourceIncludes resolutionResult = resolveIncludes(file, newState.getIncludeDirectives());
+            SourceIncludesResolver.ResolvedSourceIncludes resolutionResult = visitedFile != null ? visitedFile.resolutionResult : resolveIncludes(file, newState.getIncludeDirectives());
             newState.setResolvedIncludes(resolutionResult.getResolvedIncludes());
             discoveredInputs.addAll(resolutionResult.getCheckedLocations());
 
@@ -152,4 +219,16 @@ public class IncrementalCompileProcessor {
             return discoveredInputs;
         }
     }
+
+    private static class VisitedFile {
+        private final HashValue hash;
+        private final IncludeDirectives includeDirectives;
+        private final SourceIncludesResolver.ResolvedSourceIncludes resolutionResult;
+
+        private VisitedFile(HashValue hash, IncludeDirectives includeDirectives, SourceIncludesResolver.ResolvedSourceIncludes resolutionResult) {
+            this.hash = hash;
+            this.includeDirectives = includeDirectives;
+            this.resolutionResult = resolutionResult;
+        }
+    }
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.language.nativeplatform.internal.Include;
+import org.gradle.language.nativeplatform.internal.IncludeDirectives;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Finds the #include and #import directives of a source file by scanning its bytes.
+ *
+ * Comments and line continuations are handled the same way as {@link PreprocessingReader} does, and only lines starting with '#' are
+ * collected and matched against the include directive syntax.
+ */
+public class DirectiveScanningCSourceParser implements CSourceParser {
+    private static final byte[] INCLUDE = "include".getBytes();
+    private static final byte[] IMPORT = "import".getBytes();
+
+    @Override
+    public IncludeDirectives parseSource(File sourceFile) {
+        DefaultIncludeDirectives sourceIncludes = new DefaultIncludeDirectives();
+        sourceIncludes.addAll(parseFile(sourceFile));
+        return sourceIncludes;
+    }
+
+    private List<Include> parseFile(File file) {
+        byte[] content;
+        try {
+            content = FileUtils.readFileToByteArray(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Scanner(content).scan();
+    }
+
+    private static class Scanner {
+        private final byte[] content;
+        private int pos;
+        private final int[] readAheadChars = {-1, -1};
+        private boolean inString;
+        private boolean quoted;
+        private byte[] line = new byte[256];
+        private int lineLength;
+
+        Scanner(byte[] content) {
+            this.content = content;
+        }
+
+        List<Include> scan() {
+            List<Include> includes = Lists.newArrayList();
+            boolean atLineStart = true;
+            boolean directive = false;
+            while (true) {
+                int ch = read();
+                if (ch == -1 || ch == '\n' || ch == '\r') {
+                    if (directive) {
+                        Include include = parseDirective();
+                        if (include != null) {
+                            includes.add(include);
+                        }
+                    }
+                    if (ch == -1) {
+                        return includes;
+                    }
+                    atLineStart = true;
+                    directive = false;
+                    lineLength = 0;
+                } else if (atLineStart) {
+                    if (ch > ' ') {
+                        atLineStart = false;
+                        directive = ch == '#';
+                    }
+                } else if (directive) {
+                    append(ch);
+                }
+            }
+        }
+
+        private void append(int ch) {
+            if (lineLength == line.length) {
+                byte[] newLine = new byte[line.length * 2];
+                System.arraycopy(line, 0, newLine, 0, lineLength);
+                line = newLine;
+            }
+            line[lineLength++] = (byte) ch;
+        }
+
+        /**
+         * Matches the collected directive line, without its leading '#', against {@code \s*(include|import)\s*((<[^>]+>)|("[^"]+")|(\w+))}.
+         */
+        private Include parseDirective() {
+            int end = lineLength;
+            while (end > 0 && (line[end - 1] & 0xff) <= ' ') {
+                end--;
+            }
+            int start = skipWhitespace(0, end);
+            boolean isImport;
+            if (matchesIgnoreCase(INCLUDE, start, end)) {
+                isImport = false;
+                start += INCLUDE.length;
+            } else if (matchesIgnoreCase(IMPORT, start, end)) {
+                // Only the lower case directive is treated as an import
+                isImport = matches(IMPORT, start);
+                start += IMPORT.length;
+            } else {
+                return null;
+            }
+            start = skipWhitespace(start, end);
+            if (start == end || !isIncludeValue(start, end)) {
+                return null;
+            }
+            return DefaultInclude.parse(new String(line, start, end - start, Charset.defaultCharset()), isImport);
+        }
+
+        private boolean isIncludeValue(int start, int end) {
+            byte first = line[start];
+            if (first == '<') {
+                return isDelimited('>', start, end);
+            }
+            if (first == '"') {
+                return isDelimited('"', start, end);
+            }
+            for (int i = start; i < end; i++) {
+                if (!isWordChar(line[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isDelimited(char close, int start, int end) {
+            if (end - start < 3 || line[end - 1] != close) {
+                return false;
+            }
+            for (int i = start + 1; i < end - 1; i++) {
+                if (line[i] == close) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int skipWhitespace(int start, int end) {
+            int i = start;
+            while (i < end && isWhitespace(line[i])) {
+                i++;
+            }
+            return i;
+        }
+
+        private boolean matchesIgnoreCase(byte[] keyword, int start, int end) {
+            if (end - start < keyword.length) {
+                return false;
+            }
+            for (int i = 0; i < keyword.length; i++) {
+                int ch = line[start + i];
+                if (ch >= 'A' && ch <= 'Z') {
+                    ch += 'a' - 'A';
+                }
+                if (ch != keyword[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(byte[] keyword, int start) {
+            for (int i = 0; i < keyword.length; i++) {
+                if (line[start + i] != keyword[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isWhitespace(byte ch) {
+            return ch == ' ' || ch == '\t' || ch == '\n' || ch == 0x0B || ch == '\f' || ch == '\r';
+        }
+
+        private static boolean isWordChar(byte ch) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+        }
+
+        /**
+         * Returns the next character with comments replaced by a single space and line continuations removed, as {@link PreprocessingReader#read()} does.
+         */
+        private int read() {
+            int ch = next();
+            while (ch == '\\' && discardNewLine()) {
+                ch = next();
+            }
+
+            if (ch == '"' && !quoted) {
+                inString = !inString;
+                quoted = false;
+            } else if (ch == '\\') {
+                quoted = !quoted;
+            } else {
+                quoted = false;
+                if (!inString && ch == '/') {
+                    ch = next();
+                    if (ch == '/') {
+                        while (ch != '\n' && ch != -1 && ch != '\r') {
+                            ch = next();
+                        }
+                    } else if (ch == '*') {
+                        while (ch != -1) {
+                            ch = next();
+                            if (ch == '*') {
+                                ch = next();
+                                while (ch == '*') {
+                                    ch = next();
+                                }
+
+                                if (ch == '/') {
+                                    ch = ' ';
+                                    break;
+                                }
+                            }
+                        }
+                    } else {
+                        pushBack(ch);
+                        ch = '/';
+                    }
+                }
+            }
+
+            return ch;
+        }
+
+        private boolean discardNewLine() {
+            int nextChar = next();
+            if (nextChar == '\n') {
+                return true;
+            } else if (nextChar == '\r') {
+                int followingChar = next();
+                if (followingChar == '\n') {
+                    return true;
+                }
+                pushBack(nextChar);
+                pushBack(followingChar);
+                return false;
+            } else {
+                pushBack(nextChar);
+                return false;
+            }
+        }
+
+        private int next() {
+            if (readAheadChars[0] != -1) {
+                int ch = readAheadChars[0];
+                readAheadChars[0] = readAheadChars[1];
+                readAheadChars[1] = -1;
+                return ch;
+            }
+            return pos < content.length ? content[pos++] & 0xff : -1;
+        }
+
+        private void pushBack(int ch) {
+            if (readAheadChars[0] != -1) {
+                readAheadChars[1] = ch;
+            } else {
+                readAheadChars[0] = ch;
+            }
+        }
+    }
+}
@@ -16,14 +16,19 @@
 
 package org.gradle.language.nativeplatform.internal.registry;
 
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.language.nativeplatform.internal.incremental.DefaultCompilationStateCacheFactory;
+import org.gradle.language.nativeplatform.internal.incremental.IncludeDirectivesCache;
+import org.gradle.language.nativeplatform.internal.incremental.IncludeResolutionCache;
 import org.gradle.language.nativeplatform.internal.incremental.IncrementalCompilerBuilder;
 
 public class NativeLanguageServices implements PluginServiceRegistry {
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
+        registration.addProvider(new GlobalScopeServices());
     }
 
     @Override
@@ -37,10 +42,25 @@ public class NativeLanguageServices implements PluginServiceRegistry {
     @Override
     public void registerGradleServices(ServiceRegistration registration) {
         registration.add(DefaultCompilationStateCacheFactory.class);
+        registration.addProvider(new GradleScopeServices());
     }
 
     @Override
     public void registerProjectServices(ServiceRegistration registration) {
         registration.add(IncrementalCompilerBuilder.class);
     }
+
+    private static class GlobalScopeServices {
+        IncludeDirectivesCache createIncludeDirectivesCache(ExecutorFactory executorFactory) {
+            return new IncludeDirectivesCache(executorFactory);
+        }
+    }
+
+    private static class GradleScopeServices {
+        IncludeResolutionCache createIncludeResolutionCache(GradleInternal gradle) {
+            IncludeResolutionCache cache = new IncludeResolutionCache();
+            gradle.getTaskGraph().addTaskExecutionListener(cache);
+            return cache;
+        }
+    }
 }
@@ -166,6 +166,39 @@ class DefaultSourceIncludesResolverTest extends Specification {
         }
     }
 
+    def "reuses include resolution results of a shared cache until the cache is cleared"() {
+        given:
+        def cache = new IncludeResolutionCache()
+        def includeDir = testDirectory.file("include")
+        def header = includeDir.file("test.h")
+        includePaths << includeDir
+        systemIncludes << "test.h"
+
+        when:
+        def resolver = new DefaultSourceIncludesResolver(includePaths, cache)
+        def first = resolver.resolveIncludes(sourceFile, includes)
+
+        then:
+        first.resolvedIncludes.empty
+        first.checkedLocations as List == [header]
+
+        when:
+        header.createFile()
+        def second = new DefaultSourceIncludesResolver(includePaths, cache).resolveIncludes(sourceFile, includes)
+
+        then:
+        second.resolvedIncludes.empty
+        second.checkedLocations as List == [header]
+
+        when:
+        cache.clear()
+        def third = new DefaultSourceIncludesResolver(includePaths, cache).resolveIncludes(sourceFile, includes)
+
+        then:
+        third.resolvedIncludes as List == deps(header)
+        third.checkedLocations as List == [header]
+    }
+
     def include(String value) {
         return DefaultInclude.parse(value, false)
     }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.api.internal.changedetection.state.FileSnapshot
+import org.gradle.api.internal.changedetection.state.FileSnapshotter
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.hash.HashValue
+import org.gradle.internal.work.WorkerLeaseService
+import org.gradle.language.nativeplatform.internal.IncludeDirectives
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CSourceParser
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class IncludeDirectivesCacheTest extends Specification {
+    def sourceParser = Mock(CSourceParser)
+    def executorFactory = new DefaultExecutorFactory()
+    def workerLeaseService = Mock(WorkerLeaseService)
+    def cache = new IncludeDirectivesCache(sourceParser, executorFactory)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "parses each file content only once"() {
+        def file1 = new File("file1.h")
+        def file2 = new File("file2.h")
+        def directives = Stub(IncludeDirectives)
+
+        when:
+        def result1 = cache.parse(file1, hash("1234"))
+        def result2 = cache.parse(file2, hash("1234"))
+
+        then:
+        1 * sourceParser.parseSource(file1) >> directives
+        0 * sourceParser._
+        result1.is(directives)
+        result2.is(directives)
+    }
+
+    def "parses files that were not parsed before in parallel"() {
+        def files = (1..10).collectEntries { [new File("file${it}.h"), hash(Integer.toHexString(it))] }
+        def directives = Stub(IncludeDirectives)
+
+        when:
+        cache.parse(new File("file1.h"), hash("1"))
+
+        then:
+        1 * sourceParser.parseSource(new File("file1.h")) >> directives
+
+        when:
+        cache.parseAll(files, workerLeaseService)
+
+        then:
+        9 * workerLeaseService.tryRunWithWorkerLease(_, _) >> { Executor executor, Runnable action ->
+            executor.execute(action)
+            true
+        }
+        9 * sourceParser.parseSource(_) >> Stub(IncludeDirectives)
+        0 * sourceParser._
+
+        when:
+        def result = cache.parse(new File("file1.h"), hash("1"))
+        files.each { file, hash -> cache.parse(file, hash) }
+
+        then:
+        0 * sourceParser._
+        result.is(directives)
+    }
+
+    def "parses files on the calling thread when no worker lease is available"() {
+        def file = new File("file.h")
+        def directives = Stub(IncludeDirectives)
+        def thread = Thread.currentThread()
+
+        when:
+        cache.parseAll([(file): hash("1234")], workerLeaseService)
+
+        then:
+        1 * workerLeaseService.tryRunWithWorkerLease(_, _) >> false
+        1 * sourceParser.parseSource(file) >> {
+            assert Thread.currentThread() == thread
+            directives
+        }
+
+        when:
+        def result = cache.parse(file, hash("1234"))
+
+        then:
+        0 * sourceParser._
+        result.is(directives)
+    }
+
+    def "ignores failures when parsing ahead of time"() {
+        def file = new File("broken.h")
+        def failure = new UncheckedIOException("broken")
+
+        when:
+        cache.parseAll([(file): hash("abcd")], workerLeaseService)
+
+        then:
+        1 * workerLeaseService.tryRunWithWorkerLease(_, _) >> { Executor executor, Runnable action ->
+            executor.execute(action)
+            true
+        }
+        1 * sourceParser.parseSource(file) >> { throw failure }
+
+        when:
+        cache.parse(file, hash("abcd"))
+
+        then:
+        1 * sourceParser.parseSource(file) >> { throw failure }
+        def e = thrown(UncheckedIOException)
+        e.is(failure)
+    }
+
+    def "creates parser that looks up content hash of each file"() {
+        def file = new File("file.h")
+        def snapshotter = Stub(FileSnapshotter) {
+            snapshot(file) >> Stub(FileSnapshot) {
+                getHash() >> hash("1234")
+            }
+        }
+        def directives = Stub(IncludeDirectives)
+
+        when:
+        cache.parse(new File("other.h"), hash("1234"))
+
+        then:
+        1 * sourceParser.parseSource(new File("other.h")) >> directives
+
+        when:
+        def result = cache.createParser(snapshotter).parseSource(file)
+
+        then:
+        0 * sourceParser._
+        result.is(directives)
+    }
+
+    private static HashValue hash(String hex) {
+        HashValue.parse(hex)
+    }
+}
@@ -19,6 +19,7 @@ import org.gradle.api.internal.changedetection.state.FileSnapshot
 import org.gradle.api.internal.changedetection.state.FileSnapshotter
 import org.gradle.cache.PersistentStateCache
 import org.gradle.internal.hash.HashUtil
+import org.gradle.internal.work.WorkerLeaseService
 import org.gradle.language.nativeplatform.internal.IncludeDirectives
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.DefaultIncludeDirectives
 import org.gradle.test.fixtures.file.TestFile
@@ -384,6 +385,33 @@ class IncrementalCompileProcessorTest extends Specification {
         return true
     }
 
+    def "parses changed files of each level of the include graph together when using a directives cache"() {
+        given:
+        def directivesCache = Mock(IncludeDirectivesCache)
+        def workerLeaseService = Stub(WorkerLeaseService)
+        def processor = new IncrementalCompileProcessor(stateCache, dependencyParser, includesParser, fileSnapshotter, directivesCache, workerLeaseService)
+        def directives = graph.collectEntries { file, deps -> [file, includes(deps)] }
+        def parsed = []
+        def resolved = []
+        includesParser.parseIncludes(_) >> { File file -> parsed << file; directives[file] }
+        dependencyParser.resolveIncludes(_, _) >> { File file, IncludeDirectives fileIncludes -> resolved << file; resolveDeps(graph[file]) }
+
+        when:
+        def result = processor.processSourceFiles([source1, source2])
+
+        then:
+        1 * directivesCache.parseAll({ it.keySet() == [source1, source2] as Set }, workerLeaseService)
+        1 * directivesCache.parseAll({ it.keySet() == [dep1, dep2, dep3, dep4] as Set }, workerLeaseService)
+        0 * directivesCache._
+        result.recompile == [source1, source2]
+
+        and:
+        parsed as Set == graph.keySet()
+        parsed.size() == graph.size()
+        resolved as Set == graph.keySet()
+        resolved.size() == graph.size()
+    }
+
     def parseAndResolve() {
         modified.each {
             parse(it)
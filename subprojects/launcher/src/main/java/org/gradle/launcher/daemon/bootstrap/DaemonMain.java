@@ -34,6 +34,7 @@ import org.gradle.launcher.daemon.configuration.DefaultDaemonServerConfiguration
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.logging.DaemonMessages;
 import org.gradle.launcher.daemon.server.Daemon;
+import org.gradle.launcher.daemon.server.DaemonCacheKeySnapshot;
 import org.gradle.launcher.daemon.server.DaemonServices;
 import org.gradle.launcher.daemon.server.MasterExpirationStrategy;
 import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStrategy;
@@ -112,6 +113,9 @@ public class DaemonMain extends EntryPoint {
 
         LOGGER.debug("Assuming the daemon was started with following jvm opts: {}", startupOpts);
 
+        DaemonCacheKeySnapshot cacheKeySnapshot = daemonServices.get(DaemonCacheKeySnapshot.class);
+        cacheKeySnapshot.restoreInBackground();
+
         Daemon daemon = daemonServices.get(Daemon.class);
         daemon.start();
 
@@ -123,6 +127,7 @@ public class DaemonMain extends EntryPoint {
             daemon.stopOnExpiration(expirationStrategy, parameters.getPeriodicCheckIntervalMs());
         } finally {
             daemon.stop();
+            cacheKeySnapshot.save();
         }
     }
 
@@ -22,9 +22,14 @@ import org.gradle.api.internal.specs.ExplainingSpec;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
+import org.gradle.cache.internal.FileLock;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.internal.Pair;
 import org.gradle.internal.SystemProperties;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.remote.internal.ConnectException;
 import org.gradle.internal.remote.internal.OutgoingConnector;
 import org.gradle.internal.remote.internal.RemoteConnection;
@@ -40,15 +45,23 @@ import org.gradle.launcher.daemon.registry.DaemonRegistry;
 import org.gradle.launcher.daemon.registry.DaemonStopEvent;
 import org.gradle.util.CollectionUtils;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
 /**
  * Provides the mechanics of connecting to a daemon, starting one via a given runnable if no suitable daemons are already available.
+ *
+ * <p>Optionally keeps a number of compatible standby daemons idle in the registry. Whenever a client takes a daemon and fewer standby daemons
+ * remain, replacements are started in the background, so that later builds can connect to an already initialised daemon. Standby daemons are
+ * only started while holding an exclusive lock shared by all clients, and the idle daemons are counted again once the lock is held, so that
+ * concurrent clients do not start more standby daemons than requested.</p>
  */
-public class DefaultDaemonConnector implements DaemonConnector {
+public class DefaultDaemonConnector implements DaemonConnector, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultDaemonConnector.class);
     public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
     public static final String STARTING_DAEMON_MESSAGE = "Starting a new Gradle Daemon because";
@@ -58,18 +71,34 @@ public class DefaultDaemonConnector implements DaemonConnector {
     public static final String MULTIPLE_INCOMPATIBLE_DAEMONS_MESSAGE = "Multiple idle daemons with different constraints could not be used";
     public static final String SUBSEQUENT_BUILDS_FASTER_MESSAGE = "Subsequent builds will be faster";
     public static final String DAEMON_WAS_STOPPED_PREFIX = "A daemon was stopped ";
+    public static final String STANDBY_DAEMONS_PROPERTY = "org.gradle.daemon.standby";
     private static final String LINE_SEPARATOR = SystemProperties.getInstance().getLineSeparator();
     private final DaemonRegistry daemonRegistry;
     protected final OutgoingConnector connector;
     private final DaemonStarter daemonStarter;
     private final DaemonStartListener startListener;
+    private final ExecutorFactory executorFactory;
+    private final FileLockManager fileLockManager;
+    private final File standbyLockTarget;
+    private final int standbyDaemons;
+    private StoppableExecutor standbyStarter;
+    private boolean standbyStartPending;
+    private volatile boolean stopped;
     private long connectTimeout = DefaultDaemonConnector.DEFAULT_CONNECT_TIMEOUT;
 
     public DefaultDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector connector, DaemonStarter daemonStarter, DaemonStartListener startListener) {
+        this(daemonRegistry, connector, daemonStarter, startListener, null, null, null, 0);
+    }
+
+    public DefaultDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector connector, DaemonStarter daemonStarter, DaemonStartListener startListener, ExecutorFactory executorFactory, FileLockManager fileLockManager, File standbyLockTarget, int standbyDaemons) {
         this.daemonRegistry = daemonRegistry;
         this.connector = connector;
         this.daemonStarter = daemonStarter;
         this.startListener = startListener;
+        this.executorFactory = executorFactory;
+        this.fileLockManager = fileLockManager;
+        this.standbyLockTarget = standbyLockTarget;
+        this.standbyDaemons = standbyDaemons;
     }
 
     public void setConnectTimeout(long connectTimeout) {
@@ -110,6 +139,7 @@ public class DefaultDaemonConnector implements DaemonConnector {
         final List<DaemonInfo> compatibleIdleDaemons = getCompatibleDaemons(idleDaemons, constraint);
         DaemonClientConnection connection = findConnection(compatibleIdleDaemons);
         if (connection != null) {
+            maybeStartStandbyDaemons(compatibleIdleDaemons.size() - 1, constraint, connection.getDaemon().getUid());
             return connection;
         }
 
@@ -119,9 +149,106 @@ public class DefaultDaemonConnector implements DaemonConnector {
 
         LOGGER.lifecycle(generateStartingMessage(busyDaemons.size(), idleDaemons.size(), stopEvents));
 
+        maybeStartStandbyDaemons(0, constraint, null);
         return startDaemon(constraint);
     }
 
+    private void maybeStartStandbyDaemons(int availableDaemons, final ExplainingSpec<DaemonContext> constraint, final String takenDaemonUid) {
+        if (standbyDaemons - Math.max(availableDaemons, 0) <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (stopped || standbyStartPending) {
+                return;
+            }
+            if (standbyStarter == null) {
+                standbyStarter = executorFactory.create("Standby daemon starter");
+            }
+            standbyStartPending = true;
+            standbyStarter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (DefaultDaemonConnector.this) {
+                        standbyStartPending = false;
+                    }
+                    try {
+                        startStandbyDaemons(constraint, takenDaemonUid);
+                    } catch (Exception e) {
+                        LOGGER.info("Could not start a standby Gradle daemon.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    private void startStandbyDaemons(ExplainingSpec<DaemonContext> constraint, String takenDaemonUid) {
+        FileLock lock = fileLockManager.lock(standbyLockTarget, mode(FileLockManager.LockMode.Exclusive), "standby Gradle daemons");
+        try {
+            // Other clients may have started standby daemons while this one was waiting for the lock
+            // The daemon taken by this client may not have marked itself busy yet
+            int available = 0;
+            for (DaemonInfo daemon : getCompatibleDaemons(daemonRegistry.getIdle(), constraint)) {
+                if (!daemon.getUid().equals(takenDaemonUid)) {
+                    available++;
+                }
+            }
+            int missing = standbyDaemons - available;
+            for (int i = 0; i < missing && !stopped; i++) {
+                startStandbyDaemon();
+            }
+        } finally {
+            lock.close();
+        }
+    }
+
+    private void startStandbyDaemon() {
+        final DaemonStartupInfo startupInfo = daemonStarter.startDaemon();
+        LOGGER.debug("Started standby Gradle daemon {}", startupInfo);
+        long expiry = System.currentTimeMillis() + connectTimeout;
+        do {
+            // A daemon registers itself as busy when it starts. Advertise it as idle so that the next client can use it,
+            // or, when its context does not match after all, so that it expires like any other idle daemon.
+            for (DaemonInfo daemonInfo : daemonRegistry.getBusy()) {
+                if (daemonInfo.getUid().equals(startupInfo.getUid())) {
+                    daemonRegistry.markIdle(daemonInfo.getAddress());
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        } while (System.currentTimeMillis() < expiry);
+    }
+
+    /**
+     * Stops starting standby daemons. Does not wait for a standby daemon that is currently starting, which keeps starting in the background.
+     */
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            stopped = true;
+            executor = standbyStarter;
+            standbyStarter = null;
+        }
+        if (executor != null) {
+            executor.requestStop();
+        }
+    }
+
+    @VisibleForTesting
+    void waitForStandbyDaemons() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            executor = standbyStarter;
+            standbyStarter = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
     @VisibleForTesting
     String generateStartingMessage(final int numBusy, final int numIncompatible, final List<DaemonStopEvent> stopEvents) {
         final List<String> messages = Lists.newArrayList();
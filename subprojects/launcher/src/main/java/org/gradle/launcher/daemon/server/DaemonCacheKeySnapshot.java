@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server;
+
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.launcher.daemon.registry.DaemonDir;
+
+import java.io.File;
+
+/**
+ * Carries the keys of the daemon's in-memory task artifact caches over to the next daemon, so that a replacement daemon
+ * can preload the entries that the previous daemon was using.
+ */
+public class DaemonCacheKeySnapshot {
+    static final String SNAPSHOT_FILE_NAME = "in-memory-cache-keys.bin";
+    private final InMemoryTaskArtifactCache inMemoryTaskArtifactCache;
+    private final ExecutorFactory executorFactory;
+    private final File snapshotFile;
+    private StoppableExecutor executor;
+
+    public DaemonCacheKeySnapshot(InMemoryTaskArtifactCache inMemoryTaskArtifactCache, DaemonDir daemonDir, ExecutorFactory executorFactory) {
+        this.inMemoryTaskArtifactCache = inMemoryTaskArtifactCache;
+        this.executorFactory = executorFactory;
+        this.snapshotFile = new File(daemonDir.getVersionedDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * Reads the snapshot written by a previous daemon, without blocking the caller.
+     */
+    public void restoreInBackground() {
+        executor = executorFactory.create("Daemon cache key snapshot restore");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                inMemoryTaskArtifactCache.readKeySnapshot(snapshotFile);
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot of the keys currently held by this daemon.
+     */
+    public void save() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+        inMemoryTaskArtifactCache.writeKeySnapshot(snapshotFile);
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.launcher.daemon.server;
 
 import com.google.common.collect.ImmutableList;
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.TrueTimeProvider;
@@ -175,6 +176,10 @@ public class DaemonServices extends DefaultServiceRegistry {
         );
     }
 
+    protected DaemonCacheKeySnapshot createDaemonCacheKeySnapshot(InMemoryTaskArtifactCache inMemoryTaskArtifactCache, DaemonDir daemonDir, ExecutorFactory executorFactory) {
+        return new DaemonCacheKeySnapshot(inMemoryTaskArtifactCache, daemonDir, executorFactory);
+    }
+
     protected DaemonExpirationListenerRegistry createDaemonExpirationListenerRegistry(ListenerManager listenerManager) {
         return DefaultDaemonExpirationListenerRegistry.of(listenerManager);
     }
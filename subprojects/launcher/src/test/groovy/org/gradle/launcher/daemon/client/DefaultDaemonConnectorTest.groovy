@@ -18,6 +18,9 @@ package org.gradle.launcher.daemon.client
 import com.google.common.collect.Lists
 import org.gradle.api.internal.specs.ExplainingSpec
 import org.gradle.api.internal.specs.ExplainingSpecs
+import org.gradle.cache.internal.FileLock
+import org.gradle.cache.internal.FileLockManager
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.remote.Address
 import org.gradle.internal.remote.internal.ConnectCompletion
 import org.gradle.internal.remote.internal.ConnectException
@@ -31,6 +34,8 @@ import org.gradle.launcher.daemon.registry.DaemonStopEvent
 import org.gradle.launcher.daemon.registry.EmbeddedDaemonRegistry
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+
 class DefaultDaemonConnectorTest extends Specification {
 
     def javaHome = new File("tmp")
@@ -194,6 +199,105 @@ class DefaultDaemonConnectorTest extends Specification {
         registry.all.empty
     }
 
+    def createStandbyConnector(DaemonStarter starter, FileLockManager fileLockManager = Stub(FileLockManager) { lock(_, _, _) >> Stub(FileLock) }) {
+        theConnector = Spy(DefaultDaemonConnector, constructorArgs: [
+                new EmbeddedDaemonRegistry(),
+                Spy(OutgoingConnectorStub),
+                starter,
+                Stub(DaemonStartListener),
+                new DefaultExecutorFactory(),
+                fileLockManager,
+                new File("standby"),
+                1]
+        )
+    }
+
+    def "connect() starts standby daemon in the background when it takes the last compatible idle daemon"() {
+        given:
+        def connector = createStandbyConnector({ startBusyDaemon() } as DaemonStarter)
+        startIdleDaemon()
+
+        when:
+        def connection = connector.connect({ true } as ExplainingSpec)
+        connector.waitForStandbyDaemons()
+
+        then:
+        connection.connection.num == 0
+        numAllDaemons == 2
+        registry.idle.size() == 2
+    }
+
+    def "connect() does not start standby daemons when enough compatible idle daemons remain"() {
+        given:
+        def connector = createStandbyConnector({ startBusyDaemon() } as DaemonStarter)
+        startIdleDaemon()
+        startIdleDaemon()
+
+        when:
+        connector.connect({ true } as ExplainingSpec)
+        connector.waitForStandbyDaemons()
+
+        then:
+        numAllDaemons == 2
+    }
+
+    def "does not start standby daemon when another client started one while waiting for the lock"() {
+        given:
+        def fileLockManager = Stub(FileLockManager) {
+            lock(_, _, _) >> {
+                startIdleDaemon()
+                Stub(FileLock)
+            }
+        }
+        def connector = createStandbyConnector({ startBusyDaemon() } as DaemonStarter, fileLockManager)
+        startIdleDaemon()
+
+        when:
+        connector.connect({ true } as ExplainingSpec)
+        connector.waitForStandbyDaemons()
+
+        then:
+        numAllDaemons == 2
+        registry.idle.size() == 2
+    }
+
+    def "marks standby daemon with a different context idle"() {
+        given:
+        def connector = createStandbyConnector({ startBusyDaemon() } as DaemonStarter)
+        startIdleDaemon()
+
+        when:
+        connector.connect({ DaemonContext context -> context.uid == "0" } as DummyExplainingSpec)
+        connector.waitForStandbyDaemons()
+
+        then:
+        numAllDaemons == 2
+        registry.busy.empty
+    }
+
+    def "stop() does not wait for standby daemon that is starting"() {
+        given:
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def connector = createStandbyConnector({
+            started.countDown()
+            release.await()
+            startBusyDaemon()
+        } as DaemonStarter)
+        startIdleDaemon()
+
+        when:
+        connector.connect({ true } as ExplainingSpec)
+        started.await()
+        connector.stop()
+
+        then:
+        numAllDaemons == 1
+
+        cleanup:
+        release.countDown()
+    }
+
     def "starting message contains number of busy and incompatible daemons if > 0"() {
         given:
         def message = getConnector().generateStartingMessage(2, 2, Lists.newArrayList())
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server
+
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.launcher.daemon.registry.DaemonDir
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DaemonCacheKeySnapshotTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def inMemoryTaskArtifactCache = Mock(InMemoryTaskArtifactCache)
+    def daemonDir = new DaemonDir(tmpDir.testDirectory)
+    def executor = Mock(StoppableExecutor)
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def snapshotFile = new File(daemonDir.versionedDir, DaemonCacheKeySnapshot.SNAPSHOT_FILE_NAME)
+    def cacheKeySnapshot = new DaemonCacheKeySnapshot(inMemoryTaskArtifactCache, daemonDir, executorFactory)
+
+    def "reads snapshot of previous daemon in the background"() {
+        Runnable restore = null
+
+        when:
+        cacheKeySnapshot.restoreInBackground()
+
+        then:
+        1 * executor.execute(_) >> { Runnable action -> restore = action }
+        0 * inMemoryTaskArtifactCache._
+
+        when:
+        restore.run()
+
+        then:
+        1 * inMemoryTaskArtifactCache.readKeySnapshot(snapshotFile)
+    }
+
+    def "finishes reading snapshot before writing snapshot of this daemon"() {
+        given:
+        cacheKeySnapshot.restoreInBackground()
+
+        when:
+        cacheKeySnapshot.save()
+
+        then:
+        1 * executor.stop()
+
+        then:
+        1 * inMemoryTaskArtifactCache.writeKeySnapshot(snapshotFile)
+    }
+
+    def "writes snapshot when nothing was restored"() {
+        when:
+        cacheKeySnapshot.save()
+
+        then:
+        0 * executor._
+        1 * inMemoryTaskArtifactCache.writeKeySnapshot(snapshotFile)
+    }
+}
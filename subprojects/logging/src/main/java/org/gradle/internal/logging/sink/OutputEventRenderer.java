@@ -21,6 +21,8 @@ import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.StandardOutputListener;
 import org.gradle.api.logging.configuration.ConsoleOutput;
 import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ThreadFactoryImpl;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.logging.config.LoggingRouter;
 import org.gradle.internal.logging.console.AnsiConsole;
@@ -41,17 +43,40 @@ import org.gradle.internal.nativeintegration.console.FallbackConsoleMetaData;
 
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A {@link OutputEventListener} implementation which renders output events to various
  * destinations. This implementation is thread-safe.
+ *
+ * <p>Events are handed to a single render thread through a bounded queue, so a thread that generates output does not wait for
+ * other threads' output to be rendered, and a failure to render an event is not reported to some unrelated thread. A thread only
+ * waits when the queue is full. Rendering is synchronous again at the sync points: {@link #flush()}, and every change to the
+ * destinations, such as adding or removing a listener or restoring a snapshot, first waits until the events queued so far have
+ * been rendered. A failure to render an event is rethrown by the next sync point.</p>
  */
 @ThreadSafe
 public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
+    static final int MAX_QUEUED_EVENTS = 1000;
+
     private final ListenerBroadcast<OutputEventListener> formatters = new ListenerBroadcast<OutputEventListener>(OutputEventListener.class);
     private final ListenerBroadcast<StandardOutputListener> stdoutListeners = new ListenerBroadcast<StandardOutputListener>(StandardOutputListener.class);
     private final ListenerBroadcast<StandardOutputListener> stderrListeners = new ListenerBroadcast<StandardOutputListener>(StandardOutputListener.class);
     private final Object lock = new Object();
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(MAX_QUEUED_EVENTS);
+    private final AtomicBoolean rendering = new AtomicBoolean();
+    private final Executor renderExecutor;
+    private final Runnable renderQueuedEvents = new RenderQueuedEvents();
+    private volatile Thread renderThread;
+    private Throwable renderFailure;
     private final DefaultColorMap colourMap = new DefaultColorMap();
     private LogLevel logLevel = LogLevel.LIFECYCLE;
     private final ConsoleConfigureAction consoleConfigureAction;
@@ -67,10 +92,14 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
         OutputEventListener stdErrChain = onError(new ProgressLogEventGenerator(new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(stderrListeners.getSource())), false));
         formatters.add(stdErrChain);
         this.consoleConfigureAction = new ConsoleConfigureAction();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new RenderThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        this.renderExecutor = executor;
     }
 
     @Override
     public Snapshot snapshot() {
+        flush();
         synchronized (lock) {
             // Currently only snapshot the console output listener. Should snapshot all output listeners, and cleanup in restore()
             return new SnapshotImpl(logLevel, console);
@@ -79,10 +108,11 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
 
     @Override
     public void restore(Snapshot state) {
+        flush();
         synchronized (lock) {
             SnapshotImpl snapshot = (SnapshotImpl) state;
             if (snapshot.logLevel != logLevel) {
-                configure(snapshot.logLevel);
+                render(new LogLevelChangeEvent(snapshot.logLevel));
             }
             // TODO - also close console when it is replaced
             // TODO - remove console from formatters
@@ -111,17 +141,13 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     }
 
     public void attachProcessConsole(ConsoleOutput consoleOutput) {
-        synchronized (lock) {
-            consoleConfigureAction.execute(this, consoleOutput);
-        }
+        consoleConfigureAction.execute(this, consoleOutput);
     }
 
     public void attachAnsiConsole(OutputStream outputStream) {
-        synchronized (lock) {
-            OutputStreamWriter writer = new OutputStreamWriter(outputStream);
-            Console console = new AnsiConsole(writer, writer, colourMap, true);
-            addConsole(console, true, true, new FallbackConsoleMetaData());
-        }
+        OutputStreamWriter writer = new OutputStreamWriter(outputStream);
+        Console console = new AnsiConsole(writer, writer, colourMap, true);
+        addConsole(console, true, true, new FallbackConsoleMetaData());
     }
 
     public void attachSystemOutAndErr() {
@@ -130,52 +156,52 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     }
 
     private void addStandardOutputListener() {
+        flush();
         synchronized (lock) {
             originalStdOut = System.out;
             if (stdOutListener != null) {
                 stdoutListeners.remove(stdOutListener);
             }
             stdOutListener = new StreamBackedStandardOutputListener((Appendable) System.out);
-            addStandardOutputListener(stdOutListener);
+            stdoutListeners.add(stdOutListener);
         }
     }
 
     private void addStandardErrorListener() {
+        flush();
         synchronized (lock) {
             originalStdErr = System.err;
             if(stdErrListener != null) {
                 stderrListeners.remove(stdErrListener);
             }
             stdErrListener = new StreamBackedStandardOutputListener((Appendable) System.err);
-            addStandardErrorListener(stdErrListener);
+            stderrListeners.add(stdErrListener);
         }
     }
 
     private void removeStandardOutputListener() {
-        synchronized (lock) {
-            if (stdOutListener != null) {
-                stdoutListeners.remove(stdOutListener);
-                stdOutListener = null;
-            }
+        if (stdOutListener != null) {
+            stdoutListeners.remove(stdOutListener);
+            stdOutListener = null;
         }
     }
 
     private void removeStandardErrorListener() {
-        synchronized (lock) {
-            if(stdErrListener != null) {
-                stderrListeners.remove(stdErrListener);
-                stdErrListener = null;
-            }
+        if(stdErrListener != null) {
+            stderrListeners.remove(stdErrListener);
+            stdErrListener = null;
         }
     }
 
     public void addOutputEventListener(OutputEventListener listener) {
+        flush();
         synchronized (lock) {
             formatters.add(listener);
         }
     }
 
     public void removeOutputEventListener(OutputEventListener listener) {
+        flush();
         synchronized (lock) {
             formatters.remove(listener);
         }
@@ -188,6 +214,7 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
             console,
             new DefaultStatusBarFormatter(consoleMetaData),
             new TrueTimeProvider());
+        flush();
         synchronized (lock) {
             if (stdout && stderr) {
                 this.console = consoleChain;
@@ -227,12 +254,14 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     }
 
     public void addStandardErrorListener(StandardOutputListener listener) {
+        flush();
         synchronized (lock) {
             stderrListeners.add(listener);
         }
     }
 
     public void addStandardOutputListener(StandardOutputListener listener) {
+        flush();
         synchronized (lock) {
             stdoutListeners.add(listener);
         }
@@ -248,12 +277,14 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
 
 
     public void removeStandardOutputListener(StandardOutputListener listener) {
+        flush();
         synchronized (lock) {
             stdoutListeners.remove(listener);
         }
     }
 
     public void removeStandardErrorListener(StandardOutputListener listener) {
+        flush();
         synchronized (lock) {
             stderrListeners.remove(listener);
         }
@@ -264,19 +295,124 @@ public class OutputEventRenderer implements OutputEventListener, LoggingRouter {
     }
 
     public void onOutput(OutputEvent event) {
-        synchronized (lock) {
-            if (event.getLogLevel() != null && event.getLogLevel().compareTo(logLevel) < 0) {
+        if (Thread.currentThread() == renderThread) {
+            // Generated while rendering another event, for example by a listener
+            synchronized (lock) {
+                render(event);
+            }
+            return;
+        }
+        enqueue(event);
+    }
+
+    /**
+     * Waits until the events generated so far have been rendered, and rethrows the first failure to render one of them.
+     */
+    public void flush() {
+        if (Thread.currentThread() == renderThread) {
+            return;
+        }
+        FlushMarker marker = new FlushMarker();
+        enqueue(marker);
+        marker.await();
+    }
+
+    private void enqueue(Object item) {
+        if (!queue.offer(item)) {
+            startRendering();
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        startRendering();
+    }
+
+    private void startRendering() {
+        if (rendering.compareAndSet(false, true)) {
+            renderExecutor.execute(renderQueuedEvents);
+        }
+    }
+
+    private void render(OutputEvent event) {
+        if (event.getLogLevel() != null && event.getLogLevel().compareTo(logLevel) < 0) {
+            return;
+        }
+        if (event instanceof LogLevelChangeEvent) {
+            LogLevelChangeEvent changeEvent = (LogLevelChangeEvent) event;
+            LogLevel newLogLevel = changeEvent.getNewLogLevel();
+            if (newLogLevel == this.logLevel) {
                 return;
             }
-            if (event instanceof LogLevelChangeEvent) {
-                LogLevelChangeEvent changeEvent = (LogLevelChangeEvent) event;
-                LogLevel newLogLevel = changeEvent.getNewLogLevel();
-                if (newLogLevel == this.logLevel) {
-                    return;
+            this.logLevel = newLogLevel;
+        }
+        formatters.getSource().onOutput(event);
+    }
+
+    private class RenderQueuedEvents implements Runnable {
+        public void run() {
+            renderThread = Thread.currentThread();
+            try {
+                while (true) {
+                    Object next = queue.poll();
+                    if (next == null) {
+                        rendering.set(false);
+                        // Keep going when an event was queued after the poll, while this thread still looked busy
+                        if (queue.isEmpty() || !rendering.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    synchronized (lock) {
+                        if (next instanceof FlushMarker) {
+                            ((FlushMarker) next).rendered(renderFailure);
+                            renderFailure = null;
+                        } else {
+                            try {
+                                render((OutputEvent) next);
+                            } catch (Throwable t) {
+                                if (renderFailure == null) {
+                                    renderFailure = t;
+                                }
+                            }
+                        }
+                    }
                 }
-                this.logLevel = newLogLevel;
+            } finally {
+                renderThread = null;
+            }
+        }
+    }
+
+    private static class FlushMarker {
+        private final CountDownLatch rendered = new CountDownLatch(1);
+        private Throwable failure;
+
+        void rendered(Throwable failure) {
+            this.failure = failure;
+            rendered.countDown();
+        }
+
+        void await() {
+            try {
+                rendered.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
             }
-            formatters.getSource().onOutput(event);
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+        }
+    }
+
+    private static class RenderThreadFactory implements ThreadFactory {
+        private final ThreadFactory delegate = new ThreadFactoryImpl("Output event renderer");
+
+        public Thread newThread(Runnable r) {
+            Thread thread = delegate.newThread(r);
+            thread.setDaemon(true);
+            return thread;
         }
     }
 
@@ -18,6 +18,7 @@ package org.gradle.internal.logging.slf4j;
 
 import org.gradle.api.logging.LogLevel;
 import org.gradle.internal.TimeProvider;
+import org.gradle.internal.logging.events.OutputEvent;
 import org.gradle.internal.logging.events.OutputEventListener;
 import org.gradle.internal.logging.sink.OutputEventRenderer;
 import org.slf4j.ILoggerFactory;
@@ -82,10 +83,16 @@ public class OutputEventListenerBackedLoggerContext implements ILoggerFactory {
 
     public void reset() {
         setLevel(DEFAULT_LOG_LEVEL);
-        OutputEventRenderer renderer = new OutputEventRenderer();
+        final OutputEventRenderer renderer = new OutputEventRenderer();
         renderer.addStandardOutputListener(defaultOutputStream);
         renderer.addStandardErrorListener(defaultErrorStream);
-        setOutputEventListener(renderer);
+        // Nothing stops the default configuration, so render each event before returning
+        setOutputEventListener(new OutputEventListener() {
+            public void onOutput(OutputEvent event) {
+                renderer.onOutput(event);
+                renderer.flush();
+            }
+        });
     }
 
     public LogLevel getLevel() {
@@ -26,6 +26,7 @@ import org.gradle.internal.logging.LoggingManagerInternal
 import org.gradle.internal.logging.TestOutputEventListener
 import org.gradle.internal.logging.progress.DefaultProgressLoggerFactory
 import org.gradle.internal.logging.progress.ProgressLoggerFactory
+import org.gradle.internal.logging.sink.OutputEventRenderer
 import org.gradle.internal.logging.text.StyledTextOutputFactory
 import org.gradle.util.RedirectStdOutAndErr
 import org.gradle.util.TextUtil
@@ -84,6 +85,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         def loggingManager = registry.newInstance(LoggingManagerInternal)
         logger.warn("before")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         outputEventListener.toString() == '[WARN before]'
@@ -93,6 +95,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.start()
         logger.info("ignored")
         logger.warn("warning")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         outputEventListener.toString() == '[WARN before]'
@@ -109,6 +112,7 @@ class LoggingServiceRegistryTest extends Specification {
 
         when:
         logger.warn("before")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         0 * listener._
@@ -118,6 +122,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.start()
         logger.info("ignored")
         logger.warn("warning")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput('warning')
@@ -143,6 +148,7 @@ class LoggingServiceRegistryTest extends Specification {
 
         when:
         logger.warning("before")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         0 * listener._
@@ -152,6 +158,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.start()
         logger.info("ignored")
         logger.warning("warning")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput('warning')
@@ -189,6 +196,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         System.out.println("info")
         System.err.println("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -220,6 +228,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         System.out.print("in")
         System.err.print("err")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         0 * listener._
@@ -228,6 +237,7 @@ class LoggingServiceRegistryTest extends Specification {
         System.out.println("fo")
         System.err.print("or")
         System.err.println()
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -242,6 +252,7 @@ class LoggingServiceRegistryTest extends Specification {
         System.out.print("buffered")
         System.err.print("error")
         System.err.flush()
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("error")
@@ -266,6 +277,7 @@ class LoggingServiceRegistryTest extends Specification {
 
         def textOutput = registry.get(StyledTextOutputFactory).create("category")
         textOutput.println("info")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -287,6 +299,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         def textOutput = registry.get(StyledTextOutputFactory).create("category")
         textOutput.text("in")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         0 * listener._
@@ -294,6 +307,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         textOutput.println("fo")
         textOutput.text("buffered")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -310,6 +324,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         logger.warn("before")
         logger.error("before")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         outputs.stdOut == ''
@@ -320,6 +335,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.start()
         logger.warn("warning")
         logger.error("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         outputs.stdOut == TextUtil.toPlatformLineSeparators('warning\n')
@@ -340,6 +356,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.start()
         logger.warn("warning")
         logger.error("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("warning")
@@ -362,6 +379,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         def logger = LoggerFactory.getLogger("category")
         logger.info("info")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -384,6 +402,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         logger.warning("warning")
         logger.severe("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         outputs.stdOut == ''
@@ -403,6 +422,7 @@ class LoggingServiceRegistryTest extends Specification {
 
         when:
         logger.warning("before")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         0 * listener._
@@ -411,6 +431,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.captureSystemSources()
         logger.info("ignored")
         logger.warning("warning")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput('warning')
@@ -461,6 +482,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         System.out.println("info")
         System.err.println("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -493,6 +515,7 @@ class LoggingServiceRegistryTest extends Specification {
         loggingManager.start()
         logger.warn("warning")
         logger.error("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         0 * listener._
@@ -509,6 +532,7 @@ class LoggingServiceRegistryTest extends Specification {
         when:
         logger.warning("warning")
         logger.severe("error")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         outputs.stdOut == ''
@@ -538,6 +562,7 @@ class LoggingServiceRegistryTest extends Specification {
 
         def textOutput = registry.get(StyledTextOutputFactory).create("category")
         textOutput.println("info")
+        registry.get(OutputEventRenderer).flush()
 
         then:
         1 * listener.onOutput("info")
@@ -27,6 +27,8 @@ import org.gradle.internal.nativeintegration.console.ConsoleMetaData
 import org.gradle.util.RedirectStdOutAndErr
 import org.junit.Rule
 
+import java.util.concurrent.ConcurrentLinkedQueue
+
 class OutputEventRendererTest extends OutputSpecification {
     @Rule public final RedirectStdOutAndErr outputs = new RedirectStdOutAndErr()
     private final ConsoleStub console = new ConsoleStub()
@@ -42,6 +44,7 @@ class OutputEventRendererTest extends OutputSpecification {
         when:
         renderer.attachSystemOutAndErr()
         renderer.onOutput(event('message', LogLevel.INFO))
+        renderer.flush()
 
         then:
         outputs.stdOut.readLines() == ['message']
@@ -52,6 +55,7 @@ class OutputEventRendererTest extends OutputSpecification {
         when:
         renderer.attachSystemOutAndErr()
         renderer.onOutput(event('message', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         outputs.stdOut == ''
@@ -65,6 +69,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.configure(LogLevel.DEBUG)
         renderer.addStandardOutputListener(listener)
         renderer.onOutput(event(tenAm, 'message', LogLevel.INFO))
+        renderer.flush()
 
         then:
         listener.value.readLines() == ['10:00:00.000 [INFO] [category] message']
@@ -76,6 +81,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.attachSystemOutAndErr()
         renderer.onOutput(event(tenAm, 'info', LogLevel.INFO))
         renderer.onOutput(event(tenAm, 'error', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         outputs.stdOut.readLines() == ['10:00:00.000 [INFO] [category] info']
@@ -89,6 +95,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.addStandardOutputListener(listener)
         renderer.onOutput(event('info', LogLevel.INFO))
         renderer.onOutput(event('error', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         listener.value.readLines() == ['info']
@@ -102,6 +109,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.removeStandardOutputListener(listener)
         renderer.onOutput(event('info', LogLevel.INFO))
         renderer.onOutput(event('error', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         listener.value == ''
@@ -114,6 +122,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.configure(LogLevel.DEBUG)
         renderer.addStandardOutputListener(listener)
         renderer.onOutput(event(tenAm, 'message', LogLevel.INFO))
+        renderer.flush()
 
         then:
         listener.value.readLines() == ['10:00:00.000 [INFO] [category] message']
@@ -126,6 +135,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.addStandardErrorListener(listener)
         renderer.onOutput(event('info', LogLevel.INFO))
         renderer.onOutput(event('error', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         listener.value.readLines() == ['error']
@@ -139,6 +149,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.removeStandardErrorListener(listener)
         renderer.onOutput(event('info', LogLevel.INFO))
         renderer.onOutput(event('error', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         listener.value == ''
@@ -151,6 +162,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.configure(LogLevel.DEBUG)
         renderer.addStandardErrorListener(listener)
         renderer.onOutput(event(tenAm, 'message', LogLevel.ERROR))
+        renderer.flush()
 
         then:
         listener.value.readLines() == ['10:00:00.000 [ERROR] [category] message']
@@ -166,6 +178,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.addOutputEventListener(listener)
         renderer.onOutput(ignored)
         renderer.onOutput(event)
+        renderer.flush()
 
         then:
         1 * listener.onOutput(event)
@@ -181,6 +194,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.addOutputEventListener(listener)
         renderer.removeOutputEventListener(listener)
         renderer.onOutput(event)
+        renderer.flush()
 
         then:
         0 * listener._
@@ -199,6 +213,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.restore(snapshot)
         renderer.onOutput(event('info', LogLevel.INFO))
         renderer.onOutput(event('debug', LogLevel.DEBUG))
+        renderer.flush()
 
         then:
         listener.value.readLines() == ['info']
@@ -209,6 +224,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.attachSystemOutAndErr()
         renderer.onOutput(start(loggingHeader: 'description'))
         renderer.onOutput(complete('status'))
+        renderer.flush()
 
         then:
         outputs.stdOut.readLines() == ['description status']
@@ -221,6 +237,7 @@ class OutputEventRendererTest extends OutputSpecification {
         renderer.configure(LogLevel.QUIET)
         renderer.onOutput(start('description'))
         renderer.onOutput(complete('status'))
+        renderer.flush()
 
         then:
         outputs.stdOut == ''
@@ -330,16 +347,81 @@ class OutputEventRendererTest extends OutputSpecification {
         outputs.stdOut.readLines() == ['info']
         outputs.stdErr == ''
     }
+
+    def rendersAllEventsInOrderWhenGeneratedConcurrently() {
+        def listener = new TestListener()
+        def failures = new ConcurrentLinkedQueue<Throwable>()
+        renderer.addStandardOutputListener(listener)
+
+        when:
+        def threads = (1..4).collect { thread ->
+            Thread.start {
+                try {
+                    (1..500).each { count ->
+                        renderer.onOutput(event("${thread}:${count}", LogLevel.INFO))
+                    }
+                    renderer.flush()
+                    assert listener.value.readLines().contains("${thread}:500" as String)
+                } catch (Throwable t) {
+                    failures << t
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        failures.empty
+        def lines = listener.value.readLines()
+        lines.size() == 2000
+        (1..4).each { thread ->
+            assert lines.findAll { it.startsWith("${thread}:") } == (1..500).collect { "${thread}:${it}" as String }
+        }
+    }
+
+    def reportsFailureToRenderEventWhenFlushedRatherThanToThreadThatGeneratedEvent() {
+        def failure = new RuntimeException("broken")
+        def listener = Stub(OutputEventListener) {
+            onOutput(_) >> { throw failure }
+        }
+        renderer.addOutputEventListener(listener)
+
+        when:
+        renderer.onOutput(event('info', LogLevel.INFO))
+
+        then:
+        noExceptionThrown()
+
+        when:
+        renderer.flush()
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+
+    def blocksThreadWhenQueueIsFullUntilEventsHaveBeenRendered() {
+        def listener = new TestListener()
+        renderer.addStandardOutputListener(listener)
+
+        when:
+        (1..OutputEventRenderer.MAX_QUEUED_EVENTS * 3).each { count ->
+            renderer.onOutput(event("${count}", LogLevel.INFO))
+        }
+        renderer.flush()
+
+        then:
+        listener.value.readLines() == (1..OutputEventRenderer.MAX_QUEUED_EVENTS * 3).collect { "${it}" as String }
+    }
 }
 
 class TestListener implements StandardOutputListener {
     private final StringWriter writer = new StringWriter();
 
-    def getValue() {
+    synchronized def getValue() {
         return writer.toString()
     }
 
-    public void onOutput(CharSequence output) {
+    public synchronized void onOutput(CharSequence output) {
         writer.append(output);
     }
 }
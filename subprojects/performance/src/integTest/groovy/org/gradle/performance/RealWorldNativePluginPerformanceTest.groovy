@@ -121,10 +121,12 @@ class RealWorldNativePluginPerformanceTest extends AbstractCrossVersionPerforman
         // source file change causes a single project, single source set, single file to be recompiled.
         // header file change causes a single project, two source sets, some files to be recompiled.
         // recompile all sources causes all projects, all source sets, all files to be recompiled.
+        // common header file change causes all projects to resolve the includes of all source files again.
         buildSize | changeType              | maxExecutionTimeRegression | changedFile                       | changeClosure
         "medium"  | 'source file change'    | millis(300)                | 'modules/project5/src/src100_c.c' | this.&changeCSource
         "medium"  | 'header file change'    | millis(300)                | 'modules/project1/src/src50_h.h'  | this.&changeHeader
         "medium"  | 'recompile all sources' | millis(1500)               | 'common.gradle'                   | this.&changeArgs
+        "medium"  | 'common header change'  | millis(1500)               | 'common/common/include/header1.h' | this.&changeHeader
     }
 
     void changeCSource(File file, String originalContent) {
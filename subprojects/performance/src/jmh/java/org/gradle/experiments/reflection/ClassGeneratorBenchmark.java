@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.experiments.reflection;
+
+import org.gradle.api.internal.AsmBackedClassGenerator;
+import org.gradle.api.internal.ClassGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Measures the throughput of looking up already generated classes from several threads.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class ClassGeneratorBenchmark {
+
+    private final static Class<?>[] CLAZZ_ARRAY = new Class[]{BeanA.class, BeanB.class, BeanC.class, BeanD.class};
+    private final static int ARR_LEN = 1024;
+
+    private final ClassGenerator generator = new AsmBackedClassGenerator();
+    private Class<?>[] randomClasses;
+
+    @Setup(Level.Iteration)
+    public void configClasses() {
+        Random random = new Random();
+        randomClasses = new Class[ARR_LEN];
+        for (int i = 0; i < randomClasses.length; i++) {
+            randomClasses[i] = CLAZZ_ARRAY[random.nextInt(CLAZZ_ARRAY.length)];
+        }
+        for (Class<?> clazz : CLAZZ_ARRAY) {
+            generator.generate(clazz);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Index {
+        private int i;
+    }
+
+    @Benchmark
+    public void generate(Index index, Blackhole bh) {
+        bh.consume(generator.generate(randomClasses[++index.i % ARR_LEN]));
+    }
+
+    public static class BeanA {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class BeanB extends BeanA {
+        private int count;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+
+    public static class BeanC {
+        private boolean enabled;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class BeanD extends BeanC {
+    }
+}
@@ -24,6 +24,8 @@ import org.gradle.api.internal.tasks.compile.incremental.cache.DefaultGeneralCom
 import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
 import org.gradle.api.internal.tasks.compile.incremental.jar.DefaultJarSnapshotCache;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotCache;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclarationsCache;
+import org.gradle.api.internal.tasks.compile.processing.DefaultAnnotationProcessorDeclarationsCache;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.JdkToolsInitializer;
@@ -59,8 +61,9 @@ public class CompileServices implements PluginServiceRegistry {
             return new InProcessCompilerDaemonFactory(classLoaderFactory, gradle.getGradleUserHomeDir());
         }
 
-        GeneralCompileCaches createGeneralCompileCaches(ClassAnalysisCache classAnalysisCache, JarSnapshotCache jarSnapshotCache) {
-            return new DefaultGeneralCompileCaches(classAnalysisCache, jarSnapshotCache);
+        GeneralCompileCaches createGeneralCompileCaches(ClassAnalysisCache classAnalysisCache, JarSnapshotCache jarSnapshotCache,
+                                                        AnnotationProcessorDeclarationsCache annotationProcessorDeclarationsCache) {
+            return new DefaultGeneralCompileCaches(classAnalysisCache, jarSnapshotCache, annotationProcessorDeclarationsCache);
         }
 
         ClassAnalysisCache createClassAnalysisCache(CacheRepository cacheRepository) {
@@ -70,5 +73,9 @@ public class CompileServices implements PluginServiceRegistry {
         JarSnapshotCache createJarSnapshotCache(CacheRepository cacheRepository) {
             return new DefaultJarSnapshotCache(cacheRepository);
         }
+
+        AnnotationProcessorDeclarationsCache createAnnotationProcessorDeclarationsCache(CacheRepository cacheRepository) {
+            return new DefaultAnnotationProcessorDeclarationsCache(cacheRepository);
+        }
     }
 }
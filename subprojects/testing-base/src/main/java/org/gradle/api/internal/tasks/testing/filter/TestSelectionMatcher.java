@@ -20,6 +20,7 @@ import com.google.common.base.Splitter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class TestSelectionMatcher {
@@ -61,4 +62,21 @@ public class TestSelectionMatcher {
         }
         return false;
     }
+
+    /**
+     * Returns whether the given class or any of its methods may be included, so that the class has to be looked at for tests.
+     */
+    public boolean mayIncludeClass(String className) {
+        for (Pattern pattern : includePatterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+            // A pattern that has not failed before reaching the end of the class name may still match one of its methods
+            Matcher matcher = pattern.matcher(className + ".");
+            if (matcher.matches() || matcher.hitEnd()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
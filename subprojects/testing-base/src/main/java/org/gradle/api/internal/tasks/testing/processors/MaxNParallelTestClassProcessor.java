@@ -31,10 +31,11 @@ import java.util.List;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * processors. Some processors can be started when processing starts, so that they get ready while the test classes are still being found.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
+    private final int initialProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
     private TestResultProcessor resultProcessor;
@@ -44,7 +45,15 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, 0, factory, actorFactory);
+    }
+
+    /**
+     * @param initialProcessors the number of processors to start when processing starts, at most {@code maxProcessors}. The others are started on demand.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, int initialProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
         this.maxProcessors = maxProcessors;
+        this.initialProcessors = Math.min(initialProcessors, maxProcessors);
         this.factory = factory;
         this.actorFactory = actorFactory;
     }
@@ -53,25 +62,35 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     public void startProcessing(TestResultProcessor resultProcessor) {
         resultProcessorActor = actorFactory.createActor(resultProcessor);
         this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+        // Each processor starts asynchronously, so the processors start in parallel with each other and with finding the test classes
+        while (processors.size() < initialProcessors) {
+            startProcessor();
+        }
     }
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+        if (pos == processors.size()) {
+            if (processors.size() < maxProcessors) {
+                startProcessor();
+            } else {
+                pos = 0;
+            }
         }
+        TestClassProcessor processor = processors.get(pos);
+        pos++;
         processor.processTestClass(testClass);
     }
 
+    private void startProcessor() {
+        TestClassProcessor processor = factory.create();
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+    }
+
     @Override
     public void stop() {
         try {
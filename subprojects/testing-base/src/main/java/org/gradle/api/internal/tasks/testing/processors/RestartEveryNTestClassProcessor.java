@@ -21,6 +21,9 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 
+/**
+ * Uses a new delegate processor for every N test classes. The first delegate is started when processing starts, the others on demand.
+ */
 public class RestartEveryNTestClassProcessor implements TestClassProcessor {
     private final Factory<TestClassProcessor> factory;
     private final long restartEvery;
@@ -36,13 +39,13 @@ public class RestartEveryNTestClassProcessor implements TestClassProcessor {
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
+        startDelegate();
     }
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
         if (processor == null) {
-            processor = factory.create();
-            processor.startProcessing(resultProcessor);
+            startDelegate();
         }
         processor.processTestClass(testClass);
         testCount++;
@@ -58,6 +61,11 @@ public class RestartEveryNTestClassProcessor implements TestClassProcessor {
         }
     }
 
+    private void startDelegate() {
+        processor = factory.create();
+        processor.startProcessing(resultProcessor);
+    }
+
     private void endBatch() {
         try {
             processor.stop();
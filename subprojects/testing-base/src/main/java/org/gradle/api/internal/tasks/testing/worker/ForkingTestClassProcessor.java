@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
@@ -31,8 +32,18 @@ import org.gradle.util.CollectionUtils;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Runs test classes in a forked worker process. The worker process is started when processing starts.
+ *
+ * <p>When given reusable workers, it runs the test classes on an idle worker that is compatible, or on a new worker that is kept for later test runs.
+ * The shared part of the class path is then the class path of the worker process, and the rest of the class path is loaded separately for this test run.</p>
+ */
 public class ForkingTestClassProcessor implements TestClassProcessor {
     private final WorkerProcessFactory workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
@@ -40,7 +51,10 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
+    private final ReusableTestWorkers reusableWorkers;
+    private final Iterable<File> sharedClassPath;
     private RemoteTestClassProcessor remoteProcessor;
+    private ReusableTestWorkerClient reusableWorker;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
 
@@ -51,15 +65,41 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
+        this.reusableWorkers = null;
+        this.sharedClassPath = Collections.emptyList();
+    }
+
+    /**
+     * @param sharedClassPath the part of the class path that workers can share with other test runs. Must not change between test runs.
+     */
+    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry,
+                                     @Nullable ReusableTestWorkers reusableWorkers, Iterable<File> sharedClassPath) {
+        this.workerFactory = workerFactory;
+        this.processorFactory = processorFactory;
+        this.options = options;
+        this.classPath = classPath;
+        this.buildConfigAction = buildConfigAction;
+        this.moduleRegistry = moduleRegistry;
+        this.reusableWorkers = reusableWorkers;
+        this.sharedClassPath = sharedClassPath;
     }
 
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
+        if (reusableWorkers != null) {
+            reusableWorker = startTestRun();
+        } else {
+            remoteProcessor = forkProcess();
+        }
     }
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
+        if (reusableWorker != null) {
+            reusableWorker.processTestClass(testClass);
+            return;
+        }
         if (remoteProcessor == null) {
             remoteProcessor = forkProcess();
         }
@@ -87,6 +127,42 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         return remoteProcessor;
     }
 
+    ReusableTestWorkerClient startTestRun() {
+        WorkerProcessBuilder builder = workerFactory.create(new ReusableTestWorker());
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
+        builder.applicationClasspath(sharedClassPath);
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+
+        Object compatibilityKey = ReusableTestWorkerClient.compatibilityKeyOf(builder);
+        ReusableTestWorkerClient worker = reusableWorkers.reserveIdleWorker(compatibilityKey);
+        if (worker == null) {
+            worker = reusableWorkers.reserveNewWorker(builder, compatibilityKey);
+        }
+        try {
+            worker.startTestRun(new TestWorkerRunSpec(processorFactory, getTestRunClasspath()), resultProcessor);
+        } catch (RuntimeException e) {
+            reusableWorkers.release(worker);
+            throw e;
+        }
+        return worker;
+    }
+
+    private List<File> getTestRunClasspath() {
+        Set<File> shared = new LinkedHashSet<File>();
+        for (File file : sharedClassPath) {
+            shared.add(file);
+        }
+        List<File> testRunClasspath = new ArrayList<File>();
+        for (File file : classPath) {
+            if (!shared.contains(file)) {
+                testRunClasspath.add(file);
+            }
+        }
+        return testRunClasspath;
+    }
+
     List<URL> getTestWorkerImplementationClasspath() {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-core").getImplementationClasspath().getAsURLs(),
@@ -109,7 +185,14 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
 
     @Override
     public void stop() {
-        if (remoteProcessor != null) {
+        if (reusableWorker != null) {
+            try {
+                reusableWorker.endTestRun();
+            } finally {
+                reusableWorkers.release(reusableWorker);
+                reusableWorker = null;
+            }
+        } else if (remoteProcessor != null) {
             remoteProcessor.stop();
             workerProcess.waitForStop();
         }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+/**
+ * A test worker that runs the test classes of several test runs, one run after the other.
+ *
+ * @see RemoteTestClassProcessor
+ */
+public interface RemoteReusableTestWorker {
+    /**
+     * Starts a test run. Does not block.
+     */
+    void startTestRun(TestWorkerRunSpec spec);
+
+    /**
+     * Does not block.
+     */
+    void processTestClass(TestClassRunInfo testClass);
+
+    /**
+     * Ends the current test run. The worker signals the end of the run to its {@link ReusableTestWorkerResultProcessor}. Does not block.
+     */
+    void endTestRun();
+
+    /**
+     * Stops the worker. Does not block.
+     */
+    void stop();
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.id.RandomLongIdGenerator;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.serialize.SerializerRegistry;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that runs several test runs, one after the other, until it is stopped. The class path of the worker process holds the libraries
+ * shared by the runs, and each run loads the rest of its test class path with a new class loader, which is discarded at the end of the run.
+ *
+ * <p>A failure of a run is reported at the end of the run, rather than failing the worker process.</p>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, RemoteReusableTestWorker, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private transient CountDownLatch completed;
+    private transient WorkerProcessContext workerProcessContext;
+    private transient ReusableTestWorkerResultProcessor resultProcessor;
+    private transient DefaultServiceRegistry testServices;
+    private transient VisitableURLClassLoader testClassLoader;
+    private transient TestClassProcessor processor;
+    private transient Throwable runFailure;
+    private transient Properties systemProperties;
+
+    static SerializerRegistry createSerializers() {
+        SerializerRegistry serializers = TestEventSerializer.create();
+        serializers.useJavaSerialization(TestWorkerRunSpec.class);
+        return serializers;
+    }
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started executing tests.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        completed = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        systemProperties = (Properties) System.getProperties().clone();
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(createSerializers());
+        resultProcessor = serverConnection.addOutgoing(ReusableTestWorkerResultProcessor.class);
+        serverConnection.addIncoming(RemoteReusableTestWorker.class, this);
+        serverConnection.connect();
+
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        } finally {
+            LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
+        }
+    }
+
+    @Override
+    public void startTestRun(TestWorkerRunSpec spec) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            // The ids of the tests must be unique within the build that runs them, which is not necessarily the build that started this worker
+            testServices = new TestWorker.TestFrameworkServiceRegistry(new RandomLongIdGenerator().generateId());
+            testClassLoader = new VisitableURLClassLoader(workerProcessContext.getApplicationClassLoader(), new DefaultClassPath(spec.getTestClasspath()));
+
+            TestClassProcessor targetProcessor = spec.getProcessorFactory().create(testServices);
+            IdGenerator<?> idGenerator = testServices.get(IdGenerator.class);
+            targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                    workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class));
+            processor = new ContextClassLoaderProxy<TestClassProcessor>(TestClassProcessor.class, targetProcessor, testClassLoader).getSource();
+            processor.startProcessing(resultProcessor);
+        } catch (Throwable t) {
+            runFailure = t;
+        }
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        if (runFailure != null) {
+            return;
+        }
+        try {
+            processor.processTestClass(testClass);
+        } catch (Throwable t) {
+            runFailure = t;
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void endTestRun() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            if (runFailure == null) {
+                processor.stop();
+            }
+        } catch (Throwable t) {
+            runFailure = t;
+        } finally {
+            // Clean out any security manager the tests might have installed
+            System.setSecurityManager(null);
+            resetSystemProperties();
+            CompositeStoppable.stoppable(testServices, testClassLoader).stop();
+        }
+
+        Throwable failure = runFailure;
+        processor = null;
+        testServices = null;
+        testClassLoader = null;
+        runFailure = null;
+        if (failure == null) {
+            resultProcessor.testRunCompleted();
+        } else {
+            resultProcessor.testRunFailed(failure);
+        }
+    }
+
+    /**
+     * Puts back the system properties the worker was started with, so that the next test run does not see what this one has set.
+     */
+    private void resetSystemProperties() {
+        Properties properties = System.getProperties();
+        properties.clear();
+        properties.putAll(systemProperties);
+    }
+
+    @Override
+    public void stop() {
+        completed.countDown();
+    }
+}
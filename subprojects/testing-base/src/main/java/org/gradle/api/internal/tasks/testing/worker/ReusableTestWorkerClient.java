@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.dispatch.StreamCompletion;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.worker.WorkerProcess;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+import org.gradle.process.internal.worker.WorkerProcessSettings;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A test worker process that runs one test run at a time, and can be reused for later test runs.
+ */
+public class ReusableTestWorkerClient implements Stoppable {
+    private final Object compatibilityKey;
+    private final WorkerProcess workerProcess;
+    private final TestRunResults results = new TestRunResults();
+    private final RemoteReusableTestWorker worker;
+
+    /**
+     * Starts a worker process with the given builder, whose worker must be a {@link ReusableTestWorker}.
+     */
+    public ReusableTestWorkerClient(WorkerProcessBuilder builder, Object compatibilityKey) {
+        this.compatibilityKey = compatibilityKey;
+        workerProcess = builder.build();
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(ReusableTestWorker.createSerializers());
+        connection.addIncoming(ReusableTestWorkerResultProcessor.class, results);
+        worker = connection.addOutgoing(RemoteReusableTestWorker.class);
+        connection.connect();
+    }
+
+    /**
+     * Returns what a worker started with the given settings can be reused for: workers with equal keys can run the same tests.
+     */
+    public static Object compatibilityKeyOf(WorkerProcessSettings settings) {
+        JavaExecHandleBuilder javaCommand = settings.getJavaCommand();
+        Map<String, String> environment = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> entry : javaCommand.getEnvironment().entrySet()) {
+            environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return Arrays.asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getWorkingDir(), environment,
+            settings.getLogLevel(), settings.getSharedPackages(), new ArrayList<File>(settings.getApplicationClasspath()));
+    }
+
+    public boolean isCompatibleWith(Object compatibilityKey) {
+        return this.compatibilityKey.equals(compatibilityKey);
+    }
+
+    /**
+     * Returns false once a test run has failed or the worker process has gone away, after which the worker should not be used again.
+     */
+    public boolean isHealthy() {
+        return results.isHealthy();
+    }
+
+    /**
+     * Starts a test run, whose results are sent to the given processor. Does not block.
+     */
+    public void startTestRun(TestWorkerRunSpec spec, TestResultProcessor resultProcessor) {
+        results.startRun(resultProcessor);
+        worker.startTestRun(spec);
+    }
+
+    /**
+     * Does not block.
+     */
+    public void processTestClass(TestClassRunInfo testClass) {
+        worker.processTestClass(testClass);
+    }
+
+    /**
+     * Ends the current test run, and blocks until all of its results have been received.
+     */
+    public void endTestRun() {
+        worker.endTestRun();
+        if (!results.awaitRun()) {
+            // The worker process has gone away, so report how it stopped
+            workerProcess.waitForStop();
+            throw new IllegalStateException("Test worker process stopped before the test run completed.");
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (results.isConnected()) {
+            worker.stop();
+        }
+        workerProcess.waitForStop();
+    }
+
+    private static class TestRunResults implements ReusableTestWorkerResultProcessor, StreamCompletion {
+        private final Lock lock = new ReentrantLock();
+        private final Condition condition = lock.newCondition();
+        private volatile TestResultProcessor resultProcessor;
+        private boolean running;
+        private boolean connected = true;
+        private boolean healthy = true;
+        private Throwable failure;
+
+        void startRun(TestResultProcessor resultProcessor) {
+            lock.lock();
+            try {
+                this.resultProcessor = resultProcessor;
+                running = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits for the current run to complete, and rethrows its failure. Returns false when the worker went away before the run completed.
+         */
+        boolean awaitRun() {
+            lock.lock();
+            try {
+                while (running && connected) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+                if (running) {
+                    running = false;
+                    healthy = false;
+                    return false;
+                }
+                Throwable runFailure = failure;
+                failure = null;
+                if (runFailure != null) {
+                    throw UncheckedException.throwAsUncheckedException(runFailure);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isHealthy() {
+            lock.lock();
+            try {
+                return healthy && connected;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isConnected() {
+            lock.lock();
+            try {
+                return connected;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            resultProcessor.started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+
+        @Override
+        public void testRunCompleted() {
+            endRun(null);
+        }
+
+        @Override
+        public void testRunFailed(Throwable failure) {
+            endRun(failure);
+        }
+
+        private void endRun(Throwable failure) {
+            lock.lock();
+            try {
+                running = false;
+                if (failure != null) {
+                    this.failure = failure;
+                    healthy = false;
+                }
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void endStream() {
+            lock.lock();
+            try {
+                connected = false;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * Receives the results of the test runs of a reusable test worker. The end of each run is signalled with the results,
+ * so that it is received after all results of the run.
+ */
+public interface ReusableTestWorkerResultProcessor extends TestResultProcessor {
+    /**
+     * Notifies this processor that the current test run has completed.
+     */
+    void testRunCompleted();
+
+    /**
+     * Notifies this processor that the current test run has completed with the given failure. The worker should not be used again.
+     */
+    void testRunFailed(Throwable failure);
+}
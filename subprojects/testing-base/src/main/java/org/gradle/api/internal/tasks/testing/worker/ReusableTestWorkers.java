@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps the reusable test workers of the build session, so that later test runs of the session can reuse them. A worker is only reused by test runs
+ * that need a compatible worker. Workers that failed are stopped, and so are the least recently used idle workers when there are more idle workers than allowed.
+ *
+ * <p>The workers are started by the worker process factory of the session, so they are stopped when the session ends and are not reused by later builds.
+ * Only the builds of a continuous build share a session.</p>
+ *
+ * <p>Test workers are only reused when the {@value #REUSE_WORKERS_PROPERTY} system property is set to true.</p>
+ */
+public class ReusableTestWorkers implements Stoppable {
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.worker.reuse";
+
+    private static final Logger LOGGER = Logging.getLogger(ReusableTestWorkers.class);
+    private static final int DEFAULT_MAX_IDLE_WORKERS = 4;
+
+    private final Object lock = new Object();
+    private final List<ReusableTestWorkerClient> allWorkers = new ArrayList<ReusableTestWorkerClient>();
+    // Most recently used first
+    private final LinkedList<ReusableTestWorkerClient> idleWorkers = new LinkedList<ReusableTestWorkerClient>();
+    private final int maxIdleWorkers;
+
+    public ReusableTestWorkers() {
+        this(DEFAULT_MAX_IDLE_WORKERS);
+    }
+
+    ReusableTestWorkers(int maxIdleWorkers) {
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_WORKERS_PROPERTY);
+    }
+
+    /**
+     * Reserves an idle worker with the given compatibility key, or returns null when there is none.
+     */
+    public ReusableTestWorkerClient reserveIdleWorker(Object compatibilityKey) {
+        List<ReusableTestWorkerClient> expired = new ArrayList<ReusableTestWorkerClient>();
+        try {
+            synchronized (lock) {
+                Iterator<ReusableTestWorkerClient> it = idleWorkers.iterator();
+                while (it.hasNext()) {
+                    ReusableTestWorkerClient candidate = it.next();
+                    if (!candidate.isHealthy()) {
+                        // The worker process went away while it was idle
+                        it.remove();
+                        allWorkers.remove(candidate);
+                        expired.add(candidate);
+                    } else if (candidate.isCompatibleWith(compatibilityKey)) {
+                        it.remove();
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+        } finally {
+            stopExpired(expired);
+        }
+    }
+
+    /**
+     * Starts and reserves a new worker with the given builder.
+     */
+    public ReusableTestWorkerClient reserveNewWorker(WorkerProcessBuilder builder, Object compatibilityKey) {
+        // allow the workers to be started concurrently
+        ReusableTestWorkerClient worker = startWorker(builder, compatibilityKey);
+        synchronized (lock) {
+            allWorkers.add(worker);
+        }
+        return worker;
+    }
+
+    ReusableTestWorkerClient startWorker(WorkerProcessBuilder builder, Object compatibilityKey) {
+        return new ReusableTestWorkerClient(builder, compatibilityKey);
+    }
+
+    public void release(ReusableTestWorkerClient worker) {
+        List<ReusableTestWorkerClient> expired = new ArrayList<ReusableTestWorkerClient>();
+        synchronized (lock) {
+            if (worker.isHealthy()) {
+                idleWorkers.addFirst(worker);
+            } else {
+                expired.add(worker);
+            }
+            while (idleWorkers.size() > maxIdleWorkers) {
+                expired.add(idleWorkers.removeLast());
+            }
+            allWorkers.removeAll(expired);
+        }
+        stopExpired(expired);
+    }
+
+    private void stopExpired(List<ReusableTestWorkerClient> expired) {
+        for (ReusableTestWorkerClient expiredWorker : expired) {
+            try {
+                expiredWorker.stop();
+            } catch (Exception e) {
+                // The worker may have crashed already
+                LOGGER.debug("Could not stop expired test worker.", e);
+            }
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            LOGGER.debug("Stopping {} test worker(s).", allWorkers.size());
+            CompositeStoppable.stoppable(allWorkers).stop();
+            LOGGER.info("Stopped {} test worker(s).", allWorkers.size());
+            allWorkers.clear();
+            idleWorkers.clear();
+        }
+    }
+}
@@ -62,7 +62,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
 
         System.setProperty(WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
 
-        DefaultServiceRegistry testServices = new TestFrameworkServiceRegistry(workerProcessContext);
+        DefaultServiceRegistry testServices = new TestFrameworkServiceRegistry(workerProcessContext.getWorkerId());
         startReceivingTests(workerProcessContext, testServices);
 
         try {
@@ -123,11 +123,11 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
-        private final WorkerProcessContext workerProcessContext;
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+        private final Object idScope;
 
-        public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
-            this.workerProcessContext = workerProcessContext;
+        public TestFrameworkServiceRegistry(Object idScope) {
+            this.idScope = idScope;
         }
 
         protected TimeProvider createTimeProvider() {
@@ -135,7 +135,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         }
 
         protected IdGenerator<Object> createIdGenerator() {
-            return new CompositeIdGenerator(workerProcessContext.getWorkerId(), new LongIdGenerator());
+            return new CompositeIdGenerator(idScope, new LongIdGenerator());
         }
 
         protected ExecutorFactory createExecutorFactory() {
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * What a reusable test worker needs to run the test classes of a test run.
+ */
+public class TestWorkerRunSpec implements Serializable {
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final List<File> testClasspath;
+
+    public TestWorkerRunSpec(WorkerTestClassProcessorFactory processorFactory, List<File> testClasspath) {
+        this.processorFactory = processorFactory;
+        this.testClasspath = testClasspath;
+    }
+
+    public WorkerTestClassProcessorFactory getProcessorFactory() {
+        return processorFactory;
+    }
+
+    /**
+     * The part of the test class path that is not on the class path of the worker process. It is loaded with a new class loader for each run.
+     */
+    public List<File> getTestClasspath() {
+        return testClasspath;
+    }
+}
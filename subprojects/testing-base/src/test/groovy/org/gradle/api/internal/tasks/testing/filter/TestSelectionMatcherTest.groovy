@@ -51,6 +51,21 @@ class TestSelectionMatcherTest extends Specification {
         ["*.foo.*"]              | "foo"                     | "aaaa"                | false
     }
 
+    def "knows if class may contain matching tests"() {
+        expect: new TestSelectionMatcher(input).mayIncludeClass(className) == match
+
+        where:
+        input                    | className                 | match
+        ["FooTest"]              | "FooTest"                 | true
+        ["FooTest"]              | "BarTest"                 | false
+        ["com.foo.FooTest.test"] | "com.foo.FooTest"         | true
+        ["com.foo.FooTest.test"] | "com.foo.BarTest"         | false
+        ["com.foo.FooTest.test"] | "com.foo.FooTestx"        | false
+        ["*FooTest"]             | "com.foo.Helper"          | true
+        ["com.foo.*"]            | "com.bar.BarTest"         | false
+        ["com.foo.*", "BarTest"] | "BarTest"                 | true
+    }
+
     def "knows if test matches"() {
         expect: new TestSelectionMatcher(input).matchesTest(className, methodName) == match
 
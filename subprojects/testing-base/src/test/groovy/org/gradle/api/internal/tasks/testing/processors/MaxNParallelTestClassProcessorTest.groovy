@@ -167,4 +167,67 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         then:
         1 * asyncProcessor2.processTestClass(test)
     }
+
+    def startsInitialProcessorsOnStartAndUsesThemBeforeStartingOthers() {
+        def processor = new MaxNParallelTestClassProcessor(3, 2, factory, actorFactory)
+        TestClassRunInfo test = Mock()
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor processor3 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        TestClassProcessor asyncProcessor3 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        Actor actor3 = Mock()
+
+        when:
+        processor.startProcessing(resultProcessor)
+
+        then:
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        2 * factory.create() >>> [processor1, processor2]
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        0 * _
+
+        when:
+        processor.processTestClass(test)
+        processor.processTestClass(test)
+
+        then:
+        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor2.processTestClass(test)
+        0 * _
+
+        when:
+        processor.processTestClass(test)
+        processor.processTestClass(test)
+
+        then:
+        1 * factory.create() >> processor3
+        1 * actorFactory.createActor(processor3) >> actor3
+        1 * actor3.getProxy(TestClassProcessor) >> asyncProcessor3
+        1 * asyncProcessor3.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor3.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test)
+        0 * _
+    }
+
+    def startsNoMoreThanMaxProcessorsOnStart() {
+        def processor = new MaxNParallelTestClassProcessor(1, 4, factory, actorFactory)
+        _ * actorFactory.createActor(_) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestClassProcessor) >> Mock(TestClassProcessor)
+
+        when:
+        processor.startProcessing(resultProcessor)
+
+        then:
+        1 * factory.create() >> Mock(TestClassProcessor)
+    }
 }
@@ -39,7 +39,7 @@ public class RestartEveryNTestClassProcessorTest {
     private RestartEveryNTestClassProcessor processor = new RestartEveryNTestClassProcessor(factory, 2);
 
     @Test
-    public void onFirstTestCreatesDelegateProcessor() {
+    public void passesFirstTestToDelegateProcessorStartedWhenProcessingStarts() {
         context.checking(new Expectations() {{
             oneOf(factory).create();
             will(returnValue(delegate));
@@ -52,6 +52,18 @@ public class RestartEveryNTestClassProcessorTest {
         processor.processTestClass(test1);
     }
 
+    @Test
+    public void createsDelegateProcessorWhenProcessingStarts() {
+        context.checking(new Expectations() {{
+            oneOf(factory).create();
+            will(returnValue(delegate));
+
+            oneOf(delegate).startProcessing(resultProcessor);
+        }});
+
+        processor.startProcessing(resultProcessor);
+    }
+
     @Test
     public void onNthTestEndsProcessingOnDelegateProcessor() {
         context.checking(new Expectations() {{
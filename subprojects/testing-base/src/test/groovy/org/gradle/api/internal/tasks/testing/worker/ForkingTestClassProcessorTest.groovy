@@ -20,10 +20,12 @@ import org.gradle.api.Action
 import org.gradle.api.internal.classpath.Module
 import org.gradle.api.internal.classpath.ModuleRegistry
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.classpath.ClassPath
 import org.gradle.internal.remote.ObjectConnection
 import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.JavaExecHandleBuilder
 import org.gradle.process.internal.worker.WorkerProcess
 import org.gradle.process.internal.worker.WorkerProcessBuilder
 import org.gradle.process.internal.worker.WorkerProcessFactory
@@ -55,6 +57,55 @@ class ForkingTestClassProcessorTest extends Specification {
         0 * remoteProcessor._
     }
 
+    def "starts worker process when processing starts"() {
+        def test1 = Mock(TestClassRunInfo)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+
+        when:
+        processor.startProcessing(Mock(TestResultProcessor))
+
+        then:
+        1 * processor.forkProcess() >> remoteProcessor
+
+        when:
+        processor.processTestClass(test1)
+
+        then:
+        0 * processor.forkProcess()
+        1 * remoteProcessor.processTestClass(test1)
+    }
+
+    def "runs tests on reusable worker with test run classpath when reusing workers"() {
+        def reusableWorkers = Mock(ReusableTestWorkers)
+        def worker = Mock(ReusableTestWorkerClient)
+        def resultProcessor = Mock(TestResultProcessor)
+        def test1 = Mock(TestClassRunInfo)
+        def shared = new File("shared.jar")
+        def processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerProcessFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [shared, new File("classes")], Mock(Action), moduleRegistry, reusableWorkers, [shared]])
+        _ * processor.getTestWorkerImplementationClasspath() >> []
+        _ * workerProcessBuilder.getJavaCommand() >> Stub(JavaExecHandleBuilder)
+        _ * workerProcessBuilder.getApplicationClasspath() >> ([shared] as Set)
+        _ * workerProcessFactory.create(_ as ReusableTestWorker) >> workerProcessBuilder
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(test1)
+        processor.stop()
+
+        then:
+        1 * workerProcessBuilder.applicationClasspath([shared])
+        1 * reusableWorkers.reserveIdleWorker(_) >> worker
+        1 * worker.startTestRun({ it.testClasspath == [new File("classes")] }, resultProcessor)
+        1 * worker.processTestClass(test1)
+
+        then:
+        1 * worker.endTestRun()
+
+        then:
+        1 * reusableWorkers.release(worker)
+        0 * processor.forkProcess()
+    }
+
     def "starts process with a limited implementation classpath"() {
         setup:
         1 * workerProcessFactory.create(_) >> workerProcessBuilder
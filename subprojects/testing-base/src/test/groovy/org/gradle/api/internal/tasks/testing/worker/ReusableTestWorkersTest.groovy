@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import spock.lang.Specification
+import spock.lang.Subject
+
+class ReusableTestWorkersTest extends Specification {
+    def builder = Stub(WorkerProcessBuilder)
+    def key = ["key"]
+    def otherKey = ["other"]
+
+    @Subject workers = Spy(ReusableTestWorkers, constructorArgs: [2])
+
+    def "does not reserve idle worker when there are no workers"() {
+        expect:
+        workers.reserveIdleWorker(key) == null
+    }
+
+    def "reserves new worker"() {
+        def worker = Stub(ReusableTestWorkerClient)
+
+        when:
+        def result = workers.reserveNewWorker(builder, key)
+
+        then:
+        1 * workers.startWorker(builder, key) >> worker
+        result == worker
+    }
+
+    def "workers can be released for use by later test runs with the same key"() {
+        def worker = worker()
+        workers.startWorker(builder, key) >> worker
+
+        when:
+        workers.reserveNewWorker(builder, key)
+
+        then:
+        workers.reserveIdleWorker(key) == null
+
+        when:
+        workers.release(worker)
+
+        then:
+        workers.reserveIdleWorker(otherKey) == null
+        workers.reserveIdleWorker(key) == worker
+        workers.reserveIdleWorker(key) == null
+    }
+
+    def "stops worker that failed instead of keeping it"() {
+        def worker = worker(false)
+        workers.startWorker(builder, key) >> worker
+
+        when:
+        workers.reserveNewWorker(builder, key)
+        workers.release(worker)
+
+        then:
+        1 * worker.stop()
+
+        and:
+        workers.reserveIdleWorker(key) == null
+
+        when:
+        workers.stop()
+
+        then:
+        0 * worker.stop()
+    }
+
+    def "stops idle worker that went away instead of reserving it"() {
+        def healthy = true
+        def worker = Mock(ReusableTestWorkerClient) {
+            isCompatibleWith(key) >> true
+            isHealthy() >> { healthy }
+        }
+        workers.startWorker(builder, key) >> worker
+
+        when:
+        workers.reserveNewWorker(builder, key)
+        workers.release(worker)
+        healthy = false
+        def result = workers.reserveIdleWorker(key)
+
+        then:
+        result == null
+        1 * worker.stop()
+    }
+
+    def "stops least recently used workers when there are too many idle workers"() {
+        def started = (1..3).collect { worker() }
+        workers.startWorker(builder, key) >>> started
+
+        when:
+        started.each { workers.reserveNewWorker(builder, key) }
+        workers.release(started[0])
+        workers.release(started[1])
+
+        then:
+        0 * _.stop()
+
+        when:
+        workers.release(started[2])
+
+        then:
+        1 * started[0].stop()
+        0 * _.stop()
+
+        and:
+        workers.reserveIdleWorker(key) == started[2]
+    }
+
+    def "stops all workers"() {
+        def worker1 = worker()
+        def worker2 = worker()
+        workers.startWorker(builder, key) >>> [worker1, worker2]
+
+        when:
+        workers.reserveNewWorker(builder, key)
+        workers.reserveNewWorker(builder, key)
+        workers.release(worker1)
+        workers.stop()
+
+        then:
+        1 * worker1.stop()
+        1 * worker2.stop()
+    }
+
+    private ReusableTestWorkerClient worker(boolean healthy = true) {
+        Mock(ReusableTestWorkerClient) {
+            isCompatibleWith(key) >> true
+            isHealthy() >> healthy
+        }
+    }
+}
@@ -21,7 +21,7 @@ import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.Factory;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
@@ -29,76 +29,50 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
-import java.util.*;
-
-import static org.gradle.internal.FileUtils.hasExtension;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class for detectors that find test classes by reading class files, and the class files of their super classes when required.
+ * Test class files may be processed concurrently.
+ */
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
 
-    private List<File> testClassDirectories;
-    private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
-    private TestClassProcessor testClassProcessor;
+    private final ConcurrentMap<String, Boolean> superClasses;
+    private TestClassDetectionListener listener;
     private final List<String> knownTestCaseClassNames;
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
+    private TestClassInfoCache.TaskExecution testClassInfoCache;
+    private ClasspathClassFileReader classpathReader;
 
-    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
-        assert classFileExtractionManager != null;
-        this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+    protected AbstractTestFrameworkDetector() {
+        this.superClasses = new ConcurrentHashMap<String, Boolean>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
-        prepareClasspath();
-        if (StringUtils.isEmpty(superClassName)) {
-            throw new IllegalArgumentException("superClassName is empty!");
-        }
-
-        final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
-
-        File superTestClassFile = null;
-        while (superTestClassFile == null && testClassDirectoriesIt.hasNext()) {
-            final File testClassDirectory = testClassDirectoriesIt.next();
-            final File superTestClassFileCandidate = new File(testClassDirectory, superClassName + ".class");
-            if (superTestClassFileCandidate.exists()) {
-                superTestClassFile = superTestClassFileCandidate;
+    private synchronized ClasspathClassFileReader getClasspathReader() {
+        if (classpathReader == null) {
+            List<File> classpath = new ArrayList<File>();
+            if (testClassesDirectory != null) {
+                classpath.add(testClassesDirectory);
             }
-        }
-
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
-        }
-    }
-
-    private void prepareClasspath() {
-        if (testClassDirectories != null) {
-            return;
-        }
-
-        testClassDirectories = new ArrayList<File>();
-
-        if (testClassesDirectory != null) {
-            testClassDirectories.add(testClassesDirectory);
-        }
-        if (testClasspath != null) {
-            for (File file : testClasspath) {
-                if (file.isDirectory()) {
-                    testClassDirectories.add(file);
-                } else if (file.isFile() && hasExtension(file, ".jar")) {
-                    classFileExtractionManager.addLibraryJar(file);
+            if (testClasspath != null) {
+                for (File file : testClasspath) {
+                    classpath.add(file);
                 }
             }
+            classpathReader = new ClasspathClassFileReader(classpath);
         }
+        return classpathReader;
     }
 
     @Override
@@ -111,60 +85,106 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
-    protected TestClassVisitor classVisitor(final File testClassFile) {
-        final TestClassVisitor classVisitor = createClassVisitor();
+    @Override
+    public void setTestClassInfoCache(TestClassInfoCache.TaskExecution testClassInfoCache) {
+        this.testClassInfoCache = testClassInfoCache;
+    }
+
+    /**
+     * Reads the given class file, or looks up what was read from a class file with the same content before.
+     */
+    protected TestClassInfo readClassFile(final File classFile) {
+        if (testClassInfoCache == null) {
+            return readClass(classFile);
+        }
+        return testClassInfoCache.get(classFile, getClass().getName(), new Factory<TestClassInfo>() {
+            @Override
+            public TestClassInfo create() {
+                return readClass(classFile);
+            }
+        });
+    }
 
+    private TestClassInfo readClass(File classFile) {
         InputStream classStream = null;
         try {
-            classStream = new BufferedInputStream(new FileInputStream(testClassFile));
-            final ClassReader classReader = new ClassReader(classStream);
-            classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+            classStream = new BufferedInputStream(new FileInputStream(classFile));
+            return readClass(new ClassReader(classStream));
         } catch (Throwable e) {
-            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
+            throw new GradleException("failed to read class file " + classFile.getAbsolutePath(), e);
         } finally {
             IOUtils.closeQuietly(classStream);
         }
+    }
 
-        return classVisitor;
+    private TestClassInfo readClass(ClassReader classReader) {
+        T classVisitor = createClassVisitor();
+        classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        return TestClassInfo.of(classVisitor);
+    }
+
+    /**
+     * Reads the given super class from the test classes directory or the test class path, or returns null when it cannot be found.
+     */
+    private TestClassInfo readSuperClass(String superClassName) {
+        ClasspathClassFileReader reader = getClasspathReader();
+        File classFile = reader.findClassFile(superClassName);
+        if (classFile != null) {
+            return readClassFile(classFile);
+        }
+        byte[] classBytes = reader.readJarClassFile(superClassName);
+        if (classBytes == null) {
+            return null;
+        }
+        try {
+            return readClass(new ClassReader(classBytes));
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file of " + superClassName, e);
+        }
     }
 
     @Override
     public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+        return processTestClass(readClassFile(testClassFile), false);
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
+    protected abstract boolean processTestClass(TestClassInfo testClass, boolean superClass);
 
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
-
-        Boolean isSuperTest = superClasses.get(testClassFile);
+    /**
+     * Returns whether the given super class is a test, or null when the class cannot be found.
+     */
+    protected Boolean processSuperClass(String superClassName) {
+        if (StringUtils.isEmpty(superClassName)) {
+            throw new IllegalArgumentException("superClassName is empty!");
+        }
 
+        Boolean isSuperTest = superClasses.get(superClassName);
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
-
-            superClasses.put(testClassFile, isTest);
-        } else {
-            isTest = isSuperTest;
+            TestClassInfo superClass = readSuperClass(superClassName);
+            if (superClass == null) {
+                return null;
+            }
+            isSuperTest = processTestClass(superClass, true);
+            superClasses.put(superClassName, isSuperTest);
         }
-
-        return isTest;
+        return isSuperTest;
     }
 
     /**
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
-            testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
+    protected void publishTestClass(boolean isTest, TestClassInfo testClass, boolean superClass) {
+        if (isTest && !testClass.isAbstract() && !superClass) {
+            String className = Type.getObjectType(testClass.getClassName()).getClassName();
+            synchronized (listener) {
+                listener.testClassDetected(new DefaultTestClassRunInfo(className));
+            }
         }
     }
-
     @Override
-    public void startDetection(TestClassProcessor testClassProcessor) {
-        this.testClassProcessor = testClassProcessor;
+    public void startDetection(TestClassDetectionListener listener) {
+        this.listener = listener;
     }
 
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
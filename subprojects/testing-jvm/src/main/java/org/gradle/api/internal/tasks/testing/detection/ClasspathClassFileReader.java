@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.io.ByteStreams;
+import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.gradle.internal.FileUtils.hasExtension;
+
+/**
+ * Finds class files in the directories and jars of a class path. Classes in jars are read in memory rather than extracted.
+ * The packages of the jars are indexed the first time a class is looked up in the jars, so that only jars containing the package of a class are opened.
+ */
+public class ClasspathClassFileReader {
+    private final List<File> directories = new ArrayList<File>();
+    private final List<File> jars = new ArrayList<File>();
+    private Map<String, Set<File>> packageJars;
+
+    public ClasspathClassFileReader(Iterable<File> classpath) {
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                directories.add(file);
+            } else if (file.isFile() && hasExtension(file, ".jar")) {
+                jars.add(file);
+            }
+        }
+    }
+
+    /**
+     * Returns the class file of the given class in one of the directories of the class path, or null when there is none.
+     *
+     * @param className The internal name of the class.
+     */
+    @Nullable
+    public File findClassFile(String className) {
+        for (File directory : directories) {
+            File classFile = new File(directory, className + ".class");
+            if (classFile.isFile()) {
+                return classFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the class file of the given class from one of the jars of the class path, or returns null when there is none.
+     *
+     * @param className The internal name of the class.
+     */
+    @Nullable
+    public byte[] readJarClassFile(String className) {
+        Set<File> candidates = getPackageJars().get(packageOf(className));
+        if (candidates == null) {
+            return null;
+        }
+        String entryName = className + ".class";
+        for (File jar : candidates) {
+            try {
+                ZipFile zipFile = new ZipFile(jar);
+                try {
+                    ZipEntry entry = zipFile.getEntry(entryName);
+                    if (entry != null) {
+                        InputStream inputStream = zipFile.getInputStream(entry);
+                        try {
+                            return ByteStreams.toByteArray(inputStream);
+                        } finally {
+                            inputStream.close();
+                        }
+                    }
+                } finally {
+                    zipFile.close();
+                }
+            } catch (IOException e) {
+                throw new GradleException("failed to read class file from jar (" + jar + ")", e);
+            }
+        }
+        return null;
+    }
+
+    private synchronized Map<String, Set<File>> getPackageJars() {
+        if (packageJars == null) {
+            packageJars = new HashMap<String, Set<File>>();
+            for (File jar : jars) {
+                indexPackages(jar);
+            }
+        }
+        return packageJars;
+    }
+
+    private void indexPackages(File jar) {
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF")) {
+                        continue;
+                    }
+                    String packageName = packageOf(name);
+                    Set<File> jarsOfPackage = packageJars.get(packageName);
+                    if (jarsOfPackage == null) {
+                        jarsOfPackage = new LinkedHashSet<File>();
+                        packageJars.put(packageName, jarsOfPackage);
+                    }
+                    jarsOfPackage.add(jar);
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException("failed to scan jar file for packages (" + jar + ")", e);
+        }
+    }
+
+    private static String packageOf(String name) {
+        return name.substring(0, name.lastIndexOf('/') + 1);
+    }
+}
@@ -16,29 +16,41 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Action;
 import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
- * a detection or filename scan is performed to find test classes.
+ * a detection or filename scan is performed to find test classes. A detection scan processes the class files in parallel,
+ * but publishes the test classes in the order in which the class files were found.
  */
 public class DefaultTestClassScanner implements Runnable {
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final BuildOperationProcessor buildOperationProcessor;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
-                                   TestClassProcessor testClassProcessor) {
+                                   TestClassProcessor testClassProcessor, BuildOperationProcessor buildOperationProcessor) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     @Override
@@ -51,10 +63,17 @@ public class DefaultTestClassScanner implements Runnable {
     }
 
     private void detectionScan() {
-        testFrameworkDetector.startDetection(testClassProcessor);
-        candidateClassFiles.visit(new ClassFileVisitor() {
-            public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+        final ScanOrderPublisher publisher = new ScanOrderPublisher(testClassProcessor);
+        testFrameworkDetector.startDetection(publisher);
+        buildOperationProcessor.run(new Action<BuildOperationQueue<DetectTestClass>>() {
+            @Override
+            public void execute(final BuildOperationQueue<DetectTestClass> queue) {
+                candidateClassFiles.visit(new ClassFileVisitor() {
+                    public void visitClassFile(FileVisitDetails fileDetails) {
+                        int index = publisher.addClassFile(getClassName(fileDetails));
+                        queue.add(new DetectTestClass(fileDetails.getFile(), index, publisher));
+                    }
+                });
             }
         });
     }
@@ -62,13 +81,42 @@ public class DefaultTestClassScanner implements Runnable {
     private void filenameScan() {
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                String className = fileDetails.getRelativePath().getPathString().replaceAll("\\.class", "").replace('/', '.');
-                TestClassRunInfo testClass = new DefaultTestClassRunInfo(className);
+                TestClassRunInfo testClass = new DefaultTestClassRunInfo(getClassName(fileDetails));
                 testClassProcessor.processTestClass(testClass);
             }
         });
     }
 
+    private static String getClassName(FileVisitDetails fileDetails) {
+        return fileDetails.getRelativePath().getPathString().replaceAll("\\.class", "").replace('/', '.');
+    }
+
+    private class DetectTestClass implements RunnableBuildOperation {
+        private final File classFile;
+        private final int index;
+        private final ScanOrderPublisher publisher;
+
+        DetectTestClass(File classFile, int index, ScanOrderPublisher publisher) {
+            this.classFile = classFile;
+            this.index = index;
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void run() {
+            try {
+                testFrameworkDetector.processTestClass(classFile);
+            } finally {
+                publisher.classFileProcessed(index);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            return "detect test class in " + classFile;
+        }
+    }
+
     private abstract class ClassFileVisitor extends EmptyFileVisitor {
         @Override
         public void visitFile(FileVisitDetails fileDetails) {
@@ -81,4 +129,49 @@ public class DefaultTestClassScanner implements Runnable {
 
         public abstract void visitClassFile(FileVisitDetails fileDetails);
     }
+
+    /**
+     * Holds back the test classes detected in a class file until the class files found before it have been processed, so that
+     * test classes are published in scan order however the detection of the class files is scheduled.
+     */
+    private static class ScanOrderPublisher implements TestClassDetectionListener {
+        private final TestClassProcessor delegate;
+        private final Map<String, Integer> indexesByClassName = new HashMap<String, Integer>();
+        private final List<TestClassRunInfo> detected = new ArrayList<TestClassRunInfo>();
+        private final BitSet processed = new BitSet();
+        private int nextToPublish;
+
+        ScanOrderPublisher(TestClassProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        synchronized int addClassFile(String className) {
+            int index = detected.size();
+            indexesByClassName.put(className, index);
+            detected.add(null);
+            return index;
+        }
+
+        @Override
+        public synchronized void testClassDetected(TestClassRunInfo testClass) {
+            Integer index = indexesByClassName.get(testClass.getTestClassName());
+            if (index == null) {
+                // Not detected in a class file at the location for its name, so there is no order to keep
+                delegate.processTestClass(testClass);
+            } else {
+                detected.set(index, testClass);
+            }
+        }
+
+        synchronized void classFileProcessed(int index) {
+            processed.set(index);
+            while (nextToPublish < detected.size() && processed.get(nextToPublish)) {
+                TestClassRunInfo testClass = detected.set(nextToPublish, null);
+                if (testClass != null) {
+                    delegate.processTestClass(testClass);
+                }
+                nextToPublish++;
+            }
+        }
+    }
 }
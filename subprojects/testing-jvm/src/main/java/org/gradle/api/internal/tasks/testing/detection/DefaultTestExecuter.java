@@ -16,45 +16,71 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
+import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.filter.TestSelectionMatcher;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkers;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
 import org.gradle.internal.progress.OperationIdGenerator;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
+    private static final Logger LOGGER = Logging.getLogger(DefaultTestExecuter.class);
+
     private final WorkerProcessFactory workerFactory;
     private final ActorFactory actorFactory;
     private final ModuleRegistry moduleRegistry;
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final TestClassInfoCache testClassInfoCache;
+    private final ReusableTestWorkers reusableTestWorkers;
 
-    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry) {
+    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
+                               BuildOperationProcessor buildOperationProcessor, TestClassInfoCache testClassInfoCache, ReusableTestWorkers reusableTestWorkers) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
         this.moduleRegistry = moduleRegistry;
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.testClassInfoCache = testClassInfoCache;
+        this.reusableTestWorkers = reusableTestWorkers;
     }
 
     @Override
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        final List<File> sharedClasspath = isReusingWorkers(testTask) ? getSharedClasspath(testTask) : null;
+        final ReusableTestWorkers workers = sharedClasspath != null ? reusableTestWorkers : null;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), moduleRegistry);
+                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), moduleRegistry, workers, sharedClasspath != null ? sharedClasspath : Collections.<File>emptyList());
             }
         };
         Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -63,23 +89,90 @@ public class DefaultTestExecuter implements TestExecuter {
             }
         };
 
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-            reforkingProcessorFactory, actorFactory);
-
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
+        int maxParallelForks = testTask.getMaxParallelForks();
+        int forksToStartUpfront = getForksToStartUpfront(testClassFiles, testTask.getFilter().getIncludePatterns(), maxParallelForks);
+        TestClassProcessor processor = new MaxNParallelTestClassProcessor(maxParallelForks, forksToStartUpfront, reforkingProcessorFactory, actorFactory);
+
         Runnable detector;
+        TestClassInfoCache.TaskExecution testClassInfos = null;
         if (testTask.isScanForTestClasses()) {
+            testClassInfos = testClassInfoCache.forTask(testTask.getPath());
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            testFrameworkDetector.setTestClassInfoCache(testClassInfos);
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, buildOperationProcessor);
         } else {
-            detector = new DefaultTestClassScanner(testClassFiles, null, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, null, processor, buildOperationProcessor);
         }
 
         final Object testTaskOperationId = OperationIdGenerator.generateId(testTask);
 
         new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider(), testTaskOperationId, testTask.getPath(), "Gradle Test Run " + testTask.getPath()).run();
+
+        if (testClassInfos != null) {
+            testClassInfos.store();
+        }
+    }
+
+    /**
+     * Test workers are not reused when tests need a fresh worker after a number of test classes, or when they are debugged.
+     */
+    private static boolean isReusingWorkers(Test testTask) {
+        return ReusableTestWorkers.isEnabled() && testTask.getForkEvery() == 0 && !testTask.getDebug();
+    }
+
+    /**
+     * Returns the jars of the test class path that are in the file store of the dependency cache. These are dependencies downloaded from repositories,
+     * stored at a location that depends on their content, so they never change and test workers can keep them loaded for all test runs that use them.
+     *
+     * <p>The shared jars are loaded by the class loader of the worker, so they cannot see the classes that are loaded separately for each test run.
+     * Returns null, so that the test run uses a worker of its own, when any other jar is on the test class path, as the test framework or another
+     * shared jar may depend on it. Only directories, such as the test classes directory, are loaded separately for each test run.</p>
+     */
+    @Nullable
+    static List<File> getSharedClasspath(Test testTask) {
+        // Keep in sync with the layout of the dependency cache, see CacheLayout.FILE_STORE
+        File fileStore = new File(testTask.getProject().getGradle().getGradleUserHomeDir(), "caches/modules-2/files-2.1");
+        String fileStorePrefix = fileStore.getAbsolutePath() + File.separator;
+        List<File> sharedClasspath = new ArrayList<File>();
+        for (File file : testTask.getClasspath()) {
+            if (file.isDirectory() || !file.exists()) {
+                continue;
+            }
+            if (!file.getAbsolutePath().startsWith(fileStorePrefix) || !file.getName().endsWith(".jar")) {
+                LOGGER.info("Not reusing test workers for {}, as {} is not a dependency downloaded from a repository.", testTask, file);
+                return null;
+            }
+            sharedClasspath.add(file);
+        }
+        return Collections.unmodifiableList(sharedClasspath);
+    }
+
+    /**
+     * Returns how many forks to start before the test classes are found. Only the top level class files that the test filter may include are counted.
+     * Some of them are abstract classes or helpers rather than tests, so only one fork is started for every two of them, which keeps forks that
+     * would get no tests from being started. The other forks are started as test classes are found.
+     */
+    private static int getForksToStartUpfront(FileTree classFiles, Set<String> includePatterns, int maxParallelForks) {
+        final TestSelectionMatcher matcher = includePatterns.isEmpty() ? null : new TestSelectionMatcher(includePatterns);
+        final int max = 2 * maxParallelForks;
+        final AtomicInteger count = new AtomicInteger();
+        classFiles.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                String name = fileDetails.getName();
+                if (!name.endsWith(".class") || name.indexOf('$') >= 0) {
+                    return;
+                }
+                String className = fileDetails.getRelativePath().getPathString().replaceAll("\\.class", "").replace('/', '.');
+                if ((matcher == null || matcher.mayIncludeClass(className)) && count.incrementAndGet() >= max) {
+                    fileDetails.stopVisiting();
+                }
+            }
+        });
+        return count.get() / 2;
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,11 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
-public interface JarFilePackageListener {
-    void receivePackage(String packageName);
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+/**
+ * Receives the test classes found by a {@link TestFrameworkDetector}.
+ */
+public interface TestClassDetectionListener {
+    void testClassDetected(TestClassRunInfo testClass);
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.internal.changedetection.state.FileSnapshotter;
+import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.MapSerializer;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches what test framework detectors read from class files in the task history cache, by the hash of the class file.
+ * The hashes of the test class files are usually known already, as the class files are inputs of the test task.
+ *
+ * <p>The cache holds one entry per test task, which keeps only what was read during the last execution of the task. What was read from
+ * class files that have changed or gone away is dropped when the task runs again.</p>
+ */
+public class TestClassInfoCache {
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final FileSnapshotter fileSnapshotter;
+    private final PersistentIndexedCache<String, Map<String, TestClassInfo>> cache;
+
+    public TestClassInfoCache(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter) {
+        this.cacheAccess = cacheAccess;
+        this.fileSnapshotter = fileSnapshotter;
+        this.cache = cacheAccess.createCache("testClassInfo", String.class,
+            new MapSerializer<String, TestClassInfo>(BaseSerializerFactory.STRING_SERIALIZER, new TestClassInfo.Serializer()));
+    }
+
+    /**
+     * Starts an execution of the given task, which can use what was read during its previous execution.
+     */
+    public TaskExecution forTask(final String taskPath) {
+        Map<String, TestClassInfo> previous = cacheAccess.useCache("load test class info", new Factory<Map<String, TestClassInfo>>() {
+            @Override
+            public Map<String, TestClassInfo> create() {
+                return cache.get(taskPath);
+            }
+        });
+        return new TaskExecution(taskPath, previous == null ? Collections.<String, TestClassInfo>emptyMap() : previous);
+    }
+
+    public class TaskExecution {
+        private final String taskPath;
+        private final Map<String, TestClassInfo> previous;
+        private final Map<String, TestClassInfo> current = new ConcurrentHashMap<String, TestClassInfo>();
+
+        private TaskExecution(String taskPath, Map<String, TestClassInfo> previous) {
+            this.taskPath = taskPath;
+            this.previous = previous;
+        }
+
+        /**
+         * Returns what the given detector reads from the given class file, using the given reader when the class file is not known yet.
+         * The reader is called without holding the cache lock, so that class files can be read in parallel.
+         */
+        public TestClassInfo get(final File classFile, final String detector, Factory<TestClassInfo> reader) {
+            String key = cacheAccess.useCache("hash test class file", new Factory<String>() {
+                @Override
+                public String create() {
+                    return detector + ":" + fileSnapshotter.snapshot(classFile).getHash().asCompactString();
+                }
+            });
+            TestClassInfo info = current.get(key);
+            if (info == null) {
+                info = previous.get(key);
+                if (info == null) {
+                    info = reader.create();
+                }
+                current.put(key, info);
+            }
+            return info;
+        }
+
+        /**
+         * Replaces what was kept for the task with what was read during this execution.
+         */
+        public void store() {
+            final Map<String, TestClassInfo> infos = new LinkedHashMap<String, TestClassInfo>(current);
+            cacheAccess.useCache("store test class info", new Runnable() {
+                @Override
+                public void run() {
+                    cache.put(taskPath, infos);
+                }
+            });
+        }
+    }
+}
@@ -16,16 +16,17 @@
 package org.gradle.api.internal.tasks.testing.detection;
 
 import org.gradle.api.file.FileCollection;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 
 import java.io.File;
 
 public interface TestFrameworkDetector {
-    void startDetection(TestClassProcessor testClassProcessor);
+    void startDetection(TestClassDetectionListener listener);
 
     boolean processTestClass(File testClassFile);
 
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
+
+    void setTestClassInfoCache(TestClassInfoCache.TaskExecution testClassInfoCache);
 }
@@ -16,6 +16,8 @@
 
 package org.gradle.jvm.test.internal.services;
 
+import org.gradle.api.internal.tasks.testing.detection.TestClassInfoCache;
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkers;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.jvm.test.internal.JUnitTestSuiteBinaryRenderer;
@@ -28,7 +30,7 @@ public class JvmTestingServices implements PluginServiceRegistry {
 
     @Override
     public void registerBuildSessionServices(ServiceRegistration registration) {
-
+        registration.add(ReusableTestWorkers.class);
     }
 
     @Override
@@ -38,7 +40,7 @@ public class JvmTestingServices implements PluginServiceRegistry {
 
     @Override
     public void registerGradleServices(ServiceRegistration registration) {
-
+        registration.add(TestClassInfoCache.class);
     }
 
     @Override
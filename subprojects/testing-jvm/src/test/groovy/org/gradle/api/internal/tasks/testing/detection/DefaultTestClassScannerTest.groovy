@@ -1,58 +1,97 @@
-/*
- * Copyright 2010 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-
-package org.gradle.api.internal.tasks.testing.detection
-
-import org.gradle.util.JUnit4GroovyMockery
-import org.jmock.integration.junit4.JMock
-import org.junit.runner.RunWith
-import org.junit.Test
-
-import org.gradle.api.internal.tasks.testing.TestClassProcessor
-import org.jmock.Sequence
-import org.gradle.api.file.FileTree
-import static org.hamcrest.Matchers.*
-import org.gradle.api.file.FileVisitDetails
-
-@RunWith(JMock.class)
-public class DefaultTestClassScannerTest {
-    private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
-    private final TestFrameworkDetector detector = context.mock(TestFrameworkDetector.class)
-    private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
-    private final FileTree files = context.mock(FileTree.class)
-
-    @Test
-    public void passesEachClassFileToTestClassDetector() {
-        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
-
-        context.checking {
-            Sequence sequence = context.sequence('seq')
-            one(files).visit(withParam(notNullValue()))
-            will { visitor ->
-                visitor.visitFile({new File('class1.class')} as FileVisitDetails)
-                visitor.visitFile({new File('class2.class')} as FileVisitDetails)
-            }
-            one(detector).startDetection(processor)
-            inSequence(sequence)
-            one(detector).processTestClass(new File('class1.class'))
-            one(detector).processTestClass(new File('class2.class'))
-            inSequence(sequence)
-        }
-        
-        scanner.run()
-    }
-}
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.Action
+import org.gradle.api.file.FileTree
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import spock.lang.Specification
+
+class DefaultTestClassScannerTest extends Specification {
+    def detector = Mock(TestFrameworkDetector)
+    def processor = Mock(TestClassProcessor)
+    def files = Mock(FileTree)
+    def queue = Mock(BuildOperationQueue)
+    def buildOperationProcessor = Mock(BuildOperationProcessor)
+    def scanner = new DefaultTestClassScanner(files, detector, processor, buildOperationProcessor)
+
+    def "passes each class file to test class detector as a build operation"() {
+        when:
+        scanner.run()
+
+        then:
+        1 * detector.startDetection(_ as TestClassDetectionListener)
+
+        then:
+        1 * buildOperationProcessor.run(_ as Action) >> { Action action -> action.execute(queue) }
+        1 * files.visit(_ as FileVisitor) >> { FileVisitor visitor ->
+            visitor.visitFile(classFile('class1.class'))
+            visitor.visitFile(classFile('class2.class'))
+        }
+        2 * queue.add(_) >> { RunnableBuildOperation operation -> operation.run() }
+        1 * detector.processTestClass(new File('class1.class'))
+        1 * detector.processTestClass(new File('class2.class'))
+        0 * _
+    }
+
+    def "publishes detected test classes in scan order"() {
+        def operations = []
+        TestClassDetectionListener publisher = null
+
+        given:
+        detector.startDetection(_) >> { TestClassDetectionListener l -> publisher = l }
+        buildOperationProcessor.run(_ as Action) >> { Action action ->
+            action.execute(queue)
+            operations.reverse()*.run()
+        }
+        files.visit(_ as FileVisitor) >> { FileVisitor visitor ->
+            visitor.visitFile(classFile('org/A.class'))
+            visitor.visitFile(classFile('org/B.class'))
+            visitor.visitFile(classFile('org/C.class'))
+        }
+        queue.add(_) >> { RunnableBuildOperation operation -> operations << operation }
+        detector.processTestClass(_) >> { File file ->
+            if (file.name != 'B.class') {
+                publisher.testClassDetected(new DefaultTestClassRunInfo('org.' + file.name - '.class'))
+            }
+            true
+        }
+
+        when:
+        scanner.run()
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == 'org.A' })
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == 'org.C' })
+        0 * processor._
+    }
+
+    private FileVisitDetails classFile(String path) {
+        def relativePath = RelativePath.parse(true, path)
+        return [getFile: { new File(relativePath.lastName) }, getName: { relativePath.lastName }, getRelativePath: { relativePath }] as FileVisitDetails
+    }
+}
@@ -22,13 +22,20 @@ import org.gradle.api.file.FileTree
 import org.gradle.api.internal.classpath.ModuleRegistry
 import org.gradle.api.internal.tasks.testing.TestFramework
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter
+import org.gradle.api.internal.tasks.testing.worker.ReusableTestWorkers
 import org.gradle.api.tasks.testing.Test
 import org.gradle.internal.actor.Actor
 import org.gradle.internal.actor.ActorFactory
+import org.gradle.api.invocation.Gradle
+import org.gradle.internal.operations.BuildOperationProcessor
 import org.gradle.process.internal.worker.WorkerProcessFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
 class DefaultTestExecuterTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
     TestResultProcessor testResultProcessor = Mock()
     Test testTask = Mock()
@@ -42,13 +49,17 @@ class DefaultTestExecuterTest extends Specification {
     File testClassesDir = Mock()
     FileCollection testClasspath = Mock()
     Project project = Mock()
+    BuildOperationProcessor buildOperationProcessor = Mock()
+    TestClassInfoCache testClassInfoCache = Mock()
+    ReusableTestWorkers reusableTestWorkers = Mock()
 
-    DefaultTestExecuter executer = new DefaultTestExecuter(workerFactory, actorFactory, moduleRegistry)
+    DefaultTestExecuter executer = new DefaultTestExecuter(workerFactory, actorFactory, moduleRegistry, buildOperationProcessor, testClassInfoCache, reusableTestWorkers)
 
     def setup() {
         _ * testTask.testFramework >> testFramework
         _ * testTask.getCandidateClassFiles() >> Mock(FileTree)
         _ * testTask.getPath() >> ':'
+        _ * testTask.getFilter() >> new DefaultTestFilter()
         _ * testTask.getProject() >> project
         _ * actorFactory.createActor(_) >> resultProcessorActor
         _ * resultProcessorActor.getProxy(_) >> resultProcessor
@@ -72,4 +83,48 @@ class DefaultTestExecuterTest extends Specification {
         1 * testTask.getClasspath() >> testClasspath
         1 * testFrameworkTestDetector.setTestClasspath(testClasspath)
     }
+
+    def "test class info cache for testclassdetector is configured before executing and stored afterwards"() {
+        def testClassInfos = Mock(TestClassInfoCache.TaskExecution)
+
+        when:
+        executer.execute(testTask, testResultProcessor);
+        then:
+        1 * testClassInfoCache.forTask(':') >> testClassInfos
+        1 * testFrameworkTestDetector.setTestClassInfoCache(testClassInfos)
+        then:
+        1 * testClassInfos.store()
+    }
+
+    def "shares the jars from the dependency cache when there are no other jars on the test class path"() {
+        def userHome = tmpDir.createDir("user-home")
+        def junit = userHome.file("caches/modules-2/files-2.1/junit/junit/4.12/abc/junit-4.12.jar").createFile()
+        def hamcrest = userHome.file("caches/modules-2/files-2.1/org.hamcrest/hamcrest-core/1.3/def/hamcrest-core-1.3.jar").createFile()
+        def classesDir = tmpDir.createDir("classes")
+        def missing = tmpDir.file("resources")
+        givenTestClasspath(userHome, [classesDir, junit, missing, hamcrest])
+
+        expect:
+        DefaultTestExecuter.getSharedClasspath(testTask) == [junit, hamcrest]
+    }
+
+    def "does not share any jars when a jar on the test class path is not from the dependency cache"() {
+        def userHome = tmpDir.createDir("user-home")
+        def junit = userHome.file("caches/modules-2/files-2.1/junit/junit/4.12/abc/junit-4.12.jar").createFile()
+        def projectJar = tmpDir.file("other/build/libs/other.jar").createFile()
+        givenTestClasspath(userHome, [junit, projectJar])
+
+        expect:
+        DefaultTestExecuter.getSharedClasspath(testTask) == null
+    }
+
+    private void givenTestClasspath(File userHome, List<File> files) {
+        interaction {
+            _ * project.getGradle() >> Stub(Gradle) {
+                getGradleUserHomeDir() >> userHome
+            }
+            _ * testTask.getClasspath() >> testClasspath
+            _ * testClasspath.iterator() >> { files.iterator() }
+        }
+    }
 }